@@ -51,6 +51,7 @@ import com.rapidminer.operator.learner.CapabilityProvider;
 import com.rapidminer.parameter.ParameterType;
 import com.rapidminer.parameter.ParameterTypeBoolean;
 import com.rapidminer.parameter.ParameterTypeCategory;
+import com.rapidminer.parameter.ParameterTypeDirectory;
 import com.rapidminer.parameter.ParameterTypeFile;
 import com.rapidminer.parameter.ParameterTypeInt;
 import com.rapidminer.parameter.ParameterTypePassword;
@@ -271,6 +272,12 @@ public class RapidMiner {
 	/** The maximum number of working threads that should be used by processes. */
 	public static final String PROPERTY_RAPIDMINER_GENERAL_NUMBER_OF_THREADS = "rapidminer.general.number_of_threads";
 
+	/** The directory in which memory mapped example tables store their data. */
+	public static final String PROPERTY_RAPIDMINER_SYSTEM_SPILL_DIRECTORY = "rapidminer.system.spill_directory";
+
+	/** Indicates if example sets are stored in the local repository in the row-wise format which can be read by older versions. */
+	public static final String PROPERTY_RAPIDMINER_SYSTEM_LEGACY_EXAMPLE_SET_FORMAT = "rapidminer.system.legacy_example_set_format";
+
 	// ---  INIT PROPERTIES  ---
 	
 	public static final String PROPERTY_RAPIDMINER_MAX_MEMORY = " maxMemory";
@@ -426,6 +433,10 @@ public class RapidMiner {
 
 		ParameterService.registerParameter(new ParameterTypeString(PROPERTY_RAPIDMINER_SOCKS_PROXY_HOST, "The proxy host to use for SOCKS.", true), "system");
 		ParameterService.registerParameter(new ParameterTypeInt(PROPERTY_RAPIDMINER_SOCKS_PROXY_PORT, "The proxy port to use for SOCKS.", 0, 65535, true), "system");
+		ParameterService.registerParameter(new ParameterTypeDirectory(PROPERTY_RAPIDMINER_SYSTEM_SPILL_DIRECTORY,
+				"The directory in which memory mapped example tables store their data. If empty, the temporary directory of the system is used.", true), "system");
+		ParameterService.registerParameter(new ParameterTypeBoolean(PROPERTY_RAPIDMINER_SYSTEM_LEGACY_EXAMPLE_SET_FORMAT,
+				"Indicates if example sets should be stored row-wise in the local repository as before the columnar format, so that older versions of RapidMiner can read them.", false), "system");
 		ParameterService.registerParameter(new ParameterTypeInt(WebServiceTools.WEB_SERVICE_TIMEOUT, "The timeout in milliseconds for webservice and url connections. Restart required to take effect.", 1, Integer.MAX_VALUE, 20000),"system");
 		//TODO: Re-add this after the 5.3.001 Release
 		/*
@@ -30,6 +30,7 @@ import java.util.logging.Level;
 
 import com.rapidminer.operator.IOContainer;
 import com.rapidminer.operator.Operator;
+import com.rapidminer.operator.execution.OperatorProfiler;
 import com.rapidminer.parameter.UndefinedParameterError;
 import com.rapidminer.repository.RepositoryLocation;
 import com.rapidminer.tools.I18N;
@@ -52,6 +53,7 @@ public class RapidMinerCommandLine extends RapidMiner implements BreakpointListe
 
     private String repositoryLocation = null;
     private boolean readFromFile = false;
+    private String profileFile = null;
     
     private List<Pair<String, String>> macros = new ArrayList<Pair<String,String>>();
 
@@ -104,6 +106,11 @@ public class RapidMinerCommandLine extends RapidMiner implements BreakpointListe
         	if (element==null) continue;
             if ("-f".equals(element)) {
                 readFromFile = true;
+            } else if (element.startsWith("-P")) {
+                profileFile = element.substring(2);
+                if (profileFile.length() == 0) {
+                    printUsage();
+                }
             } else if (element.startsWith("-M")) {
                 element = element.substring(2);
             	String[] split = element.split("=");
@@ -119,10 +126,12 @@ public class RapidMinerCommandLine extends RapidMiner implements BreakpointListe
     }
 
     private static void printUsage() {
-        System.err.println("Usage: " + RapidMinerCommandLine.class.getName() + " [-f] PROCESS [-Mname=value]\n"+
+        System.err.println("Usage: " + RapidMinerCommandLine.class.getName() + " [-f] PROCESS [-Mname=value] [-Pfile]\n"+
                 "  PROCESS       a repository location containing a process\n"+
         "  -f            interpret PROCESS as a file rather than a repository location (deprecated)\n"+
-        "  -Mname=value  sets the macro 'name' with the value 'value'");
+        "  -Mname=value  sets the macro 'name' with the value 'value'\n"+
+        "  -Pfile        writes the runtimes of all operators to file at the end of the process,\n"+
+        "                as CSV if file ends with .csv and as JSON otherwise");
         System.exit(1);
     }
 
@@ -151,12 +160,19 @@ public class RapidMinerCommandLine extends RapidMiner implements BreakpointListe
         }
 
         if (process != null) {
+            OperatorProfiler profiler = null;
+            if (profileFile != null) {
+                profiler = OperatorProfiler.attach(process);
+            }
             try {
             	for(Pair<String, String> macro : macros) {
                     process.getContext().addMacro(macro);
                 }
                 process.addBreakpointListener(this);
                 IOContainer results = process.run();
+                writeProfile(profiler);
+                // already written, failures from here on must not overwrite the profile
+                profiler = null;
                 process.getRootOperator().sendEmail(results, null);
                 //LogService.getRoot().info("Process finished successfully");
                 LogService.getRoot().log(Level.INFO, "com.rapidminer.RapidMinerCommandLine.process_finished");
@@ -177,6 +193,7 @@ public class RapidMinerCommandLine extends RapidMiner implements BreakpointListe
                 }
                 process.getLogger().log(Level.SEVERE, "Process failed: " + message, e);
                 process.getLogger().log(Level.SEVERE, "Here: "+process.getRootOperator().createMarkedProcessTree(10, "==>", process.getCurrentOperator()));
+                writeProfile(profiler);
                 try {
                     process.getRootOperator().sendEmail(null, e);
                 } catch (UndefinedParameterError ex) {
@@ -188,6 +205,23 @@ public class RapidMinerCommandLine extends RapidMiner implements BreakpointListe
         }
     }
 
+    /** Writes the operator profiles to the file given by the option -P if the profiler is not null. */
+    private void writeProfile(OperatorProfiler profiler) {
+        if (profiler == null) {
+            return;
+        }
+        try {
+            profiler.write(new File(profileFile));
+            LogService.getRoot().log(Level.INFO, "com.rapidminer.RapidMinerCommandLine.profile_written", profileFile);
+        } catch (IOException e) {
+            LogService.getRoot().log(Level.WARNING,
+                    I18N.getMessage(LogService.getRoot().getResourceBundle(), 
+                    "com.rapidminer.RapidMinerCommandLine.writing_profile_error", 
+                    profileFile, e.getMessage()),
+                    e);
+        }
+    }
+
     public static void main(String argv[]) {
         setExecutionMode(ExecutionMode.COMMAND_LINE);
         System.out.println(LICENSE);
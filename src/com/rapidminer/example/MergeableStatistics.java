@@ -0,0 +1,35 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.example;
+
+/** Statistics which can be counted independently on several partitions of the examples
+ *  and combined afterwards. This allows to calculate the statistics of an example set
+ *  in parallel.
+ */
+public interface MergeableStatistics extends Statistics {
+
+	/** Adds the counts of the given statistics, which must be of the same class and were
+	 *  counted for the same attribute, to this statistics. */
+	public void merge(MergeableStatistics other);
+
+}
@@ -31,22 +31,16 @@ import com.rapidminer.tools.LogService;
  * 
  *  @author Ingo Mierswa
  */
-public class NominalStatistics implements Statistics {
+public class NominalStatistics implements MergeableStatistics {
 
     private static final long serialVersionUID = -7644523717916796701L;
 
-    private long mode = -1;
-    
-    private long maxCounter = 0;
-
     private long[] scores;
     
     public NominalStatistics() {}
     
     /** Clone constructor. */
     private NominalStatistics(NominalStatistics other) {
-        this.mode = other.mode;
-        this.maxCounter = other.maxCounter;
         if (other.scores != null) {
             this.scores = new long[other.scores.length];
             for (int i = 0; i < this.scores.length; i++)
@@ -62,8 +56,6 @@ public class NominalStatistics implements Statistics {
     
     public void startCounting(Attribute attribute) {
         this.scores = new long[attribute.getMapping().size()];
-        this.mode = -1;
-        this.maxCounter = 0;
     }
     
     public void count(double doubleIndex, double weight) {
@@ -77,13 +69,37 @@ public class NominalStatistics implements Statistics {
             		scores = newScores;
             	}
             	scores[index]++;
-            	if (scores[index] > maxCounter) {
-            		maxCounter = scores[index];
-            		mode = index;
-            	}
             }
         }
     }
+
+    /** Adds the value counts of the given statistics. */
+    public void merge(MergeableStatistics other) {
+        long[] otherScores = ((NominalStatistics) other).scores;
+        if (otherScores.length > scores.length) {
+            long[] newScores = new long[otherScores.length];
+            System.arraycopy(scores, 0, newScores, 0, scores.length);
+            scores = newScores;
+        }
+        for (int i = 0; i < otherScores.length; i++) {
+            scores[i] += otherScores[i];
+        }
+    }
+
+    /** Returns the smallest index with the highest count or -1 if no value was counted. The mode
+     *  is derived from the counts only, so that it does not depend on the order in which the
+     *  examples were counted or on merging the statistics of several partitions. */
+    private long getMode() {
+        long mode = -1;
+        long maxCounter = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > maxCounter) {
+                maxCounter = scores[i];
+                mode = i;
+            }
+        }
+        return mode;
+    }
     
     public boolean handleStatistics(String name) {
         return 
@@ -94,7 +110,7 @@ public class NominalStatistics implements Statistics {
 
     public double getStatistics(Attribute attribute, String name, String parameter) {
         if (MODE.equals(name)) {
-            return this.mode;
+            return getMode();
         } else if (COUNT.equals(name)) {
             if (parameter != null) {
                 return getValueCount(attribute, parameter);
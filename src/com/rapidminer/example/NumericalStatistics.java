@@ -30,7 +30,7 @@ import com.rapidminer.tools.LogService;
  * 
  *  @author Ingo Mierswa
  */
-public class NumericalStatistics implements Statistics {
+public class NumericalStatistics implements MergeableStatistics {
 
     private static final long serialVersionUID = -6283236022093847887L;
 
@@ -68,6 +68,13 @@ public class NumericalStatistics implements Statistics {
         }
     }
 
+    public void merge(MergeableStatistics other) {
+        NumericalStatistics numerical = (NumericalStatistics) other;
+        sum += numerical.sum;
+        squaredSum += numerical.squaredSum;
+        valueCounter += numerical.valueCounter;
+    }
+
     public boolean handleStatistics(String name) {
         return 
             AVERAGE.equals(name) ||
@@ -30,7 +30,7 @@ import com.rapidminer.tools.LogService;
  * 
  *  @author Ingo Mierswa, Tobias Malbrecht
  */
-public class WeightedNumericalStatistics implements Statistics {
+public class WeightedNumericalStatistics implements MergeableStatistics {
 
     private static final long serialVersionUID = -6283236022093847887L;
 
@@ -75,6 +75,14 @@ public class WeightedNumericalStatistics implements Statistics {
       	}
     }
 
+    public void merge(MergeableStatistics other) {
+        WeightedNumericalStatistics weighted = (WeightedNumericalStatistics) other;
+        sum += weighted.sum;
+        squaredSum += weighted.squaredSum;
+        totalWeight += weighted.totalWeight;
+        count += weighted.count;
+    }
+
     public boolean handleStatistics(String name) {
         return 
             AVERAGE_WEIGHTED.equals(name) ||
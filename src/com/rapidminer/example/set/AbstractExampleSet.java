@@ -30,11 +30,13 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.zip.GZIPOutputStream;
 
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -51,13 +53,19 @@ import com.rapidminer.example.AttributeWeights;
 import com.rapidminer.example.Attributes;
 import com.rapidminer.example.Example;
 import com.rapidminer.example.ExampleSet;
+import com.rapidminer.example.MergeableStatistics;
 import com.rapidminer.example.Statistics;
+import com.rapidminer.example.table.ColumnarExampleTable;
+import com.rapidminer.example.table.ExampleTable;
+import com.rapidminer.example.table.MemoryExampleTable;
 import com.rapidminer.example.table.SparseFormatDataRowReader;
 import com.rapidminer.io.process.XMLTools;
 import com.rapidminer.operator.IOContainer;
 import com.rapidminer.operator.IOObject;
 import com.rapidminer.operator.MissingIOObjectException;
+import com.rapidminer.operator.OperatorException;
 import com.rapidminer.operator.ResultObjectAdapter;
+import com.rapidminer.tools.ConcurrencyTools;
 import com.rapidminer.tools.Ontology;
 import com.rapidminer.tools.Tools;
 import com.rapidminer.tools.XMLException;
@@ -77,6 +85,12 @@ public abstract class AbstractExampleSet extends ResultObjectAdapter implements
 
 	private static final long serialVersionUID = 8596141056047402798L;
 
+	/** The number of examples which are read into the columns before the statistics count them. */
+	private static final int STATISTICS_BLOCK_SIZE = 1024;
+
+	/** The minimal number of values for which the statistics are calculated in parallel. */
+	private static final long PARALLEL_STATISTICS_MINIMAL_VALUES = 1 << 20;
+
 	/** Maps attribute names to list of statistics objects. */
 	private final Map<String, List<Statistics>> statisticsMap = new HashMap<String, List<Statistics>>();
 
@@ -433,62 +447,161 @@ public abstract class AbstractExampleSet extends ResultObjectAdapter implements
 
 	/**
 	 * Here the Example Set is parsed only once, all the information is retained
-	 * for each example set.
+	 * for each example set. The examples are read in blocks and each statistics
+	 * object counts the values of a complete block column. For large data sets,
+	 * the examples are divided into partitions which are counted in parallel if
+	 * all statistics are {@link MergeableStatistics}.
 	 */
 	private void recalculateAttributeStatistics(List<Attribute> attributeList) {
 		// do nothing if not desired
 		if (attributeList.size() == 0) {
 			return;
 		} else {
+			Attribute weightAttribute = getAttributes().getWeight();
+			if ((weightAttribute != null) && (!weightAttribute.isNumerical())) // use only numerical weights
+				weightAttribute = null;
+
 			// init statistics
-			for (Attribute attribute : attributeList) {
-				Iterator<Statistics> stats = attribute.getAllStatistics();
+			int size = size();
+			Attribute[] attributes = new Attribute[attributeList.size()];
+			attributeList.toArray(attributes);
+			Statistics[][] statistics = new Statistics[attributes.length][];
+			boolean mergeable = true;
+			for (int a = 0; a < attributes.length; a++) {
+				List<Statistics> attributeStatistics = new ArrayList<Statistics>();
+				Iterator<Statistics> stats = attributes[a].getAllStatistics();
 				while (stats.hasNext()) {
-					Statistics statistics = stats.next();
-					statistics.startCounting(attribute);
+					Statistics currentStatistics = stats.next();
+					currentStatistics.startCounting(attributes[a]);
+					mergeable &= currentStatistics instanceof MergeableStatistics;
+					attributeStatistics.add(currentStatistics);
 				}
+				statistics[a] = new Statistics[attributeStatistics.size()];
+				attributeStatistics.toArray(statistics[a]);
 			}
 
 			// calculate statistics
-			Attribute weightAttribute = getAttributes().getWeight();
-			if ((weightAttribute != null) && (!weightAttribute.isNumerical())) // use only numerical weights
-				weightAttribute = null;
-			for (Example example : this) {
-				for (Attribute attribute : attributeList) {
-					double value = example.getValue(attribute);
-					double weight = 1.0d;
-					if (weightAttribute != null) {
-						weight = example.getValue(weightAttribute);
-					}
-					Iterator<Statistics> stats = attribute.getAllStatistics();
-					while (stats.hasNext()) {
-						Statistics statistics = stats.next();
-						statistics.count(value, weight);
-					}
-				}
+			int threads = 1;
+			if (mergeable && ((long) size * attributes.length >= PARALLEL_STATISTICS_MINIMAL_VALUES) && isRandomAccessible() && !ConcurrencyTools.isWorkerThread()) {
+				threads = Math.min(ConcurrencyTools.getNumberOfThreads(), size / STATISTICS_BLOCK_SIZE);
+			}
+			if (threads > 1) {
+				countStatisticsInParallel(attributes, weightAttribute, statistics, threads);
+			} else {
+				countStatistics(iterator(), attributes, weightAttribute, statistics);
 			}
 
 			// store cloned statistics
-			for (Attribute attribute : attributeList) {
-				List<Statistics> statisticsList = statisticsMap.get(attribute.getName());
+			for (int a = 0; a < attributes.length; a++) {
+				List<Statistics> statisticsList = statisticsMap.get(attributes[a].getName());
 				// no stats known for this attribute at all --> new list
 				if (statisticsList == null) {
 					statisticsList = new LinkedList<Statistics>();
-					statisticsMap.put(attribute.getName(), statisticsList);
+					statisticsMap.put(attributes[a].getName(), statisticsList);
 				}            
 
 				// in all cases: clear the list before adding new stats (clone of the calculations)
 				statisticsList.clear();
 
-				Iterator<Statistics> stats = attribute.getAllStatistics();
-				while (stats.hasNext()) {
-					Statistics statistics = (Statistics)stats.next().clone();
-					statisticsList.add(statistics);
+				for (Statistics currentStatistics : statistics[a]) {
+					statisticsList.add((Statistics) currentStatistics.clone());
 				}
 			}
 		}
 	}
 
+	/** Divides the examples into one partition per thread, counts the partitions on copies of the
+	 *  statistics and merges the copies in the order of the partitions. */
+	private void countStatisticsInParallel(final Attribute[] attributes, final Attribute weightAttribute, Statistics[][] statistics, int threads) {
+		int size = size();
+		List<Callable<Statistics[][]>> tasks = new ArrayList<Callable<Statistics[][]>>(threads);
+		for (int t = 0; t < threads; t++) {
+			final int start = (int) ((long) size * t / threads);
+			final int end = (int) ((long) size * (t + 1) / threads);
+			final Statistics[][] partitionStatistics = new Statistics[attributes.length][];
+			for (int a = 0; a < attributes.length; a++) {
+				partitionStatistics[a] = new Statistics[statistics[a].length];
+				for (int s = 0; s < statistics[a].length; s++) {
+					partitionStatistics[a][s] = (Statistics) statistics[a][s].clone();
+					partitionStatistics[a][s].startCounting(attributes[a]);
+				}
+			}
+			tasks.add(new Callable<Statistics[][]>() {
+				@Override
+				public Statistics[][] call() {
+					countStatistics(new Iterator<Example>() {
+						private int current = start;
+
+						public boolean hasNext() {
+							return current < end;
+						}
+
+						public Example next() {
+							return getExample(current++);
+						}
+
+						public void remove() {
+							throw new UnsupportedOperationException("Examples cannot be removed during statistics calculation.");
+						}
+					}, attributes, weightAttribute, partitionStatistics);
+					return partitionStatistics;
+				}
+			});
+		}
+		List<Statistics[][]> results;
+		try {
+			results = ConcurrencyTools.invokeAll(tasks, threads, "Statistics");
+		} catch (OperatorException e) {
+			throw new RuntimeException("Cannot calculate attribute statistics: " + e.getMessage(), e);
+		}
+		for (Statistics[][] partitionStatistics : results) {
+			for (int a = 0; a < attributes.length; a++) {
+				for (int s = 0; s < statistics[a].length; s++) {
+					((MergeableStatistics) statistics[a][s]).merge((MergeableStatistics) partitionStatistics[a][s]);
+				}
+			}
+		}
+	}
+
+	/** Counts the values of the given examples. The values are first copied block-wise into
+	 *  one column per attribute, afterwards each statistics counts its column. */
+	private static void countStatistics(Iterator<Example> examples, Attribute[] attributes, Attribute weightAttribute, Statistics[][] statistics) {
+		double[][] columns = new double[attributes.length][STATISTICS_BLOCK_SIZE];
+		double[] weights = new double[STATISTICS_BLOCK_SIZE];
+		Arrays.fill(weights, 1.0d);
+		// some readers (e.g. the MappedExampleReader) must not be asked again after they are exhausted
+		boolean hasNext = examples.hasNext();
+		while (hasNext) {
+			int blockSize = 0;
+			while ((blockSize < STATISTICS_BLOCK_SIZE) && hasNext) {
+				Example example = examples.next();
+				for (int a = 0; a < attributes.length; a++) {
+					columns[a][blockSize] = example.getValue(attributes[a]);
+				}
+				if (weightAttribute != null) {
+					weights[blockSize] = example.getValue(weightAttribute);
+				}
+				blockSize++;
+				hasNext = examples.hasNext();
+			}
+			for (int a = 0; a < attributes.length; a++) {
+				double[] column = columns[a];
+				for (Statistics currentStatistics : statistics[a]) {
+					for (int i = 0; i < blockSize; i++) {
+						currentStatistics.count(column[i], weights[i]);
+					}
+				}
+			}
+		}
+	}
+
+	/** Returns true if the examples are stored in memory so that {@link #getExample(int)} is fast
+	 *  and can be invoked by several threads. */
+	private boolean isRandomAccessible() {
+		ExampleTable table = getExampleTable();
+		return (table instanceof MemoryExampleTable) || (table instanceof ColumnarExampleTable);
+	}
+
 	/** Returns the desired statistic for the given attribute. This method should be 
 	 *  preferred over the deprecated method Attribute#getStatistics(String)
 	 *  since it correctly calculates and keep the statistics for the current example
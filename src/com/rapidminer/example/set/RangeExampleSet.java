@@ -0,0 +1,120 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.example.set;
+
+import java.util.Iterator;
+
+import com.rapidminer.example.Attributes;
+import com.rapidminer.example.Example;
+import com.rapidminer.example.ExampleSet;
+import com.rapidminer.example.table.ExampleTable;
+import com.rapidminer.operator.Annotations;
+
+
+/**
+ * This example set consists of a consecutive range of the examples of its parent. 
+ * Since no index mapping is stored, this example set can be used for cheaply
+ * dividing large example sets into blocks, e.g. for processing them in several threads.
+ * The parent must provide efficient access to examples by their index.
+ */
+public class RangeExampleSet extends AbstractExampleSet {
+
+	private static final long serialVersionUID = 6306487214591436751L;
+
+	/** The parent example set. */
+	private ExampleSet parent;
+
+	/** The index of the first example of the range in the parent. */
+	private int start;
+
+	/** The index after the last example of the range in the parent. */
+	private int end;
+
+	/** Constructs an example set containing the examples of the parent from start (inclusive) to end (exclusive). */
+	public RangeExampleSet(ExampleSet exampleSet, int start, int end) {
+		if (start < 0 || end > exampleSet.size() || start > end) {
+			throw new IllegalArgumentException("Range " + start + " to " + end + " does not fit an example set of size " + exampleSet.size() + ".");
+		}
+		this.parent = (ExampleSet) exampleSet.clone();
+		this.start = start;
+		this.end = end;
+	}
+
+	/** Clone constructor. */
+	public RangeExampleSet(RangeExampleSet exampleSet) {
+		this.parent = (ExampleSet) exampleSet.parent.clone();
+		this.start = exampleSet.start;
+		this.end = exampleSet.end;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!super.equals(o))
+			return false;
+		if (!(o instanceof RangeExampleSet))
+			return false;
+		RangeExampleSet other = (RangeExampleSet) o;
+		return this.start == other.start && this.end == other.end;
+	}
+
+	@Override
+	public int hashCode() {
+		return super.hashCode() ^ (31 * start + end);
+	}
+
+	public Attributes getAttributes() {
+		return this.parent.getAttributes();
+	}
+
+	/**
+	 * Creates an iterator over all examples of the range.
+	 */
+	public Iterator<Example> iterator() {
+		return new IndexBasedExampleSetReader(this);
+	}
+
+	public ExampleTable getExampleTable() {
+		return parent.getExampleTable();
+	}
+
+	/** Returns the index-th example of the range. The example refers to the attributes of this example set. */
+	public Example getExample(int index) {
+		if ((index < 0) || (index >= size())) {
+			throw new RuntimeException("Given index '" + index + "' does not fit the range of the example set!");
+		}
+		Example example = parent.getExample(start + index);
+		if (example == null)
+			return null;
+		else
+			return new Example(example.getDataRow(), this);
+	}
+
+	public int size() {
+		return end - start;
+	}
+
+	@Override
+	public Annotations getAnnotations() {
+		return parent.getAnnotations();
+	}
+}
@@ -22,21 +22,21 @@
  */
 package com.rapidminer.example.set;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 
 import com.rapidminer.example.Attribute;
 import com.rapidminer.example.Attributes;
 import com.rapidminer.example.Example;
+import com.rapidminer.example.AttributeTypeException;
 import com.rapidminer.example.ExampleSet;
 import com.rapidminer.example.table.ExampleTable;
 import com.rapidminer.operator.Annotations;
+import com.rapidminer.operator.OperatorException;
 import com.rapidminer.tools.Ontology;
+import com.rapidminer.tools.math.RadixSort;
 
 /**
  *  <p>This example set uses a mapping of indices to access the examples provided by the 
@@ -56,118 +56,136 @@ public class SortedExampleSet extends AbstractExampleSet {
 	public static final int INCREASING = 0;
 	public static final int DECREASING = 1;
 
-	private static class SortingIndex {
+	/** The parent example set. */
+	private ExampleSet parent;
 
-		final private Object key;
-		final private int index;
+	/** The used mapping. */
+	private int[] mapping;
 
-		public SortingIndex(Object key, int index) {
-			this.key = key;
-			this.index = index;
-		}
+	public SortedExampleSet(ExampleSet parent, Attribute sortingAttribute, int sortingDirection) {
+		this(parent, new Attribute[] { sortingAttribute }, new int[] { sortingDirection });
+	}
 
-		public int getIndex() {
-			return index;
+	/**
+	 * Constructs an example set sorted by the given attributes in the given directions. The
+	 * first attribute is the most significant one, the following are only used for examples
+	 * with equal values of the preceding attributes. The sorting is stable, i.e. examples with
+	 * equal values of all attributes keep the order of the parent example set. Numerical values
+	 * are sorted as by {@link Double#compare(double, double)}, nominal values alphabetically and
+	 * dates by their time.
+	 */
+	public SortedExampleSet(ExampleSet parent, Attribute[] sortingAttributes, int[] sortingDirections) {
+		this.parent = (ExampleSet) parent.clone();
+		this.mapping = createIdentityMapping(parent.size());
+		if (mapping.length > 0) {
+			long[] keys = new long[mapping.length];
+			long[] attributeKeys = sortingAttributes.length > 1 ? new long[mapping.length] : keys;
+			for (int k = sortingAttributes.length - 1; k >= 0; k--) {
+				extractKeys(parent, sortingAttributes[k], sortingDirections[k], mapping, keys, attributeKeys);
+				RadixSort.sort(keys, mapping);
+			}
 		}
+	}
 
-		public Date getKeyAsDate() {
-			return (Date) key;
+	/**
+	 * Does the same as {@link #SortedExampleSet(ExampleSet, Attribute[], int[])} but sorts
+	 * with the given number of threads.
+	 */
+	public SortedExampleSet(ExampleSet parent, Attribute[] sortingAttributes, int[] sortingDirections, int threads) throws OperatorException {
+		this.parent = (ExampleSet) parent.clone();
+		this.mapping = createIdentityMapping(parent.size());
+		if (mapping.length > 0) {
+			long[] keys = new long[mapping.length];
+			long[] attributeKeys = sortingAttributes.length > 1 ? new long[mapping.length] : keys;
+			for (int k = sortingAttributes.length - 1; k >= 0; k--) {
+				extractKeys(parent, sortingAttributes[k], sortingDirections[k], mapping, keys, attributeKeys);
+				RadixSort.sort(keys, mapping, threads);
+			}
 		}
+	}
 
-		public String getKeyAsString() {
-			return (String) key;
+	private static int[] createIdentityMapping(int size) {
+		int[] mapping = new int[size];
+		for (int i = 0; i < size; i++) {
+			mapping[i] = i;
 		}
+		return mapping;
+	}
 
-		public Double getKeyAsDouble() {
-			return (Double) key;
+	/**
+	 * Writes the sorting keys of the given attribute into keys, arranged in the current order
+	 * of the mapping. The attributes are sorted one after another, beginning with the least
+	 * significant one. If only one attribute is sorted, attributeKeys may be the same array
+	 * as keys.
+	 */
+	private static void extractKeys(ExampleSet parent, Attribute sortingAttribute, int sortingDirection, int[] mapping, long[] keys, long[] attributeKeys) {
+		int size = mapping.length;
+
+		// determining keys in the order of the parent
+		int index = 0;
+		if (Ontology.ATTRIBUTE_VALUE_TYPE.isA(sortingAttribute.getValueType(), Ontology.DATE_TIME)) {
+			for (Example example : parent) {
+				attributeKeys[index++] = RadixSort.getSortingKey(example.getDateValue(sortingAttribute).getTime());
+			}
+		} else if (sortingAttribute.isNumerical()) {
+			for (Example example : parent) {
+				attributeKeys[index++] = RadixSort.getSortingKey(example.getNumericalValue(sortingAttribute));
+			}
+		} else {
+			int[] ranks = getNominalRanks(sortingAttribute);
+			for (Example example : parent) {
+				double value = example.getValue(sortingAttribute);
+				attributeKeys[index++] = Double.isNaN(value) ? ranks[0] : ranks[(int) value + 1];
+			}
 		}
-
-		@Override
-		public String toString() {
-			return key + " --> " + index;
+		if (sortingDirection == DECREASING) {
+			for (int i = 0; i < size; i++) {
+				attributeKeys[i] = ~attributeKeys[i];
+			}
 		}
 
-	}
-
-	/** The parent example set. */
-	private ExampleSet parent;
-
-	/** The used mapping. */
-	private int[] mapping;
-
-	public SortedExampleSet(ExampleSet parent, final Attribute sortingAttribute, int sortingDirection) {
-		this.parent = (ExampleSet) parent.clone();
-		List<SortingIndex> sortingIndex = new ArrayList<SortingIndex>(parent.size());
-
-		// create sort index
-		Integer counter = 0;
-		Iterator<Example> i = parent.iterator();
-		while (i.hasNext()) {
-			Example example = i.next();
-			if (Ontology.ATTRIBUTE_VALUE_TYPE.isA(sortingAttribute.getValueType(), Ontology.DATE_TIME)) {
-				sortingIndex.add(new SortingIndex(example.getDateValue(sortingAttribute), counter));
-			} else if (sortingAttribute.isNumerical()) {
-				sortingIndex.add(new SortingIndex(example.getNumericalValue(sortingAttribute), counter));
-
-			} else {
-				sortingIndex.add(new SortingIndex(example.getNominalValue(sortingAttribute), counter));
-
+		// arranging keys in the current order
+		if (attributeKeys != keys) {
+			for (int i = 0; i < size; i++) {
+				keys[i] = attributeKeys[mapping[i]];
 			}
-			counter++;
 		}
+	}
 
-		// create comparator
-		Comparator<SortingIndex> sortComparator = new Comparator<SortingIndex>() {
+	/**
+	 * Returns the alphabetical rank of the missing value at position 0 and of every nominal
+	 * value at the position of its index plus one. Equal strings get the same rank.
+	 */
+	private static int[] getNominalRanks(Attribute attribute) {
+		if (!attribute.isNominal()) {
+			throw new AttributeTypeException("Extraction of nominal example value for non-nominal attribute '" + attribute.getName() + "' is not possible.");
+		}
+		List<String> values = attribute.getMapping().getValues();
+		final String[] strings = new String[values.size() + 1];
+		strings[0] = Attribute.MISSING_NOMINAL_VALUE;
+		for (int i = 0; i < values.size(); i++) {
+			strings[i + 1] = values.get(i);
+		}
+		Integer[] sortedIndices = new Integer[strings.length];
+		for (int i = 0; i < strings.length; i++) {
+			sortedIndices[i] = i;
+		}
+		Arrays.sort(sortedIndices, new Comparator<Integer>() {
 
 			@Override
-			public int compare(SortingIndex o1, SortingIndex o2) {
-				if (Ontology.ATTRIBUTE_VALUE_TYPE.isA(sortingAttribute.getValueType(), Ontology.DATE_TIME)) {
-					Date firstDate = o1.getKeyAsDate();
-					Date secondDate = o2.getKeyAsDate();
-					if (firstDate == secondDate || firstDate == null) {
-						return 0;
-					} else {
-						return firstDate.compareTo(secondDate);
-					}
-				} else if (sortingAttribute.isNumerical()) {
-					Double firstDouble = o1.getKeyAsDouble();
-					Double secondDouble = o2.getKeyAsDouble();
-					if (firstDouble == secondDouble || firstDouble == null) {
-						return 0;
-					} else {
-						return firstDouble.compareTo(secondDouble);
-					}
-				} else if (sortingAttribute.isNominal()) {
-					String firstString = o1.getKeyAsString();
-					String secondString = o2.getKeyAsString();
-					if (firstString == secondString || firstString == null) {
-						return 0;
-					} else {
-						return firstString.compareTo(secondString);
-					}
-				}
-				return 0;
+			public int compare(Integer index1, Integer index2) {
+				return strings[index1].compareTo(strings[index2]);
 			}
-		};
-
-		// sort
-		if (sortingDirection == INCREASING) {
-			Collections.sort(sortingIndex, sortComparator);
-		} else {
-			Collections.sort(sortingIndex, Collections.reverseOrder(sortComparator));
-		}
-
-		// change mapping
-		int[] mapping = new int[parent.size()];
-		counter = 0;
-		Iterator<SortingIndex> k = sortingIndex.iterator();
-		while (k.hasNext()) {
-			Integer index = k.next().getIndex();
-			mapping[counter] = index;
-			counter++;
+		});
+		int[] ranks = new int[strings.length];
+		int rank = 0;
+		for (int i = 0; i < sortedIndices.length; i++) {
+			if (i > 0 && !strings[sortedIndices[i]].equals(strings[sortedIndices[i - 1]])) {
+				rank++;
+			}
+			ranks[sortedIndices[i]] = rank;
 		}
-
-		this.mapping = mapping;
+		return ranks;
 	}
 
 	/** Constructs an example set based on the given sort mapping. */
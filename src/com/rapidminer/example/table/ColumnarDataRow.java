@@ -0,0 +1,92 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.example.table;
+
+
+/**
+ * A view on a single row of a {@link ColumnarExampleTable}. The data row itself does not
+ * hold any data, all values are read from and written to the columns of the table.
+ */
+public class ColumnarDataRow extends DataRow {
+
+	private static final long serialVersionUID = 2834513702914566071L;
+
+	private final ColumnarExampleTable table;
+
+	private final int row;
+
+	ColumnarDataRow(ColumnarExampleTable table, int row) {
+		this.table = table;
+		this.row = row;
+	}
+
+	/** Returns the index of the viewed row in the underlying table. */
+	public int getRow() {
+		return row;
+	}
+
+	@Override
+	protected double get(int index, double defaultValue) {
+		return table.getValue(row, index);
+	}
+
+	@Override
+	protected void set(int index, double value, double defaultValue) {
+		table.setValue(row, index, value);
+	}
+
+	/** Does nothing. The columns are managed by the table. */
+	@Override
+	protected void ensureNumberOfColumns(int numberOfColumns) {}
+
+	/** Does nothing. */
+	@Override
+	public void trim() {}
+
+	/** Returns the data management of the underlying table. */
+	@Override
+	public int getType() {
+		return table.getDataManagement();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof ColumnarDataRow))
+			return false;
+		ColumnarDataRow other = (ColumnarDataRow) o;
+		return other.table == table && other.row == row;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(table) ^ row;
+	}
+
+	@Override
+	public String toString() {
+		StringBuffer result = new StringBuffer();
+		for (int i = 0; i < table.getNumberOfAttributes(); i++)
+			result.append((i == 0 ? "" : ",") + table.getValue(row, i));
+		return result.toString();
+	}
+}
@@ -0,0 +1,342 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.example.table;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.rapidminer.example.Attribute;
+
+
+/**
+ * <p>An example table which keeps its data in main memory like the {@link MemoryExampleTable}
+ * but stores it column-wise: all values of one attribute are kept in one contiguous primitive
+ * {@link DataColumn}. This avoids the object overhead of one {@link DataRow} per example and
+ * allows sequential access when complete columns are scanned, e.g. for statistics or
+ * normalization.</p>
+ * 
+ * <p>The type of the columns is derived from the value type of the attributes and the
+ * data management given at construction time (see {@link DataRowFactory}). Existing operators
+ * still work on {@link DataRow}s: {@link #getDataRow(int)} and {@link #getDataRowReader()}
+ * deliver light-weight {@link ColumnarDataRow} views on the columns.</p>
+ */
+public class ColumnarExampleTable extends AbstractExampleTable {
+
+	private static final long serialVersionUID = -2118573373616716431L;
+
+	/** The data columns. The i-th column belongs to the attribute with table index i. */
+	private DataColumn[] columns;
+
+	/** The number of rows. */
+	private int size;
+
+	/** One of the types defined in {@link DataRowFactory}. */
+	private int dataManagement;
+
+	/**
+	 * Creates a new instance of ColumnarExampleTable using double columns for numerical attributes.
+	 * 
+	 * @param attributes
+	 *            Array of {@link Attribute} containing the attributes of the
+	 *            columns. None of these must be null.
+	 */
+	public ColumnarExampleTable(Attribute... attributes) {
+		this(Arrays.asList(attributes));
+	}
+
+	/**
+	 * Creates a new instance of ColumnarExampleTable using double columns for numerical attributes.
+	 * 
+	 * @param attributes
+	 *            List of {@link Attribute} containing the attributes of the
+	 *            columns. None of these must be null.
+	 */
+	public ColumnarExampleTable(List<Attribute> attributes) {
+		this(attributes, DataRowFactory.TYPE_DOUBLE_ARRAY, 0);
+	}
+
+	/**
+	 * Creates a new instance of ColumnarExampleTable.
+	 * 
+	 * @param attributes
+	 *            List of {@link Attribute} containing the attributes of the
+	 *            columns. None of these must be null.
+	 * @param dataManagement
+	 *            one of the types defined in {@link DataRowFactory}. Determines the primitive
+	 *            type of the columns of numerical attributes.
+	 * @param expectedSize
+	 *            the number of rows for which memory is allocated in advance.
+	 */
+	public ColumnarExampleTable(List<Attribute> attributes, int dataManagement, int expectedSize) {
+		super(attributes);
+		if ((dataManagement < DataRowFactory.FIRST_TYPE_INDEX) || (dataManagement > DataRowFactory.LAST_TYPE_INDEX))
+			throw new IllegalArgumentException("Illegal data row type: " + dataManagement);
+		this.dataManagement = dataManagement;
+		this.size = 0;
+		this.columns = new DataColumn[getNumberOfAttributes()];
+		for (int i = 0; i < columns.length; i++) {
+			Attribute attribute = getAttribute(i);
+			if (attribute != null) {
+				columns[i] = createColumn(attribute, expectedSize);
+			}
+		}
+	}
+
+	/**
+	 * Creates a new instance of ColumnarExampleTable and fills it with the data rows read
+	 * from the given reader.
+	 */
+	public ColumnarExampleTable(List<Attribute> attributes, int dataManagement, DataRowReader reader) {
+		this(attributes, dataManagement, 0);
+		readExamples(reader);
+	}
+
+	/**
+	 * Creates the column for the given attribute. Subclasses might override this method
+	 * in order to use other storage than the main memory.
+	 */
+	protected DataColumn createColumn(Attribute attribute, int capacity) {
+		return DataColumn.createColumn(attribute, dataManagement, capacity);
+	}
+
+	/** Returns the data management used for the columns of this table. */
+	public int getDataManagement() {
+		return dataManagement;
+	}
+
+	/**
+	 * Reads the examples into memory in the order they are delivered by the
+	 * given reader. Removes all old data rows first.
+	 */
+	public void readExamples(DataRowReader reader) {
+		clear();
+		while (reader.hasNext()) {
+			addDataRow(reader.next());
+		}
+	}
+
+	/** Returns the size of this example table, i.e. the number of rows. */
+	public int size() {
+		return size;
+	}
+
+	/** Returns a view on the row with the given index. */
+	public DataRow getDataRow(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		return new ColumnarDataRow(this, index);
+	}
+
+	/** Returns a new data row reader delivering views on the rows of this table. */
+	public DataRowReader getDataRowReader() {
+		return new DataRowReader() {
+
+			private int current = 0;
+
+			public boolean hasNext() {
+				return current < size;
+			}
+
+			public DataRow next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return new ColumnarDataRow(ColumnarExampleTable.this, current++);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("The method 'remove' is not supported by DataRowReaders!");
+			}
+		};
+	}
+
+	/** Returns the value of the given row and column. Returns NaN for unused columns. */
+	public double getValue(int row, int column) {
+		DataColumn dataColumn = columns[column];
+		if (dataColumn == null)
+			return Double.NaN;
+		return dataColumn.get(row);
+	}
+
+	/** Sets the value of the given row and column. */
+	public void setValue(int row, int column, double value) {
+		columns[column].set(row, value);
+	}
+
+	/**
+	 * Returns the column holding the data of the given table index or null if
+	 * the column is unused. Operators scanning complete columns should prefer this
+	 * over iterating the data rows.
+	 */
+	public DataColumn getColumn(int column) {
+		return columns[column];
+	}
+
+	/**
+	 * Copies all values of the given attribute's column into a new array. No attribute
+	 * transformations are applied.
+	 */
+	public double[] getColumnValues(Attribute attribute) {
+		double[] values = new double[size];
+		DataColumn column = columns[attribute.getTableIndex()];
+		if (column == null) {
+			Arrays.fill(values, Double.NaN);
+		} else {
+			column.getValues(0, size, values, 0);
+		}
+		return values;
+	}
+
+	/**
+	 * Appends the values of the given data row as a new row. The values are
+	 * read by the attributes of this table.
+	 */
+	public void addDataRow(DataRow dataRow) {
+		ensureCapacity(size + 1);
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i] != null) {
+				columns[i].set(size, dataRow.get(getAttribute(i)));
+			}
+		}
+		size++;
+	}
+
+	/**
+	 * Appends a new row holding the given values. The i-th value belongs to the column
+	 * with table index i, values for unused columns are ignored.
+	 */
+	public void addRow(double[] values) {
+		ensureCapacity(size + 1);
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i] != null) {
+				columns[i].set(size, i < values.length ? values[i] : Double.NaN);
+			}
+		}
+		size++;
+	}
+
+	/** Removes the row with the given index. All succeeding rows move up by one. */
+	public void removeDataRow(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		for (DataColumn column : columns) {
+			if (column != null) {
+				for (int row = index + 1; row < size; row++) {
+					column.move(row, row - 1);
+				}
+			}
+		}
+		size--;
+	}
+
+	/**
+	 * Sets the number of rows. Added rows contain 0 for all attributes and can be filled
+	 * by {@link #setValue(int, int, double)}.
+	 */
+	public void setSize(int size) {
+		ensureCapacity(size);
+		this.size = size;
+	}
+
+	/** Clears the table. */
+	public void clear() {
+		size = 0;
+	}
+
+	/** Frees the memory allocated for rows beyond the current size. */
+	public void trim() {
+		for (DataColumn column : columns) {
+			if (column != null) {
+				column.trim(size);
+			}
+		}
+	}
+
+	/** Trims all columns before writing so that unused capacity is not serialized. */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		trim();
+		out.defaultWriteObject();
+	}
+
+	/** Ensures that all columns can hold the given number of rows. */
+	private void ensureCapacity(int capacity) {
+		for (DataColumn column : columns) {
+			if (column != null) {
+				column.ensureCapacity(capacity);
+			}
+		}
+	}
+
+	/**
+	 * Adds a new attribute to this example table by invoking the super method and
+	 * allocates a new column for it. All values of the new column are 0.
+	 */
+	@Override
+	public synchronized int addAttribute(Attribute attribute) {
+		int index = super.addAttribute(attribute);
+		// columns are created by the constructor for the initial attributes
+		if (columns == null)
+			return index;
+		if (index >= columns.length) {
+			DataColumn[] newColumns = new DataColumn[Math.max(index + 1, getNumberOfAttributes())];
+			System.arraycopy(columns, 0, newColumns, 0, columns.length);
+			columns = newColumns;
+		}
+		int capacity = size;
+		for (DataColumn column : columns) {
+			if (column != null) {
+				capacity = Math.max(capacity, column.getCapacity());
+				break;
+			}
+		}
+		columns[index] = createColumn(getAttribute(index), capacity);
+		return index;
+	}
+
+	/**
+	 * Removes the attribute by invoking the super method and frees the memory of its column.
+	 */
+	@Override
+	public synchronized void removeAttribute(int index) {
+		super.removeAttribute(index);
+		if (columns != null && index < columns.length) {
+			columns[index] = null;
+		}
+	}
+
+	/**
+	 * Creates a columnar copy of the given example table. The attributes are
+	 * shared, only the data is copied.
+	 */
+	public static ColumnarExampleTable createCompleteCopy(ExampleTable oldTable, int dataManagement) {
+		ColumnarExampleTable table = new ColumnarExampleTable(Arrays.asList(oldTable.getAttributes()), dataManagement, oldTable.size());
+		Iterator<DataRow> reader = oldTable.getDataRowReader();
+		while (reader.hasNext()) {
+			table.addDataRow(reader.next());
+		}
+		return table;
+	}
+}
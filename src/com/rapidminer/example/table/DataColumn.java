@@ -0,0 +1,438 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.example.table;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.rapidminer.example.Attribute;
+import com.rapidminer.tools.Ontology;
+
+
+/**
+ * A single data column of a {@link ColumnarExampleTable}. All values of one attribute
+ * are stored in one contiguous primitive array so that scanning a column walks the memory
+ * sequentially. The type of the array is chosen by {@link #createColumn(Attribute, int, int)}
+ * from the value type of the attribute and the requested data management. Missing values
+ * are kept as NaN for floating point columns and as a marker value for integer columns.
+ * Regular values which are equal to the marker are remembered in {@link MarkerRows}.
+ */
+public abstract class DataColumn implements Serializable {
+
+	private static final long serialVersionUID = 5526823311418787372L;
+
+	/** Returns the value stored in the given row. */
+	public abstract double get(int row);
+
+	/** Sets the value of the given row. */
+	public abstract void set(int row, double value);
+
+	/** Ensures that rows with indices smaller than <code>capacity</code> can be stored. */
+	public abstract void ensureCapacity(int capacity);
+
+	/** Reduces the allocated memory to the given number of rows. */
+	public abstract void trim(int size);
+
+	/** Returns the number of allocated rows. */
+	public abstract int getCapacity();
+
+	/**
+	 * Copies the values of the rows <code>from</code> (inclusive) to <code>to</code>
+	 * (exclusive) into the given array, starting at position <code>offset</code>.
+	 */
+	public void getValues(int from, int to, double[] target, int offset) {
+		for (int row = from; row < to; row++) {
+			target[offset++] = get(row);
+		}
+	}
+
+	/** Moves the value of row <code>from</code> into row <code>to</code>. */
+	public void move(int from, int to) {
+		set(to, get(from));
+	}
+
+	/**
+	 * Creates a column for the given attribute. Nominal attributes are stored as indices into
+	 * their mapping, binominal ones in bytes. Date attributes always need a double column. All
+	 * other attributes use the primitive type corresponding to the given data management
+	 * which must be one of the types defined in {@link DataRowFactory}.
+	 */
+	public static DataColumn createColumn(Attribute attribute, int dataManagement, int capacity) {
+		int valueType = attribute.getValueType();
+		if (attribute.isNominal()) {
+			if (Ontology.ATTRIBUTE_VALUE_TYPE.isA(valueType, Ontology.BINOMINAL)) {
+				return new ByteColumn(capacity);
+			} else {
+				return new IntColumn(capacity);
+			}
+		}
+		if (Ontology.ATTRIBUTE_VALUE_TYPE.isA(valueType, Ontology.DATE_TIME)) {
+			return new DoubleColumn(capacity);
+		}
+		switch (dataManagement) {
+		case DataRowFactory.TYPE_FLOAT_ARRAY:
+		case DataRowFactory.TYPE_FLOAT_SPARSE_ARRAY:
+			return new FloatColumn(capacity);
+		case DataRowFactory.TYPE_LONG_ARRAY:
+		case DataRowFactory.TYPE_LONG_SPARSE_ARRAY:
+			return new LongColumn(capacity);
+		case DataRowFactory.TYPE_INT_ARRAY:
+		case DataRowFactory.TYPE_INT_SPARSE_ARRAY:
+		case DataRowFactory.TYPE_SHORT_ARRAY:
+		case DataRowFactory.TYPE_SHORT_SPARSE_ARRAY:
+			return new IntColumn(capacity);
+		case DataRowFactory.TYPE_BYTE_ARRAY:
+		case DataRowFactory.TYPE_BYTE_SPARSE_ARRAY:
+		case DataRowFactory.TYPE_BOOLEAN_ARRAY:
+		case DataRowFactory.TYPE_BOOLEAN_SPARSE_ARRAY:
+			return new ByteColumn(capacity);
+		default:
+			return new DoubleColumn(capacity);
+		}
+	}
+
+	/** Returns the new capacity if <code>capacity</code> rows are needed and <code>current</code> are allocated. */
+	protected static int grow(int current, int capacity) {
+		return Math.max(capacity, current + (current >> 1) + 1);
+	}
+
+	/** A column backed by a double array. */
+	public static class DoubleColumn extends DataColumn {
+
+		private static final long serialVersionUID = -6310233498553627113L;
+
+		private double[] data;
+
+		public DoubleColumn(int capacity) {
+			this.data = new double[capacity];
+		}
+
+		@Override
+		public double get(int row) {
+			return data[row];
+		}
+
+		@Override
+		public void set(int row, double value) {
+			data[row] = value;
+		}
+
+		@Override
+		public void ensureCapacity(int capacity) {
+			if (data.length < capacity) {
+				double[] newData = new double[grow(data.length, capacity)];
+				System.arraycopy(data, 0, newData, 0, data.length);
+				data = newData;
+			}
+		}
+
+		@Override
+		public void trim(int size) {
+			if (data.length > size) {
+				double[] newData = new double[size];
+				System.arraycopy(data, 0, newData, 0, size);
+				data = newData;
+			}
+		}
+
+		@Override
+		public int getCapacity() {
+			return data.length;
+		}
+
+		@Override
+		public void getValues(int from, int to, double[] target, int offset) {
+			System.arraycopy(data, from, target, offset, to - from);
+		}
+
+		@Override
+		public void move(int from, int to) {
+			data[to] = data[from];
+		}
+	}
+
+	/** A column backed by a float array. */
+	public static class FloatColumn extends DataColumn {
+
+		private static final long serialVersionUID = 1768447010356406434L;
+
+		private float[] data;
+
+		public FloatColumn(int capacity) {
+			this.data = new float[capacity];
+		}
+
+		@Override
+		public double get(int row) {
+			return data[row];
+		}
+
+		@Override
+		public void set(int row, double value) {
+			data[row] = (float) value;
+		}
+
+		@Override
+		public void ensureCapacity(int capacity) {
+			if (data.length < capacity) {
+				float[] newData = new float[grow(data.length, capacity)];
+				System.arraycopy(data, 0, newData, 0, data.length);
+				data = newData;
+			}
+		}
+
+		@Override
+		public void trim(int size) {
+			if (data.length > size) {
+				float[] newData = new float[size];
+				System.arraycopy(data, 0, newData, 0, size);
+				data = newData;
+			}
+		}
+
+		@Override
+		public int getCapacity() {
+			return data.length;
+		}
+
+		@Override
+		public void move(int from, int to) {
+			data[to] = data[from];
+		}
+	}
+
+	/**
+	 * Remembers the rows of an integer column which contain the missing value marker as
+	 * a regular value. Such values are rare, so the set is only created when the first of
+	 * them is stored and columns without them only check a null reference.
+	 */
+	static class MarkerRows implements Serializable {
+
+		private static final long serialVersionUID = -4408306458437451802L;
+
+		private Set<Integer> rows = null;
+
+		/** Returns true if the marker in the given row is a regular value. */
+		boolean contains(int row) {
+			return rows != null && containsRow(row);
+		}
+
+		private synchronized boolean containsRow(int row) {
+			return rows.contains(row);
+		}
+
+		/** Remembers if the value stored in the given row is a regular value equal to the marker. */
+		void set(int row, boolean regularMarker) {
+			if (regularMarker) {
+				add(row);
+			} else if (rows != null) {
+				remove(row);
+			}
+		}
+
+		private synchronized void add(int row) {
+			if (rows == null) {
+				rows = new HashSet<Integer>();
+			}
+			rows.add(row);
+		}
+
+		private synchronized void remove(int row) {
+			rows.remove(row);
+		}
+	}
+
+	/** A column backed by an int array. {@link Integer#MIN_VALUE} denotes a missing value. */
+	public static class IntColumn extends DataColumn {
+
+		private static final long serialVersionUID = -2606937513802934465L;
+
+		private static final int MISSING = Integer.MIN_VALUE;
+
+		private int[] data;
+
+		private final MarkerRows markerRows = new MarkerRows();
+
+		public IntColumn(int capacity) {
+			this.data = new int[capacity];
+		}
+
+		@Override
+		public double get(int row) {
+			int value = data[row];
+			return value == MISSING && !markerRows.contains(row) ? Double.NaN : value;
+		}
+
+		@Override
+		public void set(int row, double value) {
+			int intValue = Double.isNaN(value) ? MISSING : (int) value;
+			markerRows.set(row, intValue == MISSING && !Double.isNaN(value));
+			data[row] = intValue;
+		}
+
+		@Override
+		public void ensureCapacity(int capacity) {
+			if (data.length < capacity) {
+				int[] newData = new int[grow(data.length, capacity)];
+				System.arraycopy(data, 0, newData, 0, data.length);
+				data = newData;
+			}
+		}
+
+		@Override
+		public void trim(int size) {
+			if (data.length > size) {
+				int[] newData = new int[size];
+				System.arraycopy(data, 0, newData, 0, size);
+				data = newData;
+			}
+		}
+
+		@Override
+		public int getCapacity() {
+			return data.length;
+		}
+
+		@Override
+		public void move(int from, int to) {
+			markerRows.set(to, markerRows.contains(from));
+			data[to] = data[from];
+		}
+	}
+
+	/**
+	 * A column backed by a long array. Casting a double to long never results in
+	 * {@link Long#MIN_VALUE} + 1 since doubles of this magnitude are multiples of 1024,
+	 * so this value can denote a missing value without colliding with regular values.
+	 */
+	public static class LongColumn extends DataColumn {
+
+		private static final long serialVersionUID = 7011380370906391475L;
+
+		private static final long MISSING = Long.MIN_VALUE + 1;
+
+		private long[] data;
+
+		public LongColumn(int capacity) {
+			this.data = new long[capacity];
+		}
+
+		@Override
+		public double get(int row) {
+			long value = data[row];
+			return value == MISSING ? Double.NaN : value;
+		}
+
+		@Override
+		public void set(int row, double value) {
+			data[row] = Double.isNaN(value) ? MISSING : (long) value;
+		}
+
+		@Override
+		public void ensureCapacity(int capacity) {
+			if (data.length < capacity) {
+				long[] newData = new long[grow(data.length, capacity)];
+				System.arraycopy(data, 0, newData, 0, data.length);
+				data = newData;
+			}
+		}
+
+		@Override
+		public void trim(int size) {
+			if (data.length > size) {
+				long[] newData = new long[size];
+				System.arraycopy(data, 0, newData, 0, size);
+				data = newData;
+			}
+		}
+
+		@Override
+		public int getCapacity() {
+			return data.length;
+		}
+
+		@Override
+		public void move(int from, int to) {
+			data[to] = data[from];
+		}
+	}
+
+	/** A column backed by a byte array. {@link Byte#MIN_VALUE} denotes a missing value. */
+	public static class ByteColumn extends DataColumn {
+
+		private static final long serialVersionUID = 3151658410934775830L;
+
+		private static final byte MISSING = Byte.MIN_VALUE;
+
+		private byte[] data;
+
+		private final MarkerRows markerRows = new MarkerRows();
+
+		public ByteColumn(int capacity) {
+			this.data = new byte[capacity];
+		}
+
+		@Override
+		public double get(int row) {
+			byte value = data[row];
+			return value == MISSING && !markerRows.contains(row) ? Double.NaN : value;
+		}
+
+		@Override
+		public void set(int row, double value) {
+			byte byteValue = Double.isNaN(value) ? MISSING : (byte) value;
+			markerRows.set(row, byteValue == MISSING && !Double.isNaN(value));
+			data[row] = byteValue;
+		}
+
+		@Override
+		public void ensureCapacity(int capacity) {
+			if (data.length < capacity) {
+				byte[] newData = new byte[grow(data.length, capacity)];
+				System.arraycopy(data, 0, newData, 0, data.length);
+				data = newData;
+			}
+		}
+
+		@Override
+		public void trim(int size) {
+			if (data.length > size) {
+				byte[] newData = new byte[size];
+				System.arraycopy(data, 0, newData, 0, size);
+				data = newData;
+			}
+		}
+
+		@Override
+		public int getCapacity() {
+			return data.length;
+		}
+
+		@Override
+		public void move(int from, int to) {
+			markerRows.set(to, markerRows.contains(from));
+			data[to] = data[from];
+		}
+	}
+}
@@ -22,6 +22,7 @@
  */
 package com.rapidminer.example.table;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -30,12 +31,20 @@ import java.util.List;
 
 import com.rapidminer.example.Attribute;
 import com.rapidminer.tools.jdbc.DatabaseHandler;
+import com.rapidminer.tools.jdbc.TableName;
 
 /**
  * This class is another data supplier for example sets. For performance reasons
  * one should use a {@link MemoryExampleTable} if the data is small enough for
  * the main memory.
  * 
+ * If the table has a key column, i.e. a single column primary key or a given unique
+ * column without missing values, the examples are ordered by this key and each batch
+ * is read by selecting the keys larger than the last key of the preceding batch. In
+ * contrast to skipping rows by an offset, this allows the database to use its index
+ * so that the complete table can be read in linear time. Without key column, the
+ * batches are read by LIMIT and OFFSET.
+ * 
  * @author Ingo Mierswa, Simon Fischer
  */
 public class LimitCachedDatabaseExampleTable extends AbstractExampleTable {
@@ -77,11 +86,31 @@ public class LimitCachedDatabaseExampleTable extends AbstractExampleTable {
 	
 	private int dataManagementType;
 	
+	/** The name of the column used for keyset pagination or null if batches are read by offsets. */
+	private String keyColumn;
+	
+	/** The last keys of all batches preceding the batch with the same index which are known so far. The
+	 *  first batch has no preceding batch and hence the lower bound null. */
+	private List<Object> batchLowerBounds = new ArrayList<Object>();
+	
+	/** The last key which was read into a batch. */
+	private Object lastReadKey;
+	
+	/** Creates a new table which uses the primary key of the table for reading the batches if the
+	 *  primary key consists of a single column. */
 	public LimitCachedDatabaseExampleTable(DatabaseHandler databaseHandler, String tableName, int dataManagementType) throws SQLException {
+		this(databaseHandler, tableName, databaseHandler.getPrimaryKeyName(new TableName(tableName)), dataManagementType);
+	}
+	
+	/** Creates a new table which uses the given column for reading the batches. The values of the key
+	 *  column must be unique and must not be missing. If the key column is null, batches are read by offsets. */
+	public LimitCachedDatabaseExampleTable(DatabaseHandler databaseHandler, String tableName, String keyColumn, int dataManagementType) throws SQLException {
 		super(new ArrayList<Attribute>());
 		this.databaseHandler = databaseHandler;
 		this.tableName = tableName;
+		this.keyColumn = keyColumn;
 		this.dataManagementType = dataManagementType;
+		this.batchLowerBounds.add(null);
 		
 		// first: add attributes
 		initAttributes();
@@ -103,6 +132,11 @@ public class LimitCachedDatabaseExampleTable extends AbstractExampleTable {
 	}
 	
     private void updateBatchAndCursors(int desiredRow) throws SQLException {
+    	if (keyColumn != null) {
+    		updateKeyBatch(desiredRow);
+    		return;
+    	}
+    	
     	// simple fetching strategy...
     	boolean newBatch = false;
     	int newOffset = this.currentBatchStartCursor;
@@ -122,6 +156,7 @@ public class LimitCachedDatabaseExampleTable extends AbstractExampleTable {
     	// retrieve new batch
     	if (newBatch) {
     		Statement batchStatement = this.databaseHandler.createStatement(false);
+    		batchStatement.setFetchSize(DEFAULT_BATCH_SIZE);
     		String limitedQuery = "SELECT * FROM " + databaseHandler.getStatementCreator().makeIdentifier(tableName) + " LIMIT " + DEFAULT_BATCH_SIZE + " OFFSET " + newOffset;
     		ResultSet batchResultSet = batchStatement.executeQuery(limitedQuery);
     		this.batchExampleTable = createExampleTableFromBatch(batchResultSet);
@@ -131,12 +166,67 @@ public class LimitCachedDatabaseExampleTable extends AbstractExampleTable {
     	}
     }
     
-    private MemoryExampleTable createExampleTableFromBatch(ResultSet batchResultSet) {
+    /** Reads the batch containing the desired row. The batches start at multiples of the batch size. If the
+     *  lower bound of this batch is not known yet, all batches between the last known bound and this batch
+     *  are read before. */
+    private void updateKeyBatch(int desiredRow) throws SQLException {
+    	int desiredBatch = desiredRow / DEFAULT_BATCH_SIZE;
+    	if (desiredBatch * DEFAULT_BATCH_SIZE == this.currentBatchStartCursor) {
+    		return;
+    	}
+    	int batch = Math.min(desiredBatch, batchLowerBounds.size() - 1);
+    	while (true) {
+    		readKeyBatch(batch);
+    		if ((batch == desiredBatch) || (this.batchExampleTable.size() < DEFAULT_BATCH_SIZE)) {
+    			break;
+    		}
+    		batch++;
+    	}
+    }
+    
+    private void readKeyBatch(int batch) throws SQLException {
+    	Object lowerBound = batchLowerBounds.get(batch);
+    	String keyIdentifier = databaseHandler.getStatementCreator().makeIdentifier(keyColumn);
+    	String limitedQuery = 
+    		"SELECT * FROM " + databaseHandler.getStatementCreator().makeIdentifier(tableName) + 
+    		(lowerBound != null ? " WHERE " + keyIdentifier + " > ?" : "") +
+    		" ORDER BY " + keyIdentifier + " LIMIT " + DEFAULT_BATCH_SIZE;
+    	PreparedStatement batchStatement = this.databaseHandler.createPreparedStatement(limitedQuery, false);
+    	batchStatement.setFetchSize(DEFAULT_BATCH_SIZE);
+    	if (lowerBound != null) {
+    		batchStatement.setObject(1, lowerBound);
+    	}
+    	ResultSet batchResultSet = batchStatement.executeQuery();
+    	this.batchExampleTable = createExampleTableFromBatch(batchResultSet);
+    	batchResultSet.close();
+    	batchStatement.close();
+    	this.currentBatchStartCursor = batch * DEFAULT_BATCH_SIZE;
+    	
+    	// the last key is the lower bound of the next batch
+    	if ((batch + 1 == batchLowerBounds.size()) && (this.batchExampleTable.size() == DEFAULT_BATCH_SIZE)) {
+    		batchLowerBounds.add(lastReadKey);
+    	}
+    }
+    
+    private MemoryExampleTable createExampleTableFromBatch(final ResultSet batchResultSet) {
     	List<Attribute> attributes = new ArrayList<Attribute>(getAttributes().length);
     	for (Attribute attribute : getAttributes()) {
     		attributes.add(attribute);
     	}
-		DataRowReader reader = new ResultSetDataRowReader(new DataRowFactory(dataManagementType, '.'), attributes, batchResultSet);
+		DataRowReader reader = new ResultSetDataRowReader(new DataRowFactory(dataManagementType, '.'), attributes, batchResultSet) {
+			@Override
+			public DataRow next() {
+				DataRow row = super.next();
+				if ((row != null) && (keyColumn != null)) {
+					try {
+						lastReadKey = batchResultSet.getObject(keyColumn);
+					} catch (SQLException sqle) {
+						throw new RuntimeException("Error accessing the result of a query:" + sqle.toString());
+					}
+				}
+				return row;
+			}
+		};
 		return new MemoryExampleTable(attributes, reader);
     }
 	
@@ -0,0 +1,421 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.example.table;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+
+import com.rapidminer.RapidMiner;
+import com.rapidminer.example.Attribute;
+import com.rapidminer.tools.LogService;
+import com.rapidminer.tools.Ontology;
+import com.rapidminer.tools.ParameterService;
+
+
+/**
+ * <p>A {@link ColumnarExampleTable} which does not keep its data on the heap. Every column
+ * is stored in its own file in the spill directory and accessed via memory mapped
+ * {@link MappedByteBuffer}s, so the operating system's page cache decides which parts of the
+ * data are held in main memory. Only the attributes including their nominal mappings
+ * stay on the heap. This allows to handle data sets which are larger than the available
+ * heap or even larger than the physical memory.</p>
+ * 
+ * <p>The spill directory can be specified by the property
+ * {@link RapidMiner#PROPERTY_RAPIDMINER_SYSTEM_SPILL_DIRECTORY} and defaults to the
+ * temporary directory of the system. The files grow with the number of rows and are deleted
+ * by {@link #close()}, when a column is removed or, if the table was not closed, when the
+ * table is garbage collected or the JVM exits.</p>
+ */
+public class MappedExampleTable extends ColumnarExampleTable {
+
+	private static final long serialVersionUID = 2617366935658418264L;
+
+	/**
+	 * Creates a new instance of MappedExampleTable.
+	 * 
+	 * @param attributes
+	 *            List of {@link Attribute} containing the attributes of the
+	 *            columns. None of these must be null.
+	 * @param dataManagement
+	 *            one of the types defined in {@link DataRowFactory}. Determines the primitive
+	 *            type of the columns of numerical attributes.
+	 * @param expectedSize
+	 *            the number of rows for which space is reserved in advance.
+	 */
+	public MappedExampleTable(List<Attribute> attributes, int dataManagement, int expectedSize) {
+		super(attributes, dataManagement, expectedSize);
+	}
+
+	/**
+	 * Creates a new instance of MappedExampleTable using double columns for numerical attributes.
+	 */
+	public MappedExampleTable(List<Attribute> attributes) {
+		this(attributes, DataRowFactory.TYPE_DOUBLE_ARRAY, 0);
+	}
+
+	@Override
+	protected DataColumn createColumn(Attribute attribute, int capacity) {
+		int width = 8;
+		boolean floatingPoint = true;
+		if (attribute.isNominal()) {
+			width = Ontology.ATTRIBUTE_VALUE_TYPE.isA(attribute.getValueType(), Ontology.BINOMINAL) ? 1 : 4;
+			floatingPoint = false;
+		} else if (!Ontology.ATTRIBUTE_VALUE_TYPE.isA(attribute.getValueType(), Ontology.DATE_TIME)) {
+			switch (getDataManagement()) {
+			case DataRowFactory.TYPE_FLOAT_ARRAY:
+			case DataRowFactory.TYPE_FLOAT_SPARSE_ARRAY:
+				width = 4;
+				break;
+			case DataRowFactory.TYPE_LONG_ARRAY:
+			case DataRowFactory.TYPE_LONG_SPARSE_ARRAY:
+				floatingPoint = false;
+				break;
+			case DataRowFactory.TYPE_INT_ARRAY:
+			case DataRowFactory.TYPE_INT_SPARSE_ARRAY:
+			case DataRowFactory.TYPE_SHORT_ARRAY:
+			case DataRowFactory.TYPE_SHORT_SPARSE_ARRAY:
+				width = 4;
+				floatingPoint = false;
+				break;
+			case DataRowFactory.TYPE_BYTE_ARRAY:
+			case DataRowFactory.TYPE_BYTE_SPARSE_ARRAY:
+			case DataRowFactory.TYPE_BOOLEAN_ARRAY:
+			case DataRowFactory.TYPE_BOOLEAN_SPARSE_ARRAY:
+				width = 1;
+				floatingPoint = false;
+				break;
+			default:
+			}
+		}
+		try {
+			return new MappedColumn(width, floatingPoint, capacity);
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot create memory mapped column for attribute '" + attribute.getName() + "' in spill directory " + getSpillDirectory() + ": " + e, e);
+		}
+	}
+
+	/**
+	 * Removes the attribute and deletes the file of its column.
+	 */
+	@Override
+	public synchronized void removeAttribute(int index) {
+		DataColumn column = index < getNumberOfAttributes() ? getColumn(index) : null;
+		super.removeAttribute(index);
+		if (column instanceof MappedColumn) {
+			((MappedColumn) column).close();
+		}
+	}
+
+	/**
+	 * Releases the memory mappings and deletes the files of all columns. The table
+	 * and all example sets using it must not be accessed afterwards. Invoking this
+	 * method more than once has no effect.
+	 */
+	public synchronized void close() {
+		for (int i = 0; i < getNumberOfAttributes(); i++) {
+			DataColumn column = getColumn(i);
+			if (column instanceof MappedColumn) {
+				((MappedColumn) column).close();
+			}
+		}
+	}
+
+	/**
+	 * Creates a new file in the spill directory which is deleted when the JVM exits
+	 * unless it was released before by {@link #release(File, RandomAccessFile, MappedByteBuffer[])}.
+	 */
+	public static File createSpillFile(String prefix) throws IOException {
+		File directory = getSpillDirectory();
+		directory.mkdirs();
+		File file = File.createTempFile(prefix, ".bin", directory);
+		file.deleteOnExit();
+		return file;
+	}
+
+	/**
+	 * Unmaps the given buffers, closes the file and deletes it. The buffers must not be
+	 * accessed afterwards. If the JVM does not allow to unmap buffers explicitly, the
+	 * mappings are released when the buffers are garbage collected. Returns false if
+	 * the file could not be deleted.
+	 */
+	public static boolean release(File file, RandomAccessFile randomAccessFile, MappedByteBuffer[] buffers) {
+		if (buffers != null) {
+			for (MappedByteBuffer buffer : buffers) {
+				unmap(buffer);
+			}
+		}
+		if (randomAccessFile != null) {
+			try {
+				randomAccessFile.close();
+			} catch (IOException e) {
+			}
+		}
+		return file == null || !file.exists() || file.delete();
+	}
+
+	/** Releases the mapping of the given buffer by its cleaner if the JVM provides one. */
+	private static void unmap(MappedByteBuffer buffer) {
+		if (buffer == null)
+			return;
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if (cleaner != null) {
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (Exception e) {
+			// the mapping is released by the garbage collector
+		}
+	}
+
+	/**
+	 * Returns the directory in which the column files are created. This is the directory
+	 * specified by {@link RapidMiner#PROPERTY_RAPIDMINER_SYSTEM_SPILL_DIRECTORY} or the
+	 * temporary directory of the system if the property is not set.
+	 */
+	public static File getSpillDirectory() {
+		String directory = ParameterService.getParameterValue(RapidMiner.PROPERTY_RAPIDMINER_SYSTEM_SPILL_DIRECTORY);
+		if (directory == null || directory.trim().length() == 0) {
+			directory = System.getProperty("java.io.tmpdir");
+		}
+		return new File(directory);
+	}
+
+	/**
+	 * Returns true if a table with the given number of rows and columns of doubles is not
+	 * expected to fit into the currently free heap and should therefore be memory mapped.
+	 */
+	public static boolean exceedsHeap(long rows, int columns) {
+		Runtime runtime = Runtime.getRuntime();
+		long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		return rows * columns * 8 > free / 2;
+	}
+
+	/**
+	 * A column stored in a file of the spill directory. The file is mapped in segments
+	 * of at most {@link #SEGMENT_SIZE} bytes since a single {@link MappedByteBuffer} cannot
+	 * exceed 2 GB. Only the last segment may be smaller, it is mapped anew with a larger
+	 * size when the capacity grows. Integer values use the same missing value markers as
+	 * the columns of {@link DataColumn}.
+	 */
+	private static class MappedColumn extends DataColumn {
+
+		private static final long serialVersionUID = -1963367007525853519L;
+
+		/** The maximal number of bytes mapped by one buffer. Must be a power of two. */
+		private static final int SEGMENT_SIZE = 1 << 27;
+
+		/** The minimal number of bytes which are mapped for a column. */
+		private static final int MINIMAL_MAPPED_SIZE = 1 << 16;
+
+		private static final long LONG_MISSING = Long.MIN_VALUE + 1;
+
+		/** The number of bytes used per value: 1, 4 or 8. */
+		private final int width;
+
+		/** If true, values are stored as floats or doubles, otherwise as integers. */
+		private final boolean floatingPoint;
+
+		private final int shift;
+
+		private final int mask;
+
+		private final MarkerRows markerRows = new MarkerRows();
+
+		/** The number of rows which are actually used. Only these are serialized. */
+		private int size;
+
+		/** The number of rows which fit into the mapped segments. */
+		private transient int capacity;
+
+		private transient File file;
+
+		private transient RandomAccessFile randomAccessFile;
+
+		private transient MappedByteBuffer[] segments;
+
+		private MappedColumn(int width, boolean floatingPoint, int capacity) throws IOException {
+			this.width = width;
+			this.floatingPoint = floatingPoint;
+			int valuesPerSegment = SEGMENT_SIZE / width;
+			this.shift = Integer.numberOfTrailingZeros(valuesPerSegment);
+			this.mask = valuesPerSegment - 1;
+			open();
+			ensureCapacity(capacity);
+		}
+
+		private void open() throws IOException {
+			this.file = createSpillFile("rm_column");
+			this.randomAccessFile = new RandomAccessFile(file, "rw");
+			this.segments = new MappedByteBuffer[0];
+			this.capacity = 0;
+		}
+
+		@Override
+		public double get(int row) {
+			MappedByteBuffer segment = segments[row >>> shift];
+			int offset = (row & mask) * width;
+			switch (width) {
+			case 8:
+				if (floatingPoint) {
+					return segment.getDouble(offset);
+				} else {
+					long value = segment.getLong(offset);
+					return value == LONG_MISSING ? Double.NaN : value;
+				}
+			case 4:
+				if (floatingPoint) {
+					return segment.getFloat(offset);
+				} else {
+					int value = segment.getInt(offset);
+					return value == Integer.MIN_VALUE && !markerRows.contains(row) ? Double.NaN : value;
+				}
+			default:
+				byte value = segment.get(offset);
+				return value == Byte.MIN_VALUE && !markerRows.contains(row) ? Double.NaN : value;
+			}
+		}
+
+		@Override
+		public void set(int row, double value) {
+			MappedByteBuffer segment = segments[row >>> shift];
+			int offset = (row & mask) * width;
+			boolean missing = Double.isNaN(value);
+			switch (width) {
+			case 8:
+				if (floatingPoint) {
+					segment.putDouble(offset, value);
+				} else {
+					segment.putLong(offset, missing ? LONG_MISSING : (long) value);
+				}
+				break;
+			case 4:
+				if (floatingPoint) {
+					segment.putFloat(offset, (float) value);
+				} else {
+					int intValue = missing ? Integer.MIN_VALUE : (int) value;
+					markerRows.set(row, intValue == Integer.MIN_VALUE && !missing);
+					segment.putInt(offset, intValue);
+				}
+				break;
+			default:
+				byte byteValue = missing ? Byte.MIN_VALUE : (byte) value;
+				markerRows.set(row, byteValue == Byte.MIN_VALUE && !missing);
+				segment.put(offset, byteValue);
+			}
+		}
+
+		/**
+		 * Maps enough bytes for the given number of rows. Like the columns on the heap,
+		 * the capacity grows by half of its size at least. Segments which are mapped
+		 * anew are unmapped, so this method must not run concurrently with accesses.
+		 */
+		@Override
+		public void ensureCapacity(int capacity) {
+			if (capacity <= this.capacity)
+				return;
+			long bytes = Math.max(MINIMAL_MAPPED_SIZE, Math.min((long) grow(this.capacity, capacity), Integer.MAX_VALUE) * width);
+			int neededSegments = (int) ((bytes + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+			MappedByteBuffer[] newSegments = Arrays.copyOf(segments, neededSegments);
+			MappedByteBuffer[] replaced = new MappedByteBuffer[neededSegments];
+			try {
+				FileChannel channel = randomAccessFile.getChannel();
+				for (int i = Math.max(0, segments.length - 1); i < neededSegments; i++) {
+					long segmentBytes = Math.min(SEGMENT_SIZE, bytes - (long) i * SEGMENT_SIZE);
+					if (newSegments[i] == null || newSegments[i].capacity() < segmentBytes) {
+						replaced[i] = newSegments[i];
+						newSegments[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * SEGMENT_SIZE, segmentBytes);
+					}
+				}
+			} catch (IOException e) {
+				throw new RuntimeException("Cannot enlarge memory mapped column in " + file + ": " + e, e);
+			}
+			segments = newSegments;
+			this.capacity = (int) Math.min(Integer.MAX_VALUE, bytes / width);
+			release(null, null, replaced);
+		}
+
+		/** Only remembers the size, the file only grows. */
+		@Override
+		public void trim(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public int getCapacity() {
+			return capacity;
+		}
+
+		/** Releases the mappings and deletes the file. */
+		private synchronized void close() {
+			MappedByteBuffer[] mappedSegments = segments;
+			segments = new MappedByteBuffer[0];
+			capacity = 0;
+			if (!release(file, randomAccessFile, mappedSegments)) {
+				LogService.getRoot().log(Level.FINE, "com.rapidminer.example.table.MappedExampleTable.cannot_delete_column_file", file);
+			}
+			file = null;
+			randomAccessFile = null;
+		}
+
+		/** Deletes the file if the table was not closed. */
+		@Override
+		protected void finalize() throws Throwable {
+			try {
+				if (file != null) {
+					close();
+				}
+			} finally {
+				super.finalize();
+			}
+		}
+
+		/** Writes the data itself instead of the file reference. */
+		private void writeObject(ObjectOutputStream out) throws IOException {
+			out.defaultWriteObject();
+			for (int row = 0; row < size; row++) {
+				out.writeDouble(get(row));
+			}
+		}
+
+		/** Reads the data into a new file of the spill directory. */
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			in.defaultReadObject();
+			open();
+			ensureCapacity(size);
+			for (int row = 0; row < size; row++) {
+				set(row, in.readDouble());
+			}
+		}
+	}
+}
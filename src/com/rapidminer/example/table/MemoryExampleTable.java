@@ -134,7 +134,10 @@ public class MemoryExampleTable extends AbstractExampleTable {
     
 	/**
 	 * Reads the examples into memory and permutes the order. Removes all old
-	 * data rows first.
+	 * data rows first. The permutation is built while reading by an inside-out
+	 * Fisher-Yates shuffle: each new row is placed at a random position and the
+	 * row previously stored there is moved to the end. This takes linear time
+	 * and yields the same order for the same random generator.
 	 */
 	public void readExamples(DataRowReader i, boolean permute, Random random) {
 		dataList.clear();
@@ -143,8 +146,15 @@ public class MemoryExampleTable extends AbstractExampleTable {
 				if (random == null) {
 					random = new Random();
 				}
-				int index = random.nextInt(dataList.size() + 1);
-				dataList.add(index, i.next());
+				int size = dataList.size();
+				int index = random.nextInt(size + 1);
+				DataRow row = i.next();
+				if (index == size) {
+					dataList.add(row);
+				} else {
+					dataList.add(dataList.get(index));
+					dataList.set(index, row);
+				}
 			} else {
 				dataList.add(i.next());
 			}
@@ -23,6 +23,7 @@
 package com.rapidminer.operator;
 
 import com.rapidminer.example.ExampleSet;
+import com.rapidminer.example.table.ColumnarExampleTable;
 import com.rapidminer.example.table.DataRowFactory;
 import com.rapidminer.example.table.DataRowReader;
 import com.rapidminer.example.table.ExampleTable;
@@ -97,15 +98,19 @@ public abstract class AbstractExampleSetProcessing extends Operator {
 		// check for needed copy of original exampleset
 		if (originalOutput.isConnected() && writesIntoExistingData()) {
 			int type = DataRowFactory.TYPE_DOUBLE_ARRAY;
+			boolean columnar = false;
 			if (inputExampleSet.getExampleTable() instanceof MemoryExampleTable) {
 				DataRowReader dataRowReader = inputExampleSet.getExampleTable().getDataRowReader();
 				if (dataRowReader.hasNext()) {
 					type = dataRowReader.next().getType();
 				}
+			} else if (inputExampleSet.getExampleTable() instanceof ColumnarExampleTable) {
+				type = ((ColumnarExampleTable) inputExampleSet.getExampleTable()).getDataManagement();
+				columnar = true;
 			}
 			// check if type is supported to be copied
 			if (type >= 0) {
-				applySet = MaterializeDataInMemory.materializeExampleSet(inputExampleSet, type);
+				applySet = MaterializeDataInMemory.materializeExampleSet(inputExampleSet, type, columnar);
 			}
 		}
 		
@@ -151,4 +156,8 @@ public abstract class AbstractExampleSetProcessing extends Operator {
 	public OutputPort getExampleSetOutputPort() {
 		return exampleSetOutput;
 	}
+
+	public OutputPort getOriginalOutputPort() {
+		return originalOutput;
+	}
 }
@@ -26,6 +26,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import com.rapidminer.example.ExampleSet;
+import com.rapidminer.operator.learner.PredictionModel;
 import com.rapidminer.operator.ports.InputPort;
 import com.rapidminer.operator.ports.OutputPort;
 import com.rapidminer.operator.ports.metadata.ExampleSetMetaData;
@@ -48,7 +49,7 @@ import com.rapidminer.parameter.ParameterTypeString;
  * 
  * @author Ingo Mierswa, Simon Fischer
  */
-public class ModelApplier extends Operator {
+public class ModelApplier extends Operator implements StreamableOperator {
 
 	/** The parameter name for &quot;value&quot; */
 	public static final String PARAMETER_KEY = "key";
@@ -59,6 +60,9 @@ public class ModelApplier extends Operator {
 	/** Indicates if preprocessing models should create a view instead of changing the data. */
 	private static final String PARAMETER_CREATE_VIEW = "create_view";
 
+	/** Indicates if prediction models may distribute the application over several threads. */
+	public static final String PARAMETER_PARALLEL_EXECUTION = "parallel_execution";
+
 	private final InputPort modelInput = getInputPorts().createPort("model");
 	private final InputPort exampleSetInput = getInputPorts().createPort("unlabelled data");
 	private final OutputPort exampleSetOutput = getOutputPorts().createPort("labelled data");
@@ -93,6 +97,9 @@ public class ModelApplier extends Operator {
 		if (getParameterAsBoolean(PARAMETER_CREATE_VIEW)) {
 			model.setParameter(PreprocessingOperator.PARAMETER_CREATE_VIEW, true);
 		}
+		if (model instanceof PredictionModel) {
+			((PredictionModel) model).setParallelPrediction(getParameterAsBoolean(PARAMETER_PARALLEL_EXECUTION));
+		}
 
 		log("Applying " + model.getClass().getName());
 		ExampleSet result = inputExampleSet;
@@ -117,6 +124,14 @@ public class ModelApplier extends Operator {
 		}
 	}
 
+	@Override
+	public void startStreaming(int batchSize) {
+		// models are applied to each example independently
+	}
+
+	@Override
+	public void finishStreaming() {}
+
 	@Override
 	public List<ParameterType> getParameterTypes() {
 		List<ParameterType> types = super.getParameterTypes();
@@ -124,6 +139,9 @@ public class ModelApplier extends Operator {
 				new ParameterTypeString("key", "The model parameter key."),
 				new ParameterTypeString(PARAMETER_KEY, "This key's value")));
 		types.add(new ParameterTypeBoolean(PARAMETER_CREATE_VIEW, "Indicates that models should create a new view on the data where possible. Then, instead of changing the data itself, the results are calculated on the fly if needed.", false));
+		ParameterType type = new ParameterTypeBoolean(PARAMETER_PARALLEL_EXECUTION, "Indicates if the application of prediction models which support it should be distributed over several threads. This requires the data to be kept in memory.", false);
+		type.setExpert(true);
+		types.add(type);
 		return types;
 	}
 }
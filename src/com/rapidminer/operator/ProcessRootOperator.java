@@ -41,6 +41,7 @@ import com.rapidminer.operator.ports.metadata.MDTransformationRule;
 import com.rapidminer.operator.ports.metadata.MetaData;
 import com.rapidminer.operator.ports.metadata.SubprocessTransformRule;
 import com.rapidminer.parameter.ParameterType;
+import com.rapidminer.parameter.ParameterTypeBoolean;
 import com.rapidminer.parameter.ParameterTypeCategory;
 import com.rapidminer.parameter.ParameterTypeFile;
 import com.rapidminer.parameter.ParameterTypeInt;
@@ -97,6 +98,9 @@ public final class ProcessRootOperator extends OperatorChain {
 
     public static final String PARAMETER_NOTIFICATION_EMAIL = "notification_email";
 
+    /** Indicates if independent operators of a subprocess may be executed concurrently. */
+    public static final String PARAMETER_PARALLEL_EXECUTION = "parallel_execution";
+
     static {
         ParameterService.registerParameter(new ParameterTypeInt(PROPERTY_RAPIDMINER_GENERAL_RANDOMSEED, "The default random seed (-1: random random seed).", -1, Integer.MAX_VALUE, 2001));
     }
@@ -234,13 +238,13 @@ public final class ProcessRootOperator extends OperatorChain {
     }
 
     /** Counts the step and notifies all process listeners. */
-    public void processStartedOperator(Operator op) {
+    public synchronized void processStartedOperator(Operator op) {
         for(ProcessListener listener: getListenerListCopy())
             listener.processStartedOperator(this.process, op);
     }
 
     /** Counts the step and notifies all process listeners. */
-    public void processFinishedOperator(Operator op) {
+    public synchronized void processFinishedOperator(Operator op) {
         for(ProcessListener listener : getListenerListCopy())
             listener.processFinishedOperator(this.process, op);
     }
@@ -348,6 +352,8 @@ public final class ProcessRootOperator extends OperatorChain {
         parameterTimeMail.registerDependencyCondition(new EqualTypeCondition(this, PARAMETER_SEND_MAIL, PARAMETER_SEND_MAIL_OPTIONS, true, PARAMETER_SEND_MAIL_FOR_LONG));
         types.add(parameterTimeMail);
 
+        types.add(new ParameterTypeBoolean(PARAMETER_PARALLEL_EXECUTION, "If checked, operators of a subprocess which do not depend on each other are executed concurrently. Operators setting macros are completed before any following operator starts. Other operators communicating without ports, e.g. by Remember and Recall, should either be connected or must not have any connected port.", false, true));
+
         types.addAll(Encoding.getParameterTypes(this));
         //		String encoding = RapidMiner.SYSTEM_ENCODING_NAME;
         //		String encodingProperty = System.getProperty(RapidMiner.PROPERTY_RAPIDMINER_GENERAL_DEFAULT_ENCODING);
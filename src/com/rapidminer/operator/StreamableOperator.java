@@ -0,0 +1,42 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.operator;
+
+/**
+ * This interface must be implemented by operators which process each example independently
+ * of all other examples. Such operators can be executed on consecutive batches of the data by
+ * a {@link com.rapidminer.operator.meta.StreamProcessing}, so only a single batch has to be
+ * kept in memory. Operators writing data must append the batches following the first one to
+ * the results of the first one.
+ * 
+ * @see StreamSource
+ */
+public interface StreamableOperator {
+
+	/** Is called before the first batch is processed. Sources deliver at most the given number of examples per execution. */
+	public void startStreaming(int batchSize) throws OperatorException;
+
+	/** Is called after the last batch was processed or if the processing failed. Must release all resources kept for the stream. */
+	public void finishStreaming();
+
+}
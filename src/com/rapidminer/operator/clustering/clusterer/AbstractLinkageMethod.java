@@ -31,6 +31,11 @@ import com.rapidminer.operator.clustering.HierarchicalClusterNode;
  * It stores a distance matrix between all clusters and returns the next agglomeration as the minimum of all
  * distances. To save time needed to copy the matrix if two clusters are joined, it is not resized, instead one 
  * row and column is not used anymore. The other row and column are updated by the agglomeration methods.
+ * 
+ * Instead of searching the complete matrix for each agglomeration, the minimum of each row of the upper right
+ * triangle is cached and only the rows affected by an agglomeration are searched again. This yields the same
+ * sequence of agglomerations as searching the complete matrix, including the resolution of ties by the last
+ * minimal entry in row wise order, but usually needs quadratic instead of cubic time in total.
  * @author Sebastian Land
  */
 public abstract class AbstractLinkageMethod {
@@ -40,6 +45,12 @@ public abstract class AbstractLinkageMethod {
 	private boolean[] isDeletedData;
 	
 	private int[] clusterIds;
+
+	/** The minimal distance of each row to the rows with higher index. */
+	private double[] rowMinimum;
+
+	/** The last column with higher index which has the minimal distance or -1 if there is none. */
+	private int[] rowMinimumIndex;
 	
 	public AbstractLinkageMethod(DistanceMatrix matrix, int[] clusterIds) {
 		this.matrix = matrix;
@@ -48,23 +59,23 @@ public abstract class AbstractLinkageMethod {
 	}
 
 	public Agglomeration getNextAgglomeration(int nextClusterId, Map<Integer, HierarchicalClusterNode> clusterMap) {
+		if (rowMinimum == null) {
+			rowMinimum = new double[matrix.getHeight()];
+			rowMinimumIndex = new int[matrix.getHeight()];
+			for (int x = 0; x < matrix.getWidth(); x++) {
+				updateRowMinimum(x);
+			}
+		}
+
 		// searching for miniumum
 		double minimalDistance = Double.POSITIVE_INFINITY;
 		int minimalX = -1;
 		int minimalY = -1;
 		for (int x = 0; x < matrix.getWidth(); x++) {
-			if (!isDeletedData[x]) {
-				// searching right upper triangle of distance matrix
-				for (int y = x + 1; y < matrix.getHeight(); y++) {
-					if (!isDeletedData[y]) {
-						double value = matrix.get(x, y);
-						if (value <= minimalDistance) {
-							minimalX = x;
-							minimalY = y;
-							minimalDistance = value;
-						}
-					}
-				}
+			if (!isDeletedData[x] && rowMinimumIndex[x] >= 0 && rowMinimum[x] <= minimalDistance) {
+				minimalX = x;
+				minimalY = rowMinimumIndex[x];
+				minimalDistance = rowMinimum[x];
 			}
 		}
 		// constructing agglomeration
@@ -74,8 +85,52 @@ public abstract class AbstractLinkageMethod {
 		updateDistances(matrix, minimalX, minimalY, clusterMap);
 		isDeletedData[minimalY] = true;
 		clusterIds[minimalX] = nextClusterId;
+		updateRowMinima(minimalX, minimalY);
 		return agglomeration;
 	}
+
+	/**
+	 * Updates the cached row minima after the row and column updatedRow have been changed and
+	 * the row and column unionedRow have been deleted.
+	 */
+	private void updateRowMinima(int updatedRow, int unionedRow) {
+		for (int x = 0; x < updatedRow; x++) {
+			if (!isDeletedData[x]) {
+				int index = rowMinimumIndex[x];
+				if (index == updatedRow || index == unionedRow) {
+					updateRowMinimum(x);
+				} else {
+					double value = matrix.get(x, updatedRow);
+					if (value < rowMinimum[x] || (value == rowMinimum[x] && updatedRow > index)) {
+						rowMinimum[x] = value;
+						rowMinimumIndex[x] = updatedRow;
+					}
+				}
+			}
+		}
+		updateRowMinimum(updatedRow);
+		for (int x = updatedRow + 1; x < unionedRow; x++) {
+			if (!isDeletedData[x] && rowMinimumIndex[x] == unionedRow) {
+				updateRowMinimum(x);
+			}
+		}
+	}
+
+	private void updateRowMinimum(int x) {
+		double minimalDistance = Double.POSITIVE_INFINITY;
+		int minimalY = -1;
+		for (int y = x + 1; y < matrix.getHeight(); y++) {
+			if (!isDeletedData[y]) {
+				double value = matrix.get(x, y);
+				if (value <= minimalDistance) {
+					minimalY = y;
+					minimalDistance = value;
+				}
+			}
+		}
+		rowMinimum[x] = minimalDistance;
+		rowMinimumIndex[x] = minimalY;
+	}
 	
 	public abstract void updateDistances(DistanceMatrix matrix, int updatedRow, int unionedRow, Map<Integer, HierarchicalClusterNode> clusterMap);
 }
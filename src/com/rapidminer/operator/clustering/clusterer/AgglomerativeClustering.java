@@ -22,19 +22,24 @@
  */
 package com.rapidminer.operator.clustering.clusterer;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import com.rapidminer.example.Attribute;
 import com.rapidminer.example.Attributes;
 import com.rapidminer.example.Example;
 import com.rapidminer.example.ExampleSet;
 import com.rapidminer.example.Tools;
+import com.rapidminer.example.table.MappedExampleTable;
 import com.rapidminer.gui.ExampleVisualizer;
 import com.rapidminer.operator.Operator;
 import com.rapidminer.operator.OperatorDescription;
 import com.rapidminer.operator.OperatorException;
+import com.rapidminer.operator.ProcessStoppedException;
 import com.rapidminer.operator.clustering.DendogramHierarchicalClusterModel;
 import com.rapidminer.operator.clustering.HierarchicalClusterLeafNode;
 import com.rapidminer.operator.clustering.HierarchicalClusterModel;
@@ -49,7 +54,9 @@ import com.rapidminer.operator.ports.metadata.GenerateNewMDRule;
 import com.rapidminer.operator.ports.metadata.MetaData;
 import com.rapidminer.operator.ports.metadata.SetRelation;
 import com.rapidminer.parameter.ParameterType;
+import com.rapidminer.parameter.ParameterTypeBoolean;
 import com.rapidminer.parameter.ParameterTypeStringCategory;
+import com.rapidminer.tools.ConcurrencyTools;
 import com.rapidminer.tools.ObjectVisualizerService;
 import com.rapidminer.tools.Ontology;
 import com.rapidminer.tools.math.similarity.DistanceMeasure;
@@ -60,6 +67,9 @@ import com.rapidminer.tools.math.similarity.DistanceMeasures;
  * SingleLink, CompleteLink and AverageLink. The last is also called UPGMA. The result will be a
  * hierarchical cluster model, providing distance information to plot as a dendogram. 
  * 
+ * The distance matrix might be computed concurrently in blocks of rows. If it is not expected to fit
+ * into the heap, it is stored in a memory mapped file of the spill directory.
+ * 
  * @author Sebastian Land
  */
 public class AgglomerativeClustering extends Operator {
@@ -71,6 +81,11 @@ public class AgglomerativeClustering extends Operator {
 
 	public static final String PARAMETER_MODE = "mode";
 
+	public static final String PARAMETER_PARALLEL_EXECUTION = "parallel_execution";
+
+	/** The number of blocks of rows of the distance matrix computed per thread, used for balancing the load. */
+	private static final int BLOCKS_PER_THREAD = 4;
+
 	public static final String[] modes = new String[] {
 		"SingleLink",
 		"CompleteLink",
@@ -102,20 +117,32 @@ public class AgglomerativeClustering extends Operator {
 
 		Attribute idAttribute = exampleSet.getAttributes().getId();
 		boolean idAttributeIsNominal = idAttribute.isNominal();
-		DistanceMatrix matrix = new DistanceMatrix(exampleSet.size());
+		DistanceMatrix matrix;
+		try {
+			matrix = new DistanceMatrix(exampleSet.size(), true);
+		} catch (IOException e) {
+			throw new OperatorException("Cannot create memory mapped distance matrix in spill directory " + MappedExampleTable.getSpillDirectory() + ": " + e, e);
+		}
+		if (matrix.isMapped()) {
+			getLogger().fine("Distance matrix does not fit into memory, storing it in the spill directory.");
+		}
+		int threads = 1;
+		if (getParameterAsBoolean(PARAMETER_PARALLEL_EXECUTION) && !ConcurrencyTools.isWorkerThread()) {
+			threads = ConcurrencyTools.getNumberOfThreads();
+		}
+		// filling the distance matrix
+		try {
+			fillDistanceMatrix(exampleSet, measure, matrix, threads);
+		} catch (OperatorException e) {
+			matrix.close();
+			throw e;
+		}
+
 		Map<Integer, HierarchicalClusterNode> clusterMap = new HashMap<Integer, HierarchicalClusterNode>(exampleSet.size());
 		int[] clusterIds = new int[exampleSet.size()];
-		// filling the distance matrix
 		int nextClusterId = 0;
 		for (Example example1: exampleSet) {
-			checkForStop();
 			clusterIds[nextClusterId] = nextClusterId;
-			int y = 0;
-			for (Example example2: exampleSet) {
-				if (y > nextClusterId)
-					matrix.set(nextClusterId, y, measure.calculateDistance(example1, example2));
-				y++;
-			}
 			if (idAttributeIsNominal) {
 				clusterMap.put(nextClusterId, new HierarchicalClusterLeafNode(nextClusterId, example1.getValueAsString(idAttribute)));
 			} else {
@@ -143,6 +170,8 @@ public class AgglomerativeClustering extends Operator {
 			clusterMap.put(nextClusterId, newNode);
 			nextClusterId++;
 		}
+		// the distances are no longer needed, a mapped matrix releases its file at once
+		matrix.close();
 
 		// creating model
 		HierarchicalClusterModel model = new DendogramHierarchicalClusterModel(clusterMap.entrySet().iterator().next().getValue());
@@ -154,6 +183,74 @@ public class AgglomerativeClustering extends Operator {
 		exampleSetOutput.deliver(exampleSet);
 	}
 
+	/** Computes the upper right triangle of the distance matrix. The rows are split into blocks of 
+	 *  similar numbers of entries, which are computed concurrently if more than one thread is given. */
+	private void fillDistanceMatrix(final ExampleSet exampleSet, final DistanceMeasure measure, final DistanceMatrix matrix, int threads) throws OperatorException {
+		int size = exampleSet.size();
+		Attributes attributes = exampleSet.getAttributes();
+		double[][] exampleValues = null;
+		if (!MappedExampleTable.exceedsHeap(size, attributes.size())) {
+			exampleValues = new double[size][];
+			int e = 0;
+			for (Example example: exampleSet) {
+				double[] currentValues = new double[attributes.size()];
+				int d = 0;
+				for (Attribute attribute: attributes) {
+					currentValues[d++] = example.getValue(attribute);
+				}
+				exampleValues[e++] = currentValues;
+			}
+		}
+		final double[][] values = exampleValues;
+		if (threads <= 1) {
+			fillRows(exampleSet, values, measure, matrix, 0, size);
+			return;
+		}
+
+		long entriesPerBlock = ((long) size * (size - 1) / 2) / (threads * BLOCKS_PER_THREAD) + 1;
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		int from = 0;
+		while (from < size) {
+			int to = from;
+			long entries = 0;
+			while (to < size && entries < entriesPerBlock) {
+				entries += size - 1 - to;
+				to++;
+			}
+			final int firstRow = from;
+			final int lastRow = to;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws ProcessStoppedException {
+					fillRows(exampleSet, values, measure, matrix, firstRow, lastRow);
+					return null;
+				}
+			});
+			from = to;
+		}
+		ConcurrencyTools.invokeAll(tasks, threads, getName());
+	}
+
+	/** Computes the rows from firstRow (inclusive) to lastRow (exclusive) of the upper right triangle of the 
+	 *  distance matrix. The copied values are used if not null, otherwise the examples themselves. */
+	private void fillRows(ExampleSet exampleSet, double[][] values, DistanceMeasure measure, DistanceMatrix matrix, int firstRow, int lastRow) throws ProcessStoppedException {
+		int size = exampleSet.size();
+		for (int x = firstRow; x < lastRow; x++) {
+			checkForStop();
+			if (values != null) {
+				double[] values1 = values[x];
+				for (int y = x + 1; y < size; y++) {
+					matrix.set(x, y, measure.calculateDistance(values1, values[y]));
+				}
+			} else {
+				Example example1 = exampleSet.getExample(x);
+				for (int y = x + 1; y < size; y++) {
+					matrix.set(x, y, measure.calculateDistance(example1, exampleSet.getExample(y)));
+				}
+			}
+		}
+	}
+
 	@Override
 	public boolean shouldAutoConnect(OutputPort port) {
 		if (port == exampleSetOutput) {
@@ -171,6 +268,7 @@ public class AgglomerativeClustering extends Operator {
 		types.add(type);
 
 		types.addAll(DistanceMeasures.getParameterTypes(this));
+		types.add(new ParameterTypeBoolean(PARAMETER_PARALLEL_EXECUTION, "Indicates if the distance matrix should be computed concurrently in blocks of rows.", false));
 		return types;
 	}
 }
@@ -23,9 +23,10 @@
 package com.rapidminer.operator.clustering.clusterer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
+import java.util.concurrent.Callable;
 
 import com.rapidminer.example.Attribute;
 import com.rapidminer.example.Attributes;
@@ -33,6 +34,7 @@ import com.rapidminer.example.Example;
 import com.rapidminer.example.ExampleSet;
 import com.rapidminer.example.Tools;
 import com.rapidminer.example.table.AttributeFactory;
+import com.rapidminer.example.table.MappedExampleTable;
 import com.rapidminer.operator.OperatorCapability;
 import com.rapidminer.operator.OperatorDescription;
 import com.rapidminer.operator.OperatorException;
@@ -40,15 +42,25 @@ import com.rapidminer.operator.clustering.ClusterModel;
 import com.rapidminer.operator.learner.CapabilityProvider;
 import com.rapidminer.operator.ports.metadata.DistanceMeasurePrecondition;
 import com.rapidminer.parameter.ParameterType;
+import com.rapidminer.parameter.ParameterTypeBoolean;
 import com.rapidminer.parameter.ParameterTypeDouble;
 import com.rapidminer.parameter.ParameterTypeInt;
+import com.rapidminer.tools.ConcurrencyTools;
 import com.rapidminer.tools.Ontology;
+import com.rapidminer.tools.math.container.AbstractGeometricDataCollection;
+import com.rapidminer.tools.math.container.GeometricDataCollections;
 import com.rapidminer.tools.math.similarity.DistanceMeasure;
 import com.rapidminer.tools.math.similarity.DistanceMeasureHelper;
 import com.rapidminer.tools.math.similarity.DistanceMeasures;
 
 /**
  * This operator provides the DBScan cluster algorithm. If no id attribute is present, the operator will create one.
+ * 
+ * The neighbourhoods are searched in a kd-tree or ball tree if the distance measure and the number of dimensions
+ * allow it, otherwise all examples are compared. If parallel execution is enabled, the neighbourhoods of the next
+ * examples to be visited are searched concurrently in advance. Since the examples are still visited in the same
+ * order, the clusters do not depend on the search strategy.
+ * 
  * @author Sebastian Land
  */
 public class DBScan extends RMAbstractClusterer implements CapabilityProvider {
@@ -57,6 +69,64 @@ public class DBScan extends RMAbstractClusterer implements CapabilityProvider {
 
 	private static final String PARAMETER_MIN_POINTS= "min_points";
 
+	public static final String PARAMETER_PARALLEL_EXECUTION = "parallel_execution";
+
+	/** The number of neighbourhoods searched in advance for each thread. */
+	private static final int NEIGHBOURHOODS_PER_THREAD = 64;
+
+	/** Searches the indices of all examples whose distance to an example is smaller than epsilon. 
+	 *  The indices are returned in ascending order. Implementations must be thread safe. */
+	private static interface NeighbourhoodSearch {
+		public int[] getNeighbourhood(int index);
+	}
+
+	/** A growing first-in-first-out queue of example indices. The positions of the entries do not change. */
+	private static class IndexQueue {
+
+		private int[] entries = new int[16];
+
+		private int head = 0;
+
+		private int tail = 0;
+
+		public void add(int index) {
+			if (tail == entries.length) {
+				entries = Arrays.copyOf(entries, 2 * entries.length);
+			}
+			entries[tail++] = index;
+		}
+
+		public int poll() {
+			return entries[head++];
+		}
+
+		public boolean isEmpty() {
+			return head == tail;
+		}
+
+		/** Returns the position of the next entry to be polled. */
+		public int getHead() {
+			return head;
+		}
+
+		public int getTail() {
+			return tail;
+		}
+
+		public int get(int position) {
+			return entries[position];
+		}
+
+		public void clear() {
+			head = 0;
+			tail = 0;
+		}
+
+		public int[] toArray() {
+			return Arrays.copyOfRange(entries, head, tail);
+		}
+	}
+
 	private DistanceMeasureHelper measureHelper = new DistanceMeasureHelper(this);
 
 	public DBScan(OperatorDescription description) {
@@ -111,35 +181,78 @@ public class DBScan extends RMAbstractClusterer implements CapabilityProvider {
 		for (Attribute attribute: attributes)
 			attributeNames.add(attribute.getName());
 
-		boolean[] visited = new boolean[exampleSet.size()];
-		boolean[] noised = new boolean[exampleSet.size()];
-		int[] clusterAssignments = new int[exampleSet.size()];
+		NeighbourhoodSearch search = createNeighbourhoodSearch(exampleSet, measure, epsilon);
+		int threads = 1;
+		if (getParameterAsBoolean(PARAMETER_PARALLEL_EXECUTION) && !ConcurrencyTools.isWorkerThread()) {
+			threads = ConcurrencyTools.getNumberOfThreads();
+		}
+		int batchSize = threads > 1 ? threads * NEIGHBOURHOODS_PER_THREAD : 1;
+
+		int size = exampleSet.size();
+		boolean[] visited = new boolean[size];
+		boolean[] noised = new boolean[size];
+		int[] clusterAssignments = new int[size];
+
+		// the neighbourhoods of the next unvisited examples, searched in advance
+		int[] candidates = new int[batchSize];
+		int[][] candidateNeighbourhoods = null;
+		int numberOfCandidates = 0;
+		int candidatePosition = 0;
 
-		int i = 0;
+		IndexQueue centerNeighbourhood = new IndexQueue();
 		int clusterIndex = 1;
-		for (Example example: exampleSet) {
+		for (int i = 0; i < size; i++) {
 			checkForStop();
 			if (!visited[i]) {
-				Queue<Integer> centerNeighbourhood = getNeighbourhood(example, exampleSet, measure, epsilon);
-				if (centerNeighbourhood.size() < minPoints) {
+				if (candidatePosition >= numberOfCandidates || candidates[numberOfCandidates - 1] < i) {
+					numberOfCandidates = 0;
+					for (int j = i; j < size && numberOfCandidates < batchSize; j++) {
+						if (!visited[j]) {
+							candidates[numberOfCandidates++] = j;
+						}
+					}
+					candidateNeighbourhoods = getNeighbourhoods(search, candidates, 0, numberOfCandidates, threads);
+					candidatePosition = 0;
+				}
+				// candidates visited in the meantime are skipped
+				while (candidates[candidatePosition] < i) {
+					candidateNeighbourhoods[candidatePosition++] = null;
+				}
+				int[] neighbours = candidateNeighbourhoods[candidatePosition];
+				candidateNeighbourhoods[candidatePosition++] = null;
+
+				if (neighbours.length < minPoints) {
 					noised[i] = true;
 				} else {
 					// then its center point of a cluster. Assign example to new cluster
 					clusterAssignments[i] = clusterIndex;
+					centerNeighbourhood.clear();
+					for (int neighbourIndex : neighbours) {
+						centerNeighbourhood.add(neighbourIndex);
+					}
+					// the neighbourhoods of the next queue entries, searched in advance
+					int[][] queueNeighbourhoods = null;
+					int queueStart = 0;
+					int queueEnd = 0;
 					// expanding cluster within density borders
-					while (centerNeighbourhood.size() > 0) {
-						int currentIndex = centerNeighbourhood.poll().intValue();
-						Example currentExample = exampleSet.getExample(currentIndex);
+					while (!centerNeighbourhood.isEmpty()) {
+						int position = centerNeighbourhood.getHead();
+						if (position >= queueEnd) {
+							queueStart = position;
+							queueEnd = Math.min(position + batchSize, centerNeighbourhood.getTail());
+							queueNeighbourhoods = getNeighbourhoods(search, centerNeighbourhood.entries, queueStart, queueEnd - queueStart, threads);
+						}
+						int currentIndex = centerNeighbourhood.poll();
 						// assigning example to current cluster
 						clusterAssignments[currentIndex] = clusterIndex;
 						visited[currentIndex] = true;
 
 						// appending own neighbourhood to queue
-						Queue<Integer> neighbourhood = getNeighbourhood(currentExample, exampleSet, measure, epsilon);
-						if (neighbourhood.size() >= minPoints) {
+						int[] neighbourhood = queueNeighbourhoods[position - queueStart];
+						queueNeighbourhoods[position - queueStart] = null;
+						if (neighbourhood.length >= minPoints) {
 							// then this neighbor of center is also a center of the cluster
-							while (neighbourhood.size() > 0) {
-								int neighbourIndex = neighbourhood.poll().intValue();
+							for (int neighbourIndex : neighbourhood) {
 								if (!visited[neighbourIndex]) {
 									if (!noised[neighbourIndex]) {
 										// if its not noised, then it might be center of cluster! So append to queue
@@ -155,7 +268,6 @@ public class DBScan extends RMAbstractClusterer implements CapabilityProvider {
 					clusterIndex++;
 				}
 			}
-			i++;
 		}
 
 		ClusterModel model = new ClusterModel(exampleSet, Math.max(clusterIndex, 1), getParameterAsBoolean(RMAbstractClusterer.PARAMETER_ADD_AS_LABEL), getParameterAsBoolean(RMAbstractClusterer.PARAMETER_REMOVE_UNLABELED));
@@ -165,7 +277,7 @@ public class DBScan extends RMAbstractClusterer implements CapabilityProvider {
 			Attribute cluster = AttributeFactory.createAttribute(Attributes.CLUSTER_NAME, Ontology.NOMINAL);
 			exampleSet.getExampleTable().addAttribute(cluster);
 			exampleSet.getAttributes().setCluster(cluster);
-			i = 0;
+			int i = 0;
 			for (Example example: exampleSet) {
 				example.setValue(cluster, "cluster_" + clusterAssignments[i]);
 				i++;
@@ -174,16 +286,97 @@ public class DBScan extends RMAbstractClusterer implements CapabilityProvider {
 		return model;
 	}
 
-	private LinkedList<Integer> getNeighbourhood(Example centerExample, ExampleSet exampleSet, DistanceMeasure measure, double epsilon) {
-		LinkedList<Integer> neighbourhood = new LinkedList<Integer>();
-		int i = 0;
+	/** Returns the neighbourhoods of the examples with the indices stored in the given array between offset 
+	 *  and offset + length. The neighbourhoods are searched concurrently if more than one thread is given. */
+	private int[][] getNeighbourhoods(final NeighbourhoodSearch search, int[] indices, int offset, int length, int threads) throws OperatorException {
+		if (threads <= 1 || length <= 1) {
+			int[][] neighbourhoods = new int[length][];
+			for (int i = 0; i < length; i++) {
+				neighbourhoods[i] = search.getNeighbourhood(indices[offset + i]);
+			}
+			return neighbourhoods;
+		}
+		List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>(length);
+		for (int i = 0; i < length; i++) {
+			final int index = indices[offset + i];
+			tasks.add(new Callable<int[]>() {
+				@Override
+				public int[] call() {
+					return search.getNeighbourhood(index);
+				}
+			});
+		}
+		return ConcurrencyTools.invokeAll(tasks, threads, getName()).toArray(new int[length][]);
+	}
+
+	/** Creates the search for the neighbourhoods. The values of all examples are copied into memory if they fit 
+	 *  into the heap, then a tree is used for the search if it is supported by the measure. Otherwise all examples 
+	 *  are compared. */
+	private NeighbourhoodSearch createNeighbourhoodSearch(final ExampleSet exampleSet, final DistanceMeasure measure, final double epsilon) throws OperatorException {
+		Attributes attributes = exampleSet.getAttributes();
+		int numberOfDimensions = attributes.size();
+		if (MappedExampleTable.exceedsHeap(exampleSet.size(), numberOfDimensions)) {
+			getLogger().fine("Data does not fit into memory, comparing all examples for each neighbourhood.");
+			return new NeighbourhoodSearch() {
+				@Override
+				public int[] getNeighbourhood(int index) {
+					Example centerExample = exampleSet.getExample(index);
+					IndexQueue neighbourhood = new IndexQueue();
+					int i = 0;
+					for (Example example: exampleSet) {
+						double distance = measure.calculateDistance(centerExample, example);
+						if (distance < epsilon) 
+							neighbourhood.add(i);
+						i++;
+					}
+					return neighbourhood.toArray();
+				}
+			};
+		}
+
+		final double[][] values = new double[exampleSet.size()][];
+		int e = 0;
 		for (Example example: exampleSet) {
-			double distance = measure.calculateDistance(centerExample, example);
-			if (distance < epsilon) 
-				neighbourhood.add(i);
-			i++;
+			double[] exampleValues = new double[numberOfDimensions];
+			int d = 0;
+			for (Attribute attribute: attributes) {
+				exampleValues[d++] = example.getValue(attribute);
+			}
+			values[e++] = exampleValues;
+		}
+
+		int indexStructure = GeometricDataCollections.getSelectedIndexStructure(this);
+		if (!GeometricDataCollections.supportsDistanceMeasure(indexStructure, measure)) {
+			logWarning("The " + GeometricDataCollections.INDEX_STRUCTURES[indexStructure] + " cannot be used with the " + measure + ", using linear search.");
+			indexStructure = GeometricDataCollections.INDEX_STRUCTURE_LINEAR_SEARCH;
+		}
+		indexStructure = GeometricDataCollections.resolveIndexStructure(indexStructure, measure, numberOfDimensions);
+		if (indexStructure == GeometricDataCollections.INDEX_STRUCTURE_LINEAR_SEARCH) {
+			return new NeighbourhoodSearch() {
+				@Override
+				public int[] getNeighbourhood(int index) {
+					double[] centerValues = values[index];
+					IndexQueue neighbourhood = new IndexQueue();
+					for (int i = 0; i < values.length; i++) {
+						if (measure.calculateDistance(centerValues, values[i]) < epsilon) 
+							neighbourhood.add(i);
+					}
+					return neighbourhood.toArray();
+				}
+			};
+		} else {
+			getLogger().fine("Searching neighbourhoods in a " + GeometricDataCollections.INDEX_STRUCTURES[indexStructure] + ".");
+			final AbstractGeometricDataCollection<Integer> samples = (AbstractGeometricDataCollection<Integer>) GeometricDataCollections.<Integer>createCollection(indexStructure, measure, numberOfDimensions);
+			for (int i = 0; i < values.length; i++) {
+				samples.add(values[i], i);
+			}
+			return new NeighbourhoodSearch() {
+				@Override
+				public int[] getNeighbourhood(int index) {
+					return samples.getIndicesCloserThan(epsilon, values[index]);
+				}
+			};
 		}
-		return neighbourhood;
 	}
 
 	@Override
@@ -196,6 +389,9 @@ public class DBScan extends RMAbstractClusterer implements CapabilityProvider {
 
 		types.addAll(DistanceMeasures.getParameterTypes(this));
 
+		types.add(GeometricDataCollections.getParameterType());
+		types.add(new ParameterTypeBoolean(PARAMETER_PARALLEL_EXECUTION, "Indicates if the neighbourhoods of several examples should be searched concurrently.", false));
+
 		return types;
 	}	
 }
@@ -22,32 +22,103 @@
  */
 package com.rapidminer.operator.clustering.clusterer;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Level;
+
+import com.rapidminer.example.table.MappedExampleTable;
+import com.rapidminer.tools.LogService;
+
 /**
  * This class implements an symmetrical matrix for distances, thus saving half the memory
- * by saving only the upper right triangle
+ * by saving only the upper right triangle. The triangle is stored row by row in segments
+ * of {@link #SEGMENT_SIZE} values, which are either kept on the heap or, if requested and the
+ * triangle is not expected to fit into the heap, mapped from a file of the spill directory
+ * (see {@link MappedExampleTable#getSpillDirectory()}). The file is deleted by {@link #close()}.
+ * 
+ * Values of different entries might be set concurrently.
+ * 
  * @author Sebastian Land
  */
 public class DistanceMatrix {
 
-	private double[][] matrix;
+	/** The number of values stored in one segment. Must be a power of two. */
+	private static final int SEGMENT_SIZE = 1 << 24;
+
+	private static final int SHIFT = Integer.numberOfTrailingZeros(SEGMENT_SIZE);
+
+	private static final int MASK = SEGMENT_SIZE - 1;
+
 	private int size;
-	
+
+	private double[][] segments;
+
+	private DoubleBuffer[] mappedSegments;
+
+	private MappedByteBuffer[] mappings;
+
+	private File file;
+
+	private RandomAccessFile randomAccessFile;
+
 	public DistanceMatrix(int size) {
 		this.size = size;
-		matrix = new double[size][];
-		for (int i = 0; i < size; i++) {
-			for (int j = i + 1; j < size; j++) {
-				matrix[i] = new double[j];
-			}
-			
+		allocateSegments();
+	}
+
+	/**
+	 * Creates a matrix which is stored in a memory mapped file if allowMapping is true and the
+	 * matrix is not expected to fit into the free heap.
+	 */
+	public DistanceMatrix(int size, boolean allowMapping) throws IOException {
+		this.size = size;
+		if (allowMapping && MappedExampleTable.exceedsHeap(getNumberOfEntries(), 1)) {
+			mapSegments();
+		} else {
+			allocateSegments();
+		}
+	}
+
+	private void allocateSegments() {
+		long entries = getNumberOfEntries();
+		segments = new double[(int) ((entries + MASK) >>> SHIFT)][];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = new double[(int) Math.min(SEGMENT_SIZE, entries - ((long) i << SHIFT))];
 		}
 	}
 
+	private void mapSegments() throws IOException {
+		long entries = getNumberOfEntries();
+		file = MappedExampleTable.createSpillFile("rm_distances");
+		randomAccessFile = new RandomAccessFile(file, "rw");
+		FileChannel channel = randomAccessFile.getChannel();
+		mappings = new MappedByteBuffer[(int) ((entries + MASK) >>> SHIFT)];
+		mappedSegments = new DoubleBuffer[mappings.length];
+		for (int i = 0; i < mappedSegments.length; i++) {
+			long segmentSize = Math.min(SEGMENT_SIZE, entries - ((long) i << SHIFT));
+			mappings[i] = channel.map(FileChannel.MapMode.READ_WRITE, ((long) i << SHIFT) * 8, segmentSize * 8);
+			mappedSegments[i] = mappings[i].asDoubleBuffer();
+		}
+	}
+
+	/** Returns true if this matrix is stored in a memory mapped file. */
+	public boolean isMapped() {
+		return mappedSegments != null;
+	}
+
 	public void set(int x, int y, double d) {
-		if (x < y)
-			matrix[x][y - x - 1] = d;
-		if (x > y)
-			matrix[y][x - y - 1] = d;
+		if (x == y)
+			return;
+		long index = x < y ? getIndex(x, y) : getIndex(y, x);
+		if (mappedSegments != null) {
+			mappedSegments[(int) (index >>> SHIFT)].put((int) (index & MASK), d);
+		} else {
+			segments[(int) (index >>> SHIFT)][(int) (index & MASK)] = d;
+		}
 	}
 
 	public int getWidth() {
@@ -59,10 +130,48 @@ public class DistanceMatrix {
 	}
 
 	public double get(int x, int y) {
-		if (x < y)
-			return matrix[x][y - x - 1];
-		if (x > y)
-			return matrix[y][x - y - 1];
-		return 0;
+		if (x == y)
+			return 0;
+		long index = x < y ? getIndex(x, y) : getIndex(y, x);
+		if (mappedSegments != null) {
+			return mappedSegments[(int) (index >>> SHIFT)].get((int) (index & MASK));
+		} else {
+			return segments[(int) (index >>> SHIFT)][(int) (index & MASK)];
+		}
+	}
+
+	/** Returns the position of the entry x, y with x < y in the row wise stored upper triangle. */
+	private long getIndex(int x, int y) {
+		return (long) x * (2L * size - x - 1) / 2 + (y - x - 1);
+	}
+
+	private long getNumberOfEntries() {
+		return (long) size * (size - 1) / 2;
+	}
+
+	/**
+	 * Releases the memory mapping and deletes the file of a mapped matrix. The matrix must not
+	 * be accessed afterwards. Does nothing for matrices on the heap or if already closed.
+	 */
+	public synchronized void close() {
+		if (file == null)
+			return;
+		mappedSegments = null;
+		if (!MappedExampleTable.release(file, randomAccessFile, mappings)) {
+			LogService.getRoot().log(Level.FINE, "com.rapidminer.operator.clustering.clusterer.DistanceMatrix.cannot_delete_matrix_file", file);
+		}
+		mappings = null;
+		randomAccessFile = null;
+		file = null;
+	}
+
+	/** Deletes the file if the matrix was not closed. */
+	@Override
+	protected void finalize() throws Throwable {
+		try {
+			close();
+		} finally {
+			super.finalize();
+		}
 	}
 }
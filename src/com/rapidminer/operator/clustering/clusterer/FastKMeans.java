@@ -24,6 +24,7 @@ package com.rapidminer.operator.clustering.clusterer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import com.rapidminer.example.Attribute;
 import com.rapidminer.example.Attributes;
@@ -31,6 +32,7 @@ import com.rapidminer.example.Example;
 import com.rapidminer.example.ExampleSet;
 import com.rapidminer.example.Tools;
 import com.rapidminer.example.table.AttributeFactory;
+import com.rapidminer.example.table.MappedExampleTable;
 import com.rapidminer.operator.OperatorCapability;
 import com.rapidminer.operator.OperatorDescription;
 import com.rapidminer.operator.OperatorException;
@@ -42,6 +44,7 @@ import com.rapidminer.operator.ports.metadata.CapabilityPrecondition;
 import com.rapidminer.parameter.ParameterType;
 import com.rapidminer.parameter.ParameterTypeBoolean;
 import com.rapidminer.parameter.ParameterTypeInt;
+import com.rapidminer.tools.ConcurrencyTools;
 import com.rapidminer.tools.Ontology;
 import com.rapidminer.tools.RandomGenerator;
 import com.rapidminer.tools.math.similarity.DistanceMeasure;
@@ -59,6 +62,18 @@ import de.dfki.madm.operator.KMeanspp;
  * - Using the Triangle Inequality to Accelerate k-Means -
  * Proceedings of the Twentieth International Conference on Machine Learning (ICML-2003), Washington DC, 2003
  * 
+ * If the k lower bounds per example of this algorithm do not fit into the heap, only a single lower bound is kept
+ * according to G. Hamerly:
+ * - Making k-means even faster -
+ * Proceedings of the 2010 SIAM International Conference on Data Mining, 2010
+ * 
+ * Optionally, each optimization step only uses a random mini-batch of the examples according to D. Sculley:
+ * - Web-Scale K-Means Clustering -
+ * Proceedings of the 19th International Conference on World Wide Web (WWW 2010), 2010
+ * 
+ * If parallel execution is enabled, several runs are performed concurrently. Otherwise, or if there is only one run,
+ * the examples are assigned to the centroids concurrently in partitions. The results do not depend on the number of threads.
+ * 
  * @author Alexander Arimond
  */
 
@@ -74,11 +89,74 @@ public class FastKMeans extends RMAbstractClusterer implements CapabilityProvide
 	 * performed&quot;
 	 */
 	public static final String PARAMETER_MAX_RUNS = "max_runs";
-	boolean kpp = getParameterAsBoolean(KMeanspp.PARAMETER_USE_KPP);
 
 	/** The parameter name for &quot;the maximal number of iterations performed for one run of the k method&quot; */
 	public static final String PARAMETER_MAX_OPTIMIZATION_STEPS = "max_optimization_steps";
 
+	public static final String PARAMETER_MINI_BATCH_SIZE = "mini_batch_size";
+
+	public static final String PARAMETER_PARALLEL_EXECUTION = "parallel_execution";
+
+	/** The number of partitions of the examples per thread, used for balancing the load. */
+	private static final int PARTITIONS_PER_THREAD = 4;
+
+	/** Provides the values of the examples. They are copied into memory if they fit into the heap. */
+	private static final class ExampleValues {
+
+		private final ExampleSet exampleSet;
+
+		private final Attributes attributes;
+
+		private final double[][] values;
+
+		private ExampleValues(ExampleSet exampleSet, Attributes attributes) {
+			this.exampleSet = exampleSet;
+			this.attributes = attributes;
+			if (MappedExampleTable.exceedsHeap(exampleSet.size(), attributes.size())) {
+				this.values = null;
+			} else {
+				this.values = new double[exampleSet.size()][];
+				int i = 0;
+				for (Example example : exampleSet) {
+					values[i++] = getAsDoubleArray(example, attributes);
+				}
+			}
+		}
+
+		private double[] get(int index) {
+			if (values != null) {
+				return values[index];
+			} else {
+				return getAsDoubleArray(exampleSet.getExample(index), attributes);
+			}
+		}
+
+		private int size() {
+			return exampleSet.size();
+		}
+	}
+
+	/** Processes the examples from first (inclusive) to last (exclusive). */
+	private interface ExamplePartition {
+		public void process(int first, int last);
+	}
+
+	/** The result of one run of k-means. */
+	private static final class Run {
+
+		private final CentroidClusterModel model;
+
+		private final int[] centroidAssignments;
+
+		private final double distanceSum;
+
+		private Run(CentroidClusterModel model, int[] centroidAssignments, double distanceSum) {
+			this.model = model;
+			this.centroidAssignments = centroidAssignments;
+			this.distanceSum = distanceSum;
+		}
+	}
+
 	/** Overrides the measure specified by the operator parameters. If set to null, parameters will be used again
 	 *  to determine the measure. */
 	public void setPresetMeasure(DistanceMeasure me) {
@@ -94,9 +172,9 @@ public class FastKMeans extends RMAbstractClusterer implements CapabilityProvide
 	@Override
 	public ClusterModel generateClusterModel(ExampleSet exampleSet) throws OperatorException {
 		int k = getParameterAsInt(PARAMETER_K);
-		int maxOptimizationSteps = getParameterAsInt(PARAMETER_MAX_OPTIMIZATION_STEPS);
+		final int maxOptimizationSteps = getParameterAsInt(PARAMETER_MAX_OPTIMIZATION_STEPS);
 		int maxRuns = getParameterAsInt(PARAMETER_MAX_RUNS);
-		DistanceMeasure measure;
+		final DistanceMeasure measure;
 		if (presetMeasure != null) {
 			measure = presetMeasure;
 			measure.init(exampleSet);
@@ -124,11 +202,24 @@ public class FastKMeans extends RMAbstractClusterer implements CapabilityProvide
 		for (Attribute attribute : attributes)
 			attributeNames.add(attribute.getName());
 		
-		RandomGenerator generator = RandomGenerator.getRandomGenerator(this);
-		double minimalIntraClusterDistance = Double.POSITIVE_INFINITY;
-		CentroidClusterModel bestModel = null;
-		int[] bestAssignments = null;
+		final ExampleValues examples = new ExampleValues(exampleSet, attributes);
+		final int miniBatchSize = getParameterAsInt(PARAMETER_MINI_BATCH_SIZE);
+		int threads = 1;
+		if (getParameterAsBoolean(PARAMETER_PARALLEL_EXECUTION) && !ConcurrencyTools.isWorkerThread()) {
+			threads = ConcurrencyTools.getNumberOfThreads();
+		}
+		// runs are only performed concurrently if the lower bounds of all of them fit into the heap
+		boolean concurrentRuns = threads > 1 && maxRuns > 1 && (miniBatchSize > 0 || !MappedExampleTable.exceedsHeap(exampleSet.size(), (k + 2) * Math.min(threads, maxRuns)));
+		final boolean elkanBounds = concurrentRuns || !MappedExampleTable.exceedsHeap(exampleSet.size(), k + 2);
+		if (!elkanBounds && miniBatchSize == 0) {
+			getLogger().fine("Lower bounds for all centroids do not fit into memory, keeping a single lower bound per example.");
+		}
 
+		// the initial centroids of all runs are drawn in advance, so the runs do not depend on each other
+		boolean kpp = getParameterAsBoolean(KMeanspp.PARAMETER_USE_KPP);
+		RandomGenerator generator = RandomGenerator.getRandomGenerator(this);
+		List<CentroidClusterModel> models = new ArrayList<CentroidClusterModel>(maxRuns);
+		long[] seeds = new long[maxRuns];
 		for (int iter = 0; iter < maxRuns; iter++) {
 
 			checkForStop();
@@ -155,59 +246,142 @@ public class FastKMeans extends RMAbstractClusterer implements CapabilityProvide
 				}
 			}
 			model.finishAssign();
-			
-			// auxiliary data structures according to paper
-			final double [][] l = new double 	[exampleSet.size()][k];
-			final double []   u = new double 	[exampleSet.size()];
-			final boolean []  r = new boolean	[exampleSet.size()];
-			
-			final double [][] m_old = new double [k][attributes.size()]; // needed for step 4
-			final double []	s = new double [k];
-			
-			final int[] centroidAssignments = new int[exampleSet.size()];
+			models.add(model);
+			if (miniBatchSize > 0) {
+				seeds[iter] = generator.nextLong();
+			}
+		}
 
-			final DistanceMatrix centroidDistances = new DistanceMatrix(k);
-			computeClusterDistances(centroidDistances, s, model,  measure);
+		double minimalIntraClusterDistance = Double.POSITIVE_INFINITY;
+		Run bestRun = null;
+		if (concurrentRuns) {
+			for (int firstRun = 0; firstRun < maxRuns; firstRun += threads) {
+				List<Callable<Run>> tasks = new ArrayList<Callable<Run>>(threads);
+				for (int iter = firstRun; iter < Math.min(maxRuns, firstRun + threads); iter++) {
+					final CentroidClusterModel model = models.get(iter);
+					final long seed = seeds[iter];
+					tasks.add(new Callable<Run>() {
+						@Override
+						public Run call() throws OperatorException {
+							return performRun(model, examples, measure, maxOptimizationSteps, miniBatchSize, seed, elkanBounds, 1);
+						}
+					});
+				}
+				for (Run run : ConcurrencyTools.invokeAll(tasks, threads, getName())) {
+					if (run.distanceSum < minimalIntraClusterDistance) {
+						bestRun = run;
+						minimalIntraClusterDistance = run.distanceSum;
+					}
+				}
+			}
+		} else {
+			for (int iter = 0; iter < maxRuns; iter++) {
+				Run run = performRun(models.get(iter), examples, measure, maxOptimizationSteps, miniBatchSize, seeds[iter], elkanBounds, threads);
+				if (run.distanceSum < minimalIntraClusterDistance) {
+					bestRun = run;
+					minimalIntraClusterDistance = run.distanceSum;
+				}
+			}
+		}
+		CentroidClusterModel bestModel = bestRun.model;
+		int[] bestAssignments = bestRun.centroidAssignments;
+		bestModel.setClusterAssignments(bestAssignments, exampleSet);
 
-			// initialization step (has many distance calculations)
-			int x = 0;
+		if (addsClusterAttribute()) {
+			Attribute cluster = AttributeFactory.createAttribute("cluster", Ontology.NOMINAL);
+			exampleSet.getExampleTable().addAttribute(cluster);
+			exampleSet.getAttributes().setCluster(cluster);
+			int i = 0;
 			for (Example example : exampleSet) {
-				double[] exampleValues = getAsDoubleArray(example, attributes);
-				double nearestDistance = measure.calculateDistance(model.getCentroidCoordinates(0), exampleValues);
-				l[x][0] = nearestDistance;
-				int nearestIndex = 0;
-				for (int centroidIndex = 1; centroidIndex < k; centroidIndex++) {
-					if (centroidDistances.get(nearestIndex, centroidIndex) >= 2 * nearestDistance) continue;
-					final double distance = measure.calculateDistance(model.getCentroidCoordinates(centroidIndex), exampleValues);
-					l[x][centroidIndex] = distance;
-					if (distance < nearestDistance) {
-						nearestDistance = distance;
-						nearestIndex = centroidIndex;
+				example.setValue(cluster, "cluster_" + bestAssignments[i]);
+				i++;
+			}
+		}
+
+		return bestModel;
+	}
+
+	/** Optimizes the centroids of the given model starting from its current centroids and assesses the quality of the result. */
+	private Run performRun(CentroidClusterModel model, ExampleValues examples, DistanceMeasure measure, int maxOptimizationSteps, int miniBatchSize, long seed, boolean elkanBounds, int threads) throws OperatorException {
+		int[] centroidAssignments;
+		if (miniBatchSize > 0) {
+			centroidAssignments = optimizeWithMiniBatches(model, examples, measure, maxOptimizationSteps, miniBatchSize, new RandomGenerator(seed), threads);
+		} else if (elkanBounds) {
+			centroidAssignments = optimizeWithElkanBounds(model, examples, measure, maxOptimizationSteps, threads);
+		} else {
+			centroidAssignments = optimizeWithHamerlyBounds(model, examples, measure, maxOptimizationSteps, threads);
+		}
+
+		// assessing quality of this model
+		double distanceSum = 0;
+		for (int i = 0; i < centroidAssignments.length; i++) {
+			double distance = measure.calculateDistance(model.getCentroidCoordinates(centroidAssignments[i]), examples.get(i));
+			distanceSum += distance * distance;
+		}
+		return new Run(model, centroidAssignments, distanceSum);
+	}
+
+	/** Performs the optimization steps keeping k lower bounds per example according to the paper of Elkan. */
+	private int[] optimizeWithElkanBounds(final CentroidClusterModel model, final ExampleValues examples, final DistanceMeasure measure, int maxOptimizationSteps, int threads) throws OperatorException {
+		final int k = model.getNumberOfClusters();
+		final int size = examples.size();
+
+		// auxiliary data structures according to paper
+		final double [][] l = new double 	[size][k];
+		final double []   u = new double 	[size];
+		final boolean []  r = new boolean	[size];
+		
+		final double [][] m_old = new double [k][]; // needed for step 4
+		final double []	s = new double [k];
+		
+		final int[] centroidAssignments = new int[size];
+
+		final DistanceMatrix centroidDistances = new DistanceMatrix(k);
+		computeClusterDistances(centroidDistances, s, model,  measure);
+
+		// initialization step (has many distance calculations)
+		processPartitions(size, threads, new ExamplePartition() {
+			@Override
+			public void process(int first, int last) {
+				for (int x = first; x < last; x++) {
+					double[] exampleValues = examples.get(x);
+					double nearestDistance = measure.calculateDistance(model.getCentroidCoordinates(0), exampleValues);
+					l[x][0] = nearestDistance;
+					int nearestIndex = 0;
+					for (int centroidIndex = 1; centroidIndex < k; centroidIndex++) {
+						if (centroidDistances.get(nearestIndex, centroidIndex) >= 2 * nearestDistance) continue;
+						final double distance = measure.calculateDistance(model.getCentroidCoordinates(centroidIndex), exampleValues);
+						l[x][centroidIndex] = distance;
+						if (distance < nearestDistance) {
+							nearestDistance = distance;
+							nearestIndex = centroidIndex;
+						}
 					}
+					centroidAssignments[x] = nearestIndex;
+					u[x] = nearestDistance;
+					r[x] = false;
 				}
-				centroidAssignments[x] = nearestIndex;
-				u[x] = nearestDistance;
-				r[x] = false;
-				x++;
 			}
+		});
 
-			// optimization steps (repeat until convergence)
-			boolean stable = false;
-			for (int step = 0; (step < maxOptimizationSteps) && !stable; step++) {
-				
-				// step 1.
-				computeClusterDistances(centroidDistances, s, model, measure);
-
-				int avoidedSamples = 0;
-				x = 0;
-				for (Example example : exampleSet) {
-					final double [] exampleValue = getAsDoubleArray(example, attributes);
+		// optimization steps (repeat until convergence)
+		boolean stable = false;
+		for (int step = 0; (step < maxOptimizationSteps) && !stable; step++) {
+			checkForStop();
+			
+			// step 1.
+			computeClusterDistances(centroidDistances, s, model, measure);
 
-					// step 2.
-					if ( u[x] <= s[centroidAssignments[x]]){
-						// nothing
-						avoidedSamples ++;
-					} else {
+			processPartitions(size, threads, new ExamplePartition() {
+				@Override
+				public void process(int first, int last) {
+					for (int x = first; x < last; x++) {
+						// step 2.
+						if ( u[x] <= s[centroidAssignments[x]]){
+							// nothing
+							continue;
+						}
+						final double [] exampleValue = examples.get(x);
 						// step 3.
 						for (int c = 0; c < k; c ++){
 							if (c != centroidAssignments[x]  // (i)
@@ -235,70 +409,241 @@ public class FastKMeans extends RMAbstractClusterer implements CapabilityProvide
 								}
 							}
 						}
+					}
+				}
+			});
 
+			// the sums of the centroids are always built in the order of the examples
+			for (int x = 0; x < size; x++) {
+				model.assignExample(centroidAssignments[x], examples.get(x));
+			}
+			
+			// step 4
+			// first store old c
+			for (int c=0; c <k ; c++){
+				m_old[c] = model.getCentroidCoordinates(c);
+			}
+			// then compute the m(c) - here this is same as step 7
+			stable = model.finishAssign();
+			
+			// compute all d(c,m(c))
+			final double [] mean_distances = new double [k];
+			for (int c = 0; c < k; c++){
+				mean_distances [c] = measure.calculateDistance(m_old[c], model.getCentroidCoordinates(c));
+			}
+			
+			// step 5 & 6
+			processPartitions(size, threads, new ExamplePartition() {
+				@Override
+				public void process(int first, int last) {
+					for (int x = first; x < last; x++) {
+						// step 5
+						for (int c = 0; c < k; c++){
+							final double d = l[x][c] - mean_distances[c]; 
+							if (d > 0)
+								l[x][c] = d;
+							else
+								l[x][c] = 0;
+						}
+						// step 6
+						u[x] = u[x] + mean_distances[centroidAssignments[x]];
+						r[x] = true;
 					}
-					model.assignExample(centroidAssignments[x], exampleValue);
-					x++;
 				}
-				
-				// step 4
-				// first store old c
-				for (int c=0; c <k ; c++){
-					m_old[c] = model.getCentroidCoordinates(c);
+			});
+		}
+		return centroidAssignments;
+	}
+
+	/** Performs the optimization steps keeping a single lower bound per example for the distance to the 
+	 *  second nearest centroid according to the paper of Hamerly. */
+	private int[] optimizeWithHamerlyBounds(final CentroidClusterModel model, final ExampleValues examples, final DistanceMeasure measure, int maxOptimizationSteps, int threads) throws OperatorException {
+		final int k = model.getNumberOfClusters();
+		final int size = examples.size();
+
+		final double[] upperBounds = new double[size];
+		final double[] lowerBounds = new double[size];
+		final int[] centroidAssignments = new int[size];
+		final double[] s = new double[k];
+		final double[][] oldCentroids = new double[k][];
+		final DistanceMatrix centroidDistances = new DistanceMatrix(k);
+
+		// initialization step
+		processPartitions(size, threads, new ExamplePartition() {
+			@Override
+			public void process(int first, int last) {
+				for (int x = first; x < last; x++) {
+					assignToNearestCentroid(x, examples.get(x), model, measure, centroidAssignments, upperBounds, lowerBounds);
+				}
+			}
+		});
+
+		boolean stable = false;
+		for (int step = 0; (step < maxOptimizationSteps) && !stable; step++) {
+			checkForStop();
+			computeClusterDistances(centroidDistances, s, model, measure);
+
+			processPartitions(size, threads, new ExamplePartition() {
+				@Override
+				public void process(int first, int last) {
+					for (int x = first; x < last; x++) {
+						double bound = Math.max(s[centroidAssignments[x]], lowerBounds[x]);
+						if (upperBounds[x] > bound) {
+							// tightening the upper bound before comparing with all centroids
+							double[] exampleValues = examples.get(x);
+							upperBounds[x] = measure.calculateDistance(model.getCentroidCoordinates(centroidAssignments[x]), exampleValues);
+							if (upperBounds[x] > bound) {
+								assignToNearestCentroid(x, exampleValues, model, measure, centroidAssignments, upperBounds, lowerBounds);
+							}
+						}
+					}
+				}
+			});
+
+			// the sums of the centroids are always built in the order of the examples
+			for (int x = 0; x < size; x++) {
+				model.assignExample(centroidAssignments[x], examples.get(x));
+			}
+			for (int c = 0; c < k; c++) {
+				oldCentroids[c] = model.getCentroidCoordinates(c);
+			}
+			stable = model.finishAssign();
+
+			// the centroid moving farthest and the farthest moving distance of all others
+			final double[] movements = new double[k];
+			int farthestIndex = 0;
+			for (int c = 0; c < k; c++) {
+				movements[c] = measure.calculateDistance(oldCentroids[c], model.getCentroidCoordinates(c));
+				if (movements[c] > movements[farthestIndex]) {
+					farthestIndex = c;
 				}
-				// then compute the m(c) - here this is same as step 7
-				stable = model.finishAssign();
-				
-				// compute all d(c,m(c))
-				final double [] mean_distances = new double [k];
-				for (int c = 0; c < k; c++){
-					mean_distances [c] = measure.calculateDistance(m_old[c], model.getCentroidCoordinates(c));
+			}
+			double secondFarthest = 0;
+			for (int c = 0; c < k; c++) {
+				if (c != farthestIndex && movements[c] > secondFarthest) {
+					secondFarthest = movements[c];
 				}
-				
-				// step 5 & 6
-				for (x=0; x < exampleSet.size(); x++){
-					// step 5
-					for (int c = 0; c < k; c++){
-						final double d = l[x][c] - mean_distances[c]; 
-						if (d > 0)
-							l[x][c] = d;
-						else
-							l[x][c] = 0;
+			}
+			final int farthestCentroid = farthestIndex;
+			final double farthestMovement = movements[farthestIndex];
+			final double secondFarthestMovement = secondFarthest;
+			processPartitions(size, threads, new ExamplePartition() {
+				@Override
+				public void process(int first, int last) {
+					for (int x = first; x < last; x++) {
+						upperBounds[x] += movements[centroidAssignments[x]];
+						lowerBounds[x] -= centroidAssignments[x] == farthestCentroid ? secondFarthestMovement : farthestMovement;
 					}
-					// step 6
-					u[x] = u[x] + mean_distances[centroidAssignments[x]];
-					r[x] = true;
 				}
+			});
+		}
+		return centroidAssignments;
+	}
 
+	/** Assigns the example to the nearest centroid and sets its bounds to the distances of the nearest and the second nearest centroid. */
+	private static void assignToNearestCentroid(int x, double[] exampleValues, CentroidClusterModel model, DistanceMeasure measure, int[] centroidAssignments, double[] upperBounds, double[] lowerBounds) {
+		double nearestDistance = Double.POSITIVE_INFINITY;
+		double secondNearestDistance = Double.POSITIVE_INFINITY;
+		int nearestIndex = 0;
+		for (int c = 0; c < model.getNumberOfClusters(); c++) {
+			double distance = measure.calculateDistance(model.getCentroidCoordinates(c), exampleValues);
+			if (distance < nearestDistance) {
+				secondNearestDistance = nearestDistance;
+				nearestDistance = distance;
+				nearestIndex = c;
+			} else if (distance < secondNearestDistance) {
+				secondNearestDistance = distance;
 			}
-			// assessing quality of this model
-			double distanceSum = 0;
-			i = 0;
-			for (Example example : exampleSet) {
-				double distance = measure.calculateDistance(model.getCentroidCoordinates(centroidAssignments[i]), getAsDoubleArray(example, attributes));
-				distanceSum += distance * distance;
-				i++;
+		}
+		centroidAssignments[x] = nearestIndex;
+		upperBounds[x] = nearestDistance;
+		lowerBounds[x] = secondNearestDistance;
+	}
+
+	/** Performs the optimization steps on random mini-batches of the examples. Each centroid is moved towards 
+	 *  the examples assigned to it with a learning rate decreasing with the number of examples assigned so far. 
+	 *  Finally, all examples are assigned to their nearest centroid. */
+	private int[] optimizeWithMiniBatches(CentroidClusterModel model, final ExampleValues examples, final DistanceMeasure measure, int maxOptimizationSteps, int miniBatchSize, RandomGenerator random, int threads) throws OperatorException {
+		int k = model.getNumberOfClusters();
+		final double[][] centroids = new double[k][];
+		for (int c = 0; c < k; c++) {
+			centroids[c] = model.getCentroidCoordinates(c).clone();
+		}
+		int[] counts = new int[k];
+		final int[] batch = new int[miniBatchSize];
+		final double[][] batchValues = new double[miniBatchSize][];
+		final int[] batchAssignments = new int[miniBatchSize];
+		for (int step = 0; step < maxOptimizationSteps; step++) {
+			checkForStop();
+			for (int i = 0; i < miniBatchSize; i++) {
+				batch[i] = random.nextInt(examples.size());
 			}
-			if (distanceSum < minimalIntraClusterDistance) {
-				bestModel = model;
-				minimalIntraClusterDistance = distanceSum;
-				bestAssignments = centroidAssignments;
+			processPartitions(miniBatchSize, threads, new ExamplePartition() {
+				@Override
+				public void process(int first, int last) {
+					for (int i = first; i < last; i++) {
+						batchValues[i] = examples.get(batch[i]);
+						batchAssignments[i] = getNearestCentroid(centroids, batchValues[i], measure);
+					}
+				}
+			});
+			for (int i = 0; i < miniBatchSize; i++) {
+				double[] centroid = centroids[batchAssignments[i]];
+				double learningRate = 1d / ++counts[batchAssignments[i]];
+				for (int d = 0; d < centroid.length; d++) {
+					centroid[d] += learningRate * (batchValues[i][d] - centroid[d]);
+				}
 			}
 		}
-		bestModel.setClusterAssignments(bestAssignments, exampleSet);
+		for (int c = 0; c < k; c++) {
+			model.getCentroid(c).setCentroid(centroids[c]);
+		}
 
-		if (addsClusterAttribute()) {
-			Attribute cluster = AttributeFactory.createAttribute("cluster", Ontology.NOMINAL);
-			exampleSet.getExampleTable().addAttribute(cluster);
-			exampleSet.getAttributes().setCluster(cluster);
-			int i = 0;
-			for (Example example : exampleSet) {
-				example.setValue(cluster, "cluster_" + bestAssignments[i]);
-				i++;
+		final int[] centroidAssignments = new int[examples.size()];
+		processPartitions(examples.size(), threads, new ExamplePartition() {
+			@Override
+			public void process(int first, int last) {
+				for (int x = first; x < last; x++) {
+					centroidAssignments[x] = getNearestCentroid(centroids, examples.get(x), measure);
+				}
+			}
+		});
+		return centroidAssignments;
+	}
+
+	private static int getNearestCentroid(double[][] centroids, double[] exampleValues, DistanceMeasure measure) {
+		double nearestDistance = Double.POSITIVE_INFINITY;
+		int nearestIndex = 0;
+		for (int c = 0; c < centroids.length; c++) {
+			double distance = measure.calculateDistance(centroids[c], exampleValues);
+			if (distance < nearestDistance) {
+				nearestDistance = distance;
+				nearestIndex = c;
 			}
 		}
+		return nearestIndex;
+	}
 
-		return bestModel;
+	/** Splits the examples into partitions, which are processed concurrently if more than one thread is given. */
+	private void processPartitions(int size, int threads, final ExamplePartition partition) throws OperatorException {
+		if (threads <= 1) {
+			partition.process(0, size);
+			return;
+		}
+		int numberOfPartitions = threads * PARTITIONS_PER_THREAD;
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(numberOfPartitions);
+		for (int i = 0; i < numberOfPartitions; i++) {
+			final int first = (int) ((long) size * i / numberOfPartitions);
+			final int last = (int) ((long) size * (i + 1) / numberOfPartitions);
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					partition.process(first, last);
+					return null;
+				}
+			});
+		}
+		ConcurrencyTools.invokeAll(tasks, threads, getName());
 	}
 
 	// this is for step 1 of the paper algorithm
@@ -324,7 +669,7 @@ public class FastKMeans extends RMAbstractClusterer implements CapabilityProvide
 		}
 	}
 
-	private double[] getAsDoubleArray(Example example, Attributes attributes) {
+	private static double[] getAsDoubleArray(Example example, Attributes attributes) {
 		double[] values = new double[attributes.size()];
 		int i = 0;
 		for (Attribute attribute : attributes) {
@@ -364,6 +709,8 @@ public class FastKMeans extends RMAbstractClusterer implements CapabilityProvide
 		}
 		types.add(new ParameterTypeInt(PARAMETER_MAX_RUNS, "The maximal number of runs of k-Means with random initialization that are performed.", 1, Integer.MAX_VALUE, 10, false));
 		types.add(new ParameterTypeInt(PARAMETER_MAX_OPTIMIZATION_STEPS, "The maximal number of iterations performed for one run of k-Means.", 1, Integer.MAX_VALUE, 100, false));
+		types.add(new ParameterTypeInt(PARAMETER_MINI_BATCH_SIZE, "If greater than zero, each optimization step only uses this number of randomly drawn examples (mini-batch k-Means). All optimization steps are performed then.", 0, Integer.MAX_VALUE, 0, true));
+		types.add(new ParameterTypeBoolean(PARAMETER_PARALLEL_EXECUTION, "Indicates if several runs or, if there is only one run, the assignment of the examples should be computed concurrently.", false));
 		types.addAll(RandomGenerator.getRandomGeneratorParameters(this));
 		return types;
 	}
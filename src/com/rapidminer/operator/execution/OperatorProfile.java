@@ -0,0 +1,214 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.operator.execution;
+
+/**
+ * The measurements of all applications of one operator recorded by an {@link OperatorProfiler}.
+ * Operators are identified by their path, i.e. the names of the enclosing operators and
+ * subprocesses, so that the same operator class used in different subprocesses gets
+ * different profiles.
+ * 
+ * <p>Times are measured in nanoseconds. The self times and self allocated bytes exclude the
+ * operators nested in the operator's subprocesses as far as they are executed by the same thread.
+ * The histograms count the applications by their duration in buckets of powers of two milliseconds,
+ * see {@link #getBucketUpperBound(int)}.</p>
+ */
+public class OperatorProfile {
+
+	/** The number of buckets of the time histograms. The last bucket contains all longer durations. */
+	public static final int NUMBER_OF_BUCKETS = 24;
+
+	private final String path;
+
+	private final String operatorName;
+
+	private final String operatorClass;
+
+	private int invocations = 0;
+
+	private long wallTime = 0;
+
+	private long selfWallTime = 0;
+
+	private long minWallTime = Long.MAX_VALUE;
+
+	private long maxWallTime = 0;
+
+	private long cpuTime = 0;
+
+	private long selfCpuTime = 0;
+
+	private long allocatedBytes = 0;
+
+	private long selfAllocatedBytes = 0;
+
+	private long inputExamples = 0;
+
+	private long outputExamples = 0;
+
+	private final long[] wallTimeHistogram = new long[NUMBER_OF_BUCKETS];
+
+	private final long[] cpuTimeHistogram = new long[NUMBER_OF_BUCKETS];
+
+	OperatorProfile(String path, String operatorName, String operatorClass) {
+		this.path = path;
+		this.operatorName = operatorName;
+		this.operatorClass = operatorClass;
+	}
+
+	/** Adds the measurements of one application. Times are given in nanoseconds. CPU times and
+	 *  allocated bytes are negative if they could not be measured. */
+	void add(long wallTime, long selfWallTime, long cpuTime, long selfCpuTime, long allocatedBytes, long selfAllocatedBytes, int inputExamples, int outputExamples) {
+		this.invocations++;
+		this.wallTime += wallTime;
+		this.selfWallTime += selfWallTime;
+		this.minWallTime = Math.min(this.minWallTime, wallTime);
+		this.maxWallTime = Math.max(this.maxWallTime, wallTime);
+		this.wallTimeHistogram[getBucket(wallTime)]++;
+		if (cpuTime >= 0 && this.cpuTime >= 0) {
+			this.cpuTime += cpuTime;
+			this.selfCpuTime += selfCpuTime;
+			this.cpuTimeHistogram[getBucket(cpuTime)]++;
+		} else {
+			this.cpuTime = this.selfCpuTime = -1;
+		}
+		if (allocatedBytes >= 0 && this.allocatedBytes >= 0) {
+			this.allocatedBytes += allocatedBytes;
+			this.selfAllocatedBytes += selfAllocatedBytes;
+		} else {
+			this.allocatedBytes = this.selfAllocatedBytes = -1;
+		}
+		this.inputExamples += inputExamples;
+		this.outputExamples += outputExamples;
+	}
+
+	/** Returns the index of the histogram bucket for the given duration in nanoseconds. */
+	private static int getBucket(long nanos) {
+		long millis = nanos / 1000000;
+		int bucket = 64 - Long.numberOfLeadingZeros(millis);
+		return Math.min(bucket, NUMBER_OF_BUCKETS - 1);
+	}
+
+	/** Returns the exclusive upper bound of the durations counted by the given bucket in milliseconds. 
+	 *  Bucket 0 counts durations below one millisecond, bucket i durations from 2^(i-1) to 2^i milliseconds.
+	 *  Returns {@link Long#MAX_VALUE} for the last bucket. */
+	public static long getBucketUpperBound(int bucket) {
+		if (bucket >= NUMBER_OF_BUCKETS - 1) {
+			return Long.MAX_VALUE;
+		}
+		return 1l << bucket;
+	}
+
+	/** Returns the names of the enclosing operators and subprocesses and of the operator itself separated by slashes. */
+	public String getPath() {
+		return path;
+	}
+
+	public String getOperatorName() {
+		return operatorName;
+	}
+
+	/** Returns the key of the operator description. */
+	public String getOperatorClass() {
+		return operatorClass;
+	}
+
+	public int getInvocations() {
+		return invocations;
+	}
+
+	/** Returns the total wall clock time of all applications in nanoseconds. */
+	public long getWallTime() {
+		return wallTime;
+	}
+
+	/** Returns the wall clock time of all applications without the nested operators in nanoseconds. */
+	public long getSelfWallTime() {
+		return selfWallTime;
+	}
+
+	public long getMinWallTime() {
+		return invocations > 0 ? minWallTime : 0;
+	}
+
+	public long getMaxWallTime() {
+		return maxWallTime;
+	}
+
+	/** Returns the total CPU time of all applications in nanoseconds or -1 if CPU times are not supported. */
+	public long getCpuTime() {
+		return cpuTime;
+	}
+
+	/** Returns the CPU time of all applications without the nested operators in nanoseconds or -1 if
+	 *  CPU times are not supported. */
+	public long getSelfCpuTime() {
+		return selfCpuTime;
+	}
+
+	/** Returns the number of bytes allocated by all applications or -1 if this is not supported by the JVM. */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/** Returns the number of bytes allocated by all applications without the nested operators or -1 if 
+	 *  this is not supported by the JVM. */
+	public long getSelfAllocatedBytes() {
+		return selfAllocatedBytes;
+	}
+
+	/** Returns the total number of examples of the example sets delivered to the input ports. */
+	public long getInputExamples() {
+		return inputExamples;
+	}
+
+	/** Returns the total number of examples of the example sets delivered at the output ports. */
+	public long getOutputExamples() {
+		return outputExamples;
+	}
+
+	/** Returns the number of processed examples per second of wall clock time. Processed are the input
+	 *  examples or, for operators without example set input like readers, the output examples. */
+	public double getRowsPerSecond() {
+		long rows = inputExamples > 0 ? inputExamples : outputExamples;
+		if (wallTime == 0) {
+			return 0;
+		}
+		return rows / (wallTime / 1e9);
+	}
+
+	/** Returns the numbers of applications per wall clock time bucket. */
+	public long[] getWallTimeHistogram() {
+		return wallTimeHistogram.clone();
+	}
+
+	/** Returns the numbers of applications per CPU time bucket. */
+	public long[] getCpuTimeHistogram() {
+		return cpuTimeHistogram.clone();
+	}
+
+	@Override
+	public String toString() {
+		return path + ": " + invocations + " applications, " + (wallTime / 1000000) + " ms";
+	}
+}
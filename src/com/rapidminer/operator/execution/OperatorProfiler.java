@@ -0,0 +1,407 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.operator.execution;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.rapidminer.Process;
+import com.rapidminer.ProcessListener;
+import com.rapidminer.example.ExampleSet;
+import com.rapidminer.operator.ExecutionUnit;
+import com.rapidminer.operator.IOObject;
+import com.rapidminer.operator.Operator;
+import com.rapidminer.operator.ports.InputPort;
+import com.rapidminer.operator.ports.OutputPort;
+
+/**
+ * Measures the applications of all operators of a process and aggregates them per operator
+ * into {@link OperatorProfile}s. For each application the wall clock time, the CPU time and the
+ * bytes allocated by the executing thread as well as the numbers of input and output examples
+ * are recorded. The profiler is registered as {@link ProcessListener} of the process by 
+ * {@link #attach(Process)} and keeps the profiles of all runs until {@link #clear()} is called.
+ * 
+ * <p>CPU times and allocated bytes are measured with the {@link ThreadMXBean} for the thread
+ * which executes the operator. Work which an operator distributes over other threads is therefore
+ * only counted by the wall clock time. Allocated bytes are only available on JVMs supporting
+ * <code>com.sun.management.ThreadMXBean</code>.</p>
+ * 
+ * <p>The profiles can be written as JSON or CSV by {@link #writeJSON(Writer)} and {@link #writeCSV(Writer)}, 
+ * which is done by {@link com.rapidminer.RapidMinerCommandLine} if the option -P is given.</p>
+ */
+public class OperatorProfiler implements ProcessListener {
+
+	private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+	private static final boolean CPU_TIME_SUPPORTED = THREAD_MX_BEAN.isThreadCpuTimeSupported();
+
+	/** The method getThreadAllocatedBytes(long) of com.sun.management.ThreadMXBean or null if not supported. */
+	private static final Method GET_THREAD_ALLOCATED_BYTES;
+
+	static {
+		Method method = null;
+		try {
+			Class<?> sunThreadMXBean = Class.forName("com.sun.management.ThreadMXBean");
+			if (sunThreadMXBean.isInstance(THREAD_MX_BEAN)) {
+				method = sunThreadMXBean.getMethod("getThreadAllocatedBytes", long.class);
+				method.invoke(THREAD_MX_BEAN, Thread.currentThread().getId());
+			}
+		} catch (Throwable e) {
+			method = null;
+		}
+		GET_THREAD_ALLOCATED_BYTES = method;
+	}
+
+	/** A running application of an operator. */
+	private static class Invocation {
+
+		private final Operator operator;
+
+		private final long startWallTime;
+
+		private final long startCpuTime;
+
+		private final long startAllocatedBytes;
+
+		private final int inputExamples;
+
+		/** The times and bytes of the nested applications executed by the same thread. */
+		private long nestedWallTime = 0;
+
+		private long nestedCpuTime = 0;
+
+		private long nestedAllocatedBytes = 0;
+
+		private Invocation(Operator operator, int inputExamples) {
+			this.operator = operator;
+			this.inputExamples = inputExamples;
+			this.startAllocatedBytes = getAllocatedBytes();
+			this.startCpuTime = getCpuTime();
+			this.startWallTime = System.nanoTime();
+		}
+	}
+
+	/** The running applications per thread. The last invocation is the innermost one. */
+	private final Map<Thread, LinkedList<Invocation>> runningInvocations = new IdentityHashMap<Thread, LinkedList<Invocation>>();
+
+	private final Map<String, OperatorProfile> profiles = new LinkedHashMap<String, OperatorProfile>();
+
+	private final List<ProfilingListener> listeners = new LinkedList<ProfilingListener>();
+
+	/** Creates a profiler and registers it at the given process. */
+	public static OperatorProfiler attach(Process process) {
+		OperatorProfiler profiler = new OperatorProfiler();
+		process.getRootOperator().addProcessListener(profiler);
+		return profiler;
+	}
+
+	public synchronized void addProfilingListener(ProfilingListener listener) {
+		listeners.add(listener);
+	}
+
+	public synchronized void removeProfilingListener(ProfilingListener listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public synchronized void processStarts(Process process) {
+		runningInvocations.clear();
+	}
+
+	@Override
+	public synchronized void processStartedOperator(Process process, Operator op) {
+		LinkedList<Invocation> invocations = runningInvocations.get(Thread.currentThread());
+		if (invocations == null) {
+			invocations = new LinkedList<Invocation>();
+			runningInvocations.put(Thread.currentThread(), invocations);
+		}
+		int inputExamples = 0;
+		for (InputPort port : op.getInputPorts().getAllPorts()) {
+			inputExamples += getNumberOfExamples(port.getAnyDataOrNull());
+		}
+		invocations.add(new Invocation(op, inputExamples));
+	}
+
+	@Override
+	public void processFinishedOperator(Process process, Operator op) {
+		long wallTime = System.nanoTime();
+		long cpuTime = getCpuTime();
+		long allocatedBytes = getAllocatedBytes();
+		OperatorProfile profile;
+		List<ProfilingListener> listenersCopy;
+		synchronized (this) {
+			LinkedList<Invocation> invocations = runningInvocations.get(Thread.currentThread());
+			if (invocations == null) {
+				return;
+			}
+			// removing applications of nested operators which did not finish, e.g. because of an error
+			Invocation invocation = null;
+			while (!invocations.isEmpty() && invocation == null) {
+				Invocation last = invocations.removeLast();
+				if (last.operator == op) {
+					invocation = last;
+				}
+			}
+			if (invocations.isEmpty()) {
+				runningInvocations.remove(Thread.currentThread());
+			}
+			if (invocation == null) {
+				return;
+			}
+			wallTime -= invocation.startWallTime;
+			cpuTime = invocation.startCpuTime >= 0 ? cpuTime - invocation.startCpuTime : -1;
+			allocatedBytes = invocation.startAllocatedBytes >= 0 ? allocatedBytes - invocation.startAllocatedBytes : -1;
+			if (!invocations.isEmpty()) {
+				Invocation parent = invocations.getLast();
+				parent.nestedWallTime += wallTime;
+				parent.nestedCpuTime += cpuTime;
+				parent.nestedAllocatedBytes += allocatedBytes;
+			}
+
+			int outputExamples = 0;
+			for (OutputPort port : op.getOutputPorts().getAllPorts()) {
+				outputExamples += getNumberOfExamples(port.getAnyDataOrNull());
+			}
+
+			String path = getPath(op);
+			profile = profiles.get(path);
+			if (profile == null) {
+				profile = new OperatorProfile(path, op.getName(), op.getOperatorDescription().getKey());
+				profiles.put(path, profile);
+			}
+			profile.add(wallTime, wallTime - invocation.nestedWallTime, 
+					cpuTime, cpuTime - invocation.nestedCpuTime, 
+					allocatedBytes, allocatedBytes - invocation.nestedAllocatedBytes, 
+					invocation.inputExamples, outputExamples);
+			listenersCopy = new ArrayList<ProfilingListener>(listeners);
+		}
+		for (ProfilingListener listener : listenersCopy) {
+			listener.operatorProfiled(op, profile);
+		}
+	}
+
+	@Override
+	public synchronized void processEnded(Process process) {
+		runningInvocations.clear();
+	}
+
+	/** Returns the profiles of all operators in the order of their first application. */
+	public synchronized List<OperatorProfile> getProfiles() {
+		return new ArrayList<OperatorProfile>(profiles.values());
+	}
+
+	/** Removes all profiles. */
+	public synchronized void clear() {
+		profiles.clear();
+	}
+
+	/** Returns the names of the enclosing operators and subprocesses and the name of the operator separated by slashes. */
+	private static String getPath(Operator operator) {
+		ExecutionUnit unit = operator.getExecutionUnit();
+		if (unit == null || unit.getEnclosingOperator() == null) {
+			return operator.getName();
+		}
+		return getPath(unit.getEnclosingOperator()) + "/" + unit.getName() + "/" + operator.getName();
+	}
+
+	private static int getNumberOfExamples(IOObject object) {
+		if (object instanceof ExampleSet) {
+			return ((ExampleSet) object).size();
+		}
+		return 0;
+	}
+
+	/** Returns the CPU time of the current thread in nanoseconds or -1 if not supported. */
+	private static long getCpuTime() {
+		return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getThreadCpuTime(Thread.currentThread().getId()) : -1;
+	}
+
+	/** Returns the number of bytes allocated by the current thread or -1 if not supported. */
+	private static long getAllocatedBytes() {
+		if (GET_THREAD_ALLOCATED_BYTES == null) {
+			return -1;
+		}
+		try {
+			return (Long) GET_THREAD_ALLOCATED_BYTES.invoke(THREAD_MX_BEAN, Thread.currentThread().getId());
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	/** Writes the profiles to the given file, as CSV if the file name ends with .csv and as JSON otherwise. */
+	public void write(File file) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		try {
+			if (file.getName().toLowerCase().endsWith(".csv")) {
+				writeCSV(out);
+			} else {
+				writeJSON(out);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/** Writes the profiles as JSON object. Times are given in milliseconds, the histograms contain
+	 *  the numbers of applications for the bucket upper bounds given by the property "histogram_buckets_ms". */
+	public void writeJSON(Writer out) throws IOException {
+		String nl = "\n";
+		out.write("{" + nl);
+		out.write("  \"histogram_buckets_ms\": [");
+		for (int i = 0; i < OperatorProfile.NUMBER_OF_BUCKETS - 1; i++) {
+			out.write((i > 0 ? ", " : "") + OperatorProfile.getBucketUpperBound(i));
+		}
+		out.write("]," + nl);
+		out.write("  \"operators\": [");
+		boolean first = true;
+		for (OperatorProfile profile : getProfiles()) {
+			out.write((first ? "" : ",") + nl + "    {");
+			first = false;
+			out.write("\"path\": " + toJSONString(profile.getPath()));
+			out.write(", \"name\": " + toJSONString(profile.getOperatorName()));
+			out.write(", \"class\": " + toJSONString(profile.getOperatorClass()));
+			out.write(", \"invocations\": " + profile.getInvocations());
+			out.write(", \"wall_time_ms\": " + toMillis(profile.getWallTime()));
+			out.write(", \"self_wall_time_ms\": " + toMillis(profile.getSelfWallTime()));
+			out.write(", \"min_wall_time_ms\": " + toMillis(profile.getMinWallTime()));
+			out.write(", \"max_wall_time_ms\": " + toMillis(profile.getMaxWallTime()));
+			out.write(", \"cpu_time_ms\": " + toMillis(profile.getCpuTime()));
+			out.write(", \"self_cpu_time_ms\": " + toMillis(profile.getSelfCpuTime()));
+			out.write(", \"allocated_bytes\": " + profile.getAllocatedBytes());
+			out.write(", \"self_allocated_bytes\": " + profile.getSelfAllocatedBytes());
+			out.write(", \"input_examples\": " + profile.getInputExamples());
+			out.write(", \"output_examples\": " + profile.getOutputExamples());
+			out.write(", \"rows_per_second\": " + format(profile.getRowsPerSecond()));
+			out.write(", \"wall_time_histogram\": " + toJSONArray(profile.getWallTimeHistogram()));
+			out.write(", \"cpu_time_histogram\": " + toJSONArray(profile.getCpuTimeHistogram()));
+			out.write("}");
+		}
+		out.write(nl + "  ]" + nl + "}" + nl);
+		out.flush();
+	}
+
+	/** Writes the profiles as CSV with one line per operator. Times are given in milliseconds, 
+	 *  the histograms as numbers of applications per bucket separated by blanks. */
+	public void writeCSV(Writer out) throws IOException {
+		String nl = "\n";
+		out.write("path,name,class,invocations,wall_time_ms,self_wall_time_ms,min_wall_time_ms,max_wall_time_ms,cpu_time_ms,self_cpu_time_ms," +
+				"allocated_bytes,self_allocated_bytes,input_examples,output_examples,rows_per_second,wall_time_histogram,cpu_time_histogram" + nl);
+		for (OperatorProfile profile : getProfiles()) {
+			out.write(toCSVString(profile.getPath()) + "," + toCSVString(profile.getOperatorName()) + "," + toCSVString(profile.getOperatorClass()) + "," +
+					profile.getInvocations() + "," +
+					toMillis(profile.getWallTime()) + "," + toMillis(profile.getSelfWallTime()) + "," +
+					toMillis(profile.getMinWallTime()) + "," + toMillis(profile.getMaxWallTime()) + "," +
+					toMillis(profile.getCpuTime()) + "," + toMillis(profile.getSelfCpuTime()) + "," +
+					profile.getAllocatedBytes() + "," + profile.getSelfAllocatedBytes() + "," +
+					profile.getInputExamples() + "," + profile.getOutputExamples() + "," +
+					format(profile.getRowsPerSecond()) + "," +
+					toHistogramString(profile.getWallTimeHistogram()) + "," + toHistogramString(profile.getCpuTimeHistogram()) + nl);
+		}
+		out.flush();
+	}
+
+	/** Converts nanoseconds into milliseconds. Negative values indicating unsupported measurements are kept as -1. */
+	private static String toMillis(long nanos) {
+		if (nanos < 0) {
+			return "-1";
+		}
+		return format(nanos / 1e6);
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.US, "%.3f", value);
+	}
+
+	private static String toJSONArray(long[] values) {
+		StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			builder.append(values[i]);
+		}
+		return builder.append("]").toString();
+	}
+
+	private static String toHistogramString(long[] values) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				builder.append(' ');
+			}
+			builder.append(values[i]);
+		}
+		return builder.toString();
+	}
+
+	private static String toJSONString(String value) {
+		StringBuilder builder = new StringBuilder("\"");
+		for (char c : value.toCharArray()) {
+			switch (c) {
+			case '"':
+				builder.append("\\\"");
+				break;
+			case '\\':
+				builder.append("\\\\");
+				break;
+			case '\n':
+				builder.append("\\n");
+				break;
+			case '\r':
+				builder.append("\\r");
+				break;
+			case '\t':
+				builder.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					builder.append(String.format("\\u%04x", (int) c));
+				} else {
+					builder.append(c);
+				}
+			}
+		}
+		return builder.append("\"").toString();
+	}
+
+	private static String toCSVString(String value) {
+		if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+			return "\"" + value.replace("\"", "\"\"") + "\"";
+		}
+		return value;
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.operator.execution;
+
+import com.rapidminer.Process;
+import com.rapidminer.operator.ExecutionUnit;
+import com.rapidminer.operator.ProcessRootOperator;
+
+/** Returns a shared instance of a {@link ParallelUnitExecutor} for all processes which enable the 
+ *  parameter {@link ProcessRootOperator#PARAMETER_PARALLEL_EXECUTION} of their root operator and 
+ *  a shared instance of a {@link SimpleUnitExecutor} otherwise.
+ */
+public class ParallelUnitExecutionFactory extends UnitExecutionFactory {
+
+	private final SimpleUnitExecutor simpleExecutor = new SimpleUnitExecutor();
+
+	private final ParallelUnitExecutor parallelExecutor = new ParallelUnitExecutor();
+
+	@Override
+	public UnitExecutor getExecutor(ExecutionUnit unit) {
+		Process process = unit.getEnclosingOperator().getProcess();
+		if (process != null && process.getRootOperator().getParameterAsBoolean(ProcessRootOperator.PARAMETER_PARALLEL_EXECUTION)) {
+			return parallelExecutor;
+		} else {
+			return simpleExecutor;
+		}
+	}
+}
@@ -0,0 +1,315 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.operator.execution;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.rapidminer.example.ExampleSet;
+import com.rapidminer.example.table.ColumnarExampleTable;
+import com.rapidminer.example.table.ExampleTable;
+import com.rapidminer.operator.DataMacroDefinitionOperator;
+import com.rapidminer.operator.ExecutionUnit;
+import com.rapidminer.operator.IOObject;
+import com.rapidminer.operator.IOObjectCollection;
+import com.rapidminer.operator.MacroConstructionOperator;
+import com.rapidminer.operator.MacroDefinitionOperator;
+import com.rapidminer.operator.Operator;
+import com.rapidminer.operator.OperatorChain;
+import com.rapidminer.operator.OperatorException;
+import com.rapidminer.operator.ProcessStoppedException;
+import com.rapidminer.operator.SingleMacroDefinitionOperator;
+import com.rapidminer.operator.collections.CollectionIterationOperator;
+import com.rapidminer.operator.macros.UnsetMacroOperator;
+import com.rapidminer.operator.meta.AbstractFileIterator;
+import com.rapidminer.operator.meta.AbstractIteratingOperatorChain;
+import com.rapidminer.operator.meta.AbstractRepositoryIterator;
+import com.rapidminer.operator.meta.ExampleIterator;
+import com.rapidminer.operator.meta.ExceptionHandling;
+import com.rapidminer.operator.meta.FeatureIterator;
+import com.rapidminer.operator.meta.ValueIteration;
+import com.rapidminer.operator.meta.ValueSubgroupIteration;
+import com.rapidminer.operator.ports.InputPort;
+import com.rapidminer.operator.ports.OutputPort;
+import com.rapidminer.operator.util.annotations.ExtractAnnotation;
+import com.rapidminer.tools.ConcurrencyTools;
+
+/** Executes an {@link ExecutionUnit} by running operators which do not depend on each other
+ *  concurrently. An operator becomes ready as soon as all operators delivering data to its
+ *  input ports have finished. Ready operators are started in the order of the (presorted)
+ *  execution order on a pool of at most {@link ConcurrencyTools#getNumberOfThreads()} threads.
+ *  
+ *  Since operators may also communicate without ports, e.g. by macros or by the Remember and Recall
+ *  operators, operators without any connected port and operators setting macros (or containing such
+ *  operators) are treated as barriers: they are started after all operators preceding them in the
+ *  execution order have finished, and all operators following them wait for them. 
+ *  
+ *  Copies of example sets, e.g. delivered by the Multiply operator, share their example table. Adding
+ *  attributes to a {@link com.rapidminer.example.table.MemoryExampleTable} reallocates its rows, so operators
+ *  whose input example sets share such a table with a running operator wait until that operator has
+ *  finished. Only {@link ColumnarExampleTable}s, which allow adding columns concurrently, are shared by
+ *  concurrently running operators. Operators with breakpoints are executed exclusively in the calling thread.
+ *  Subprocesses executed by one of the worker threads are executed sequentially.
+ *  Instances of this class can be shared.
+ */
+public class ParallelUnitExecutor implements UnitExecutor {
+
+	/** Operators which set or remove macros of the process. */
+	private static final Class<?>[] MACRO_OPERATORS = {
+		MacroDefinitionOperator.class, SingleMacroDefinitionOperator.class, DataMacroDefinitionOperator.class,
+		MacroConstructionOperator.class, UnsetMacroOperator.class, ExtractAnnotation.class, ExceptionHandling.class,
+		AbstractIteratingOperatorChain.class, AbstractFileIterator.class, AbstractRepositoryIterator.class,
+		CollectionIterationOperator.class, ExampleIterator.class, FeatureIterator.class, ValueIteration.class,
+		ValueSubgroupIteration.class
+	};
+
+	private final SimpleUnitExecutor sequentialExecutor = new SimpleUnitExecutor();
+
+	@Override
+	public void execute(ExecutionUnit unit) throws OperatorException {
+		List<Operator> operators = new ArrayList<Operator>(unit.getOperators());
+		int threads = Math.min(ConcurrencyTools.getNumberOfThreads(), operators.size());
+		if (threads < 2 || ConcurrencyTools.isWorkerThread()) {
+			sequentialExecutor.execute(unit);
+			return;
+		}
+
+		// building dependency graph
+		int n = operators.size();
+		Map<Operator,Integer> indices = new HashMap<Operator,Integer>();
+		for (int i = 0; i < n; i++) {
+			indices.put(operators.get(i), i);
+		}
+		boolean[][] dependsOn = new boolean[n][n];
+		for (int i = 0; i < n; i++) {
+			Operator operator = operators.get(i);
+			boolean connected = false;
+			for (OutputPort out : operator.getOutputPorts().getAllPorts()) {
+				InputPort destination = out.getDestination();
+				if (destination != null) {
+					connected = true;
+					Integer j = indices.get(destination.getPorts().getOwner().getOperator());
+					if (j != null) {
+						if (j <= i) {
+							// execution order is not topologically sorted, e.g. because of a loop 
+							sequentialExecutor.execute(unit);
+							return;
+						}
+						dependsOn[j][i] = true;
+					}
+				}
+			}
+			for (InputPort in : operator.getInputPorts().getAllPorts()) {
+				connected |= in.isConnected();
+			}
+			if (!connected || setsMacros(operator)) {
+				for (int j = 0; j < n; j++) {
+					if (j < i) {
+						dependsOn[i][j] = true;
+					} else if (j > i) {
+						dependsOn[j][i] = true;
+					}
+				}
+			}
+		}
+		int[] pending = new int[n];
+		List<List<Integer>> successors = new ArrayList<List<Integer>>(n);
+		for (int i = 0; i < n; i++) {
+			successors.add(new LinkedList<Integer>());
+		}
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (dependsOn[i][j]) {
+					pending[i]++;
+					successors.get(j).add(i);
+				}
+			}
+		}
+
+		Logger logger = unit.getEnclosingOperator().getLogger();
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Executing subprocess " + unit.getEnclosingOperator().getName() + "." + unit.getName() + " in up to " + threads + " threads. Execution order is: " + operators);
+		}
+
+		PriorityQueue<Integer> ready = new PriorityQueue<Integer>();
+		for (int i = 0; i < n; i++) {
+			if (pending[i] == 0) {
+				ready.add(i);
+			}
+		}
+		ExecutorService executorService = null;
+		CompletionService<Integer> completionService = null;
+		Map<Integer,List<ExampleTable>> tablesInUse = new HashMap<Integer,List<ExampleTable>>();
+		List<Integer> postponed = new LinkedList<Integer>();
+		int running = 0;
+		int finished = 0;
+		Throwable error = null;
+		try {
+			while (finished < n) {
+				// starting all ready operators
+				while (error == null && !ready.isEmpty() && running < threads) {
+					int next = ready.poll();
+					final Operator operator = operators.get(next);
+					boolean exclusive = operator.hasBreakpoint();
+					List<ExampleTable> tables = getUnsharableTables(operator);
+					if (running == 0 && (exclusive || ready.isEmpty())) {
+						// nothing else can run meanwhile: execute in this thread
+						operator.execute();
+						finished += finish(next, operators, pending, successors, ready);
+					} else if (exclusive) {
+						// waiting for running operators before executing a breakpoint operator 
+						ready.add(next);
+						break;
+					} else if (isInUse(tables, tablesInUse)) {
+						// waiting for the running operator which may modify the same example table
+						postponed.add(next);
+					} else {
+						tablesInUse.put(next, tables);
+						if (executorService == null) {
+							executorService = ConcurrencyTools.createExecutorService(threads, "ParallelUnitExecutor");
+							completionService = new ExecutorCompletionService<Integer>(executorService);
+						}
+						final int index = next;
+						completionService.submit(new Callable<Integer>() {
+							@Override
+							public Integer call() throws OperatorException {
+								operator.execute();
+								return index;
+							}
+						});
+						running++;
+					}
+				}
+				ready.addAll(postponed);
+				postponed.clear();
+				if (running == 0) {
+					break;
+				}
+
+				// waiting for the next operator to finish
+				try {
+					int done = completionService.take().get();
+					running--;
+					tablesInUse.remove(done);
+					finished += finish(done, operators, pending, successors, ready);
+				} catch (ExecutionException e) {
+					// the tables of the failed operator stay in use since no further operators are started
+					running--;
+					if (error == null) {
+						error = e.getCause();
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			if (executorService != null) {
+				executorService.shutdownNow();
+			}
+			throw new ProcessStoppedException(unit.getEnclosingOperator());
+		} finally {
+			if (executorService != null) {
+				executorService.shutdown();
+			}
+		}
+		if (error != null) {
+			ConcurrencyTools.throwCause(error);
+		}
+	}
+
+	/** Returns true if the operator or one of its inner operators sets or removes macros. */
+	private static boolean setsMacros(Operator operator) {
+		for (Class<?> macroOperator : MACRO_OPERATORS) {
+			if (macroOperator.isInstance(operator)) {
+				return true;
+			}
+		}
+		if (operator instanceof OperatorChain) {
+			for (Operator inner : ((OperatorChain) operator).getAllInnerOperators()) {
+				if (setsMacros(inner)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/** Returns the example tables of all example sets at the input ports of the operator which must not
+	 *  be modified by concurrently running operators, i.e. all tables except {@link ColumnarExampleTable}s. */
+	private static List<ExampleTable> getUnsharableTables(Operator operator) {
+		List<ExampleTable> tables = new LinkedList<ExampleTable>();
+		for (InputPort in : operator.getInputPorts().getAllPorts()) {
+			addUnsharableTables(in.getAnyDataOrNull(), tables);
+		}
+		return tables;
+	}
+
+	private static void addUnsharableTables(IOObject object, List<ExampleTable> tables) {
+		if (object instanceof ExampleSet) {
+			ExampleTable table = ((ExampleSet) object).getExampleTable();
+			if (!(table instanceof ColumnarExampleTable)) {
+				tables.add(table);
+			}
+		} else if (object instanceof IOObjectCollection) {
+			for (IOObject member : ((IOObjectCollection<?>) object).getObjectsRecursive()) {
+				addUnsharableTables(member, tables);
+			}
+		}
+	}
+
+	/** Returns true if one of the given tables is used by a running operator. */
+	private static boolean isInUse(List<ExampleTable> tables, Map<Integer,List<ExampleTable>> tablesInUse) {
+		for (ExampleTable table : tables) {
+			for (List<ExampleTable> used : tablesInUse.values()) {
+				for (ExampleTable usedTable : used) {
+					if (usedTable == table) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/** Frees the memory of the finished operator and marks all operators depending only on
+	 *  finished operators as ready. Returns the number of finished operators, i.e. 1. */
+	private int finish(int index, List<Operator> operators, int[] pending, List<List<Integer>> successors, PriorityQueue<Integer> ready) {
+		operators.get(index).freeMemory();
+		for (int successor : successors.get(index)) {
+			pending[successor]--;
+			if (pending[successor] == 0) {
+				ready.add(successor);
+			}
+		}
+		return 1;
+	}
+}
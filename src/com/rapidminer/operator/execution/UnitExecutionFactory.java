@@ -31,7 +31,7 @@ import com.rapidminer.operator.ExecutionUnit;
  */
 public abstract class UnitExecutionFactory {
 
-	private static UnitExecutionFactory instance = new SimpleUnitExecutionFactory();
+	private static UnitExecutionFactory instance = new ParallelUnitExecutionFactory();
 	
 	public static UnitExecutionFactory getInstance() {
 		return instance;
@@ -31,6 +31,7 @@ import com.rapidminer.example.ExampleSet;
 import com.rapidminer.generator.GenerationException;
 import com.rapidminer.operator.OperatorDescription;
 import com.rapidminer.operator.OperatorException;
+import com.rapidminer.operator.StreamableOperator;
 import com.rapidminer.operator.UserError;
 import com.rapidminer.operator.ports.metadata.ExampleSetMetaData;
 import com.rapidminer.operator.ports.metadata.MetaData;
@@ -186,7 +187,7 @@ import com.rapidminer.tools.math.function.ExpressionParser;
  * 
  * @author Ingo Mierswa
  */
-public class AttributeConstruction extends AbstractFeatureConstruction {
+public class AttributeConstruction extends AbstractFeatureConstruction implements StreamableOperator {
 
 	/** The parameter name for &quot;List of functions to generate.&quot; */
 	public static final String PARAMETER_FUNCTIONS = "function_descriptions";
@@ -200,6 +201,9 @@ public class AttributeConstruction extends AbstractFeatureConstruction {
 	 */
 	public static final String PARAMETER_KEEP_ALL = "keep_all";
 
+	/** Indicates if numerical expressions should be evaluated concurrently for ranges of examples. */
+	public static final String PARAMETER_PARALLEL_EXECUTION = "parallel_execution";
+
 	public AttributeConstruction(OperatorDescription description) {
 		super(description);
 	}
@@ -228,6 +232,7 @@ public class AttributeConstruction extends AbstractFeatureConstruction {
 		}
 
 		ExpressionParser parser = new ExpressionParser(getParameterAsBoolean(PARAMETER_USE_STANDARD_CONSTANTS), getProcess());
+		parser.setParallelExecution(getParameterAsBoolean(PARAMETER_PARALLEL_EXECUTION));
 
 		Iterator<String[]> j = getParameterList(PARAMETER_FUNCTIONS).iterator();
 		while (j.hasNext()) {
@@ -252,6 +257,14 @@ public class AttributeConstruction extends AbstractFeatureConstruction {
 		return exampleSet;
 	}
 
+	@Override
+	public void startStreaming(int batchSize) {
+		// each example is processed independently
+	}
+
+	@Override
+	public void finishStreaming() {}
+
 	@Override
 	public List<ParameterType> getParameterTypes() {
 		List<ParameterType> types = super.getParameterTypes();
@@ -266,6 +279,10 @@ public class AttributeConstruction extends AbstractFeatureConstruction {
 
 		types.add(new ParameterTypeBoolean(PARAMETER_KEEP_ALL, "If set to true, all the original attributes are kept, otherwise they are removed from the example set.", true));
 
+		type = new ParameterTypeBoolean(PARAMETER_PARALLEL_EXECUTION, "Indicates if expressions consisting only of numerical attributes and operators should be evaluated concurrently for ranges of examples. This requires the data to be kept in memory.", false);
+		type.setExpert(true);
+		types.add(type);
+
 		return types;
 	}
 }
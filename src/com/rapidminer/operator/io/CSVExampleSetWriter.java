@@ -35,6 +35,7 @@ import com.rapidminer.example.Example;
 import com.rapidminer.example.ExampleSet;
 import com.rapidminer.operator.OperatorDescription;
 import com.rapidminer.operator.OperatorException;
+import com.rapidminer.operator.StreamableOperator;
 import com.rapidminer.operator.ports.Port;
 import com.rapidminer.parameter.ParameterType;
 import com.rapidminer.parameter.ParameterTypeBoolean;
@@ -53,7 +54,7 @@ import com.rapidminer.tools.io.Encoding;
  * 
  * @author Ingo Mierswa
  */
-public class CSVExampleSetWriter extends AbstractStreamWriter {
+public class CSVExampleSetWriter extends AbstractStreamWriter implements StreamableOperator {
 
 	/** The parameter name for &quot;The CSV file which should be written.&quot; */
 	public static final String PARAMETER_CSV_FILE = "csv_file";
@@ -80,6 +81,9 @@ public class CSVExampleSetWriter extends AbstractStreamWriter {
 	// Nominal2Date operator
 	public static final String PARAMETER_FORMAT_DATE = "format_date_attributes";
 
+	/** The number of batches written while streaming or -1 if not streaming. */
+	private int writtenBatches = -1;
+
 	public CSVExampleSetWriter(OperatorDescription description) {
 		super(description);
 	}
@@ -150,7 +154,7 @@ public class CSVExampleSetWriter extends AbstractStreamWriter {
 
 		String columnSeparator = getParameterAsString(PARAMETER_COLUMN_SEPARATOR);
 		boolean quoteNominalValues = getParameterAsBoolean(PARAMETER_QUOTE_NOMINAL_VALUES);
-		boolean writeAttribNames = getParameterAsBoolean(PARAMETER_WRITE_ATTRIBUTE_NAMES);
+		boolean writeAttribNames = getParameterAsBoolean(PARAMETER_WRITE_ATTRIBUTE_NAMES) && writtenBatches <= 0;
 		boolean formatDate = getParameterAsBoolean(PARAMETER_FORMAT_DATE);
 		PrintWriter out = null;
 		try {
@@ -172,7 +176,27 @@ public class CSVExampleSetWriter extends AbstractStreamWriter {
 
 	@Override
 	protected boolean shouldAppend() {
-		return getParameterAsBoolean(PARAMETER_APPEND_FILE);
+		return writtenBatches > 0 || getParameterAsBoolean(PARAMETER_APPEND_FILE);
+	}
+
+	@Override
+	public ExampleSet write(ExampleSet exampleSet) throws OperatorException {
+		ExampleSet result = super.write(exampleSet);
+		if (writtenBatches >= 0) {
+			writtenBatches++;
+		}
+		return result;
+	}
+
+	/** The batches following the first one are appended without attribute names. */
+	@Override
+	public void startStreaming(int batchSize) {
+		writtenBatches = 0;
+	}
+
+	@Override
+	public void finishStreaming() {
+		writtenBatches = -1;
 	}
 
 	@Override
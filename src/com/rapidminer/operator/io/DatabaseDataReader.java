@@ -31,12 +31,15 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -45,6 +48,7 @@ import com.rapidminer.example.ExampleSet;
 import com.rapidminer.example.table.AttributeFactory;
 import com.rapidminer.example.table.DataRow;
 import com.rapidminer.example.table.DataRowFactory;
+import com.rapidminer.example.table.DataRowReader;
 import com.rapidminer.example.table.MemoryExampleTable;
 import com.rapidminer.operator.Annotations;
 import com.rapidminer.operator.OperatorDescription;
@@ -54,7 +58,10 @@ import com.rapidminer.operator.ports.metadata.AttributeMetaData;
 import com.rapidminer.operator.ports.metadata.ExampleSetMetaData;
 import com.rapidminer.operator.ports.metadata.MetaData;
 import com.rapidminer.parameter.ParameterType;
+import com.rapidminer.parameter.ParameterTypeBoolean;
 import com.rapidminer.parameter.ParameterTypeCategory;
+import com.rapidminer.parameter.ParameterTypeInt;
+import com.rapidminer.tools.ConcurrencyTools;
 import com.rapidminer.tools.I18N;
 import com.rapidminer.tools.LogService;
 import com.rapidminer.tools.Ontology;
@@ -76,6 +83,9 @@ import com.rapidminer.tools.jdbc.connection.ConnectionProvider;
  * fail on some systems but which enables us to retrieve the structure of the table without performing the entire query
  * itself.
  * 
+ * Tables with a single integer primary key can be read in parallel. Then, the range of the key is divided into
+ * one range per thread and each range is read over its own connection.
+ * 
  * @author Simon Fischer
  * 
  */
@@ -84,6 +94,11 @@ public class DatabaseDataReader extends AbstractExampleSource implements Connect
     /** System property to decide whether meta data should be fetched from DB for database queries. */
     public static final String PROPERTY_EVALUATE_MD_FOR_SQL_QUERIES = "rapidminer.gui.evaluate_meta_data_for_sql_queries";
 
+    public static final String PARAMETER_PARALLEL_EXECUTION = "parallel_execution";
+
+    /** The default number of rows fetched at once. */
+    public static final int DEFAULT_FETCH_SIZE = 10000;
+
     public DatabaseDataReader(OperatorDescription description) {
         super(description);
     }
@@ -108,7 +123,7 @@ public class DatabaseDataReader extends AbstractExampleSource implements Connect
 
     protected ResultSet getResultSet() throws OperatorException {
         try {
-            databaseHandler = DatabaseHandler.getConnectedDatabaseHandler(this);
+            databaseHandler = connect();
             String query = getQuery(databaseHandler.getStatementCreator());
             if (query == null) {
                 throw new UserError(this, 202, new Object[] { "query", "query_file", "table_name" });
@@ -119,8 +134,21 @@ public class DatabaseDataReader extends AbstractExampleSource implements Connect
         }
     }
 
+    /** Returns a connected database handler using the fetch size specified by the parameters. */
+    private DatabaseHandler connect() throws OperatorException, SQLException {
+        DatabaseHandler handler = DatabaseHandler.getConnectedDatabaseHandler(this);
+        handler.setFetchSize(getParameterAsInt(DatabaseHandler.PARAMETER_FETCH_SIZE));
+        return handler;
+    }
+
     @Override
     public ExampleSet createExampleSet() throws OperatorException {
+        if (getParameterAsBoolean(PARAMETER_PARALLEL_EXECUTION) && (getParameterAsInt(DatabaseHandler.PARAMETER_DEFINE_QUERY) == DatabaseHandler.QUERY_TABLE) && !ConcurrencyTools.isWorkerThread()) {
+            MemoryExampleTable table = readKeyRangesInParallel();
+            if (table != null) {
+                return table.createExampleSet();
+            }
+        }
         ResultSet resultSet = getResultSet();
         MemoryExampleTable table;
         try {
@@ -138,6 +166,130 @@ public class DatabaseDataReader extends AbstractExampleSource implements Connect
         return table.createExampleSet();
     }
 
+    /**
+     * Reads the selected table by dividing the range of its primary key into one range per thread. Each range
+     * is read over its own connection, the examples are ordered by the key. Returns null if the table has no
+     * primary key consisting of a single integer column, if the table is empty or if its key range exceeds
+     * the range of long values.
+     */
+    private MemoryExampleTable readKeyRangesInParallel() throws OperatorException {
+        TableName tableName = DatabaseHandler.getSelectedTableName(this);
+        final int dataManagementType = getParameterAsInt(ExampleSource.PARAMETER_DATAMANAGEMENT);
+        List<DatabaseHandler> rangeHandlers = new LinkedList<DatabaseHandler>();
+        try {
+            databaseHandler = connect();
+            String keyColumn = databaseHandler.getPrimaryKeyName(tableName);
+            boolean integerKey = false;
+            if (keyColumn != null) {
+                for (ColumnIdentifier column : databaseHandler.getAllColumnNames(tableName, databaseHandler.getConnection().getMetaData())) {
+                    if (column.getColumnName().equals(keyColumn)) {
+                        switch (column.getSqlType()) {
+                        case Types.TINYINT:
+                        case Types.SMALLINT:
+                        case Types.INTEGER:
+                        case Types.BIGINT:
+                            integerKey = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            if (!integerKey) {
+                getLogger().info("Table '" + tableName + "' has no single integer primary key, reading it sequentially.");
+                databaseHandler.disconnect();
+                return null;
+            }
+
+            // divide the key range
+            StatementCreator statementCreator = databaseHandler.getStatementCreator();
+            String key = statementCreator.makeIdentifier(keyColumn);
+            Statement statement = databaseHandler.createStatement(false);
+            ResultSet rangeResultSet = statement.executeQuery("SELECT MIN(" + key + "), MAX(" + key + ") FROM " + statementCreator.makeIdentifier(tableName));
+            rangeResultSet.next();
+            long minKey = rangeResultSet.getLong(1);
+            boolean empty = rangeResultSet.wasNull();
+            long maxKey = rangeResultSet.getLong(2);
+            rangeResultSet.close();
+            statement.close();
+            if (empty) {
+                databaseHandler.disconnect();
+                return null;
+            }
+            // the key span of wide BIGINT keys does not fit into a long
+            long keySpan = maxKey - minKey;
+            if (keySpan < 0 || keySpan == Long.MAX_VALUE) {
+                getLogger().info("Key range of table '" + tableName + "' exceeds the long range, reading it sequentially.");
+                databaseHandler.disconnect();
+                return null;
+            }
+            int threads = (int) Math.max(1, Math.min(ConcurrencyTools.getNumberOfThreads(), keySpan + 1));
+            long rangeLength = keySpan / threads + 1;
+
+            List<Callable<MemoryExampleTable>> tasks = new ArrayList<Callable<MemoryExampleTable>>(threads);
+            for (int t = 0; t < threads; t++) {
+                long lowerKey = minKey + t * rangeLength;
+                long upperKey = (t == threads - 1) ? maxKey : lowerKey + rangeLength - 1;
+                final String rangeQuery = "SELECT * FROM " + statementCreator.makeIdentifier(tableName) +
+                        " WHERE " + key + " >= " + lowerKey + " AND " + key + " <= " + upperKey +
+                        " ORDER BY " + key;
+                final DatabaseHandler rangeHandler = connect();
+                rangeHandlers.add(rangeHandler);
+                tasks.add(new Callable<MemoryExampleTable>() {
+                    @Override
+                    public MemoryExampleTable call() throws OperatorException {
+                        try {
+                            Statement rangeStatement = rangeHandler.createStatement(false);
+                            try {
+                                ResultSet resultSet = rangeStatement.executeQuery(rangeQuery);
+                                try {
+                                    return createExampleTable(resultSet, getAttributes(resultSet), dataManagementType, null);
+                                } finally {
+                                    resultSet.close();
+                                }
+                            } finally {
+                                rangeStatement.close();
+                            }
+                        } catch (SQLException e) {
+                            throw new UserError(DatabaseDataReader.this, e, 304, e.getMessage());
+                        }
+                    }
+                });
+            }
+            List<MemoryExampleTable> tables = ConcurrencyTools.invokeAll(tasks, threads, "Database range reading");
+
+            // append the ranges to the first one, nominal values are mapped again
+            MemoryExampleTable result = tables.get(0);
+            Attribute[] resultAttributes = result.getAttributes();
+            for (MemoryExampleTable table : tables.subList(1, tables.size())) {
+                Attribute[] attributes = table.getAttributes();
+                DataRowReader reader = table.getDataRowReader();
+                while (reader.hasNext()) {
+                    DataRow row = reader.next();
+                    for (int a = 0; a < attributes.length; a++) {
+                        if (attributes[a].isNominal()) {
+                            double value = row.get(attributes[a]);
+                            if (!Double.isNaN(value)) {
+                                row.set(attributes[a], resultAttributes[a].getMapping().mapString(attributes[a].getMapping().mapIndex((int) value)));
+                            }
+                        }
+                    }
+                    result.addDataRow(row);
+                }
+            }
+            return result;
+        } catch (SQLException e) {
+            throw new UserError(this, e, 304, e.getMessage());
+        } finally {
+            for (DatabaseHandler rangeHandler : rangeHandlers) {
+                try {
+                    rangeHandler.disconnect();
+                } catch (SQLException e) {
+                    getLogger().log(Level.WARNING, "DB error closing connection: " + e, e);
+                }
+            }
+        }
+    }
+
     @Override
     public MetaData getGeneratedMetaData() throws OperatorException {
         ExampleSetMetaData metaData = new ExampleSetMetaData();
@@ -356,6 +508,13 @@ public class DatabaseDataReader extends AbstractExampleSource implements Connect
         list.addAll(DatabaseHandler.getStatementPreparationParamterTypes(this));
 
         list.add(new ParameterTypeCategory(ExampleSource.PARAMETER_DATAMANAGEMENT, "Determines, how the data is represented internally.", DataRowFactory.TYPE_NAMES, DataRowFactory.TYPE_DOUBLE_ARRAY, false));
+
+        ParameterType type = new ParameterTypeInt(DatabaseHandler.PARAMETER_FETCH_SIZE, "The number of rows fetched from the database at once. If 0, the default of the database driver is used.", 0, Integer.MAX_VALUE, DEFAULT_FETCH_SIZE);
+        type.setExpert(true);
+        list.add(type);
+        type = new ParameterTypeBoolean(PARAMETER_PARALLEL_EXECUTION, "Indicates if tables with a single integer primary key should be read in parallel. The range of the key is then divided into one range per thread and each range is read over its own database connection.", false);
+        type.setExpert(true);
+        list.add(type);
         return list;
     }
 
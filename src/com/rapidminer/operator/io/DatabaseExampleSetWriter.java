@@ -23,11 +23,14 @@
 package com.rapidminer.operator.io;
 
 import java.sql.SQLException;
+import java.util.Iterator;
 import java.util.List;
 
+import com.rapidminer.example.Attribute;
 import com.rapidminer.example.ExampleSet;
 import com.rapidminer.operator.OperatorDescription;
 import com.rapidminer.operator.OperatorException;
+import com.rapidminer.operator.StreamableOperator;
 import com.rapidminer.operator.UserError;
 import com.rapidminer.parameter.ParameterType;
 import com.rapidminer.parameter.ParameterTypeBoolean;
@@ -63,7 +66,7 @@ import com.rapidminer.tools.jdbc.connection.ConnectionProvider;
  * 
  * @author Ingo Mierswa, Tobias Malbrecht
  */
-public class DatabaseExampleSetWriter extends AbstractExampleSetWriter implements ConnectionProvider {
+public class DatabaseExampleSetWriter extends AbstractExampleSetWriter implements ConnectionProvider, StreamableOperator {
 
 	/**
 	 * The parameter name for &quot;Indicates if an existing table should be
@@ -92,6 +95,9 @@ public class DatabaseExampleSetWriter extends AbstractExampleSetWriter implement
 
 	public static final String PARAMETER_BATCH_SIZE = "batch_size";
 
+	/** The number of batches written while streaming or -1 if not streaming. */
+	private int writtenBatches = -1;
+
 	public DatabaseExampleSetWriter(OperatorDescription description) {
 		super(description);
 	}
@@ -104,9 +110,14 @@ public class DatabaseExampleSetWriter extends AbstractExampleSetWriter implement
 			if (getParameterAsBoolean(PARAMETER_GET_GENERATED_PRIMARY_KEYS)){
 				exampleSet  = (ExampleSet)exampleSet.clone();
 			}
+			if (writtenBatches >= 0) {
+				checkStreamedVarcharLength(exampleSet);
+			}
+			// the batches following the first one of a stream are appended
+			int overwriteMode = writtenBatches > 0 ? DatabaseHandler.OVERWRITE_MODE_APPEND : getParameterAsInt(PARAMETER_OVERWRITE_MODE);
 			try {
 				databaseHandler.createTable(exampleSet, DatabaseHandler.getSelectedTableName(this),
-						getParameterAsInt(PARAMETER_OVERWRITE_MODE), getApplyCount() == 1,
+						overwriteMode, getApplyCount() == 1,
 						getParameterAsBoolean(PARAMETER_SET_DEFAULT_VARCHAR_LENGTH) ? getParameterAsInt(PARAMETER_DEFAULT_VARCHAR_LENGTH) : -1,
 						getParameterAsBoolean(PARAMETER_GET_GENERATED_PRIMARY_KEYS),
 						getParameterAsString(PARAMETER_GENERATED_KEYS_ATTRIBUTE_NAME),
@@ -118,9 +129,46 @@ public class DatabaseExampleSetWriter extends AbstractExampleSetWriter implement
 		} catch (SQLException e) {
 			throw new UserError(this, e, 304, e.getMessage());
 		}
+		if (writtenBatches >= 0) {
+			writtenBatches++;
+		}
 		return exampleSet;
 	}
 
+	/**
+	 * The table of a stream is created for the first batch, so its varchar columns cannot be sized
+	 * by the values of the following batches. Streamed nominal attributes therefore need the default
+	 * varchar length and none of their values may exceed it.
+	 */
+	private void checkStreamedVarcharLength(ExampleSet exampleSet) throws OperatorException {
+		boolean setDefaultLength = getParameterAsBoolean(PARAMETER_SET_DEFAULT_VARCHAR_LENGTH);
+		int defaultLength = getParameterAsInt(PARAMETER_DEFAULT_VARCHAR_LENGTH);
+		Iterator<Attribute> a = exampleSet.getAttributes().allAttributes();
+		while (a.hasNext()) {
+			Attribute attribute = a.next();
+			if (attribute.isNominal()) {
+				if (!setDefaultLength) {
+					throw new UserError(this, "stream_process.varchar_length_required", attribute.getName(), PARAMETER_SET_DEFAULT_VARCHAR_LENGTH);
+				}
+				for (String value : attribute.getMapping().getValues()) {
+					if (value.length() > defaultLength) {
+						throw new UserError(this, "stream_process.varchar_length_exceeded", attribute.getName(), defaultLength);
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void startStreaming(int batchSize) {
+		writtenBatches = 0;
+	}
+
+	@Override
+	public void finishStreaming() {
+		writtenBatches = -1;
+	}
+
 	@Override
 	public List<ParameterType> getParameterTypes() {
 		List<ParameterType> types = super.getParameterTypes();
@@ -23,18 +23,22 @@
 package com.rapidminer.operator.io;
 
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 
 import com.rapidminer.operator.Annotations;
 import com.rapidminer.operator.IOObject;
+import com.rapidminer.operator.Operator;
 import com.rapidminer.operator.OperatorDescription;
 import com.rapidminer.operator.OperatorException;
 import com.rapidminer.operator.SimpleProcessSetupError;
 import com.rapidminer.operator.UserError;
 import com.rapidminer.operator.ProcessSetupError.Severity;
+import com.rapidminer.operator.ports.InputPort;
 import com.rapidminer.operator.ports.metadata.AttributeMetaData;
 import com.rapidminer.operator.ports.metadata.ExampleSetMetaData;
 import com.rapidminer.operator.ports.metadata.MetaData;
+import com.rapidminer.operator.preprocessing.filter.attributes.AttributeFilter;
 import com.rapidminer.parameter.ParameterType;
 import com.rapidminer.parameter.ParameterTypeRepositoryLocation;
 import com.rapidminer.parameter.UndefinedParameterError;
@@ -42,6 +46,7 @@ import com.rapidminer.repository.Entry;
 import com.rapidminer.repository.IOObjectEntry;
 import com.rapidminer.repository.RepositoryException;
 import com.rapidminer.repository.RepositoryLocation;
+import com.rapidminer.repository.local.SimpleIOObjectEntry;
 /**
  * 
  * @author Sebastian Land
@@ -99,11 +104,43 @@ public class RepositorySource extends AbstractReader<IOObject> {
 		}
 	}
 	
+	/** Returns the names of the attributes which are needed by the operator consuming the output of this
+	 *  operator, or null if all attributes must be retrieved. Currently, only a directly connected 
+	 *  {@link AttributeFilter} whose original output is not used and whose selection can be derived from
+	 *  the stored meta data allows to restrict the retrieved attributes. */
+	private Set<String> getRequiredAttributeNames(IOObjectEntry entry) throws RepositoryException {
+		InputPort destination = getOutputPorts().getPortByIndex(0).getDestination();
+		if (destination == null) {
+			return null;
+		}
+		Operator consumer = destination.getPorts().getOwner().getOperator();
+		if (!(consumer instanceof AttributeFilter) || !consumer.isEnabled()) {
+			return null;
+		}
+		AttributeFilter filter = (AttributeFilter) consumer;
+		if (destination != filter.getExampleSetInputPort() || filter.getOriginalOutputPort().isConnected()) {
+			return null;
+		}
+		MetaData metaData = entry.retrieveMetaData();
+		if (!(metaData instanceof ExampleSetMetaData)) {
+			return null;
+		}
+		return filter.getSelectedAttributeNames((ExampleSetMetaData) metaData);
+	}
+
 	@Override
 	public IOObject read() throws OperatorException {	
 		try {
-			final IOObject data = getRepositoryEntry().retrieveData(null);
-			data.getAnnotations().setAnnotation(Annotations.KEY_SOURCE, getRepositoryEntry().getLocation().toString());
+			IOObjectEntry entry = getRepositoryEntry();
+			final IOObject data;
+			Set<String> requiredAttributes = entry instanceof SimpleIOObjectEntry ? getRequiredAttributeNames(entry) : null;
+			if (requiredAttributes != null) {
+				getLogger().fine("Retrieving only the " + requiredAttributes.size() + " attributes needed by the following operator from " + entry.getLocation() + ".");
+				data = ((SimpleIOObjectEntry) entry).retrieveData(requiredAttributes, null);
+			} else {
+				data = entry.retrieveData(null);
+			}
+			data.getAnnotations().setAnnotation(Annotations.KEY_SOURCE, entry.getLocation().toString());
 			return data;
 		} catch (RepositoryException e) {
 			throw new UserError(this, e, 312, getParameterAsString(PARAMETER_REPOSITORY_ENTRY), e.getMessage());
@@ -22,17 +22,24 @@
  */
 package com.rapidminer.operator.learner;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 import com.rapidminer.example.Attribute;
 import com.rapidminer.example.Attributes;
 import com.rapidminer.example.ExampleSet;
 import com.rapidminer.example.set.HeaderExampleSet;
+import com.rapidminer.example.set.RangeExampleSet;
 import com.rapidminer.example.set.RemappedExampleSet;
 import com.rapidminer.example.table.AttributeFactory;
+import com.rapidminer.example.table.ColumnarExampleTable;
 import com.rapidminer.example.table.ExampleTable;
+import com.rapidminer.example.table.MemoryExampleTable;
 import com.rapidminer.operator.AbstractModel;
 import com.rapidminer.operator.OperatorException;
+import com.rapidminer.tools.ConcurrencyTools;
 import com.rapidminer.tools.Ontology;
 
 
@@ -49,6 +56,15 @@ public abstract class PredictionModel extends AbstractModel {
 	 */
 	private static final long serialVersionUID = 6295359038239089617L;
 
+	/** Parallel predictions are only performed if each thread can work on at least this number of examples. */
+	private static final int MIN_EXAMPLES_PER_PARTITION = 1000;
+
+	/** The number of partitions created per thread in order to balance the work between the threads. */
+	private static final int PARTITIONS_PER_THREAD = 4;
+
+	/** Indicates if the prediction may be distributed over several threads. Not stored with the model. */
+	private transient boolean parallelPrediction = false;
+
 	/** Created a new prediction model which was built on the given example set. Please note
      *  that the given example set is automatically transformed into a {@link HeaderExampleSet}
      *  which means that no reference to the data itself is kept but only to the header, i.e.
@@ -73,7 +89,13 @@ public abstract class PredictionModel extends AbstractModel {
         ExampleSet mappedExampleSet = new RemappedExampleSet(exampleSet, getTrainingHeader(), false);
         checkCompatibility(mappedExampleSet);
 		Attribute predictedLabel = createPredictionAttributes(mappedExampleSet, getLabel());
-		ExampleSet result = performPrediction(mappedExampleSet, predictedLabel);
+		ExampleSet result;
+		int threads = getNumberOfPredictionThreads(mappedExampleSet);
+		if (threads > 1) {
+			result = performParallelPrediction(mappedExampleSet, predictedLabel, threads);
+		} else {
+			result = performPrediction(mappedExampleSet, predictedLabel);
+		}
 		
 		// Copy in order to avoid RemappedExampleSets wrapped around each other accumulating over time
 		copyPredictedLabel(result, exampleSet);
@@ -81,6 +103,51 @@ public abstract class PredictionModel extends AbstractModel {
         return exampleSet;
 	}
 
+	/** Enables or disables the distribution of the prediction over several threads. The prediction
+	 *  is only distributed if the model {@link #supportsParallelPrediction()} and the data is kept in memory. */
+	public void setParallelPrediction(boolean parallelPrediction) {
+		this.parallelPrediction = parallelPrediction;
+	}
+
+	/** Returns true if {@link #performPrediction(ExampleSet, Attribute)} can be invoked concurrently for disjoint
+	 *  subsets of the same example set. This requires that the prediction does not change the state of the model
+	 *  and sets only the values of the given example set. The default implementation returns false. */
+	public boolean supportsParallelPrediction() {
+		return false;
+	}
+
+	/** Returns the number of threads which should be used for applying this model to the given example set. */
+	private int getNumberOfPredictionThreads(ExampleSet exampleSet) {
+		if (!parallelPrediction || !supportsParallelPrediction() || ConcurrencyTools.isWorkerThread()) {
+			return 1;
+		}
+		// only the in memory tables allow concurrent access to different rows
+		ExampleTable table = exampleSet.getExampleTable();
+		if (!(table instanceof MemoryExampleTable) && !(table instanceof ColumnarExampleTable)) {
+			return 1;
+		}
+		return Math.max(1, Math.min(ConcurrencyTools.getNumberOfThreads(), exampleSet.size() / MIN_EXAMPLES_PER_PARTITION));
+	}
+
+	/** Splits the example set into consecutive ranges of examples and performs the prediction for these 
+	 *  ranges concurrently. */
+	private ExampleSet performParallelPrediction(ExampleSet exampleSet, final Attribute predictedLabel, int threads) throws OperatorException {
+		int size = exampleSet.size();
+		int numberOfPartitions = Math.min(threads * PARTITIONS_PER_THREAD, size / MIN_EXAMPLES_PER_PARTITION);
+		List<Callable<ExampleSet>> tasks = new ArrayList<Callable<ExampleSet>>(numberOfPartitions);
+		for (int i = 0; i < numberOfPartitions; i++) {
+			final ExampleSet partition = new RangeExampleSet(exampleSet, (int) ((long) i * size / numberOfPartitions), (int) ((long) (i + 1) * size / numberOfPartitions));
+			tasks.add(new Callable<ExampleSet>() {
+				@Override
+				public ExampleSet call() throws OperatorException {
+					return performPrediction(partition, predictedLabel);
+				}
+			});
+		}
+		ConcurrencyTools.invokeAll(tasks, threads, getName());
+		return exampleSet;
+	}
+
 	/** Returns the label attribute. */
 	public Attribute getLabel() {
 		return getTrainingHeader().getAttributes().getLabel();
@@ -30,7 +30,7 @@ import com.rapidminer.example.Attribute;
 import com.rapidminer.example.Example;
 import com.rapidminer.example.ExampleSet;
 import com.rapidminer.example.table.AttributeFactory;
-import com.rapidminer.example.table.MemoryExampleTable;
+import com.rapidminer.example.table.ExampleTable;
 import com.rapidminer.operator.Operator;
 import com.rapidminer.operator.OperatorDescription;
 import com.rapidminer.operator.OperatorException;
@@ -82,7 +82,7 @@ public class FrequentItemSetAttributeCreator extends Operator {
 			setAttributeMap.put(set, newAttribute);
 			exampleSet.getAttributes().addRegular(newAttribute);
 		}
-		MemoryExampleTable table = (MemoryExampleTable) exampleSet.getExampleTable();
+		ExampleTable table = exampleSet.getExampleTable();
 		table.addAttributes(newAttributes);
 		
 		// running over examples 
@@ -0,0 +1,235 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.operator.learner.associations.fpgrowth;
+
+import java.util.Arrays;
+
+/**
+ * An FP-tree stored in primitive arrays. Items are represented by their rank in the
+ * order used for sorting the transactions, i.e. an item always has a smaller id than
+ * the items below it on a path. Node 0 is the root. Every node knows its item, its
+ * father, its count and the next node of the same item, so all nodes of an item are
+ * chained. Instead of stacking conditional frequencies on the nodes,
+ * {@link #getConditionalTree(int, int)} creates a new tree for the prefix paths of an item, so that trees are never modified while mining and
+ * several items can be mined concurrently.
+ */
+class CompactFPTree {
+
+	private static final int ROOT = 0;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final long EMPTY_KEY = -1;
+
+	private int size = 1;
+
+	private int[] items;
+
+	private int[] fathers;
+
+	private int[] counts;
+
+	private int[] nextNodes;
+
+	/** The first node of every item, -1 if the item does not occur in the tree. */
+	private final int[] firstNodes;
+
+	/** The last node of every item used for appending new nodes to the chain. */
+	private final int[] lastNodes;
+
+	/** The summed up counts of the nodes of every item. */
+	private final int[] supports;
+
+	/** Open addressing table mapping (father, item) to the child node. */
+	private long[] childKeys;
+
+	private int[] childNodes;
+
+	/**
+	 * Creates an empty tree for the items 0 to numberOfItems - 1.
+	 */
+	public CompactFPTree(int numberOfItems) {
+		items = new int[INITIAL_CAPACITY];
+		fathers = new int[INITIAL_CAPACITY];
+		counts = new int[INITIAL_CAPACITY];
+		nextNodes = new int[INITIAL_CAPACITY];
+		firstNodes = new int[numberOfItems];
+		lastNodes = new int[numberOfItems];
+		supports = new int[numberOfItems];
+		Arrays.fill(firstNodes, -1);
+		childKeys = new long[2 * INITIAL_CAPACITY];
+		childNodes = new int[2 * INITIAL_CAPACITY];
+		Arrays.fill(childKeys, EMPTY_KEY);
+	}
+
+	/**
+	 * Adds the first length items of the given array with the given weight. The items
+	 * must be sorted ascending.
+	 */
+	public void addItemSet(int[] itemSet, int length, int weight) {
+		int node = ROOT;
+		for (int i = 0; i < length; i++) {
+			int item = itemSet[i];
+			node = getChild(node, item);
+			counts[node] += weight;
+			supports[item] += weight;
+		}
+	}
+
+	public int getNumberOfItems() {
+		return supports.length;
+	}
+
+	/**
+	 * Returns the number of transactions containing the given item.
+	 */
+	public int getSupport(int item) {
+		if (item < supports.length) {
+			return supports[item];
+		} else {
+			return 0;
+		}
+	}
+
+	public boolean isEmpty() {
+		return size == 1;
+	}
+
+	/**
+	 * Returns the tree of all paths leading to nodes of the given item, weighted with the
+	 * counts of these nodes. Only items whose support in these paths is at least
+	 * minTotalSupport are added to the new tree.
+	 */
+	public CompactFPTree getConditionalTree(int item, int minTotalSupport) {
+		CompactFPTree conditionalTree = new CompactFPTree(item);
+		if (item >= supports.length || firstNodes[item] < 0) {
+			conditionalTree.trimToSize();
+			return conditionalTree;
+		}
+
+		// counting the items on the prefix paths
+		int[] conditionalSupports = new int[item];
+		for (int node = firstNodes[item]; node >= 0; node = nextNodes[node]) {
+			int count = counts[node];
+			for (int current = fathers[node]; current != ROOT; current = fathers[current]) {
+				conditionalSupports[items[current]] += count;
+			}
+		}
+
+		// adding the frequent items of every path, which are collected bottom up
+		int[] path = new int[item];
+		for (int node = firstNodes[item]; node >= 0; node = nextNodes[node]) {
+			int start = item;
+			for (int current = fathers[node]; current != ROOT; current = fathers[current]) {
+				if (conditionalSupports[items[current]] >= minTotalSupport) {
+					path[--start] = items[current];
+				}
+			}
+			if (start < item) {
+				System.arraycopy(path, start, path, 0, item - start);
+				conditionalTree.addItemSet(path, item - start, counts[node]);
+			}
+		}
+		conditionalTree.trimToSize();
+		return conditionalTree;
+	}
+
+	/**
+	 * Returns the child of the given node for the given item and creates it if it does
+	 * not exist.
+	 */
+	private int getChild(int father, int item) {
+		long key = ((long) father << 32) | item;
+		int mask = childKeys.length - 1;
+		int index = hash(key) & mask;
+		while (childKeys[index] != EMPTY_KEY) {
+			if (childKeys[index] == key) {
+				return childNodes[index];
+			}
+			index = (index + 1) & mask;
+		}
+
+		// creating new node
+		if (size == items.length) {
+			int capacity = 2 * size;
+			items = Arrays.copyOf(items, capacity);
+			fathers = Arrays.copyOf(fathers, capacity);
+			counts = Arrays.copyOf(counts, capacity);
+			nextNodes = Arrays.copyOf(nextNodes, capacity);
+		}
+		int node = size++;
+		items[node] = item;
+		fathers[node] = father;
+		nextNodes[node] = -1;
+		if (firstNodes[item] < 0) {
+			firstNodes[item] = node;
+		} else {
+			nextNodes[lastNodes[item]] = node;
+		}
+		lastNodes[item] = node;
+
+		childKeys[index] = key;
+		childNodes[index] = node;
+		if (2 * size > childKeys.length) {
+			rehash();
+		}
+		return node;
+	}
+
+	private void rehash() {
+		long[] oldKeys = childKeys;
+		int[] oldNodes = childNodes;
+		childKeys = new long[2 * oldKeys.length];
+		childNodes = new int[2 * oldKeys.length];
+		Arrays.fill(childKeys, EMPTY_KEY);
+		int mask = childKeys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY_KEY) {
+				int index = hash(oldKeys[i]) & mask;
+				while (childKeys[index] != EMPTY_KEY) {
+					index = (index + 1) & mask;
+				}
+				childKeys[index] = oldKeys[i];
+				childNodes[index] = oldNodes[i];
+			}
+		}
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Releases the table used for finding the children while adding item sets. Afterwards
+	 * no further item sets may be added.
+	 */
+	public void trimToSize() {
+		childKeys = null;
+		childNodes = null;
+		items = Arrays.copyOf(items, size);
+		fathers = Arrays.copyOf(fathers, size);
+		counts = Arrays.copyOf(counts, size);
+		nextNodes = Arrays.copyOf(nextNodes, size);
+	}
+}
@@ -23,14 +23,14 @@
 package com.rapidminer.operator.learner.associations.fpgrowth;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.regex.Matcher;
+import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
 
 import com.rapidminer.example.Attribute;
@@ -56,6 +56,7 @@ import com.rapidminer.parameter.ParameterTypeInt;
 import com.rapidminer.parameter.ParameterTypeString;
 import com.rapidminer.parameter.UndefinedParameterError;
 import com.rapidminer.parameter.conditions.BooleanParameterCondition;
+import com.rapidminer.tools.ConcurrencyTools;
 import com.rapidminer.tools.Ontology;
 
 /**
@@ -129,6 +130,9 @@ public class FPGrowth extends Operator {
 
 	private static final String PARAMETER_KEEP_EXAMPLE_SET = "keep_example_set";
 
+	/** Indicates if the item sets of the different items should be mined concurrently. */
+	public static final String PARAMETER_PARALLEL_EXECUTION = "parallel_execution";
+
 	private final InputPort exampleSetInput = getInputPorts().createPort("example set");
 
 	private final OutputPort exampleSetOutput = getOutputPorts().createPort("example set");
@@ -155,6 +159,10 @@ public class FPGrowth extends Operator {
 
 		int maxItems = getParameterAsInt(PARAMETER_MAX_ITEMS);
 		double currentSupport = getParameterAsDouble(PARAMETER_MIN_SUPPORT);
+		int threads = 1;
+		if (getParameterAsBoolean(PARAMETER_PARALLEL_EXECUTION) && !ConcurrencyTools.isWorkerThread()) {
+			threads = ConcurrencyTools.getNumberOfThreads();
+		}
 
 		// determine frequent items sets
 		FrequentItemSets sets = null;
@@ -192,84 +200,64 @@ public class FPGrowth extends Operator {
 			// eliminating non frequent items
 			removeNonFrequentItems(itemMapping, currentMinTotalSupport, workingSet);
 
+			// ranking items in the order of the sorted transactions, the frequent items come first
+			Item[] rankedItems = itemMapping.values().toArray(new Item[itemMapping.size()]);
+			Arrays.sort(rankedItems);
+			int numberOfFrequentItems = 0;
+			while (numberOfFrequentItems < rankedItems.length && rankedItems[numberOfFrequentItems].getFrequency() >= currentMinTotalSupport) {
+				numberOfFrequentItems++;
+			}
+			Map<Item, Integer> ranks = new HashMap<Item, Integer>();
+			for (int rank = 0; rank < rankedItems.length; rank++) {
+				ranks.put(rankedItems[rank], rank);
+			}
+			int[] attributeRanks = new int[attributes.length];
+			for (i = 0; i < attributes.length; i++) {
+				attributeRanks[i] = ranks.get(itemMapping.get(attributes[i]));
+			}
+
+			// determining mandatory items
+			List<Item> mandatoryItems = getMandatoryItems(itemMapping);
+			int[] mandatoryRanks = new int[mandatoryItems.size()];
+			for (i = 0; i < mandatoryRanks.length; i++) {
+				mandatoryRanks[i] = ranks.get(mandatoryItems.get(i));
+			}
+
 			// generating FP Tree
-			FPTree tree = getFPTree(workingSet, attributes, positiveIndices, itemMapping);
+			int[] mandatorySupports = new int[mandatoryRanks.length];
+			Map<Item, Integer> headerTable = new HashMap<Item, Integer>();
+			CompactFPTree tree = getFPTree(workingSet, attributes, positiveIndices, attributeRanks, rankedItems, numberOfFrequentItems, mandatoryRanks, mandatorySupports,
+					headerTable);
+			int[] miningOrder = new int[headerTable.size()];
+			int numberOfMinedItems = 0;
+			for (int rank : headerTable.values()) {
+				if (rank < numberOfFrequentItems) {
+					miningOrder[numberOfMinedItems++] = rank;
+				}
+			}
+			miningOrder = Arrays.copyOf(miningOrder, numberOfMinedItems);
 
 			// mine tree
 			sets = new FrequentItemSets(workingSet.size());
-			String mustContainItems = getParameterAsString(PARAMETER_MUST_CONTAIN);
-			if (mustContainItems == null || mustContainItems.isEmpty()) {
-				mineTree(tree, sets, 0, currentMinTotalSupport, maxItems);
-			} else {
-				FrequentItemSet conditionalItems = new FrequentItemSet();
-				Pattern pattern = Pattern.compile(mustContainItems);
-				Map<Item, Header> headerTable = tree.getHeaderTable();
-				int depth = 0;
-				boolean supportOfMandatoryItemsTooLow = false;
-				for (Entry<Attribute, Item> attributeEntry : itemMapping.entrySet()) {
-					Matcher matcher = pattern.matcher(attributeEntry.getKey().getName());
-					Item targetItem = attributeEntry.getValue();
-
-					Header targetItemHeader = headerTable.get(targetItem);
-					int itemFrequency = 0;
-					if (targetItemHeader != null) {
-						itemFrequency = targetItemHeader.getFrequencies().getFrequency(depth);
-					}
-
-					if (matcher.matches()) {
-						if (itemFrequency >= currentMinTotalSupport) {
-							// building conditional items
-							// run over sibling chain
-							for (FPTreeNode node : targetItemHeader.getSiblingChain()) {
-								// and propagate frequency to root
-								int frequency = node.getFrequency(depth);
-								// if frequency is positive
-								if (frequency > 0) {
-									FPTreeNode currentNode = node.getFather();
-									while (currentNode != tree) {
-										// increase node frequency
-										currentNode.increaseFrequency(depth + 1, frequency);
-										// increase item frequency in
-										// headerTable
-										headerTable.get(currentNode.getNodeItem()).getFrequencies().increaseFrequency(depth + 1, frequency);
-										// go up in tree
-										currentNode = currentNode.getFather();
-									}
-
-									// also descend into subpaths and increase
-									// frequencies (see function comment)
-									recursivelyIncreaseFrequencyOfNextDepth(headerTable, node, depth);
-								}
-							}
-							// add item to conditional items
-							int itemSupport = targetItemHeader.getFrequencies().getFrequency(depth);
-							conditionalItems.addItem(targetItem, itemSupport);
-
-							depth++;
-						} else {
-							// at least one of the mandatory items does not have sufficient support -> break and return empty itemset list.
-							supportOfMandatoryItemsTooLow = true;
-							break;
-						}
-					}
+			FrequentItemSet conditionalItems = new FrequentItemSet();
+			boolean supportOfMandatoryItemsTooLow = false;
+			for (i = 0; i < mandatoryRanks.length; i++) {
+				if (mandatorySupports[i] >= currentMinTotalSupport) {
+					conditionalItems.addItem(mandatoryItems.get(i), mandatorySupports[i]);
+				} else {
+					// at least one of the mandatory items does not have sufficient support -> return empty itemset list.
+					supportOfMandatoryItemsTooLow = true;
+					break;
 				}
-				
-				// don't do anything if the mandatory items have too low support
-				if (!supportOfMandatoryItemsTooLow) {
-					if (!conditionalItems.getItems().isEmpty()) {
-						if (conditionalItems.getFrequency() >= currentMinTotalSupport) {
-							// add this conditional items to frequentSets
-							sets.addFrequentSet(conditionalItems);
-						} else {
-							supportOfMandatoryItemsTooLow = true;
-						}
-					}
-				}
-				
-				// only mine tree if the mandatory attributes have sufficient support
-				if (!supportOfMandatoryItemsTooLow) {
-					mineTree(tree, sets, depth, conditionalItems, currentMinTotalSupport, maxItems);
+			}
+
+			// only mine tree if the mandatory attributes have sufficient support
+			if (!supportOfMandatoryItemsTooLow) {
+				if (!conditionalItems.getItems().isEmpty()) {
+					// add this conditional items to frequentSets
+					sets.addFrequentSet(conditionalItems);
 				}
+				mineTree(tree, miningOrder, rankedItems, sets, conditionalItems.getNumberOfItems(), conditionalItems, currentMinTotalSupport, maxItems, threads);
 			}
 
 			currentSupport *= 0.9;
@@ -280,40 +268,6 @@ public class FPGrowth extends Operator {
 		frequentSetsOutput.deliver(sets);
 	}
 
-	/**
-	 * Recursivly increases the frequencies of the next recursion level for
-	 * <code>startingNode</code> and all its descendants.
-	 * 
-	 * This is necessary for the constrained search of frequent item sets, where
-	 * only some branches of the fptree are mined, e.g. when searching for
-	 * itemsets which must contain a user-defined set of items.
-	 * 
-	 * Usually, the subtrees are reached via the sibling link of the header
-	 * items when mining the other branches of the tree. When they are filtered
-	 * away, this has to be done explicitly when adding matching items.
-	 * 
-	 * For more information see: Mining Frequent Patterns without Candidate
-	 * Generation: A Frequent-Pattern Tree Approach by Han, Pei, Yin and Mao
-	 * 2001.
-	 * 
-	 * For the note on constrained sets, see section 6.2.1: FP-tree mining with
-	 * constraints.
-	 * 
-	 * @param tree
-	 * @param startingNode
-	 * @param currentDepth
-	 */
-	private void recursivelyIncreaseFrequencyOfNextDepth(Map<Item, Header> headerTable, FPTreeNode startingNode, int currentDepth) {
-		int frequency = startingNode.getFrequency(currentDepth);
-		if (frequency > 0) {
-			startingNode.increaseFrequency(currentDepth + 1, frequency);
-			headerTable.get(startingNode.getNodeItem()).getFrequencies().increaseFrequency(currentDepth + 1, frequency);
-			for (FPTreeNode childNode : startingNode.getChildren().values()) {
-				recursivelyIncreaseFrequencyOfNextDepth(headerTable, childNode, currentDepth);
-			}
-		}
-	}
-
 	private ExampleSet preprocessExampleSet(ExampleSet exampleSet) {
 		// precomputing data properties
 		ExampleSet workingSet = (ExampleSet) exampleSet.clone();
@@ -336,74 +290,88 @@ public class FPGrowth extends Operator {
 		return workingSet;
 	}
 
-	private void mineTree(FPTree tree, FrequentItemSets sets, int recursionDepth, int minTotalSupport, int maxItems) throws ProcessStoppedException {
-		mineTree(tree, sets, recursionDepth, new FrequentItemSet(), minTotalSupport, maxItems);
+	/**
+	 * Mines the tree and adds the found item sets to the given sets. If more than one thread
+	 * should be used, the items of the header table are mined concurrently and the results
+	 * are added in the same order as if they were mined one after another.
+	 */
+	private void mineTree(final CompactFPTree tree, final int[] miningOrder, final Item[] rankedItems, FrequentItemSets sets, final int recursionDepth,
+			final FrequentItemSet conditionalItems, final int minTotalSupport, final int maxItems, int threads) throws OperatorException {
+		if (threads <= 1) {
+			List<FrequentItemSet> itemSets = new ArrayList<FrequentItemSet>();
+			mineTree(tree, miningOrder, rankedItems, itemSets, recursionDepth, conditionalItems, minTotalSupport, maxItems);
+			for (FrequentItemSet itemSet : itemSets) {
+				sets.addFrequentSet(itemSet);
+			}
+		} else {
+			checkForStop();
+			if (!tree.isEmpty()) {
+				if (maxItems > 0) {
+					if (recursionDepth >= maxItems) {
+						return;
+					}
+				}
+				List<Callable<List<FrequentItemSet>>> tasks = new ArrayList<Callable<List<FrequentItemSet>>>();
+				for (final int item : miningOrder) {
+					final int itemSupport = tree.getSupport(item);
+					if (itemSupport >= minTotalSupport && !conditionalItems.getItems().contains(rankedItems[item])) {
+						tasks.add(new Callable<List<FrequentItemSet>>() {
+
+							@Override
+							public List<FrequentItemSet> call() throws ProcessStoppedException {
+								List<FrequentItemSet> itemSets = new ArrayList<FrequentItemSet>();
+								mineItem(tree, item, itemSupport, miningOrder, rankedItems, itemSets, recursionDepth, conditionalItems, minTotalSupport, maxItems);
+								return itemSets;
+							}
+						});
+					}
+				}
+				for (List<FrequentItemSet> itemSets : ConcurrencyTools.invokeAll(tasks, threads, getName())) {
+					for (FrequentItemSet itemSet : itemSets) {
+						sets.addFrequentSet(itemSet);
+					}
+				}
+			}
+		}
 	}
 
-	private void mineTree(FPTree tree, FrequentItemSets sets, int recursionDepth, FrequentItemSet conditionalItems, int minTotalSupport, int maxItems)
-			throws ProcessStoppedException {
+	private void mineTree(CompactFPTree tree, int[] miningOrder, Item[] rankedItems, List<FrequentItemSet> sets, int recursionDepth, FrequentItemSet conditionalItems,
+			int minTotalSupport, int maxItems) throws ProcessStoppedException {
 		checkForStop();
-		if (!(treeIsEmpty(tree, recursionDepth))) {
+		if (!tree.isEmpty()) {
 			if (maxItems > 0) {
 				if (recursionDepth >= maxItems) {
 					return;
 				}
 			}
-			// recursively mine tree
-			Map<Item, Header> headerTable = tree.getHeaderTable();
-			Iterator<Map.Entry<Item, Header>> headerIterator = headerTable.entrySet().iterator();
-			while (headerIterator.hasNext()) {
-				Map.Entry<Item, Header> headerEntry = headerIterator.next();
-				Item item = headerEntry.getKey();
-				Header itemHeader = headerEntry.getValue();
+			// recursively mine tree in the order of the header table
+			for (int item : miningOrder) {
 				// check for minSupport
-				int itemSupport = itemHeader.getFrequencies().getFrequency(recursionDepth);
-				if (itemSupport >= minTotalSupport && !conditionalItems.getItems().contains(item)) {
-					// run over sibling chain
-					for (FPTreeNode node : itemHeader.getSiblingChain()) {
-						// and propagate frequency to root
-						int frequency = node.getFrequency(recursionDepth);
-						// if frequency is positive
-						if (frequency > 0) {
-							FPTreeNode currentNode = node.getFather();
-							while (currentNode != tree) {
-								// increase node frequency
-								currentNode.increaseFrequency(recursionDepth + 1, frequency);
-								// increase item frequency in headerTable
-								headerTable.get(currentNode.getNodeItem()).getFrequencies().increaseFrequency(recursionDepth + 1, frequency);
-								// go up in tree
-								currentNode = currentNode.getFather();
-							}
-						}
-					}
-					FrequentItemSet recursivConditionalItems = (FrequentItemSet) conditionalItems.clone();
-					// add item to conditional items
-					recursivConditionalItems.addItem(item, itemSupport);
-					// add this conditional items to frequentSets
-					sets.addFrequentSet(recursivConditionalItems);
-					// recursively mine new tree
-					mineTree(tree, sets, recursionDepth + 1, recursivConditionalItems, minTotalSupport, maxItems);
-					// run over sibling chain for popping frequency stack
-					for (FPTreeNode node : itemHeader.getSiblingChain()) {
-						// and remove propagation of frequency
-						FPTreeNode currentNode = node.getFather();
-						while (currentNode != tree) {
-							// pop frequency
-							currentNode.popFrequency(recursionDepth + 1);
-							// go up in tree
-							currentNode = currentNode.getFather();
-						}
-					}
-					// pop frequencies of every header table on current
-					// recursion depth
-					for (Header currentItemHeader : headerTable.values()) {
-						currentItemHeader.getFrequencies().popFrequency(recursionDepth + 1);
-					}
+				int itemSupport = tree.getSupport(item);
+				if (itemSupport >= minTotalSupport && !conditionalItems.getItems().contains(rankedItems[item])) {
+					mineItem(tree, item, itemSupport, miningOrder, rankedItems, sets, recursionDepth, conditionalItems, minTotalSupport, maxItems);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Adds the conditional items extended by the given item to the sets and mines the
+	 * conditional tree of this item.
+	 */
+	private void mineItem(CompactFPTree tree, int item, int itemSupport, int[] miningOrder, Item[] rankedItems, List<FrequentItemSet> sets, int recursionDepth,
+			FrequentItemSet conditionalItems, int minTotalSupport, int maxItems) throws ProcessStoppedException {
+		FrequentItemSet recursivConditionalItems = (FrequentItemSet) conditionalItems.clone();
+		// add item to conditional items
+		recursivConditionalItems.addItem(rankedItems[item], itemSupport);
+		// add this conditional items to frequentSets
+		sets.add(recursivConditionalItems);
+		// recursively mine conditional tree unless the maximal number of items is reached
+		if (maxItems <= 0 || recursionDepth + 1 < maxItems) {
+			mineTree(tree.getConditionalTree(item, minTotalSupport), miningOrder, rankedItems, sets, recursionDepth + 1, recursivConditionalItems, minTotalSupport, maxItems);
+		}
+	}
+
 	/**
 	 * Removes every non boolean attribute.
 	 * 
@@ -477,39 +445,78 @@ public class FPGrowth extends Operator {
 	}
 
 	/**
-	 * Returns a new FPTree, representing the complete ExampleSet.
+	 * Returns the items whose attribute names match the must contain parameter in the
+	 * order of the given mapping.
+	 */
+	private List<Item> getMandatoryItems(Map<Attribute, Item> mapping) throws UndefinedParameterError {
+		List<Item> mandatoryItems = new ArrayList<Item>();
+		String mustContainItems = getParameterAsString(PARAMETER_MUST_CONTAIN);
+		if (mustContainItems != null && !mustContainItems.isEmpty()) {
+			Pattern pattern = Pattern.compile(mustContainItems);
+			for (Entry<Attribute, Item> attributeEntry : mapping.entrySet()) {
+				if (pattern.matcher(attributeEntry.getKey().getName()).matches()) {
+					mandatoryItems.add(attributeEntry.getValue());
+				}
+			}
+		}
+		return mandatoryItems;
+	}
+
+	/**
+	 * Returns a new FPTree, representing the transactions of the ExampleSet which contain
+	 * all mandatory items. Only the frequent items which are not mandatory are added.
 	 * 
 	 * @param exampleSet
 	 *            is the exampleSet, which shall be represented
-	 * @param mapping
-	 *            is the mapping of attributes of the exampleSet to items
+	 * @param attributeRanks
+	 *            is the rank of the item of every attribute in the sorted items
+	 * @param mandatorySupports
+	 *            is filled with the number of transactions containing the first i + 1
+	 *            mandatory items
+	 * @param headerTable
+	 *            is filled with the ranks of all items in the order of their first
+	 *            occurrence, which is the order the items are mined in
 	 */
-	private FPTree getFPTree(ExampleSet exampleSet, Attribute[] attributes, double[] positiveIndices, Map<Attribute, Item> mapping) {
-		FPTree tree = new FPTree();
+	private CompactFPTree getFPTree(ExampleSet exampleSet, Attribute[] attributes, double[] positiveIndices, int[] attributeRanks, Item[] rankedItems,
+			int numberOfFrequentItems, int[] mandatoryRanks, int[] mandatorySupports, Map<Item, Integer> headerTable) {
+		CompactFPTree tree = new CompactFPTree(numberOfFrequentItems);
+		boolean[] isMandatory = new boolean[rankedItems.length];
+		for (int rank : mandatoryRanks) {
+			isMandatory[rank] = true;
+		}
+		int[] itemSet = new int[attributes.length];
 		for (Example currentExample : exampleSet) {
-			List<Item> itemSet = new ArrayList<Item>();
-			int i = 0;
-			for (Attribute currentAttribute : attributes) {
-				if (currentExample.getValue(currentAttribute) == positiveIndices[i]) {
-					itemSet.add(mapping.get(currentAttribute));
+			int length = 0;
+			for (int i = 0; i < attributes.length; i++) {
+				if (currentExample.getValue(attributes[i]) == positiveIndices[i]) {
+					itemSet[length++] = attributeRanks[i];
+				}
+			}
+			Arrays.sort(itemSet, 0, length);
+			for (int i = 0; i < length; i++) {
+				if (!headerTable.containsKey(rankedItems[itemSet[i]])) {
+					headerTable.put(rankedItems[itemSet[i]], itemSet[i]);
 				}
-				i++;
 			}
-			Collections.sort(itemSet);
-			tree.addItemSet(itemSet, 1);
-		}
-		return tree;
-	}
 
-	private boolean treeIsEmpty(FPTree tree, int recursionDepth) {
-		// tree is empty if every child of rootnode has frequency of 0 on top of
-		// stack
-		for (FPTreeNode node : tree.getChildren().values()) {
-			if (node.getFrequency(recursionDepth) > 0) {
-				return false;
+			// counting transactions containing the mandatory items
+			int numberOfMandatoryItems = 0;
+			while (numberOfMandatoryItems < mandatoryRanks.length && Arrays.binarySearch(itemSet, 0, length, mandatoryRanks[numberOfMandatoryItems]) >= 0) {
+				mandatorySupports[numberOfMandatoryItems]++;
+				numberOfMandatoryItems++;
+			}
+			if (numberOfMandatoryItems == mandatoryRanks.length) {
+				int treeLength = 0;
+				for (int i = 0; i < length && itemSet[i] < numberOfFrequentItems; i++) {
+					if (!isMandatory[itemSet[i]]) {
+						itemSet[treeLength++] = itemSet[i];
+					}
+				}
+				tree.addItemSet(itemSet, treeLength, 1);
 			}
 		}
-		return true;
+		tree.trimToSize();
+		return tree;
 	}
 
 	@Override
@@ -543,6 +550,7 @@ public class FPGrowth extends Operator {
 		types.add(new ParameterTypeDouble(PARAMETER_MIN_SUPPORT, "The minimal support necessary in order to be a frequent item (set).", 0.0d, 1.0d, 0.95d));
 		types.add(new ParameterTypeInt(PARAMETER_MAX_ITEMS, "The upper bound for the length of the item sets (-1: no upper bound)", -1, Integer.MAX_VALUE, -1));
 		types.add(new ParameterTypeString(PARAMETER_MUST_CONTAIN, "The items any generated rule must contain as regular expression. Empty if none."));
+		types.add(new ParameterTypeBoolean(PARAMETER_PARALLEL_EXECUTION, "Indicates if the item sets starting with the different frequent items should be mined concurrently.", false));
 
 		type = new ParameterTypeBoolean(PARAMETER_KEEP_EXAMPLE_SET, "indicates if example set is kept", false);
 		type.setDeprecated();
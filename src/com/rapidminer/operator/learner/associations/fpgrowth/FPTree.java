@@ -33,7 +33,10 @@ import com.rapidminer.tools.Tools;
  * This is the basic data structure for {@link FPGrowth}.
  * 
  * @author Sebastian Land
+ * @deprecated {@link FPGrowth} stores its trees in arrays and no longer uses this class. It will
+ * be removed in the next release.
  */
+@Deprecated
 public class FPTree extends FPTreeNode {
 
 	private Map<Item, Header> headerTable;
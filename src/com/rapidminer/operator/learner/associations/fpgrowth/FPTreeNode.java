@@ -35,7 +35,10 @@ import com.rapidminer.tools.Tools;
  * A node in the FPTree.
  * 
  * @author Sebastian Land
+ * @deprecated {@link FPGrowth} stores its trees in arrays and no longer uses this class. It will
+ * be removed in the next release.
  */
+@Deprecated
 public class FPTreeNode {
 
 	protected FrequencyStack frequencies;
@@ -26,7 +26,10 @@ package com.rapidminer.operator.learner.associations.fpgrowth;
  * A stack for frequencies.
  * 
  * @author Sebastian Land
+ * @deprecated {@link FPGrowth} stores its trees in arrays and no longer uses this interface. It will
+ * be removed in the next release.
  */
+@Deprecated
 public interface FrequencyStack {
 
 	/**
@@ -30,7 +30,10 @@ import java.util.List;
  * An entry in the header table.
  * 
  * @author Sebastian Land
+ * @deprecated {@link FPGrowth} stores its trees in arrays and no longer uses this class. It will
+ * be removed in the next release.
  */
+@Deprecated
 public class Header {
 
 	FrequencyStack frequencies;
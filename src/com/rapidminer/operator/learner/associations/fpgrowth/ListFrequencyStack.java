@@ -28,7 +28,10 @@ import java.util.LinkedList;
  * A frequency stack based on a list implementation.
  * 
  * @author Sebastian Land
+ * @deprecated {@link FPGrowth} stores its trees in arrays and no longer uses this class. It will
+ * be removed in the next release.
  */
+@Deprecated
 public class ListFrequencyStack implements FrequencyStack {
 
 	private LinkedList<Integer> list;
@@ -326,6 +326,16 @@ public class SimpleDistributionModel extends DistributionModel {
 		modelRecentlyUpdated = true;
 	}
 
+	/**
+	 * Updates the distribution properties if the model has been updated since the last calculation. Synchronized
+	 * since the prediction may be performed by several threads.
+	 */
+	private synchronized void checkDistributionProperties() {
+		if (modelRecentlyUpdated) {
+			updateDistributionProperties();
+		}
+	}
+
 	/**
 	 * Updates the distribution properties by calculating the logged probabilities and distribution parameters on the
 	 * basis of the weight counters.
@@ -365,9 +375,7 @@ public class SimpleDistributionModel extends DistributionModel {
 
 	@Override
 	public ExampleSet performPrediction(ExampleSet exampleSet, Attribute predictedLabel) {
-		if (modelRecentlyUpdated) {
-			updateDistributionProperties();
-		}
+		checkDistributionProperties();
 		double[] probabilities = new double[numberOfClasses];
 		for (Example example : exampleSet) {
 			double maxLogProbability = Double.NEGATIVE_INFINITY;
@@ -532,6 +540,11 @@ public class SimpleDistributionModel extends DistributionModel {
 		return priors;
 	}
 	
+	@Override
+	public boolean supportsParallelPrediction() {
+		return true;
+	}
+
 	@Override
 	public String toString() {
 		if (modelRecentlyUpdated) {
@@ -122,6 +122,11 @@ public class LinearRegressionModel extends PredictionModel {
 		return exampleSet;
 	}
 		
+	@Override
+	public boolean supportsParallelPrediction() {
+		return true;
+	}
+
 	@Override
 	public String toString() {
 		StringBuffer result = new StringBuffer();
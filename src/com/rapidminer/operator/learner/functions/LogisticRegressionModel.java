@@ -77,6 +77,11 @@ public class LogisticRegressionModel extends SimpleBinaryPredictionModel {
         return Math.exp(eta) / (1 + Math.exp(eta));
     }
     
+	@Override
+	public boolean supportsParallelPrediction() {
+		return true;
+	}
+
     @Override
 	public String toString() {
     	StringBuffer result = new StringBuffer();
@@ -165,6 +165,12 @@ public class KNNClassificationModel extends UpdateablePredictionModel {
 		}
 	}
 
+	/** The nearest neighbour search does not change the stored samples. */
+	@Override
+	public boolean supportsParallelPrediction() {
+		return true;
+	}
+
 	@Override
 	public String toString() {
 		StringBuffer buffer = new StringBuffer();
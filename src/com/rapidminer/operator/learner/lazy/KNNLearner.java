@@ -39,9 +39,10 @@ import com.rapidminer.operator.ports.metadata.DistanceMeasurePrecondition;
 import com.rapidminer.parameter.ParameterType;
 import com.rapidminer.parameter.ParameterTypeBoolean;
 import com.rapidminer.parameter.ParameterTypeInt;
+import com.rapidminer.parameter.UndefinedParameterError;
 import com.rapidminer.tools.OperatorResourceConsumptionHandler;
 import com.rapidminer.tools.math.container.GeometricDataCollection;
-import com.rapidminer.tools.math.container.LinearList;
+import com.rapidminer.tools.math.container.GeometricDataCollections;
 import com.rapidminer.tools.math.similarity.DistanceMeasure;
 import com.rapidminer.tools.math.similarity.DistanceMeasureHelper;
 import com.rapidminer.tools.math.similarity.DistanceMeasures;
@@ -73,9 +74,10 @@ public class KNNLearner extends AbstractLearner {
 	public Model learn(ExampleSet exampleSet) throws OperatorException {		
 		DistanceMeasure measure = measureHelper.getInitializedMeasure(exampleSet);
 		Attribute label = exampleSet.getAttributes().getLabel();
+		int indexStructure = getIndexStructure(measure);
 		if (label.isNominal()) {
 			// classification
-			GeometricDataCollection<Integer> samples = new LinearList<Integer>(measure);
+			GeometricDataCollection<Integer> samples = GeometricDataCollections.createCollection(indexStructure, measure, exampleSet.getAttributes().size());
 
 			Attributes attributes = exampleSet.getAttributes();
 
@@ -94,7 +96,7 @@ public class KNNLearner extends AbstractLearner {
 			return new KNNClassificationModel(exampleSet, samples, getParameterAsInt(PARAMETER_K), getParameterAsBoolean(PARAMETER_WEIGHTED_VOTE));
 		} else {
 			// regression
-			GeometricDataCollection<Double> samples = new LinearList<Double>(measure);
+			GeometricDataCollection<Double> samples = GeometricDataCollections.createCollection(indexStructure, measure, exampleSet.getAttributes().size());
 			Attributes attributes = exampleSet.getAttributes();
 
 			int valuesSize = attributes.size();
@@ -113,6 +115,16 @@ public class KNNLearner extends AbstractLearner {
 		}
 	}
 
+	/** Returns the selected index structure or the linear search if the selected one does not support the measure. */
+	private int getIndexStructure(DistanceMeasure measure) throws UndefinedParameterError {
+		int indexStructure = GeometricDataCollections.getSelectedIndexStructure(this);
+		if (!GeometricDataCollections.supportsDistanceMeasure(indexStructure, measure)) {
+			logWarning("The " + GeometricDataCollections.INDEX_STRUCTURES[indexStructure] + " cannot be used with the " + measure + ", using linear search.");
+			return GeometricDataCollections.INDEX_STRUCTURE_LINEAR_SEARCH;
+		}
+		return indexStructure;
+	}
+
 	@Override
 	public Class<? extends PredictionModel> getModelClass() {
 		//TODO: Needs to unify models in order to return common class
@@ -157,6 +169,7 @@ public class KNNLearner extends AbstractLearner {
 		types.add(new ParameterTypeBoolean(PARAMETER_WEIGHTED_VOTE, "Indicates if the votes should be weighted by similarity.", false, false));
 
 		types.addAll(DistanceMeasures.getParameterTypes(this));
+		types.add(GeometricDataCollections.getParameterType());
 		return types;
 	}
 	
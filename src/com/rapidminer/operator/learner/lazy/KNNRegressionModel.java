@@ -149,6 +149,12 @@ public class KNNRegressionModel extends UpdateablePredictionModel {
 		}
 	}
 
+	/** The nearest neighbour search does not change the stored samples. */
+	@Override
+	public boolean supportsParallelPrediction() {
+		return true;
+	}
+
 	@Override
 	public String toString() {
 		StringBuffer buffer = new StringBuffer();
@@ -101,6 +101,20 @@ public class SimpleVoteModel extends SimplePredictionModel implements MetaModel
 		}
 	}
 
+	/** Only numerical predictions are supported, since ties between nominal votes are broken randomly. */
+	@Override
+	public boolean supportsParallelPrediction() {
+		if (getLabel().isNominal()) {
+			return false;
+		}
+		for (SimplePredictionModel model : baseModels) {
+			if (!model.supportsParallelPrediction()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	@Override
 	public String toString() {
 		StringBuffer buffer = new StringBuffer();
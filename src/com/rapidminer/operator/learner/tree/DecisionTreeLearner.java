@@ -22,6 +22,7 @@
  */
 package com.rapidminer.operator.learner.tree;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -29,10 +30,12 @@ import com.rapidminer.example.ExampleSet;
 import com.rapidminer.operator.OperatorCapability;
 import com.rapidminer.operator.OperatorDescription;
 import com.rapidminer.operator.OperatorException;
+import com.rapidminer.operator.learner.tree.criterions.Criterion;
 import com.rapidminer.parameter.ParameterType;
 import com.rapidminer.parameter.ParameterTypeBoolean;
 import com.rapidminer.parameter.ParameterTypeDouble;
 import com.rapidminer.parameter.ParameterTypeInt;
+import com.rapidminer.tools.ConcurrencyTools;
 
 /**
  * <p>This operator learns decision trees from both nominal and numerical data.
@@ -63,6 +66,8 @@ public class DecisionTreeLearner extends AbstractTreeLearner {
 
     public static final String PARAMETER_NUMBER_OF_PREPRUNING_ALTERNATIVES = "number_of_prepruning_alternatives";
 
+    public static final String PARAMETER_PARALLEL_EXECUTION = "parallel_execution";
+
 
     public DecisionTreeLearner(OperatorDescription description) {
         super(description);
@@ -110,10 +115,26 @@ public class DecisionTreeLearner extends AbstractTreeLearner {
 
     @Override
     protected TreeBuilder getTreeBuilder(ExampleSet exampleSet) throws OperatorException {
+        TreeBuilder builder = createTreeBuilder(exampleSet, getSplitPreprocessing());
+        if (getParameterAsBoolean(PARAMETER_PARALLEL_EXECUTION)) {
+            int threads = ConcurrencyTools.getNumberOfThreads();
+            if (threads > 1) {
+                List<Criterion> criteria = new ArrayList<Criterion>(threads);
+                for (int i = 0; i < threads; i++) {
+                    criteria.add(createCriterion(getParameterAsDouble(PARAMETER_MINIMAL_GAIN)));
+                }
+                builder.setParallelCriteria(criteria);
+            }
+        }
+        return builder;
+    }
+
+    /** Creates a tree builder for the given example set which applies the given split preprocessing. */
+    protected TreeBuilder createTreeBuilder(ExampleSet exampleSet, SplitPreprocessing preprocessing) throws OperatorException {
         return new TreeBuilder(createCriterion(getParameterAsDouble(PARAMETER_MINIMAL_GAIN)),
                 getTerminationCriteria(exampleSet),
                 getPruner(),
-                getSplitPreprocessing(),
+                preprocessing,
                 new DecisionTreeLeafCreator(),
                 getParameterAsBoolean(PARAMETER_NO_PRE_PRUNING),
                 getParameterAsInt(PARAMETER_NUMBER_OF_PREPRUNING_ALTERNATIVES),
@@ -134,6 +155,7 @@ public class DecisionTreeLearner extends AbstractTreeLearner {
         types.add(new ParameterTypeInt(PARAMETER_NUMBER_OF_PREPRUNING_ALTERNATIVES, "The number of alternative nodes tried when prepruning would prevent a split.", 0, Integer.MAX_VALUE, 3));
         types.add(new ParameterTypeBoolean(PARAMETER_NO_PRE_PRUNING, "Disables the pre pruning and delivers a tree without any prepruning.", false));
         types.add(new ParameterTypeBoolean(PARAMETER_NO_PRUNING, "Disables the pruning and delivers an unpruned tree.", false));
+        types.add(new ParameterTypeBoolean(PARAMETER_PARALLEL_EXECUTION, "Indicates if the computation should be distributed over several threads. Decision trees evaluate the attributes of large nodes concurrently, random forests grow their trees concurrently.", false));
 
         return types;
     }
@@ -48,7 +48,17 @@ public class NumericalSplitter {
     }
     
     public double getBestSplit(ExampleSet inputSet, Attribute attribute) throws OperatorException {
-        SortedExampleSet exampleSet = new SortedExampleSet((ExampleSet)inputSet.clone(), attribute, SortedExampleSet.INCREASING);
+        return getBestSplit(new SortedExampleSet((ExampleSet)inputSet.clone(), attribute, SortedExampleSet.INCREASING), attribute);
+    }
+    
+    /** Calculates the best split point for the given attribute where the examples are 
+     *  not sorted again but visited in the order of the given positions. These must
+     *  be the positions of the examples sorted stably by increasing attribute values. */
+    public double getBestSplit(ExampleSet inputSet, Attribute attribute, int[] sortedPositions) throws OperatorException {
+        return getBestSplit(new SortedExampleSet(inputSet, sortedPositions), attribute);
+    }
+    
+    private double getBestSplit(SortedExampleSet exampleSet, Attribute attribute) throws OperatorException {
         // Attribute labelAttribute = exampleSet.getAttributes().getLabel(); // see bug report 952
         //double oldLabel = Double.NaN; // see bug report 952
         double bestSplit = Double.NaN;
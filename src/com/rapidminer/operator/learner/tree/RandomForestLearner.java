@@ -22,10 +22,13 @@
  */
 package com.rapidminer.operator.learner.tree;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import com.rapidminer.example.ExampleSet;
+import com.rapidminer.example.set.MappedExampleSet;
 import com.rapidminer.operator.Model;
 import com.rapidminer.operator.OperatorCapability;
 import com.rapidminer.operator.OperatorCreationException;
@@ -35,11 +38,18 @@ import com.rapidminer.operator.learner.PredictionModel;
 import com.rapidminer.operator.preprocessing.sampling.BootstrappingOperator;
 import com.rapidminer.parameter.ParameterType;
 import com.rapidminer.parameter.ParameterTypeInt;
+import com.rapidminer.tools.ConcurrencyTools;
 import com.rapidminer.tools.OperatorService;
+import com.rapidminer.tools.RandomGenerator;
 
 /**
  * This operators learns a random forest. The resulting forest model contains several 
  * single random tree models.
+ * 
+ * If parallel execution is enabled, the trees are grown concurrently. The bootstrap sample
+ * and the attribute subsets of each tree are then drawn by random generators whose seeds
+ * are derived from the random generator of this operator before the trees are grown. Hence
+ * the forest does not depend on the number of used threads.
  *
  * @author Ingo Mierswa, Sebastian Land
  */
@@ -59,6 +69,9 @@ public class RandomForestLearner extends RandomTreeLearner {
 
 	@Override
 	public Model learn(ExampleSet exampleSet) throws OperatorException {
+		if (getParameterAsBoolean(PARAMETER_PARALLEL_EXECUTION)) {
+			return learnConcurrently(exampleSet);
+		}
 		BootstrappingOperator bootstrapping = null;
 		try {
 			bootstrapping = OperatorService.createOperator(BootstrappingOperator.class);
@@ -82,6 +95,45 @@ public class RandomForestLearner extends RandomTreeLearner {
 		return new RandomForestModel(exampleSet, baseModels);
 	}
 
+	/** Grows the trees concurrently. Each tree uses its own random generators and tree builder. */
+	private Model learnConcurrently(final ExampleSet exampleSet) throws OperatorException {
+		int numberOfTrees = getParameterAsInt(PARAMETER_NUMBER_OF_TREES);
+		RandomGenerator random = RandomGenerator.getRandomGenerator(this);
+		List<Callable<TreeModel>> tasks = new ArrayList<Callable<TreeModel>>(numberOfTrees);
+		for (int i = 0; i < numberOfTrees; i++) {
+			final RandomGenerator samplingRandom = new RandomGenerator(random.nextLong());
+			final TreeBuilder builder = createTreeBuilder(exampleSet, getSplitPreprocessing(new RandomGenerator(random.nextLong())));
+			tasks.add(new Callable<TreeModel>() {
+				@Override
+				public TreeModel call() throws Exception {
+					int[] mapping = MappedExampleSet.createBootstrappingMapping(exampleSet, exampleSet.size(), samplingRandom);
+					ExampleSet sample = new MappedExampleSet(exampleSet, mapping, true);
+					return new TreeModel(sample, builder.learnTree(sample));
+				}
+			});
+		}
+
+		List<TreeModel> baseModels;
+		if (ConcurrencyTools.isWorkerThread()) {
+			baseModels = new LinkedList<TreeModel>();
+			for (Callable<TreeModel> task : tasks) {
+				try {
+					baseModels.add(task.call());
+				} catch (Exception e) {
+					ConcurrencyTools.throwCause(e);
+				}
+			}
+		} else {
+			int threads = Math.min(numberOfTrees, ConcurrencyTools.getNumberOfThreads());
+			getLogger().fine("Learning " + numberOfTrees + " trees in " + threads + " threads.");
+			baseModels = ConcurrencyTools.invokeAll(tasks, threads, getName());
+		}
+		for (TreeModel model : baseModels) {
+			model.setSource(getName());
+		}
+		return new RandomForestModel(exampleSet, baseModels);
+	}
+
 	@Override
 	public boolean supportsCapability(OperatorCapability capability) {
 		if (capability == com.rapidminer.operator.OperatorCapability.BINOMINAL_ATTRIBUTES)
@@ -0,0 +1,184 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.operator.learner.tree;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.rapidminer.example.Attribute;
+import com.rapidminer.example.Example;
+import com.rapidminer.example.ExampleSet;
+import com.rapidminer.example.set.SplittedExampleSet;
+import com.rapidminer.example.table.MappedExampleTable;
+import com.rapidminer.tools.Ontology;
+
+/**
+ * Keeps for each numerical attribute the positions of the examples of a tree node
+ * sorted by increasing attribute values. The examples are sorted only once for the
+ * root of the tree; the indices of the child nodes are derived by a stable filter of
+ * the parent index in linear time. Ties are ordered by the position of the example,
+ * hence the order of each node is exactly the one of a stable sort of the node itself
+ * and the found splits do not differ from sorting the examples at each node.
+ */
+class SortedAttributeIndex {
+
+	/** Maps the attribute names onto the sorted positions of the node examples. */
+	private final Map<String, int[]> sortedPositions;
+
+	private SortedAttributeIndex(Map<String, int[]> sortedPositions) {
+		this.sortedPositions = sortedPositions;
+	}
+
+	/** Returns the sorted positions of the node examples for the given attribute or null
+	 *  if no index is kept for this attribute. */
+	public int[] getSortedPositions(Attribute attribute) {
+		return sortedPositions.get(attribute.getName());
+	}
+
+	/**
+	 * Derives the indices of all subsets of the given example set which must be splitted
+	 * from the example set of this node. Only attributes which are still part of the splitted
+	 * example set are kept. The index of this node is discarded afterwards since at most the
+	 * indices of the pending children have to be kept in memory.
+	 */
+	public SortedAttributeIndex[] split(SplittedExampleSet splitted) {
+		int numberOfSubsets = splitted.getNumberOfSubsets();
+		SortedAttributeIndex[] children = new SortedAttributeIndex[numberOfSubsets];
+		for (int s = 0; s < numberOfSubsets; s++) {
+			children[s] = new SortedAttributeIndex(new HashMap<String, int[]>());
+		}
+		if (sortedPositions.isEmpty()) {
+			return children;
+		}
+
+		int parentSize = sortedPositions.values().iterator().next().length;
+		int[] subsetOfPosition = new int[parentSize];
+		int[] childPosition = new int[parentSize];
+		int[] subsetSizes = new int[numberOfSubsets];
+		for (int s = 0; s < numberOfSubsets; s++) {
+			splitted.selectSingleSubset(s);
+			subsetSizes[s] = splitted.size();
+			for (int i = 0; i < subsetSizes[s]; i++) {
+				int parentIndex = splitted.getActualParentIndex(i);
+				subsetOfPosition[parentIndex] = s;
+				childPosition[parentIndex] = i;
+			}
+		}
+
+		for (Attribute attribute : splitted.getAttributes()) {
+			int[] positions = sortedPositions.get(attribute.getName());
+			if (positions == null) {
+				continue;
+			}
+			int[][] filtered = new int[numberOfSubsets][];
+			for (int s = 0; s < numberOfSubsets; s++) {
+				filtered[s] = new int[subsetSizes[s]];
+			}
+			int[] counters = new int[numberOfSubsets];
+			for (int position : positions) {
+				int s = subsetOfPosition[position];
+				filtered[s][counters[s]++] = childPosition[position];
+			}
+			for (int s = 0; s < numberOfSubsets; s++) {
+				children[s].sortedPositions.put(attribute.getName(), filtered[s]);
+			}
+		}
+		sortedPositions.clear();
+		return children;
+	}
+
+	/** Returns true if the values of the given attribute can be kept in a sorted index. */
+	public static boolean isSortable(Attribute attribute) {
+		return attribute.isNumerical() && !Ontology.ATTRIBUTE_VALUE_TYPE.isA(attribute.getValueType(), Ontology.DATE_TIME);
+	}
+
+	/**
+	 * Sorts the examples once for each numerical regular attribute of the given example set.
+	 * Returns null if the indices of the node and its pending children are not expected to fit
+	 * into the free heap. In this case the examples should be sorted at each node.
+	 */
+	public static SortedAttributeIndex create(ExampleSet exampleSet) {
+		int numberOfSortable = 0;
+		for (Attribute attribute : exampleSet.getAttributes()) {
+			if (isSortable(attribute)) {
+				numberOfSortable++;
+			}
+		}
+		// an index needs four bytes per value, the pending children at most the same amount again
+		if (MappedExampleTable.exceedsHeap(exampleSet.size(), numberOfSortable)) {
+			return null;
+		}
+		Map<String, int[]> sortedPositions = new HashMap<String, int[]>();
+		int size = exampleSet.size();
+		double[] values = new double[size];
+		for (Attribute attribute : exampleSet.getAttributes()) {
+			if (isSortable(attribute)) {
+				Iterator<Example> reader = exampleSet.iterator();
+				for (int i = 0; i < size; i++) {
+					values[i] = reader.next().getNumericalValue(attribute);
+				}
+				sortedPositions.put(attribute.getName(), sort(values));
+			}
+		}
+		return new SortedAttributeIndex(sortedPositions);
+	}
+
+	/** Returns the positions of the given values sorted stably in increasing order with
+	 *  respect to {@link Double#compare(double, double)}. */
+	private static int[] sort(double[] values) {
+		int[] positions = new int[values.length];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = i;
+		}
+		int[] buffer = new int[values.length];
+		// bottom up merge sort, the left run wins ties and keeps the order stable
+		for (int width = 1; width < positions.length; width *= 2) {
+			for (int low = 0; low < positions.length - width; low += 2 * width) {
+				int middle = low + width;
+				int high = Math.min(low + 2 * width, positions.length);
+				if (Double.compare(values[positions[middle - 1]], values[positions[middle]]) <= 0) {
+					continue;
+				}
+				int left = low;
+				int right = middle;
+				int target = low;
+				while (left < middle && right < high) {
+					if (Double.compare(values[positions[right]], values[positions[left]]) < 0) {
+						buffer[target++] = positions[right++];
+					} else {
+						buffer[target++] = positions[left++];
+					}
+				}
+				while (left < middle) {
+					buffer[target++] = positions[left++];
+				}
+				while (right < high) {
+					buffer[target++] = positions[right++];
+				}
+				System.arraycopy(buffer, low, positions, low, high - low);
+			}
+		}
+		return positions;
+	}
+}
@@ -22,15 +22,21 @@
  */
 package com.rapidminer.operator.learner.tree;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 import com.rapidminer.example.Attribute;
 import com.rapidminer.example.ExampleSet;
 import com.rapidminer.example.set.SplittedExampleSet;
 import com.rapidminer.operator.OperatorException;
 import com.rapidminer.operator.learner.tree.criterions.Criterion;
+import com.rapidminer.tools.ConcurrencyTools;
 
 /**
  * Build a tree from an example set.
@@ -39,6 +45,9 @@ import com.rapidminer.operator.learner.tree.criterions.Criterion;
  */
 public class TreeBuilder {
 	
+	/** The minimal number of examples of a node for which the benefits are calculated concurrently. */
+	private static final int MIN_EXAMPLES_FOR_PARALLEL_BENEFITS = 1000;
+	
 	protected Terminator minLeafSizeTerminator;
 
 	private List<Terminator> otherTerminators;
@@ -59,6 +68,16 @@ public class TreeBuilder {
 	
 	protected boolean usePrePruning = true;
 	
+	/** The sorted index of the node whose benefits are currently calculated. Might be null. */
+	private SortedAttributeIndex currentSortedIndex = null;
+	
+	/** Criteria used for the concurrent calculation of benefits, one for each thread. Might be null. */
+	private List<Criterion> parallelCriteria = null;
+	
+	/** The pool calculating the benefits concurrently while a tree is learned. Created once by
+	 *  {@link #learnTree(ExampleSet)} and used for all nodes. Null if benefits are calculated sequentially. */
+	private ExecutorService benefitExecutor = null;
+	
 	
 	public TreeBuilder(Criterion criterion, 
 			List<Terminator> terminationCriteria, 
@@ -85,13 +104,37 @@ public class TreeBuilder {
 	}
 
 	
+	/** Enables the concurrent calculation of the benefits of all attributes of a node. Since 
+	 *  criteria keep the state of incremental calculations, one criterion of the same type as
+	 *  the criterion of this builder must be given for each thread. The benefits are then 
+	 *  calculated by the given criteria and {@link #calculateBenefit(ExampleSet, Attribute)}
+	 *  is not invoked, hence subclasses overriding this method should not use this option. */
+	public void setParallelCriteria(List<Criterion> criteria) {
+		if (criteria != null && criteria.size() > 1) {
+			this.parallelCriteria = criteria;
+		} else {
+			this.parallelCriteria = null;
+		}
+	}
+	
 	public Tree learnTree(ExampleSet exampleSet) throws OperatorException {
 		// grow tree
 		Tree root = new Tree((ExampleSet)exampleSet.clone());
 		if (shouldStop(exampleSet, 0)) {
 			leafCreator.changeTreeToLeaf(root, exampleSet);
 		} else {
-			buildTree(root, exampleSet, 1);
+			if (parallelCriteria != null && exampleSet.size() >= MIN_EXAMPLES_FOR_PARALLEL_BENEFITS && 
+					exampleSet.getAttributes().size() > 1 && !ConcurrencyTools.isWorkerThread()) {
+				benefitExecutor = ConcurrencyTools.createExecutorService(parallelCriteria.size(), "Benefit calculation");
+			}
+			try {
+				buildTree(root, exampleSet, 1, SortedAttributeIndex.create(exampleSet));
+			} finally {
+				if (benefitExecutor != null) {
+					benefitExecutor.shutdown();
+					benefitExecutor = null;
+				}
+			}
 		}
 
 		// prune
@@ -105,11 +148,21 @@ public class TreeBuilder {
 	 *  utilizes the defined {@link Criterion}. Subclasses might want to override this
 	 *  method in order to calculate the benefit in other ways. */
 	public Benefit calculateBenefit(ExampleSet trainingSet, Attribute attribute) throws OperatorException {		
+		return calculateBenefit(trainingSet, attribute, criterion, splitter);
+	}
+	
+	private Benefit calculateBenefit(ExampleSet trainingSet, Attribute attribute, Criterion criterion, NumericalSplitter splitter) throws OperatorException {		
 		if (attribute.isNominal()) {
 			return new Benefit(criterion.getNominalBenefit(trainingSet, attribute), attribute);
 		} else {
 			// numerical attribute
-			double splitValue = splitter.getBestSplit(trainingSet, attribute);
+			double splitValue;
+			int[] sortedPositions = currentSortedIndex != null ? currentSortedIndex.getSortedPositions(attribute) : null;
+			if (sortedPositions != null && sortedPositions.length == trainingSet.size()) {
+				splitValue = splitter.getBestSplit(trainingSet, attribute, sortedPositions);
+			} else {
+				splitValue = splitter.getBestSplit(trainingSet, attribute);
+			}
 			if (!Double.isNaN(splitValue))
 				return new Benefit(criterion.getNumericalBenefit(trainingSet, attribute, splitValue), attribute, splitValue);
 			else
@@ -130,6 +183,10 @@ public class TreeBuilder {
 	}
 
 	protected Vector<Benefit> calculateAllBenefits(ExampleSet trainingSet) throws OperatorException {
+		if (benefitExecutor != null && trainingSet.size() >= MIN_EXAMPLES_FOR_PARALLEL_BENEFITS && 
+				trainingSet.getAttributes().size() > 1) {
+			return calculateAllBenefitsConcurrently(trainingSet);
+		}
 		Vector<Benefit> benefits = new Vector<Benefit>();
 		for (Attribute attribute : trainingSet.getAttributes()) {
 			Benefit currentBenefit = calculateBenefit(trainingSet, attribute);
@@ -140,7 +197,40 @@ public class TreeBuilder {
 		return benefits;
 	}
 	
+	/** Calculates the benefits of all attributes by the parallel criteria. The benefits are 
+	 *  returned in the order of the attributes like in the sequential calculation. */
+	private Vector<Benefit> calculateAllBenefitsConcurrently(final ExampleSet trainingSet) throws OperatorException {
+		final BlockingQueue<Criterion> criteria = new ArrayBlockingQueue<Criterion>(parallelCriteria.size(), false, parallelCriteria);
+		List<Callable<Benefit>> tasks = new ArrayList<Callable<Benefit>>(trainingSet.getAttributes().size());
+		for (final Attribute attribute : trainingSet.getAttributes()) {
+			tasks.add(new Callable<Benefit>() {
+				@Override
+				public Benefit call() throws Exception {
+					Criterion taskCriterion = criteria.take();
+					try {
+						return calculateBenefit(trainingSet, attribute, taskCriterion, new NumericalSplitter(taskCriterion));
+					} finally {
+						criteria.put(taskCriterion);
+					}
+				}
+			});
+		}
+		Vector<Benefit> benefits = new Vector<Benefit>();
+		for (Benefit benefit : ConcurrencyTools.invokeAll(tasks, benefitExecutor, "Benefit calculation")) {
+			if (benefit != null) {
+				benefits.add(benefit);
+			}
+		}
+		return benefits;
+	}
+	
 	protected void buildTree(Tree current, ExampleSet exampleSet, int depth) throws OperatorException {
+		buildTree(current, exampleSet, depth, null);
+	}
+	
+	/** Builds the tree where the numerical attributes are not sorted at each node if a
+	 *  sorted index is given. The index is split together with the examples. */
+	private void buildTree(Tree current, ExampleSet exampleSet, int depth, SortedAttributeIndex sortedIndex) throws OperatorException {
 		// terminate (beginning of recursive method!)
 		if (shouldStop(exampleSet, depth)) {
 			leafCreator.changeTreeToLeaf(current, exampleSet);
@@ -155,7 +245,13 @@ public class TreeBuilder {
 		ExampleSet trainingSet = (ExampleSet)exampleSet.clone();
 		
 		// calculate all benefits
-		Vector<Benefit> benefits = calculateAllBenefits(exampleSet);
+		Vector<Benefit> benefits;
+		this.currentSortedIndex = sortedIndex;
+		try {
+			benefits = calculateAllBenefits(exampleSet);
+		} finally {
+			this.currentSortedIndex = null;
+		}
 
 		// sort all benefits
 		Collections.sort(benefits);
@@ -202,10 +298,17 @@ public class TreeBuilder {
 				if (bestAttribute.isNominal()) {
 					splitted.getAttributes().remove(bestAttribute);
 				}
+				SortedAttributeIndex[] childIndices = sortedIndex != null ? sortedIndex.split(splitted) : null;
 				for (int i = 0; i < splitted.getNumberOfSubsets(); i++) {
 					splitted.selectSingleSubset(i);
+					SortedAttributeIndex childIndex = null;
+					if (childIndices != null) {
+						childIndex = childIndices[i];
+						childIndices[i] = null;
+					}
 					if (splitted.size() > 0) {
-						Tree child = new Tree((ExampleSet)splitted.clone());
+						// the training sets of the child nodes are only needed for pruning
+						Tree child = new Tree(pruner != null ? splitted.clone() : null);
 						SplitCondition condition = null;
 						if (bestAttribute.isNominal()) {
 							condition = new NominalSplitCondition(bestAttribute, splitted.getExample(0).getValueAsString(bestAttribute));
@@ -217,7 +320,7 @@ public class TreeBuilder {
 							}
 						}
 						current.addChild(child, condition);
-						buildTree(child, splitted, depth + 1);
+						buildTree(child, splitted, depth + 1, childIndex);
 					}
 				}
 				
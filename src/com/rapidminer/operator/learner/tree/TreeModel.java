@@ -109,6 +109,11 @@ public class TreeModel extends SimplePredictionModel {
 		}
 	}
 
+	@Override
+	public boolean supportsParallelPrediction() {
+		return true;
+	}
+
 	@Override
 	public String toString() {
 		return this.root.toString();
@@ -22,6 +22,8 @@
  */
 package com.rapidminer.operator.meta;
 
+import java.util.List;
+
 import com.rapidminer.operator.OperatorException;
 import com.rapidminer.operator.performance.PerformanceVector;
 import com.rapidminer.tools.LoggingHandler;
@@ -59,6 +61,11 @@ public class ESParameterOptimization extends ESOptimization {
 	public PerformanceVector evaluateIndividual(Individual individual) throws OperatorException {
         return operator.setParametersAndEvaluate(individual);
     }
+
+    @Override
+    protected List<PerformanceVector> evaluateIndividuals(List<Individual> individuals) throws OperatorException {
+        return operator.setParametersAndEvaluate(individuals);
+    }
     
     @Override
 	public void nextIteration() throws OperatorException {
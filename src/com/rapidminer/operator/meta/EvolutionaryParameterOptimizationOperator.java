@@ -22,6 +22,7 @@
  */
 package com.rapidminer.operator.meta;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -61,7 +62,9 @@ import com.rapidminer.tools.math.optimization.ec.es.OptimizationValueType;
  * <center><code>operator_name.parameter_name = value</code></center> <br/> 
  * Please refer to section
  * {@rapidminer.ref sec:parameter_optimization|Advanced Processes/Parameter and performance analysis}
- * for an example application.
+ * for an example application. <br/>
+ * If the parameter <var>parallel_execution</var> is set, the individuals of each generation are evaluated
+ * concurrently by copies of the subprocess.
  * 
  * @author Ingo Mierswa, Tobias Malbrecht
  */
@@ -242,18 +245,49 @@ public class EvolutionaryParameterOptimizationOperator extends ParameterOptimiza
 	}
 
 	public PerformanceVector setParametersAndEvaluate(Individual individual) throws OperatorException {
+		String[] values = getParameterValues(individual);
+		for (int j = 0; j < values.length; j++) {
+			operators[j].getParameters().setParameter(parameters[j], values[j]);
+			getLogger().fine(operators[j] + "." + parameters[j] + " = " + values[j]);
+		}        
+		return getPerformance(true);    
+	}
+
+	/** Evaluates the given individuals and returns their performances in the same order. If parallel
+	 *  execution is enabled, the individuals are evaluated concurrently. */
+	public List<PerformanceVector> setParametersAndEvaluate(List<Individual> individuals) throws OperatorException {
+		if (isParallelExecutionPossible(operators, individuals.size())) {
+			List<String[]> combinations = new ArrayList<String[]>(individuals.size());
+			for (Individual individual : individuals) {
+				combinations.add(getParameterValues(individual));
+			}
+			return evaluateConcurrently(operators, parameters, combinations, null);
+		} else {
+			List<PerformanceVector> performances = new ArrayList<PerformanceVector>(individuals.size());
+			for (Individual individual : individuals) {
+				performances.add(setParametersAndEvaluate(individual));
+			}
+			return performances;
+		}
+	}
+
+	/** Returns the parameter values encoded by the given individual. */
+	private String[] getParameterValues(Individual individual) {
 		double[] currentValues = individual.getValues();
+		String[] values = new String[currentValues.length];
 		for (int j = 0; j < currentValues.length; j++) {
-			String value;
 			if (types[j].equals(OptimizationValueType.VALUE_TYPE_DOUBLE)) {
-				value = currentValues[j] + "";
+				values[j] = currentValues[j] + "";
 			} else {
-				value = (int)Math.round(currentValues[j]) + "";
+				values[j] = (int)Math.round(currentValues[j]) + "";
 			}
-			operators[j].getParameters().setParameter(parameters[j], value);
-			getLogger().fine(operators[j] + "." + parameters[j] + " = " + value);
-		}        
-		return getPerformance(true);    
+		}
+		return values;
+	}
+
+	@Override
+	protected boolean supportsParallelExecution() {
+		return true;
 	}
 
 
@@ -22,9 +22,11 @@
  */
 package com.rapidminer.operator.meta;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import com.rapidminer.operator.IOObject;
 import com.rapidminer.operator.Operator;
 import com.rapidminer.operator.OperatorDescription;
 import com.rapidminer.operator.OperatorException;
@@ -64,6 +66,10 @@ import com.rapidminer.parameter.value.ParameterValues;
  * especially useful for plotting purposes.
  * </p>
  * 
+ * <p>If the parameter <var>parallel_execution</var> is set, the parameter combinations are evaluated 
+ * concurrently by copies of the subprocess. If several combinations deliver the same performance, 
+ * the first one is returned as in the sequential execution.</p>
+ * 
  * @author Simon Fischer, Helge Homburg, Ingo Mierswa, Tobias Malbrecht
  *          15:35:49 ingomierswa Exp $
  */
@@ -83,10 +89,44 @@ public class GridSearchParameterOptimizationOperator extends ParameterOptimizati
     
 	private ParameterSet best;
 
+	/** Keeps the results of the best combination evaluated so far during a concurrent evaluation. */
+	private static class BestEvaluation implements EvaluationListener {
+
+		private int index = -1;
+
+		private PerformanceVector performance;
+
+		private List<IOObject> results;
+
+		@Override
+		public synchronized void evaluated(int index, PerformanceVector performance, List<IOObject> results) {
+			if (isBetter(index, performance, this.index, this.performance)) {
+				this.index = index;
+				this.performance = performance;
+				this.results = results;
+			}
+		}
+	}
+
 	public GridSearchParameterOptimizationOperator(OperatorDescription description) {
 		super(description);
 	}
 
+	/** Returns true if the combination with the first index and performance is better than the one with the best
+	 *  index and performance. Like in the sequential evaluation, ties are resolved in favor of the first combination,
+	 *  i.e. the lower index. Missing performances are worse than all others. */
+	private static boolean isBetter(int index, PerformanceVector performance, int bestIndex, PerformanceVector bestPerformance) {
+		if (bestIndex < 0) {
+			return true;
+		} else if (performance == null) {
+			return (bestPerformance == null) && (index < bestIndex);
+		} else if (bestPerformance == null) {
+			return true;
+		}
+		int comparison = performance.compareTo(bestPerformance);
+		return (comparison > 0) || ((comparison == 0) && (index < bestIndex));
+	}
+
 	@Override
 	public int getParameterValueMode() {
 		return VALUE_MODE_DISCRETE;
@@ -152,8 +192,13 @@ public class GridSearchParameterOptimizationOperator extends ParameterOptimizati
         if (numberOfCombinations <= 1)
             throw new UserError(this, 922);
         
+        best = null;
+        if (isParallelExecutionPossible(operators, numberOfCombinations)) {
+            optimizeConcurrently();
+            return;
+        }
+
         int counter = 1;
-		best = null;
 		while (true) {
 			getLogger().fine("Using parameter set " + counter + " / " + numberOfCombinations + ":");
 			PerformanceVector performance = computeCurrentPerformeance();
@@ -187,4 +232,51 @@ public class GridSearchParameterOptimizationOperator extends ParameterOptimizati
 
 		deliver(best);
 	}
+
+	/** Evaluates all combinations concurrently and delivers the best parameter set and its results. */
+	private void optimizeConcurrently() throws OperatorException {
+		List<String[]> combinations = new ArrayList<String[]>(numberOfCombinations);
+		while (true) {
+			String[] currentValues = new String[parameters.length];
+			for (int j = 0; j < parameters.length; j++) {
+				currentValues[j] = values[j][currentIndex[j]];
+			}
+			combinations.add(currentValues);
+
+			// next parameter values
+			int k = 0;
+			boolean ok = true;
+			while (!(++currentIndex[k] < values[k].length)) {
+				currentIndex[k] = 0;
+				k++;
+				if (k >= currentIndex.length) {
+					ok = false;
+					break;
+				}
+			}
+			if (!ok)
+				break;
+		}
+
+		BestEvaluation bestEvaluation = new BestEvaluation();
+		List<PerformanceVector> performances = evaluateConcurrently(operators, parameters, combinations, bestEvaluation);
+		int bestIndex = -1;
+		for (int i = 0; i < performances.size(); i++) {
+			PerformanceVector performance = performances.get(i);
+			if (isBetter(i, performance, bestIndex, best != null ? best.getPerformance() : null)) {
+				bestIndex = i;
+				best = new ParameterSet(operators, parameters, combinations.get(i), performance);
+			}
+			if (i < performances.size() - 1) {
+				inApplyLoop();
+			}
+		}
+		deliverResults(bestEvaluation.results);
+		deliver(best);
+	}
+
+	@Override
+	protected boolean supportsParallelExecution() {
+		return true;
+	}
 }
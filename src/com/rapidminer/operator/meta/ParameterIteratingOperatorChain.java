@@ -22,12 +22,22 @@
  */
 package com.rapidminer.operator.meta;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 
 import com.rapidminer.RapidMiner;
+import com.rapidminer.example.ExampleSet;
+import com.rapidminer.example.table.ColumnarExampleTable;
+import com.rapidminer.example.table.DataRowFactory;
+import com.rapidminer.example.table.MappedExampleTable;
 import com.rapidminer.gui.properties.ConfigureParameterOptimizationDialogCreator;
 import com.rapidminer.operator.IOObject;
 import com.rapidminer.operator.Operator;
@@ -39,12 +49,15 @@ import com.rapidminer.operator.SimpleProcessSetupError;
 import com.rapidminer.operator.UserError;
 import com.rapidminer.operator.performance.PerformanceVector;
 import com.rapidminer.operator.ports.InputPort;
+import com.rapidminer.operator.ports.OutputPort;
 import com.rapidminer.operator.ports.PortPairExtender;
 import com.rapidminer.operator.ports.metadata.MetaData;
 import com.rapidminer.operator.ports.metadata.SimplePrecondition;
 import com.rapidminer.operator.ports.metadata.SubprocessTransformRule;
 import com.rapidminer.operator.ports.quickfix.ParameterSettingQuickFix;
+import com.rapidminer.operator.preprocessing.MaterializeDataInMemory;
 import com.rapidminer.parameter.ParameterType;
+import com.rapidminer.parameter.ParameterTypeBoolean;
 import com.rapidminer.parameter.ParameterTypeConfiguration;
 import com.rapidminer.parameter.ParameterTypeInnerOperator;
 import com.rapidminer.parameter.ParameterTypeList;
@@ -56,6 +69,7 @@ import com.rapidminer.parameter.value.ParameterValueGrid;
 import com.rapidminer.parameter.value.ParameterValueList;
 import com.rapidminer.parameter.value.ParameterValueRange;
 import com.rapidminer.parameter.value.ParameterValues;
+import com.rapidminer.tools.ConcurrencyTools;
 import com.rapidminer.tools.ParameterService;
 
 
@@ -73,6 +87,9 @@ public abstract class ParameterIteratingOperatorChain extends OperatorChain {
     /** A specification of the parameter values for a parameter.&quot; */
     public static final String PARAMETER_VALUES = "values";
 
+    /** The parameter name for &quot;Indicates if the parameter combinations should be evaluated concurrently.&quot; */
+    public static final String PARAMETER_PARALLEL_EXECUTION = "parallel_execution";
+
     /** Means that the parameter iteration scheme can only handle discrete parameter values (i.e. lists or numerical grids). */
     public static final int VALUE_MODE_DISCRETE = 0;
 
@@ -95,6 +112,29 @@ public abstract class ParameterIteratingOperatorChain extends OperatorChain {
     private final InputPort performanceInnerSink = getSubprocess(0).getInnerSinks().createPort("performance");
     private final PortPairExtender innerSinkExtender;
 
+    /** Receives the results of the evaluations performed by {@link ParameterIteratingOperatorChain#evaluateConcurrently(Operator[], String[], List, EvaluationListener)}. */
+    protected interface EvaluationListener {
+
+        /** Called by a worker thread after the parameter combination with the given index was evaluated. The results
+         *  contain the data at the result inner sinks in the order of these ports, null for ports without data.
+         *  Implementations must be thread safe. */
+        public void evaluated(int index, PerformanceVector performance, List<IOObject> results);
+    }
+
+    /** A clone of this operator used for concurrent evaluations together with its copies of the operators 
+     *  whose parameters are set. */
+    private static class EvaluationClone {
+
+        private final ParameterIteratingOperatorChain chain;
+
+        private final Operator[] operators;
+
+        private EvaluationClone(ParameterIteratingOperatorChain chain, Operator[] operators) {
+            this.chain = chain;
+            this.operators = operators;
+        }
+    }
+
     public ParameterIteratingOperatorChain(OperatorDescription description) {
         this(description, "Subprocess");
     }
@@ -240,8 +280,14 @@ public abstract class ParameterIteratingOperatorChain extends OperatorChain {
     }
 
     protected PerformanceVector getPerformance(boolean cloneInput) {
+        inputExtender.passDataThrough();
+        return evaluateSubprocess();
+    }
+
+    /** Executes the subprocess on the data currently delivered to the inner sources and returns the
+     *  performance vector or null if the subprocess failed. */
+    private PerformanceVector evaluateSubprocess() {
         try {
-            inputExtender.passDataThrough();
             executeSubprocess();
             if (isPerformanceRequired()) {
                 return getPerformanceInnerSink().getData(PerformanceVector.class);
@@ -274,6 +320,133 @@ public abstract class ParameterIteratingOperatorChain extends OperatorChain {
         innerSinkExtender.passDataThrough();
     }
 
+    /** Delivers results obtained by {@link #evaluateConcurrently(Operator[], String[], List, EvaluationListener)} 
+     *  to the output ports as {@link #passResultsThrough()} does for sequential evaluations. */
+    protected void deliverResults(List<IOObject> results) {
+        int i = 0;
+        for (PortPairExtender.PortPair pair : innerSinkExtender.getManagedPairs()) {
+            if (i >= results.size()) {
+                break;
+            }
+            pair.getOutputPort().deliver(results.get(i++));
+        }
+    }
+
+    /** Returns true if the parameter combinations can be evaluated by 
+     *  {@link #evaluateConcurrently(Operator[], String[], List, EvaluationListener)}. In this case, the parameter
+     *  {@link #PARAMETER_PARALLEL_EXECUTION} is offered. The default implementation returns false. */
+    protected boolean supportsParallelExecution() {
+        return false;
+    }
+
+    /** Returns true if the given number of parameter combinations should be evaluated concurrently, i.e. if the 
+     *  parameter {@link #PARAMETER_PARALLEL_EXECUTION} is set, more than one thread may be used, this operator is not
+     *  already executed by a worker thread of another parallel execution, and all given operators are 
+     *  contained in the subprocess of this operator. */
+    protected boolean isParallelExecutionPossible(Operator[] operators, int numberOfCombinations) {
+        if (!supportsParallelExecution() || numberOfCombinations < 2 || !getParameterAsBoolean(PARAMETER_PARALLEL_EXECUTION) ||
+                ConcurrencyTools.getNumberOfThreads() < 2 || ConcurrencyTools.isWorkerThread()) {
+            return false;
+        }
+        List<Operator> innerOperators = getAllInnerOperators();
+        for (Operator operator : operators) {
+            if (!innerOperators.contains(operator)) {
+                getLogger().warning("Cannot evaluate parameter combinations concurrently: operator '" + operator.getName() + "' is not part of the subprocess. Combinations are evaluated sequentially.");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates the given parameter combinations concurrently and returns the performance vectors in the
+     * order of the combinations. Each combination is evaluated by one of several clones of this operator
+     * and its subprocess, the values of a combination are set for the copies of the given operators in 
+     * the respective clone. If the input contains example sets whose data cannot be shared by concurrent
+     * evaluations, the data is copied into a {@link ColumnarExampleTable} first. If this copy would not
+     * fit into the heap, the combinations are evaluated one after another by a single clone.
+     * 
+     * The inner results of each evaluation are passed to the listener, which may be null. As for sequential 
+     * evaluations, the performance of a failed evaluation is null. Inner operators which use the global random
+     * generator instead of a local random seed may produce different results for each run.
+     */
+    protected final List<PerformanceVector> evaluateConcurrently(final Operator[] operators, final String[] parameters, List<String[]> combinations, final EvaluationListener listener) throws OperatorException {
+        int threads = Math.min(combinations.size(), ConcurrencyTools.getNumberOfThreads());
+
+        // data shared by all clones
+        final Map<String,IOObject> input = new HashMap<String,IOObject>();
+        for (PortPairExtender.PortPair pair : inputExtender.getManagedPairs()) {
+            IOObject data = pair.getInputPort().getAnyDataOrNull();
+            if (data instanceof ExampleSet) {
+                ExampleSet exampleSet = (ExampleSet) data;
+                if (!(exampleSet.getExampleTable() instanceof ColumnarExampleTable)) {
+                    if (MappedExampleTable.exceedsHeap(exampleSet.size(), exampleSet.getAttributes().allSize())) {
+                        getLogger().warning("Not enough memory to copy the data for parallel execution. Parameter combinations are evaluated sequentially.");
+                        threads = 1;
+                    } else {
+                        getLogger().fine("Copying data into a columnar table for parallel execution.");
+                        data = MaterializeDataInMemory.materializeExampleSet(exampleSet, DataRowFactory.TYPE_DOUBLE_ARRAY, true);
+                    }
+                }
+            }
+            input.put(pair.getOutputPort().getName(), data);
+        }
+
+        getLogger().fine("Evaluating " + combinations.size() + " parameter combinations in " + threads + " threads.");
+        final BlockingQueue<EvaluationClone> clones = new ArrayBlockingQueue<EvaluationClone>(threads);
+        for (int i = 0; i < threads; i++) {
+            ParameterIteratingOperatorChain clone = (ParameterIteratingOperatorChain) cloneOperator(getName(), true);
+            clone.setEnclosingProcess(getExecutionUnit());
+            Map<String,Operator> clonedOperatorsByName = new HashMap<String,Operator>();
+            for (Operator clonedOperator : clone.getAllInnerOperators()) {
+                clonedOperatorsByName.put(clonedOperator.getName(), clonedOperator);
+            }
+            Operator[] clonedOperators = new Operator[operators.length];
+            for (int j = 0; j < operators.length; j++) {
+                clonedOperators[j] = clonedOperatorsByName.get(operators[j].getName());
+            }
+            clones.add(new EvaluationClone(clone, clonedOperators));
+        }
+
+        List<Callable<PerformanceVector>> tasks = new ArrayList<Callable<PerformanceVector>>(combinations.size());
+        int index = 0;
+        for (final String[] values : combinations) {
+            final int combination = index++;
+            tasks.add(new Callable<PerformanceVector>() {
+                @Override
+                public PerformanceVector call() throws Exception {
+                    EvaluationClone clone = clones.take();
+                    try {
+                        for (int j = 0; j < operators.length; j++) {
+                            clone.operators[j].getParameters().setParameter(parameters[j], values[j]);
+                            getLogger().fine(operators[j] + "." + parameters[j] + " = " + values[j]);
+                        }
+                        for (Map.Entry<String,IOObject> entry : input.entrySet()) {
+                            OutputPort source = clone.chain.getSubprocess(0).getInnerSources().getPortByName(entry.getKey());
+                            if (source != null) {
+                                IOObject data = entry.getValue();
+                                source.deliver(data instanceof ExampleSet ? (IOObject) ((ExampleSet) data).clone() : data);
+                            }
+                        }
+                        PerformanceVector performance = clone.chain.evaluateSubprocess();
+                        if (listener != null) {
+                            List<IOObject> results = new ArrayList<IOObject>(innerSinkExtender.getManagedPairs().size());
+                            for (PortPairExtender.PortPair pair : innerSinkExtender.getManagedPairs()) {
+                                InputPort sink = clone.chain.getSubprocess(0).getInnerSinks().getPortByName(pair.getInputPort().getName());
+                                results.add(sink != null ? sink.getAnyDataOrNull() : null);
+                            }
+                            listener.evaluated(combination, performance, results);
+                        }
+                        return performance;
+                    } finally {
+                        clones.add(clone);
+                    }
+                }
+            });
+        }
+        return ConcurrencyTools.invokeAll(tasks, threads, getName());
+    }
+
     @Override
     public List<ParameterType> getParameterTypes() {
         List<ParameterType> types = super.getParameterTypes();
@@ -287,6 +460,9 @@ public abstract class ParameterIteratingOperatorChain extends OperatorChain {
                         new ParameterTypeParameterValue(PARAMETER_VALUES, "The value specifications for the parameters."));
         type.setHidden(true);
         types.add(type);
+        if (supportsParallelExecution()) {
+            types.add(new ParameterTypeBoolean(PARAMETER_PARALLEL_EXECUTION, "Indicates if the parameter combinations should be evaluated concurrently. Inner operators must not depend on each other's side effects, e.g. macros.", false));
+        }
         return types;
     }
 
@@ -22,10 +22,13 @@
  */
 package com.rapidminer.operator.meta;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Level;
 
+import com.rapidminer.operator.IOObject;
 import com.rapidminer.operator.Operator;
 import com.rapidminer.operator.OperatorDescription;
 import com.rapidminer.operator.OperatorException;
@@ -63,6 +66,9 @@ import com.rapidminer.parameter.value.ParameterValues;
  * between both modes. Please note that the number of parameter possibilities must be 
  * the same for all parameters in the synchronized mode.</p> 
  * 
+ * <p>If the parameter <var>parallel_execution</var> is set, the parameter combinations are evaluated 
+ * concurrently by copies of the subprocess. The results are collected in the order of the combinations.</p>
+ * 
  * Compatibility note: This operator no longer returns all of its input. 
  * In most applications all that can be done with such a collection of IOOBjects is
  * iterating over them again, and that can as well be done inside the ParameterIteration. Where this
@@ -164,21 +170,14 @@ public class ParameterIteration extends ParameterIteratingOperatorChain {
 			index++;
 		}
 		
-		// iterate parameter combinations
-		this.iteration = 0;
+		// enumerate parameter combinations
+		List<String[]> combinations = new ArrayList<String[]>();
 		while (true) {
-			checkForStop();
 			String[] currentValues = new String[parameters.length];
-			// set all parameter values
 			for (int j = 0; j < operators.length; j++) {
 				currentValues[j] = values[j][currentIndex[j]].trim();
-				//operators[j].setParameter(parameters[j], values[j][currentIndex[j]].trim());
 			}
-			ParameterSet set = new ParameterSet(operators, parameters, currentValues, null);
-
-			evaluateParameterSet(set);
-
-			this.iteration++;
+			combinations.add(currentValues);
 			
 			boolean ok = true;
 			if (!isSynchronized) { 
@@ -205,8 +204,48 @@ public class ParameterIteration extends ParameterIteratingOperatorChain {
 			if (!ok) {				
 				break;
 			}				
+		}
 
-			inApplyLoop();			
+		// iterate parameter combinations
+		this.iteration = 0;
+		if (isParallelExecutionPossible(operators, combinations.size())) {
+			evaluateConcurrently(operators, parameters, combinations);
+			return;
+		}
+		for (String[] currentValues : combinations) {
+			if (this.iteration > 0) {
+				inApplyLoop();
+			}
+			checkForStop();
+			ParameterSet set = new ParameterSet(operators, parameters, currentValues, null);
+
+			evaluateParameterSet(set);
+
+			this.iteration++;
+		}
+	}
+
+	/** Evaluates the combinations concurrently and collects their results in the order of the combinations. */
+	private void evaluateConcurrently(Operator[] operators, String[] parameters, List<String[]> combinations) throws OperatorException {
+		final List<List<IOObject>> results = new ArrayList<List<IOObject>>(Collections.<List<IOObject>>nCopies(combinations.size(), null));
+		List<PerformanceVector> performances = evaluateConcurrently(operators, parameters, combinations, new EvaluationListener() {
+			@Override
+			public void evaluated(int index, PerformanceVector performance, List<IOObject> iterationResults) {
+				synchronized (results) {
+					results.set(index, iterationResults);
+				}
+			}
+		});
+		for (int i = 0; i < performances.size(); i++) {
+			if (i > 0) {
+				inApplyLoop();
+			}
+			this.performance = performances.get(i);
+			((CollectingPortPairExtender)getInnerSinkExtender()).collect(results.get(i));
+			if (performance == null) {
+				getLogger().info("Inner operators of " + getName() + " do not provide performance vectors. Performance cannot be plotted.");
+			}
+			this.iteration++;
 		}
 	}
 
@@ -241,6 +280,11 @@ public class ParameterIteration extends ParameterIteratingOperatorChain {
 		}
 	}
 	
+	@Override
+	protected boolean supportsParallelExecution() {
+		return true;
+	}
+
 	@Override
 	public List<ParameterType> getParameterTypes() {
 		List<ParameterType> types = super.getParameterTypes();
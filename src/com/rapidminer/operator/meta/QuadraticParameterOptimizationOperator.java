@@ -370,6 +370,12 @@ public class QuadraticParameterOptimizationOperator extends GridSearchParameterO
 		deliver(best);		
 	}
 
+	/** This operator evaluates the combinations in its own loop, hence they are always evaluated sequentially. */
+	@Override
+	protected boolean supportsParallelExecution() {
+		return false;
+	}
+
 	@Override
 	public List<ParameterType> getParameterTypes() {
 		List<ParameterType> types = super.getParameterTypes();
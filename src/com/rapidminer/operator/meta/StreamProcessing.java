@@ -0,0 +1,113 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.operator.meta;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import com.rapidminer.operator.Operator;
+import com.rapidminer.operator.OperatorChain;
+import com.rapidminer.operator.OperatorDescription;
+import com.rapidminer.operator.OperatorException;
+import com.rapidminer.operator.StreamSource;
+import com.rapidminer.operator.StreamableOperator;
+import com.rapidminer.operator.UserError;
+import com.rapidminer.operator.ports.PortPairExtender;
+import com.rapidminer.operator.ports.metadata.SubprocessTransformRule;
+import com.rapidminer.parameter.ParameterType;
+import com.rapidminer.parameter.ParameterTypeInt;
+
+/**
+ * This operator performs the inner operators on consecutive batches of the data read by the
+ * inner source until all data is read. This allows to process data which does not fit into
+ * memory, e.g. reading a CSV file, generating attributes, filtering examples and writing the result
+ * into a database table, while only a single batch of examples is kept in memory. All inner operators
+ * must process each example independently of the others, i.e. must implement {@link StreamableOperator}.
+ * Writers append the batches following the first one. Only a single source is allowed since
+ * the batches of several sources would end with the shortest of them.
+ * <br/>
+ * Objects like models can be passed to the inner operators by the input ports, they are delivered
+ * again for every batch.
+ */
+public class StreamProcessing extends OperatorChain {
+
+	public static final String PARAMETER_BATCH_SIZE = "batch_size";
+
+	private final PortPairExtender inputPortPairExtender = new PortPairExtender("input", getInputPorts(), getSubprocess(0).getInnerSources());
+
+	public StreamProcessing(OperatorDescription description) {
+		super(description, "Stream Process");
+		inputPortPairExtender.start();
+		getTransformer().addRule(inputPortPairExtender.makePassThroughRule());
+		getTransformer().addRule(new SubprocessTransformRule(getSubprocess(0)));
+	}
+
+	@Override
+	public void doWork() throws OperatorException {
+		int batchSize = getParameterAsInt(PARAMETER_BATCH_SIZE);
+		List<StreamableOperator> operators = new LinkedList<StreamableOperator>();
+		List<StreamSource> sources = new LinkedList<StreamSource>();
+		for (Operator operator : getSubprocess(0).getEnabledOperators()) {
+			if (!(operator instanceof StreamableOperator)) {
+				throw new UserError(this, "stream_process.operator_not_streamable", operator.getName());
+			}
+			operators.add((StreamableOperator) operator);
+			if (operator instanceof StreamSource) {
+				sources.add((StreamSource) operator);
+			}
+		}
+		if (sources.isEmpty()) {
+			throw new UserError(this, "stream_process.no_source");
+		}
+		if (sources.size() > 1) {
+			throw new UserError(this, "stream_process.multiple_sources", ((Operator) sources.get(0)).getName(), ((Operator) sources.get(1)).getName());
+		}
+		StreamSource source = sources.get(0);
+
+		List<StreamableOperator> started = new LinkedList<StreamableOperator>();
+		try {
+			for (StreamableOperator operator : operators) {
+				operator.startStreaming(batchSize);
+				started.add(operator);
+			}
+			boolean hasNextBatch;
+			do {
+				inputPortPairExtender.passDataThrough();
+				getSubprocess(0).execute();
+				inApplyLoop();
+				hasNextBatch = source.hasNextBatch();
+			} while (hasNextBatch);
+		} finally {
+			for (StreamableOperator operator : started) {
+				operator.finishStreaming();
+			}
+		}
+	}
+
+	@Override
+	public List<ParameterType> getParameterTypes() {
+		List<ParameterType> types = super.getParameterTypes();
+		types.add(new ParameterTypeInt(PARAMETER_BATCH_SIZE, "The maximal number of examples which are read and processed at once by the inner operators.", 1, Integer.MAX_VALUE, 10000, false));
+		return types;
+	}
+}
@@ -60,6 +60,7 @@ public class CSVExampleSource extends AbstractDataResultSetReader {
 	public static final String PARAMETER_QUOTES_CHARACTER = "quotes_character";
 	public static final String PARAMETER_COLUMN_SEPARATORS = "column_separators";
 	public static final String PARAMETER_ESCAPE_CHARACTER = "escape_character_for_quotes";
+	public static final String PARAMETER_PARALLEL_EXECUTION = "parallel_execution";
 
 	static {
 		AbstractReader.registerReaderDescription(new ReaderDescription("csv", CSVExampleSource.class, PARAMETER_CSV_FILE));
@@ -131,6 +132,8 @@ public class CSVExampleSource extends AbstractDataResultSetReader {
 		types.addAll(StrictDecimalFormat.getParameterTypes(this, true));
 		types.addAll(DateParser.getParameterTypes(this));
 
+		types.add(new ParameterTypeBoolean(PARAMETER_PARALLEL_EXECUTION, "Indicates if chunks of local files should be parsed concurrently.", false));
+
 		types.addAll(super.getParameterTypes());
 		return types;
 	}
@@ -37,6 +37,7 @@ import com.rapidminer.operator.Annotations;
 import com.rapidminer.operator.IOObject;
 import com.rapidminer.operator.OperatorDescription;
 import com.rapidminer.operator.OperatorException;
+import com.rapidminer.operator.StreamSource;
 import com.rapidminer.operator.io.AbstractExampleSource;
 import com.rapidminer.operator.io.ExampleSource;
 import com.rapidminer.operator.io.AbstractDataReader.AttributeColumn;
@@ -68,7 +69,7 @@ import com.rapidminer.tools.Tools;
  * 
  * @author Sebastian Land
  */
-public abstract class AbstractDataResultSetReader extends AbstractExampleSource {
+public abstract class AbstractDataResultSetReader extends AbstractExampleSource implements StreamSource {
 
 	/** Pseudo-annotation to be used for attribute names. */
 	public static final String ANNOTATION_NAME = "Name";
@@ -98,6 +99,9 @@ public abstract class AbstractDataResultSetReader extends AbstractExampleSource
 	 * The parameter name for &quot;Determines, how the data is represented internally.&quot;
 	 */
 	public static final String PARAMETER_DATAMANAGEMENT = "datamanagement";
+
+	/** If true, the data is stored in memory mapped files instead of the heap. */
+	public static final String PARAMETER_MEMORY_MAPPED = "memory_mapped";
 	public static final String PARAMETER_FIRST_ROW_AS_NAMES = "first_row_as_names";
 	public static final String PARAMETER_ANNOTATIONS = "annotations";
 
@@ -106,6 +110,15 @@ public abstract class AbstractDataResultSetReader extends AbstractExampleSource
 	private InputPort fileInputPort = getInputPorts().createPort("file");
 	private FileInputPortHandler filePortHandler = new FileInputPortHandler(this, fileInputPort, this.getFileParameterName());
 
+	/** The number of examples delivered per execution while streaming or -1 if the complete data is read. */
+	private int streamBatchSize = -1;
+
+	/** The data result set and its translation while streaming. Opened by the first execution. */
+	private DataResultSetFactory streamFactory;
+	private DataResultSet streamResultSet;
+	private DataResultSetTranslationConfiguration streamConfiguration;
+	private DataResultSetTranslator streamTranslator;
+
 	public AbstractDataResultSetReader(OperatorDescription description) {
 		super(description);
 		fileInputPort.addPrecondition(new SimplePrecondition(fileInputPort, new MetaData(FileObject.class)) {
@@ -122,33 +135,60 @@ public abstract class AbstractDataResultSetReader extends AbstractExampleSource
 	
 	@Override
 	public ExampleSet createExampleSet() throws OperatorException {
+		if (streamBatchSize > 0) {
+			return createNextBatch();
+		}
 		// loading data result set
 		DataResultSetFactory dataResultSetFactory = getDataResultSetFactory();
 		DataResultSet dataResultSet = dataResultSetFactory.makeDataResultSet(this);
 		final ExampleSet exampleSet; 
 		try {
-			// loading configuration
-			DataResultSetTranslationConfiguration configuration = new DataResultSetTranslationConfiguration(this);
-			final boolean configComplete = !configuration.isComplete();
-			if (configComplete) {
-				configuration.reconfigure(dataResultSet);
-			}
-
 			// now use translator to read, translate and return example set
 			DataResultSetTranslator translator = new DataResultSetTranslator(this);
-			NumberFormat numberFormat = getNumberFormat();
-			if (numberFormat != null) {
-				configuration.setNumberFormat(numberFormat);
-			}
-
-			if (configComplete) {
-				translator.guessValueTypes(configuration, dataResultSet, null);
-			}
+			DataResultSetTranslationConfiguration configuration = makeTranslationConfiguration(dataResultSet, translator);
 			exampleSet = translator.read(dataResultSet, configuration, false, null);
 		} finally {
 			dataResultSet.close();        	
 			dataResultSetFactory.close();
 		}
+		addSourceAnnotation(exampleSet);
+		return exampleSet;
+	}
+
+	/** Reads the next batch of the data result set which is kept open while streaming. */
+	private ExampleSet createNextBatch() throws OperatorException {
+		if (streamResultSet == null) {
+			streamFactory = getDataResultSetFactory();
+			streamResultSet = streamFactory.makeDataResultSet(this);
+			streamTranslator = new DataResultSetTranslator(this);
+			streamConfiguration = makeTranslationConfiguration(streamResultSet, streamTranslator);
+		}
+		ExampleSet exampleSet = streamTranslator.readBatch(streamResultSet, streamConfiguration, streamBatchSize, null);
+		addSourceAnnotation(exampleSet);
+		return exampleSet;
+	}
+
+	/** Loads the translation configuration and guesses the value types if the configuration is incomplete. */
+	private DataResultSetTranslationConfiguration makeTranslationConfiguration(DataResultSet dataResultSet, DataResultSetTranslator translator) throws OperatorException {
+		// loading configuration
+		DataResultSetTranslationConfiguration configuration = new DataResultSetTranslationConfiguration(this);
+		final boolean configComplete = !configuration.isComplete();
+		if (configComplete) {
+			configuration.reconfigure(dataResultSet);
+		}
+
+		NumberFormat numberFormat = getNumberFormat();
+		if (numberFormat != null) {
+			configuration.setNumberFormat(numberFormat);
+		}
+
+		if (configComplete) {
+			translator.guessValueTypes(configuration, dataResultSet, null);
+		}
+		return configuration;
+	}
+
+	private void addSourceAnnotation(ExampleSet exampleSet) throws OperatorException {
 		if (fileInputPort.isConnected()) {
 			IOObject fileObject = fileInputPort.getDataOrNull(IOObject.class);
 			if (fileObject != null) {
@@ -158,7 +198,33 @@ public abstract class AbstractDataResultSetReader extends AbstractExampleSource
 				}
 			}
 		}
-		return exampleSet;
+	}
+
+	@Override
+	public void startStreaming(int batchSize) {
+		streamBatchSize = batchSize;
+	}
+
+	@Override
+	public boolean hasNextBatch() {
+		return streamResultSet == null || streamResultSet.hasNext();
+	}
+
+	@Override
+	public void finishStreaming() {
+		streamBatchSize = -1;
+		if (streamResultSet != null) {
+			try {
+				streamResultSet.close();
+			} catch (OperatorException e) {
+				logWarning("Cannot close data source: " + e.getMessage());
+			}
+			streamFactory.close();
+		}
+		streamFactory = null;
+		streamResultSet = null;
+		streamConfiguration = null;
+		streamTranslator = null;
 	}
 
 	@Override
@@ -274,6 +340,7 @@ public abstract class AbstractDataResultSetReader extends AbstractExampleSource
 		types.add(new ParameterTypeBoolean(PARAMETER_ERROR_TOLERANT, "Values which does not match to the specified value typed are considered as missings.", true, true));
 
 		types.add(new ParameterTypeCategory(ExampleSource.PARAMETER_DATAMANAGEMENT, "Determines, how the data is represented internally.", DataRowFactory.TYPE_NAMES, DataRowFactory.TYPE_DOUBLE_ARRAY, true));
+		types.add(new ParameterTypeBoolean(PARAMETER_MEMORY_MAPPED, "If checked, the data is stored in memory mapped files in the spill directory instead of the main memory. Use this for data sets larger than the available memory.", false, true));
 
 
 		return types;
@@ -0,0 +1,825 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.operator.nio.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.DateFormat;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import com.rapidminer.operator.Operator;
+import com.rapidminer.operator.OperatorException;
+import com.rapidminer.operator.UserError;
+import com.rapidminer.operator.nio.model.ParsingError.ErrorCode;
+import com.rapidminer.tools.CSVParseException;
+import com.rapidminer.tools.ConcurrencyTools;
+import com.rapidminer.tools.LineParser;
+
+/**
+ * Reads the data rows of a local CSV file in chunks of bytes which can be parsed concurrently.
+ * A chunk contains all lines starting within its byte range, so chunks can be parsed independently
+ * of each other after searching the first line break. The results of the chunks are returned in the
+ * order of the file.
+ * 
+ * Lines without quote and escape characters of files with a single separator character are split
+ * directly on the bytes and numbers are parsed from the bytes as long as they can be converted
+ * exactly. All other lines are decoded and split by a {@link LineParser}, all other values are
+ * parsed by the number and date formats of the configuration, so the values are the same as those
+ * read by the {@link CSVResultSet}. Nominal values are collected in a dictionary per chunk in the
+ * order of their first occurrence, mapping the dictionaries in the order of the chunks results in
+ * the same nominal mappings as reading the file row by row.
+ * 
+ * This requires an encoding in which all bytes below 128 represent the ASCII characters and are
+ * not part of other characters, see {@link #isApplicable(CSVResultSetConfiguration)}.
+ */
+class CSVChunkedReader {
+
+	/** Values of columns of these kinds are parsed as numbers, dates or nominal values. */
+	static final int KIND_NUMBER = 0;
+	static final int KIND_DATE = 1;
+	static final int KIND_NOMINAL = 2;
+
+	/** The default number of bytes of a chunk. */
+	static final int DEFAULT_CHUNK_SIZE = 1 << 23;
+
+	/** Number of additional bytes allocated for the last line of a chunk. */
+	private static final int LINE_RESERVE = 1 << 12;
+
+	/** The powers of ten which are exactly representable as doubles. */
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/** Mantissas with more digits might not be exactly representable as doubles. */
+	private static final int MAX_SIGNIFICANT_DIGITS = 15;
+
+	private static final int NEW_SPLIT = 0;
+	private static final int START_WHITESPACE = 1;
+	private static final int WRITE = 2;
+	private static final int END_OF_LINE = 3;
+
+	/** The parsed rows of a chunk. */
+	static class Chunk {
+
+		private int size = 0;
+
+		/** The values of the rows per attribute. Nominal values are indices in the dictionary of the attribute. */
+		private double[][] values;
+
+		/** The nominal values per attribute in the order of their first occurrence, null for other attributes. */
+		private final List<List<String>> dictionaries = new ArrayList<List<String>>();
+
+		private final List<CellError> cellErrors = new LinkedList<CellError>();
+
+		private final List<LineError> lineErrors = new LinkedList<LineError>();
+
+		int getSize() {
+			return size;
+		}
+
+		double getValue(int attribute, int row) {
+			return values[attribute][row];
+		}
+
+		List<String> getDictionary(int attribute) {
+			return dictionaries.get(attribute);
+		}
+
+		List<CellError> getCellErrors() {
+			return cellErrors;
+		}
+
+		List<LineError> getLineErrors() {
+			return lineErrors;
+		}
+	}
+
+	/** A value of a chunk which could not be parsed. */
+	static class CellError {
+
+		final int row;
+		final int attribute;
+		final ErrorCode code;
+		final String value;
+		final Exception cause;
+
+		CellError(int row, int attribute, ErrorCode code, String value, Exception cause) {
+			this.row = row;
+			this.attribute = attribute;
+			this.code = code;
+			this.value = value;
+			this.cause = cause;
+		}
+	}
+
+	/** A line of a chunk which could not be split. Like in the {@link CSVResultSet}, such lines are skipped.
+	 *  The row is the index of the next row of the chunk. */
+	static class LineError {
+
+		final int row;
+		final String line;
+		final CSVParseException cause;
+
+		private LineError(int row, String line, CSVParseException cause) {
+			this.row = row;
+			this.line = line;
+			this.cause = cause;
+		}
+	}
+
+	/** The bytes of a range of the file which is extended on demand. */
+	private class ByteRange {
+
+		private byte[] bytes;
+		private final long start;
+		private int length = 0;
+
+		private ByteRange(long start, int capacity) {
+			this.start = start;
+			this.bytes = new byte[capacity];
+		}
+
+		/** Reads the bytes up to the given index if necessary. Returns false if the file ends before. */
+		private boolean ensure(int index) throws IOException {
+			while (index >= length) {
+				long offset = start + length;
+				if (offset >= fileSize) {
+					return false;
+				}
+				if (length == bytes.length) {
+					bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, LINE_RESERVE));
+				}
+				int read = channel.read(ByteBuffer.wrap(bytes, length, (int) Math.min(bytes.length - length, fileSize - offset)), offset);
+				if (read <= 0) {
+					return false;
+				}
+				length += read;
+			}
+			return true;
+		}
+
+		/** Returns the index of the next line break at or after the given index or the index of the end of the file. */
+		private int findLineEnd(int from) throws IOException {
+			int i = from;
+			while (true) {
+				byte[] bytes = this.bytes;
+				int length = this.length;
+				for (; i < length; i++) {
+					byte b = bytes[i];
+					if (b == '\n' || b == '\r') {
+						return i;
+					}
+				}
+				if (!ensure(i)) {
+					return i;
+				}
+			}
+		}
+
+		/** Returns the start of the line following the line break at the given index. */
+		private int nextLineStart(int lineEnd) throws IOException {
+			if (!ensure(lineEnd)) {
+				return lineEnd;
+			}
+			if (bytes[lineEnd] == '\r' && ensure(lineEnd + 1) && bytes[lineEnd + 1] == '\n') {
+				return lineEnd + 2;
+			}
+			return lineEnd + 1;
+		}
+	}
+
+	/** The nominal values of an attribute in a chunk. The indices of byte sequences are cached. */
+	private class Dictionary {
+
+		private final List<String> values = new ArrayList<String>();
+		private final Map<String, Integer> indices = new HashMap<String, Integer>();
+
+		private byte[][] keys = new byte[64][];
+		private int[] keyIndices = new int[64];
+		private int numberOfKeys = 0;
+
+		private int getIndex(String value) {
+			Integer index = indices.get(value);
+			if (index == null) {
+				index = values.size();
+				values.add(value);
+				indices.put(value, index);
+			}
+			return index;
+		}
+
+		private int getIndex(byte[] bytes, int start, int end) {
+			int hash = 1;
+			for (int i = start; i < end; i++) {
+				hash = 31 * hash + bytes[i];
+			}
+			hash ^= hash >>> 16;
+			int mask = keys.length - 1;
+			int slot = hash & mask;
+			while (keys[slot] != null) {
+				if (equals(keys[slot], bytes, start, end)) {
+					return keyIndices[slot];
+				}
+				slot = (slot + 1) & mask;
+			}
+			int index = getIndex(new String(bytes, start, end - start, charset));
+			keys[slot] = Arrays.copyOfRange(bytes, start, end);
+			keyIndices[slot] = index;
+			numberOfKeys++;
+			if (2 * numberOfKeys > keys.length) {
+				rehash();
+			}
+			return index;
+		}
+
+		private boolean equals(byte[] key, byte[] bytes, int start, int end) {
+			if (key.length != end - start) {
+				return false;
+			}
+			for (int i = 0; i < key.length; i++) {
+				if (key[i] != bytes[start + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void rehash() {
+			byte[][] oldKeys = keys;
+			int[] oldIndices = keyIndices;
+			keys = new byte[2 * oldKeys.length][];
+			keyIndices = new int[keys.length];
+			int mask = keys.length - 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				byte[] key = oldKeys[i];
+				if (key != null) {
+					int hash = 1;
+					for (byte b : key) {
+						hash = 31 * hash + b;
+					}
+					hash ^= hash >>> 16;
+					int slot = hash & mask;
+					while (keys[slot] != null) {
+						slot = (slot + 1) & mask;
+					}
+					keys[slot] = key;
+					keyIndices[slot] = oldIndices[i];
+				}
+			}
+		}
+	}
+
+	/** Parses the lines of one chunk. */
+	private class ChunkParser {
+
+		private final Chunk chunk = new Chunk();
+		private final Dictionary[] dictionaries = new Dictionary[kinds.length];
+		private final LineParser lineParser;
+		private final NumberFormat numberFormat;
+		private final DateFormat dateFormat;
+
+		private int[] fieldStarts = new int[16];
+		private int[] fieldEnds = new int[16];
+		private int numberOfFields;
+
+		private int capacity = 1024;
+
+		private ChunkParser() throws OperatorException {
+			lineParser = new LineParser(configuration);
+			numberFormat = CSVChunkedReader.this.numberFormat == null ? null : (NumberFormat) CSVChunkedReader.this.numberFormat.clone();
+			dateFormat = CSVChunkedReader.this.dateFormat == null ? null : (DateFormat) CSVChunkedReader.this.dateFormat.clone();
+			chunk.values = new double[kinds.length][capacity];
+			for (int i = 0; i < kinds.length; i++) {
+				if (kinds[i] == KIND_NOMINAL) {
+					dictionaries[i] = new Dictionary();
+				}
+			}
+		}
+
+		private Chunk getChunk() {
+			for (int i = 0; i < kinds.length; i++) {
+				chunk.values[i] = Arrays.copyOf(chunk.values[i], chunk.size);
+				chunk.dictionaries.add(dictionaries[i] == null ? null : dictionaries[i].values);
+			}
+			return chunk;
+		}
+
+		/** Parses the line between the given indices if it is not empty after removing comments. */
+		private void parseLine(byte[] bytes, int start, int end) {
+			int contentEnd = removeComment(bytes, start, end);
+			if (isBlank(bytes, start, contentEnd)) {
+				return;
+			}
+			int row = chunk.size;
+			if (row == capacity) {
+				capacity *= 2;
+				for (int i = 0; i < kinds.length; i++) {
+					chunk.values[i] = Arrays.copyOf(chunk.values[i], capacity);
+				}
+			}
+			if (splitBytes && isSimple(bytes, start, end)) {
+				split(bytes, start, contentEnd);
+				for (int i = 0; i < kinds.length; i++) {
+					double value = Double.NaN;
+					int column = columns[i];
+					if (column < numberOfFields && fieldStarts[column] < fieldEnds[column]) {
+						value = parseValue(bytes, fieldStarts[column], fieldEnds[column], row, i);
+					}
+					chunk.values[i][row] = value;
+				}
+			} else {
+				String line = new String(bytes, start, end - start, charset);
+				String[] cells;
+				try {
+					cells = lineParser.parse(line);
+					if (cells == null) {
+						return;
+					}
+				} catch (CSVParseException e) {
+					chunk.lineErrors.add(new LineError(row, line, e));
+					return;
+				}
+				for (int i = 0; i < kinds.length; i++) {
+					double value = Double.NaN;
+					int column = columns[i];
+					if (column < cells.length && cells[column] != null && !cells[column].isEmpty()) {
+						value = parseValue(cells[column], row, i);
+					}
+					chunk.values[i][row] = value;
+				}
+			}
+			chunk.size++;
+		}
+
+		/** Splits the line like {@link LineParser#fastSplit(String, char, boolean, char, char)} does for lines without quotes and escapes. */
+		private void split(byte[] bytes, int start, int end) {
+			if (trimLines) {
+				while (start < end && (bytes[start] & 0xff) <= ' ') {
+					start++;
+				}
+				while (end > start && (bytes[end - 1] & 0xff) <= ' ') {
+					end--;
+				}
+			}
+			numberOfFields = 0;
+			int state = NEW_SPLIT;
+			int fieldStart = start;
+			for (int i = start; i < end && state != END_OF_LINE; i++) {
+				byte b = bytes[i];
+				switch (state) {
+				case NEW_SPLIT:
+					if (b == separator) {
+						addField(i, i);
+						if (i + 1 == end) {
+							addField(i, i);
+							state = END_OF_LINE;
+						}
+					} else if (b == ' ' || b == '\t') {
+						state = START_WHITESPACE;
+					} else {
+						fieldStart = i;
+						state = WRITE;
+					}
+					break;
+				case START_WHITESPACE:
+					if (b == separator) {
+						addField(i, i);
+						state = NEW_SPLIT;
+					} else if (b != ' ' && b != '\t') {
+						fieldStart = i;
+						state = WRITE;
+					}
+					break;
+				case WRITE:
+					if (b == separator) {
+						addField(fieldStart, i);
+						if (i + 1 == end) {
+							addField(i, i);
+							state = END_OF_LINE;
+						} else {
+							state = NEW_SPLIT;
+						}
+					}
+					break;
+				}
+			}
+			if (state == WRITE) {
+				addField(fieldStart, end);
+			}
+		}
+
+		private void addField(int start, int end) {
+			if (numberOfFields == fieldStarts.length) {
+				fieldStarts = Arrays.copyOf(fieldStarts, 2 * numberOfFields);
+				fieldEnds = Arrays.copyOf(fieldEnds, 2 * numberOfFields);
+			}
+			fieldStarts[numberOfFields] = start;
+			fieldEnds[numberOfFields] = end;
+			numberOfFields++;
+		}
+
+		private double parseValue(byte[] bytes, int start, int end, int row, int attribute) {
+			switch (kinds[attribute]) {
+			case KIND_NUMBER:
+				if (parseNumbers) {
+					double value = parseDecimal(bytes, start, end);
+					if (!Double.isNaN(value)) {
+						return value;
+					}
+				}
+				return parseNumber(new String(bytes, start, end - start, charset), row, attribute);
+			case KIND_DATE:
+				return parseDate(new String(bytes, start, end - start, charset), row, attribute);
+			default:
+				return dictionaries[attribute].getIndex(bytes, start, end);
+			}
+		}
+
+		private double parseValue(String value, int row, int attribute) {
+			switch (kinds[attribute]) {
+			case KIND_NUMBER:
+				return parseNumber(value, row, attribute);
+			case KIND_DATE:
+				return parseDate(value, row, attribute);
+			default:
+				return dictionaries[attribute].getIndex(value);
+			}
+		}
+
+		/** Parses plain decimals without exponent whose value can be computed exactly. Returns NaN for all other values. */
+		private double parseDecimal(byte[] bytes, int start, int end) {
+			int i = start;
+			boolean negative = bytes[i] == '-';
+			if (negative) {
+				i++;
+			}
+			long mantissa = 0;
+			int significantDigits = 0;
+			int fractionDigits = 0;
+			boolean digitFound = false;
+			boolean decimalFound = false;
+			for (; i < end; i++) {
+				int b = bytes[i];
+				if (b >= '0' && b <= '9') {
+					digitFound = true;
+					if ((mantissa != 0 || b != '0') && ++significantDigits > MAX_SIGNIFICANT_DIGITS) {
+						return Double.NaN;
+					}
+					mantissa = 10 * mantissa + (b - '0');
+					if (decimalFound) {
+						fractionDigits++;
+					}
+				} else if (b == decimalSeparator && !decimalFound) {
+					decimalFound = true;
+				} else {
+					return Double.NaN;
+				}
+			}
+			if (!digitFound || fractionDigits >= POWERS_OF_TEN.length) {
+				return Double.NaN;
+			}
+			double value = fractionDigits == 0 ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+			return negative ? -value : value;
+		}
+
+		private double parseNumber(String value, int row, int attribute) {
+			if (numberFormat != null) {
+				try {
+					Number number = numberFormat.parse(value);
+					return number == null ? Double.NaN : number.doubleValue();
+				} catch (ParseException e) {
+					chunk.cellErrors.add(new CellError(row, attribute, ErrorCode.UNPARSEABLE_REAL, value, e));
+					return Double.NaN;
+				}
+			} else {
+				try {
+					return Double.parseDouble(value);
+				} catch (NumberFormatException e) {
+					chunk.cellErrors.add(new CellError(row, attribute, ErrorCode.UNPARSEABLE_REAL, value, e));
+					return Double.NaN;
+				}
+			}
+		}
+
+		private double parseDate(String value, int row, int attribute) {
+			try {
+				return dateFormat.parse(value).getTime();
+			} catch (ParseException e) {
+				chunk.cellErrors.add(new CellError(row, attribute, ErrorCode.UNPARSEABLE_DATE, value, e));
+				return Double.NaN;
+			}
+		}
+	}
+
+	private final CSVResultSetConfiguration configuration;
+	private final Operator operator;
+	private final int[] columns;
+	private final int[] kinds;
+	private final NumberFormat numberFormat;
+	private final DateFormat dateFormat;
+	private final int threads;
+	private final int chunkSize;
+
+	private final Charset charset;
+	private final byte[] commentCharacters;
+	private final boolean trimLines;
+
+	/** Indicates if lines without quote and escape characters are split on the bytes. */
+	private final boolean splitBytes;
+	private final byte separator;
+	private final byte quoteCharacter;
+	private final byte escapeCharacter;
+
+	/** Indicates if plain decimals are parsed from the bytes. */
+	private final boolean parseNumbers;
+	private final char decimalSeparator;
+
+	private final FileInputStream in;
+	private final FileChannel channel;
+	private final long fileSize;
+
+	/** The start of the first data row. */
+	private long dataStart;
+
+	/** The start of the next chunk. */
+	private long position;
+
+	/**
+	 * Opens the file of the given configuration. The values of the given columns are parsed
+	 * as defined by the given kinds using the given formats.
+	 */
+	CSVChunkedReader(CSVResultSetConfiguration configuration, Operator operator, int[] columns, int[] kinds, NumberFormat numberFormat, DateFormat dateFormat, int chunkSize) throws OperatorException {
+		this.configuration = configuration;
+		this.operator = operator;
+		this.columns = columns;
+		this.kinds = kinds;
+		this.numberFormat = numberFormat;
+		this.dateFormat = dateFormat;
+		this.chunkSize = chunkSize;
+		if (configuration.isParallelExecution() && !ConcurrencyTools.isWorkerThread()) {
+			this.threads = ConcurrencyTools.getNumberOfThreads();
+		} else {
+			this.threads = 1;
+		}
+
+		this.charset = configuration.getEncoding();
+		this.trimLines = configuration.isTrimLines();
+		if (configuration.isSkipComments()) {
+			String characters = configuration.getCommentCharacters();
+			commentCharacters = new byte[characters.length()];
+			for (int i = 0; i < commentCharacters.length; i++) {
+				commentCharacters[i] = (byte) characters.charAt(i);
+			}
+		} else {
+			commentCharacters = new byte[0];
+		}
+
+		String separators = configuration.getColumnSeparators();
+		char quote = configuration.isUseQuotes() ? configuration.getQuoteCharacter() : 0;
+		char escape = configuration.getEscapeCharacter();
+		this.splitBytes = separators.length() == 1 && separators.charAt(0) < 128 && quote < 128 && escape < 128;
+		this.separator = splitBytes ? (byte) separators.charAt(0) : 0;
+		this.quoteCharacter = (byte) quote;
+		this.escapeCharacter = (byte) escape;
+
+		if (numberFormat == null) {
+			this.parseNumbers = true;
+			this.decimalSeparator = '.';
+		} else if (isPlainDecimalFormat(numberFormat)) {
+			this.parseNumbers = true;
+			this.decimalSeparator = ((DecimalFormat) numberFormat).getDecimalFormatSymbols().getDecimalSeparator();
+		} else {
+			this.parseNumbers = false;
+			this.decimalSeparator = 0;
+		}
+
+		try {
+			in = new FileInputStream(configuration.getCsvFile());
+		} catch (IOException e) {
+			throw new UserError(operator, 301, e, configuration.getCsvFile());
+		}
+		channel = in.getChannel();
+		try {
+			fileSize = channel.size();
+			// skipping the byte order mark like the result set does
+			position = 0;
+			if (charset.name().equals("UTF-8") && fileSize >= 3) {
+				ByteBuffer bom = ByteBuffer.allocate(3);
+				while (bom.hasRemaining() && channel.read(bom, bom.position()) > 0) {
+				}
+				if (!bom.hasRemaining() && (bom.get(0) & 0xff) == 239 && (bom.get(1) & 0xff) == 187 && (bom.get(2) & 0xff) == 191) {
+					position = 3;
+				}
+			}
+		} catch (IOException e) {
+			close();
+			throw new UserError(operator, e, 321, configuration.getCsvFile(), e.toString());
+		}
+		dataStart = position;
+	}
+
+	/**
+	 * Returns true if the file of the given configuration can be read chunk-wise. This requires a local
+	 * file and an encoding which represents ASCII characters by single bytes not used otherwise.
+	 */
+	static boolean isApplicable(CSVResultSetConfiguration configuration) {
+		String csvFile = configuration.getCsvFile();
+		if (csvFile == null) {
+			return false;
+		}
+		try {
+			new URL(csvFile);
+			return false;
+		} catch (MalformedURLException e) {
+			if (!new File(csvFile).isFile()) {
+				return false;
+			}
+		}
+		String encoding = configuration.getEncoding().name();
+		if (!encoding.equals("UTF-8") && !encoding.equals("US-ASCII") && !encoding.startsWith("ISO-8859-") && !encoding.startsWith("windows-125")) {
+			return false;
+		}
+		if (configuration.isSkipComments()) {
+			for (char c : configuration.getCommentCharacters().toCharArray()) {
+				if (c >= 128) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/** Returns true if the given format parses plain decimals like {@link Double#parseDouble(String)} with the given decimal separator. */
+	private static boolean isPlainDecimalFormat(NumberFormat numberFormat) {
+		if (!(numberFormat instanceof DecimalFormat)) {
+			return false;
+		}
+		DecimalFormat format = (DecimalFormat) numberFormat;
+		DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+		char decimal = symbols.getDecimalSeparator();
+		if (decimal >= 128 || (decimal >= '0' && decimal <= '9') || decimal == '-' || symbols.getZeroDigit() != '0') {
+			return false;
+		}
+		if (format.isGroupingUsed() && symbols.getGroupingSeparator() == decimal) {
+			return false;
+		}
+		return format.getMultiplier() == 1 && !format.isParseBigDecimal() && !format.isParseIntegerOnly() && "".equals(format.getPositivePrefix()) && "".equals(format.getPositiveSuffix()) && "-".equals(format.getNegativePrefix()) && "".equals(format.getNegativeSuffix());
+	}
+
+	/** Skips the given number of rows, i.e. lines which are not empty after removing comments and can be split. */
+	void skipRows(int rows) throws OperatorException {
+		try {
+			LineParser lineParser = new LineParser(configuration);
+			ByteRange range = new ByteRange(position, LINE_RESERVE);
+			int lineStart = 0;
+			int skipped = 0;
+			while (skipped < rows && range.ensure(lineStart)) {
+				int lineEnd = range.findLineEnd(lineStart);
+				if (!isBlank(range.bytes, lineStart, removeComment(range.bytes, lineStart, lineEnd))) {
+					try {
+						lineParser.parse(new String(range.bytes, lineStart, lineEnd - lineStart, charset));
+						skipped++;
+					} catch (CSVParseException e) {
+						// skipped by the result set as well
+					}
+				}
+				lineStart = range.nextLineStart(lineEnd);
+			}
+			position = range.start + lineStart;
+			dataStart = position;
+		} catch (IOException e) {
+			throw new UserError(operator, e, 321, configuration.getCsvFile(), e.toString());
+		}
+	}
+
+	/** Parses the next chunks, as many as threads are used. Returns an empty list at the end of the file. */
+	List<Chunk> readChunks() throws OperatorException {
+		if (threads == 1) {
+			List<Chunk> chunks = new ArrayList<Chunk>(1);
+			if (position < fileSize) {
+				long end = Math.min(fileSize, position + chunkSize);
+				chunks.add(readChunk(position, end));
+				position = end;
+			}
+			return chunks;
+		}
+		List<Callable<Chunk>> tasks = new ArrayList<Callable<Chunk>>(threads);
+		while (tasks.size() < threads && position < fileSize) {
+			final long start = position;
+			final long end = Math.min(fileSize, position + chunkSize);
+			tasks.add(new Callable<Chunk>() {
+
+				@Override
+				public Chunk call() throws OperatorException {
+					return readChunk(start, end);
+				}
+			});
+			position = end;
+		}
+		if (tasks.isEmpty()) {
+			return new ArrayList<Chunk>(0);
+		}
+		return ConcurrencyTools.invokeAll(tasks, threads, "CSV import");
+	}
+
+	/** Parses all lines starting within the given range. */
+	private Chunk readChunk(long start, long end) throws OperatorException {
+		try {
+			ChunkParser parser = new ChunkParser();
+			ByteRange range;
+			int lineStart;
+			if (start == dataStart) {
+				range = new ByteRange(start, (int) (end - start) + LINE_RESERVE);
+				lineStart = 0;
+			} else {
+				// the chunk starts after the first line break at or after its start
+				range = new ByteRange(start - 1, (int) (end - start) + 1 + LINE_RESERVE);
+				lineStart = range.nextLineStart(range.findLineEnd(0));
+			}
+			int rangeEnd = (int) (end - range.start);
+			while (lineStart < rangeEnd && range.ensure(lineStart)) {
+				int lineEnd = range.findLineEnd(lineStart);
+				parser.parseLine(range.bytes, lineStart, lineEnd);
+				lineStart = range.nextLineStart(lineEnd);
+			}
+			return parser.getChunk();
+		} catch (IOException e) {
+			throw new UserError(operator, e, 321, configuration.getCsvFile(), e.toString());
+		}
+	}
+
+	/** Returns the end of the line before the first comment character, see {@link LineParser#removeComment(String)}. */
+	private int removeComment(byte[] bytes, int start, int end) {
+		int contentEnd = end;
+		for (byte commentCharacter : commentCharacters) {
+			for (int i = start; i < end; i++) {
+				if (bytes[i] == commentCharacter) {
+					contentEnd = i;
+					break;
+				}
+			}
+		}
+		return contentEnd;
+	}
+
+	private static boolean isBlank(byte[] bytes, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if ((bytes[i] & 0xff) > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Returns true if the line neither contains quote nor escape characters nor characters the line parser treats specially. */
+	private boolean isSimple(byte[] bytes, int start, int end) {
+		for (int i = start; i < end; i++) {
+			byte b = bytes[i];
+			if (b == quoteCharacter || b == escapeCharacter || b == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	void close() {
+		try {
+			in.close();
+		} catch (IOException e) {
+		}
+	}
+}
@@ -158,31 +158,37 @@ public class CSVResultSet implements DataResultSet {
                     break;
                 }
             } catch (CSVParseException e) {
-            	ParsingError parsingError = new ParsingError(currentRow, -1, ErrorCode.FILE_SYNTAX_ERROR, line, e);
-                getErrors().add(parsingError);
-                String warning = "Could not parse line " + currentRow + " in input: " + e.toString();
-                if (logCount < MAX_LOG_COUNT) {
-                	if (operator != null) {
-                		operator.logWarning(warning);
-                	} else {                	
-                		LogService.getRoot().warning(warning);
-                	}
-                } else {
-                	if (logCount == MAX_LOG_COUNT) {
-                    	if (operator != null) {
-                    		operator.logWarning("Maximum number of warnings exceeded. Will display no further warnings.");
-                    	} else {                	
-                    		LogService.getRoot().warning("Maximum number of warnings exceeded. Will display no further warnings.");
-                    	}                		
-                	}               	
-                }
-            	logCount++;
+                addParseError(currentRow, line, e);
                 next = new String[] { line };
             }
         } while (true);
         numColumns = Math.max(numColumns, next.length);
     }
 
+    /** Registers and logs a line of the given row which could not be parsed. This is also used
+     *  for the lines of chunks read by the {@link CSVChunkedReader}. */
+    void addParseError(int row, String line, CSVParseException e) {
+        ParsingError parsingError = new ParsingError(row, -1, ErrorCode.FILE_SYNTAX_ERROR, line, e);
+        getErrors().add(parsingError);
+        String warning = "Could not parse line " + row + " in input: " + e.toString();
+        if (logCount < MAX_LOG_COUNT) {
+        	if (operator != null) {
+        		operator.logWarning(warning);
+        	} else {                	
+        		LogService.getRoot().warning(warning);
+        	}
+        } else {
+        	if (logCount == MAX_LOG_COUNT) {
+            	if (operator != null) {
+            		operator.logWarning("Maximum number of warnings exceeded. Will display no further warnings.");
+            	} else {                	
+            		LogService.getRoot().warning("Maximum number of warnings exceeded. Will display no further warnings.");
+            	}                		
+        	}               	
+        }
+    	logCount++;
+    }
+
     @Override
     public boolean hasNext() {
         return next != null;
@@ -275,4 +281,8 @@ public class CSVResultSet implements DataResultSet {
     public List<ParsingError> getErrors() {
         return errors;
     }
+
+    CSVResultSetConfiguration getConfiguration() {
+        return configuration;
+    }
 }
@@ -55,6 +55,8 @@ public class CSVResultSetConfiguration implements DataResultSetFactory {
 	private char escapeCharacter = '\\';
 	private String commentCharacters = "#";
 
+	private boolean parallelExecution = false;
+
 	private Charset encoding = Charset.defaultCharset();
 
 	private List<ParsingError> errors;
@@ -92,6 +94,7 @@ public class CSVResultSetConfiguration implements DataResultSetFactory {
 			setQuoteCharacter(csvExampleSource.getParameterAsChar(CSVExampleSource.PARAMETER_QUOTES_CHARACTER));
 		}
 		encoding = Encoding.getEncoding(csvExampleSource);
+		setParallelExecution(csvExampleSource.getParameterAsBoolean(CSVExampleSource.PARAMETER_PARALLEL_EXECUTION));
 	}
 
 	@Override
@@ -203,6 +206,15 @@ public class CSVResultSetConfiguration implements DataResultSetFactory {
 		return encoding;
 	}
 
+	public void setParallelExecution(boolean parallelExecution) {
+		this.parallelExecution = parallelExecution;
+	}
+
+	/** Returns true if the chunks of local files may be parsed concurrently. */
+	public boolean isParallelExecution() {
+		return parallelExecution;
+	}
+
 	public boolean isSkippingUTF8BOM() {
 		return skipUTF8BOM;
 	}
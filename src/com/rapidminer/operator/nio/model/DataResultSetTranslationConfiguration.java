@@ -78,6 +78,8 @@ public class DataResultSetTranslationConfiguration {
 
     private int dataManagementType = DataRowFactory.TYPE_DOUBLE_ARRAY;
 
+    private boolean memoryMapped = false;
+
     /**
      * This constructor can be used to generate an empty configuration just depending on the given resultSet
      * 
@@ -109,6 +111,7 @@ public class DataResultSetTranslationConfiguration {
             } catch (UndefinedParameterError e1) {
                 dataManagementType = DataRowFactory.TYPE_DOUBLE_ARRAY;
             }
+            memoryMapped = readerOperator.getParameterAsBoolean(AbstractDataResultSetReader.PARAMETER_MEMORY_MAPPED);
 
             List<String[]> annotations;
             try {
@@ -387,4 +390,9 @@ public class DataResultSetTranslationConfiguration {
     public int getDataManagementType() {
         return dataManagementType;
     }
+
+    /** Returns true if the data should be stored in a {@link com.rapidminer.example.table.MappedExampleTable}. */
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
 }
@@ -25,9 +25,13 @@ package com.rapidminer.operator.nio.model;
 import java.text.DateFormat;
 import java.text.NumberFormat;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -40,7 +44,12 @@ import com.rapidminer.example.ExampleSet;
 import com.rapidminer.example.table.AttributeFactory;
 import com.rapidminer.example.table.DataRow;
 import com.rapidminer.example.table.DataRowFactory;
+import com.rapidminer.example.table.DoubleArrayDataRow;
+import com.rapidminer.example.table.ExampleTable;
+import com.rapidminer.example.table.MappedExampleTable;
 import com.rapidminer.example.table.MemoryExampleTable;
+import com.rapidminer.example.table.NominalMapping;
+import com.rapidminer.operator.Annotations;
 import com.rapidminer.operator.Operator;
 import com.rapidminer.operator.OperatorException;
 import com.rapidminer.operator.UserError;
@@ -97,6 +106,15 @@ public class DataResultSetTranslator {
 
     private Operator operator;
 
+    /** The row of the data result set which is read next by {@link #readBatch(DataResultSet, DataResultSetTranslationConfiguration, int, ProgressListener)}. */
+    private int nextBatchRow = 0;
+
+    /** The annotations of the attributes of the first batch by their table index. */
+    private Map<Integer, Annotations> batchAnnotations = null;
+
+    /** The nominal mappings of the attributes of the previous batch by their table index. */
+    private NominalMapping[] batchMappings = null;
+
     public DataResultSetTranslator(Operator operator) {
         this.operator = operator;
     }
@@ -105,6 +123,47 @@ public class DataResultSetTranslator {
      * This method will start the translation of the actual ResultDataSet to an ExampleSet.
      */
     public ExampleSet read(DataResultSet dataResultSet, DataResultSetTranslationConfiguration configuration, boolean previewOnly, ProgressListener listener) throws OperatorException {
+        return read(dataResultSet, configuration, 0, -1, null, previewOnly, listener);
+    }
+
+    /**
+     * Reads the next batch of at most the given number of examples. The first call starts reading the data result
+     * set from the beginning, all following calls continue where the previous one stopped. The attributes of all
+     * batches are named and annotated like those of the first one and continue the nominal mappings of
+     * the previous batch, so that nominal values are mapped like they would be in a single example set.
+     */
+    public ExampleSet readBatch(DataResultSet dataResultSet, DataResultSetTranslationConfiguration configuration, int batchSize, ProgressListener listener) throws OperatorException {
+        ExampleSet batch = read(dataResultSet, configuration, nextBatchRow, batchSize, batchMappings, false, listener);
+        Attribute[] tableAttributes = batch.getExampleTable().getAttributes();
+        batchMappings = new NominalMapping[tableAttributes.length];
+        for (int i = 0; i < tableAttributes.length; i++) {
+            if (tableAttributes[i] != null && tableAttributes[i].isNominal()) {
+                batchMappings[i] = tableAttributes[i].getMapping();
+            }
+        }
+        if (batchAnnotations == null) {
+            batchAnnotations = new HashMap<Integer, Annotations>();
+            Iterator<Attribute> i = batch.getAttributes().allAttributes();
+            while (i.hasNext()) {
+                Attribute attribute = i.next();
+                batchAnnotations.put(attribute.getTableIndex(), new Annotations(attribute.getAnnotations()));
+            }
+        } else {
+            Iterator<Attribute> i = batch.getAttributes().allAttributes();
+            while (i.hasNext()) {
+                Attribute attribute = i.next();
+                attribute.getAnnotations().putAll(batchAnnotations.get(attribute.getTableIndex()));
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Reads at most the given number of examples starting with the given row of the data result set. If the
+     * first row is 0, the data result set is reset before. If mappings are given, the nominal attributes
+     * start with copies of them.
+     */
+    private ExampleSet read(DataResultSet dataResultSet, DataResultSetTranslationConfiguration configuration, int firstRow, int maxExamples, NominalMapping[] mappings, boolean previewOnly, ProgressListener listener) throws OperatorException {
         int maxRows = previewOnly ? ImportWizardUtils.getPreviewLength() : -1;
 
         cancelLoadingRequested = false;
@@ -122,97 +181,164 @@ public class DataResultSetTranslator {
             attributes[i] = AttributeFactory.createAttribute(configuration.getColumnMetaData(attributeColumns[i]).getOriginalAttributeName(), attributeValueType);
         }
 
-        // check whether all columns are accessible
-        int numberOfAvailableColumns = dataResultSet.getNumberOfColumns();
-        for (int attributeColumn : attributeColumns) {
-            if(attributeColumn >= numberOfAvailableColumns) {
-                throw new UserError(null, "data_import.specified_more_columns_than_exist", configuration.getColumnMetaData(attributeColumn).getUserDefinedAttributeName(), attributeColumn);
+        // check whether all columns are accessible, later batches start within the data where only the current row is known
+        if (firstRow == 0) {
+            int numberOfAvailableColumns = dataResultSet.getNumberOfColumns();
+            for (int attributeColumn : attributeColumns) {
+                if(attributeColumn >= numberOfAvailableColumns) {
+                    throw new UserError(null, "data_import.specified_more_columns_than_exist", configuration.getColumnMetaData(attributeColumn).getUserDefinedAttributeName(), attributeColumn);
+                }
             }
         }
 
         // building example table
-        MemoryExampleTable exampleTable = new MemoryExampleTable(attributes);
+        ExampleTable exampleTable;
+        MappedExampleTable mappedTable = null;
+        if (configuration.isMemoryMapped() && !previewOnly) {
+            mappedTable = new MappedExampleTable(Arrays.asList(attributes), configuration.getDataManagementType(), 0);
+            exampleTable = mappedTable;
+        } else {
+            exampleTable = new MemoryExampleTable(attributes);
+        }
         attributes = exampleTable.getAttributes();
+        if (mappings != null) {
+            for (int i = 0; i < attributes.length; i++) {
+                if (attributes[i].isNominal() && mappings[i] != null) {
+                    attributes[i].setMapping((NominalMapping) mappings[i].clone());
+                }
+            }
+        }
 
-        // now iterate over complete dataResultSet and copy data
-        int currentRow = 0; 		// The row in the underlying DataResultSet
-        int exampleIndex = 0;		// The row in the example set
-        dataResultSet.reset(listener);
-        DataRowFactory factory = new DataRowFactory(configuration.getDataManagementType(), '.');
-        int maxAnnotatedRow = configuration.getLastAnnotatedRowIndex();
-        while (dataResultSet.hasNext() && !shouldStop && (currentRow < maxRows || maxRows < 0)) {
-            if (cancelLoadingRequested) {
-                break;
+        // a partially read memory mapped table is not used by anyone, so its files are deleted at once
+        boolean complete = false;
+        try {
+            // now iterate over complete dataResultSet and copy data
+            int currentRow = firstRow; 	// The row in the underlying DataResultSet
+            int exampleIndex = 0;		// The row in the example set
+            if (firstRow == 0) {
+                dataResultSet.reset(listener);
             }
-            dataResultSet.next(listener);
-            // checking for annotation
-            String currentAnnotation;
-            if (currentRow <= maxAnnotatedRow) {
-                currentAnnotation = configuration.getAnnotation(currentRow);
-            } else {
-                currentAnnotation = null;
+            DataRowFactory factory = new DataRowFactory(configuration.getDataManagementType(), '.');
+            int maxAnnotatedRow = configuration.getLastAnnotatedRowIndex();
+            double[] values = new double[attributes.length];
+            // the data rows of local csv files are read chunk-wise after the annotated rows
+            CSVChunkedReader chunkedReader = null;
+            if (!previewOnly && maxExamples < 0 && dataResultSet instanceof CSVResultSet && CSVChunkedReader.isApplicable(((CSVResultSet) dataResultSet).getConfiguration())) {
+                int[] kinds = new int[attributes.length];
+                for (int i = 0; i < attributes.length; i++) {
+                    switch (attributes[i].getValueType()) {
+                    case Ontology.INTEGER:
+                    case Ontology.NUMERICAL:
+                    case Ontology.REAL:
+                        kinds[i] = CSVChunkedReader.KIND_NUMBER;
+                        break;
+                    case Ontology.DATE_TIME:
+                    case Ontology.TIME:
+                    case Ontology.DATE:
+                        kinds[i] = CSVChunkedReader.KIND_DATE;
+                        break;
+                    default:
+                        kinds[i] = CSVChunkedReader.KIND_NOMINAL;
+                    }
+                }
+                chunkedReader = new CSVChunkedReader(((CSVResultSet) dataResultSet).getConfiguration(), operator, attributeColumns, kinds, configuration.getNumberFormat(), configuration.getDateFormat(), CSVChunkedReader.DEFAULT_CHUNK_SIZE);
             }
-            if (currentAnnotation != null) {
-                // registering annotation on all attributes
-                int attributeIndex = 0;
-                for (Attribute attribute : attributes) {
-                    if (AbstractDataResultSetReader.ANNOTATION_NAME.equals(currentAnnotation)) {
-                        // resetting name
-                        String newAttributeName = getString(dataResultSet, exampleIndex, attributeColumns[attributeIndex], isFaultTolerant);
-                        if (newAttributeName != null && !newAttributeName.isEmpty()) {
-                            attribute.setName(newAttributeName);
-                            attribute.setConstruction(newAttributeName);
-                            // We also remember the name in the CMD since we otherwise would override the attribute name later in this method
-                            ColumnMetaData cmd = configuration.getColumnMetaData(attributeColumns[attributeIndex]);
-                            if (cmd != null) {
-                                if (!cmd.isAttributeNameSpecified()) {
-                                    cmd.setUserDefinedAttributeName(newAttributeName);
+            while (dataResultSet.hasNext() && !shouldStop && (currentRow < maxRows || maxRows < 0) && (exampleIndex < maxExamples || maxExamples < 0) && (chunkedReader == null || currentRow <= maxAnnotatedRow)) {
+                if (cancelLoadingRequested) {
+                    break;
+                }
+                dataResultSet.next(listener);
+                // checking for annotation
+                String currentAnnotation;
+                if (currentRow <= maxAnnotatedRow) {
+                    currentAnnotation = configuration.getAnnotation(currentRow);
+                } else {
+                    currentAnnotation = null;
+                }
+                if (currentAnnotation != null) {
+                    // registering annotation on all attributes
+                    int attributeIndex = 0;
+                    for (Attribute attribute : attributes) {
+                        if (AbstractDataResultSetReader.ANNOTATION_NAME.equals(currentAnnotation)) {
+                            // resetting name
+                            String newAttributeName = getString(dataResultSet, exampleIndex, attributeColumns[attributeIndex], isFaultTolerant);
+                            if (newAttributeName != null && !newAttributeName.isEmpty()) {
+                                attribute.setName(newAttributeName);
+                                attribute.setConstruction(newAttributeName);
+                                // We also remember the name in the CMD since we otherwise would override the attribute name later in this method
+                                ColumnMetaData cmd = configuration.getColumnMetaData(attributeColumns[attributeIndex]);
+                                if (cmd != null) {
+                                    if (!cmd.isAttributeNameSpecified()) {
+                                        cmd.setUserDefinedAttributeName(newAttributeName);
+                                    }
                                 }
-                            }
 
+                            }
+                        } else {
+                            // setting annotation
+                            String annotationValue = getString(dataResultSet, exampleIndex, attributeColumns[attributeIndex], isFaultTolerant);
+                            if (annotationValue != null && !annotationValue.isEmpty())
+                                attribute.getAnnotations().put(currentAnnotation, annotationValue);
                         }
-                    } else {
-                        // setting annotation
-                        String annotationValue = getString(dataResultSet, exampleIndex, attributeColumns[attributeIndex], isFaultTolerant);
-                        if (annotationValue != null && !annotationValue.isEmpty())
-                            attribute.getAnnotations().put(currentAnnotation, annotationValue);
+                        attributeIndex++;
                     }
-                    attributeIndex++;
-                }
-            } else {
-                // creating data row
-                DataRow row = factory.create(attributes.length);
-                //DoubleArrayDataRow row = new DoubleArrayDataRow(new double[attributes.length]);
-                exampleTable.addDataRow(row);
-                int attributeIndex = 0;
-                for (Attribute attribute : attributes) {
-                    // check for missing
-                    if (dataResultSet.isMissing(attributeColumns[attributeIndex])) {
-                        row.set(attribute, Double.NaN);
+                } else {
+                    // creating data row, mapped tables copy the values of a reused row
+                    DataRow row;
+                    if (mappedTable != null) {
+                        row = new DoubleArrayDataRow(values);
                     } else {
-                        switch (attribute.getValueType()) {
-                        case Ontology.INTEGER:
-                            row.set(attribute, getOrParseNumber(configuration, dataResultSet, exampleIndex, attributeColumns[attributeIndex], isFaultTolerant));
-                            //getNumber(dataResultSet, exampleIndex, attributeColumns[attributeIndex], isFaultTolerant).intValue());
-                            break;
-                        case Ontology.NUMERICAL:
-                        case Ontology.REAL:
-                            row.set(attribute, getOrParseNumber(configuration, dataResultSet, exampleIndex, attributeColumns[attributeIndex], isFaultTolerant));
-                            break;
-                        case Ontology.DATE_TIME:
-                        case Ontology.TIME:
-                        case Ontology.DATE:
-                            row.set(attribute, getOrParseDate(configuration, dataResultSet, exampleIndex, attributeColumns[attributeIndex], isFaultTolerant));
-                            break;
-                        default:
-                            row.set(attribute, getStringIndex(attribute, dataResultSet, exampleIndex, attributeColumns[attributeIndex], isFaultTolerant));
+                        row = factory.create(attributes.length);
+                        ((MemoryExampleTable) exampleTable).addDataRow(row);
+                    }
+                    int attributeIndex = 0;
+                    for (Attribute attribute : attributes) {
+                        // check for missing
+                        if (dataResultSet.isMissing(attributeColumns[attributeIndex])) {
+                            row.set(attribute, Double.NaN);
+                        } else {
+                            switch (attribute.getValueType()) {
+                            case Ontology.INTEGER:
+                                row.set(attribute, getOrParseNumber(configuration, dataResultSet, exampleIndex, attributeColumns[attributeIndex], isFaultTolerant));
+                                //getNumber(dataResultSet, exampleIndex, attributeColumns[attributeIndex], isFaultTolerant).intValue());
+                                break;
+                            case Ontology.NUMERICAL:
+                            case Ontology.REAL:
+                                row.set(attribute, getOrParseNumber(configuration, dataResultSet, exampleIndex, attributeColumns[attributeIndex], isFaultTolerant));
+                                break;
+                            case Ontology.DATE_TIME:
+                            case Ontology.TIME:
+                            case Ontology.DATE:
+                                row.set(attribute, getOrParseDate(configuration, dataResultSet, exampleIndex, attributeColumns[attributeIndex], isFaultTolerant));
+                                break;
+                            default:
+                                row.set(attribute, getStringIndex(attribute, dataResultSet, exampleIndex, attributeColumns[attributeIndex], isFaultTolerant));
+                            }
                         }
+                        attributeIndex++;
+                    }
+                    if (mappedTable != null) {
+                        mappedTable.addDataRow(row);
                     }
-                    attributeIndex++;
+                    exampleIndex++;
                 }
-                exampleIndex++;
+                currentRow++;
+            }
+            nextBatchRow = currentRow;
+            if (chunkedReader != null) {
+                try {
+                    if (dataResultSet.hasNext() && !shouldStop && !cancelLoadingRequested) {
+                        readChunks(chunkedReader, (CSVResultSet) dataResultSet, currentRow, exampleIndex, attributes, attributeColumns, exampleTable, mappedTable, factory, isFaultTolerant);
+                    }
+                } finally {
+                    chunkedReader.close();
+                }
+            }
+            complete = true;
+        } finally {
+            if (!complete && mappedTable != null) {
+                mappedTable.close();
             }
-            currentRow++;
         }
 
         // derive ExampleSet from exampleTable and assigning roles
@@ -248,6 +374,108 @@ public class DataResultSetTranslator {
         return exampleSet;
     }
 
+    /**
+     * Adds the rows read by the given chunked reader starting with the given row. The nominal values of
+     * the chunks are mapped in the order of the chunks and the errors are reported as if the rows were
+     * read from the result set.
+     */
+    private void readChunks(CSVChunkedReader reader, CSVResultSet resultSet, int currentRow, int exampleIndex, Attribute[] attributes, int[] attributeColumns, ExampleTable exampleTable, MappedExampleTable mappedTable, DataRowFactory factory, boolean isFaultTolerant) throws OperatorException {
+        int firstRow = currentRow;
+        reader.skipRows(firstRow);
+        double[] values = new double[attributes.length];
+        List<CSVChunkedReader.Chunk> chunks = reader.readChunks();
+        while (!chunks.isEmpty()) {
+            for (CSVChunkedReader.Chunk chunk : chunks) {
+                if (shouldStop || cancelLoadingRequested) {
+                    return;
+                }
+                // mapping the nominal values of the chunk
+                List<CSVChunkedReader.CellError> cellErrors = new ArrayList<CSVChunkedReader.CellError>(chunk.getCellErrors());
+                double[][] mappings = new double[attributes.length][];
+                for (int i = 0; i < attributes.length; i++) {
+                    List<String> dictionary = chunk.getDictionary(i);
+                    if (dictionary == null) {
+                        continue;
+                    }
+                    mappings[i] = new double[dictionary.size()];
+                    AttributeTypeException[] mappingErrors = null;
+                    for (int j = 0; j < dictionary.size(); j++) {
+                        try {
+                            mappings[i][j] = attributes[i].getMapping().mapString(dictionary.get(j));
+                        } catch (AttributeTypeException e) {
+                            if (mappingErrors == null) {
+                                mappingErrors = new AttributeTypeException[dictionary.size()];
+                            }
+                            mappingErrors[j] = e;
+                            mappings[i][j] = Double.NaN;
+                        }
+                    }
+                    if (mappingErrors != null) {
+                        for (int row = 0; row < chunk.getSize(); row++) {
+                            double value = chunk.getValue(i, row);
+                            if (!Double.isNaN(value) && mappingErrors[(int) value] != null) {
+                                cellErrors.add(new CSVChunkedReader.CellError(row, i, ErrorCode.MORE_THAN_TWO_VALUES, dictionary.get((int) value), mappingErrors[(int) value]));
+                            }
+                        }
+                    }
+                }
+                Collections.sort(cellErrors, new Comparator<CSVChunkedReader.CellError>() {
+
+                    @Override
+                    public int compare(CSVChunkedReader.CellError e1, CSVChunkedReader.CellError e2) {
+                        if (e1.row != e2.row) {
+                            return e1.row < e2.row ? -1 : 1;
+                        }
+                        return e1.attribute - e2.attribute;
+                    }
+                });
+                // the result set reports lines which cannot be split while looking ahead to the next row,
+                // it has already looked ahead to the first row
+                Iterator<CSVChunkedReader.LineError> lineErrors = chunk.getLineErrors().iterator();
+                CSVChunkedReader.LineError lineError = lineErrors.hasNext() ? lineErrors.next() : null;
+                for (CSVChunkedReader.CellError error : cellErrors) {
+                    while (lineError != null && lineError.row <= error.row + 1) {
+                        if (currentRow + lineError.row > firstRow) {
+                            resultSet.addParseError(currentRow + lineError.row - 1, lineError.line, lineError.cause);
+                        }
+                        lineError = lineErrors.hasNext() ? lineErrors.next() : null;
+                    }
+                    addOrThrow(isFaultTolerant, new ParsingError(currentRow + error.row, attributeColumns[error.attribute], error.code, error.value, error.cause), exampleIndex + error.row);
+                }
+                while (lineError != null) {
+                    if (currentRow + lineError.row > firstRow) {
+                        resultSet.addParseError(currentRow + lineError.row - 1, lineError.line, lineError.cause);
+                    }
+                    lineError = lineErrors.hasNext() ? lineErrors.next() : null;
+                }
+
+                // creating data rows, mapped tables copy the values of a reused row
+                for (int row = 0; row < chunk.getSize(); row++) {
+                    DataRow dataRow;
+                    if (mappedTable != null) {
+                        dataRow = new DoubleArrayDataRow(values);
+                    } else {
+                        dataRow = factory.create(attributes.length);
+                        ((MemoryExampleTable) exampleTable).addDataRow(dataRow);
+                    }
+                    for (int i = 0; i < attributes.length; i++) {
+                        double value = chunk.getValue(i, row);
+                        if (mappings[i] != null && !Double.isNaN(value)) {
+                            value = mappings[i][(int) value];
+                        }
+                        dataRow.set(attributes[i], value);
+                    }
+                    if (mappedTable != null) {
+                        mappedTable.addDataRow(dataRow);
+                    }
+                }
+                currentRow += chunk.getSize();
+                exampleIndex += chunk.getSize();
+            }
+            chunks = reader.readChunks();
+        }
+    }
+
     /** If native type is date, returns the date. Otherwise, uses string and parses.
      */
     private double getOrParseDate(DataResultSetTranslationConfiguration config, DataResultSet dataResultSet, int row, int column, boolean isFaultTolerant) throws OperatorException {
@@ -22,6 +22,10 @@
  */
 package com.rapidminer.operator.ports;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
 import com.rapidminer.operator.IOObject;
 import com.rapidminer.operator.IOObjectCollection;
 import com.rapidminer.operator.ports.metadata.CollectionMetaData;
@@ -62,11 +66,26 @@ public class CollectingPortPairExtender extends PortPairExtender {
 
 	/** For all input ports that have data, this data is added to the collection currently assigned
 	 *  to the output port. */
-	@SuppressWarnings("unchecked")
 	public void collect() {
+		List<IOObject> data = new ArrayList<IOObject>(getManagedPairs().size());
+		for (PortPair pair : getManagedPairs()) {
+			data.add(pair.getInputPort().getAnyDataOrNull());
+		}
+		collect(data);
+	}
+
+	/** Adds the given objects to the collections currently assigned to the output ports in the order
+	 *  of the managed port pairs. Null entries are skipped. This can be used to collect data which was not
+	 *  delivered to the input ports, e.g. results of concurrently executed copies of the operator. */
+	@SuppressWarnings("unchecked")
+	public void collect(List<IOObject> dataList) {
 		synchronized (this) {
+			Iterator<IOObject> dataIterator = dataList.iterator();
 			for (PortPair pair : getManagedPairs()) {
-				IOObject data = pair.getInputPort().getAnyDataOrNull();
+				if (!dataIterator.hasNext()) {
+					break;
+				}
+				IOObject data = dataIterator.next();
 				if (data != null) {
 					IOObject output = pair.getOutputPort().getAnyDataOrNull();
 					if (output == null) { // first iteration
@@ -33,6 +33,7 @@ import com.rapidminer.example.AttributeRole;
 import com.rapidminer.example.Example;
 import com.rapidminer.example.ExampleSet;
 import com.rapidminer.example.table.AttributeFactory;
+import com.rapidminer.example.table.ColumnarExampleTable;
 import com.rapidminer.example.table.DataRow;
 import com.rapidminer.example.table.DataRowFactory;
 import com.rapidminer.example.table.MemoryExampleTable;
@@ -42,6 +43,7 @@ import com.rapidminer.operator.OperatorException;
 import com.rapidminer.operator.annotation.ResourceConsumptionEstimator;
 import com.rapidminer.operator.io.ExampleSource;
 import com.rapidminer.parameter.ParameterType;
+import com.rapidminer.parameter.ParameterTypeBoolean;
 import com.rapidminer.parameter.ParameterTypeCategory;
 import com.rapidminer.parameter.UndefinedParameterError;
 import com.rapidminer.tools.OperatorResourceConsumptionHandler;
@@ -56,13 +58,16 @@ import com.rapidminer.tools.OperatorResourceConsumptionHandler;
  */
 public class MaterializeDataInMemory extends AbstractDataProcessing {
 
+	/** If true, the data is stored column-wise in a {@link ColumnarExampleTable}. */
+	public static final String PARAMETER_COLUMNAR = "columnar";
+
 	public MaterializeDataInMemory(OperatorDescription description) {
 		super(description);
 	}
 
 	@Override
 	public ExampleSet apply(ExampleSet exampleSet) throws OperatorException {		
-		ExampleSet createdSet = materializeExampleSet(exampleSet, getParameterAsInt(ExampleSource.PARAMETER_DATAMANAGEMENT));
+		ExampleSet createdSet = materializeExampleSet(exampleSet, getParameterAsInt(ExampleSource.PARAMETER_DATAMANAGEMENT), getParameterAsBoolean(PARAMETER_COLUMNAR));
 		return createdSet;		
 	}
 
@@ -70,6 +75,7 @@ public class MaterializeDataInMemory extends AbstractDataProcessing {
 	public List<ParameterType> getParameterTypes() {
 		List<ParameterType> types = super.getParameterTypes();
 		types.add(new ParameterTypeCategory(ExampleSource.PARAMETER_DATAMANAGEMENT, "Determines, how the data is represented internally.", DataRowFactory.TYPE_NAMES, DataRowFactory.TYPE_DOUBLE_ARRAY, false));
+		types.add(new ParameterTypeBoolean(PARAMETER_COLUMNAR, "If checked, the data is stored column-wise in primitive arrays instead of one data row per example. This saves memory and speeds up operators scanning complete attributes.", false, true));
 		return types;
 	}
 	
@@ -82,6 +88,14 @@ public class MaterializeDataInMemory extends AbstractDataProcessing {
 	 * This method will return a completely materialized copy of the example set
 	 */
 	public static ExampleSet materializeExampleSet(ExampleSet exampleSet, int dataManagement) throws UndefinedParameterError {
+		return materializeExampleSet(exampleSet, dataManagement, false);
+	}
+
+	/**
+	 * This method will return a completely materialized copy of the example set. If columnar is true,
+	 * the data will be stored in a {@link ColumnarExampleTable}.
+	 */
+	public static ExampleSet materializeExampleSet(ExampleSet exampleSet, int dataManagement, boolean columnar) throws UndefinedParameterError {
 		// create new attributes and table
 		List<Attribute> attributes = new ArrayList<Attribute>();
 		Map<Attribute,String> specialAttributes = new HashMap<Attribute, String>();
@@ -103,6 +117,24 @@ public class MaterializeDataInMemory extends AbstractDataProcessing {
 			}
 		}
 
+		if (columnar) {
+			ColumnarExampleTable table = new ColumnarExampleTable(attributes, dataManagement, exampleSet.size());
+			double[] values = new double[attributes.size()];
+			for (Example example : exampleSet) {
+				Iterator<Attribute> i = exampleSet.getAttributes().allAttributes();
+				int attributeCounter = 0;
+				while (i.hasNext()) {
+					Attribute attribute = i.next();
+					values[attributeCounter] = mapValue(attribute, attributes.get(attributeCounter), example.getValue(attribute));
+					attributeCounter++;
+				}
+				table.addRow(values);
+			}
+			ExampleSet createdSet = table.createExampleSet(specialAttributes);
+			createdSet.getAnnotations().addAll(exampleSet.getAnnotations());
+			return createdSet;
+		}
+
 		// fill table with data
 		MemoryExampleTable table = new MemoryExampleTable(attributes);
 		DataRowFactory factory = new DataRowFactory(dataManagement, '.');
@@ -112,15 +144,8 @@ public class MaterializeDataInMemory extends AbstractDataProcessing {
 			DataRow row = factory.create(attributes.size());
 			while (i.hasNext()) {
 				Attribute attribute = i.next();
-				double value = example.getValue(attribute);
 				Attribute newAttribute = attributes.get(attributeCounter); 
-				if (attribute.isNominal()) {
-					if (!Double.isNaN(value)) {
-						String nominalValue = attribute.getMapping().mapIndex((int)value);
-						value = newAttribute.getMapping().mapString(nominalValue);
-					}
-				}
-				row.set(newAttribute, value);
+				row.set(newAttribute, mapValue(attribute, newAttribute, example.getValue(attribute)));
 				attributeCounter++;
 			}
 			table.addDataRow(row);
@@ -132,6 +157,17 @@ public class MaterializeDataInMemory extends AbstractDataProcessing {
 		return createdSet;
 	}
 	
+	/** Maps nominal values of the original attribute onto the mapping of the new attribute. */
+	private static double mapValue(Attribute attribute, Attribute newAttribute, double value) {
+		if (attribute.isNominal()) {
+			if (!Double.isNaN(value)) {
+				String nominalValue = attribute.getMapping().mapIndex((int)value);
+				value = newAttribute.getMapping().mapString(nominalValue);
+			}
+		}
+		return value;
+	}
+
 	@Override
 	public boolean writesIntoExistingData() {
 		return false;
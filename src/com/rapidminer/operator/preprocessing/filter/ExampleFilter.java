@@ -31,6 +31,7 @@ import com.rapidminer.example.set.ConditionCreationException;
 import com.rapidminer.example.set.ConditionedExampleSet;
 import com.rapidminer.operator.OperatorDescription;
 import com.rapidminer.operator.OperatorException;
+import com.rapidminer.operator.StreamableOperator;
 import com.rapidminer.operator.UserError;
 import com.rapidminer.operator.annotation.ResourceConsumptionEstimator;
 import com.rapidminer.operator.ports.metadata.AttributeMetaData;
@@ -78,7 +79,7 @@ import com.rapidminer.tools.OperatorResourceConsumptionHandler;
  * 
  * @author Ingo Mierswa, Simon Fischer
  */
-public class ExampleFilter extends AbstractDataProcessing {
+public class ExampleFilter extends AbstractDataProcessing implements StreamableOperator {
 
 	/** The parameter name for &quot;Implementation of the condition.&quot; */
 	public static final String PARAMETER_CONDITION_CLASS = "condition_class";
@@ -126,6 +127,14 @@ public class ExampleFilter extends AbstractDataProcessing {
 		return result;
 	}
 	
+	@Override
+	public void startStreaming(int batchSize) {
+		// each example is processed independently
+	}
+
+	@Override
+	public void finishStreaming() {}
+
 	@Override
 	public List<ParameterType> getParameterTypes() {
 		List<ParameterType> types = super.getParameterTypes();
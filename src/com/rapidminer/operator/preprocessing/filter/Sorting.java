@@ -35,7 +35,11 @@ import com.rapidminer.operator.ports.metadata.AttributeSetPrecondition;
 import com.rapidminer.operator.preprocessing.AbstractDataProcessing;
 import com.rapidminer.parameter.ParameterType;
 import com.rapidminer.parameter.ParameterTypeAttribute;
+import com.rapidminer.parameter.ParameterTypeBoolean;
 import com.rapidminer.parameter.ParameterTypeCategory;
+import com.rapidminer.parameter.ParameterTypeList;
+import com.rapidminer.parameter.ParameterTypeStringCategory;
+import com.rapidminer.tools.ConcurrencyTools;
 import com.rapidminer.tools.OperatorResourceConsumptionHandler;
 
 /**
@@ -45,6 +49,12 @@ import com.rapidminer.tools.OperatorResourceConsumptionHandler;
  * in increasing or in decreasing direction.
  * </p>
  * 
+ * <p>
+ * Additional attributes can be defined, which are used in the given order for sorting
+ * examples with equal values of the preceding attributes. Examples with equal values of
+ * all attributes keep their order.
+ * </p>
+ * 
  * @author Ingo Mierswa
  */
 public class Sorting extends AbstractDataProcessing {
@@ -55,10 +65,17 @@ public class Sorting extends AbstractDataProcessing {
 	/** The parameter name for &quot;Indicates the direction of the sorting.&quot; */
 	public static final String PARAMETER_SORTING_DIRECTION = "sorting_direction";
 
+	/** The parameter name for &quot;Additional attributes and directions which are used for examples with equal values of the preceding attributes.&quot; */
+	public static final String PARAMETER_ADDITIONAL_ATTRIBUTES = "additional_attributes";
+
+	/** The parameter name for &quot;Indicates if the sorting should be computed concurrently.&quot; */
+	public static final String PARAMETER_PARALLEL_EXECUTION = "parallel_execution";
+
 	public Sorting(OperatorDescription description) {
 		super(description);
 
 		getExampleSetInputPort().addPrecondition(new AttributeSetPrecondition(getExampleSetInputPort(), AttributeSetPrecondition.getAttributesByParameter(this, PARAMETER_ATTRIBUTE_NAME)));
+		getExampleSetInputPort().addPrecondition(new AttributeSetPrecondition(getExampleSetInputPort(), AttributeSetPrecondition.getAttributesByParameterListEntry(this, PARAMETER_ADDITIONAL_ATTRIBUTES, 0)));
 	}
 
 	@Override
@@ -70,7 +87,27 @@ public class Sorting extends AbstractDataProcessing {
 			throw new UserError(this, 111, getParameterAsString(PARAMETER_ATTRIBUTE_NAME));
 		}
 
-		ExampleSet result = new SortedExampleSet(exampleSet, sortingAttribute, sortingDirection);
+		// additional attributes
+		List<String[]> additionalAttributes = getParameterList(PARAMETER_ADDITIONAL_ATTRIBUTES);
+		Attribute[] sortingAttributes = new Attribute[additionalAttributes.size() + 1];
+		int[] sortingDirections = new int[sortingAttributes.length];
+		sortingAttributes[0] = sortingAttribute;
+		sortingDirections[0] = sortingDirection;
+		int i = 1;
+		for (String[] pair : additionalAttributes) {
+			sortingAttributes[i] = exampleSet.getAttributes().get(pair[0]);
+			if (sortingAttributes[i] == null) {
+				throw new UserError(this, 111, pair[0]);
+			}
+			sortingDirections[i] = SortedExampleSet.SORTING_DIRECTIONS[SortedExampleSet.DECREASING].equals(pair[1]) ? SortedExampleSet.DECREASING : SortedExampleSet.INCREASING;
+			i++;
+		}
+
+		int threads = 1;
+		if (getParameterAsBoolean(PARAMETER_PARALLEL_EXECUTION) && !ConcurrencyTools.isWorkerThread()) {
+			threads = ConcurrencyTools.getNumberOfThreads();
+		}
+		ExampleSet result = new SortedExampleSet(exampleSet, sortingAttributes, sortingDirections, threads);
 
 		return result;
 	}
@@ -80,6 +117,10 @@ public class Sorting extends AbstractDataProcessing {
 		List<ParameterType> types = super.getParameterTypes();
 		types.add(new ParameterTypeAttribute(PARAMETER_ATTRIBUTE_NAME, "Indicates the attribute which should be used for determining the sorting.", getExampleSetInputPort(), false));
 		types.add(new ParameterTypeCategory(PARAMETER_SORTING_DIRECTION, "Indicates the direction of the sorting.", SortedExampleSet.SORTING_DIRECTIONS, SortedExampleSet.INCREASING, false));
+		types.add(new ParameterTypeList(PARAMETER_ADDITIONAL_ATTRIBUTES, "Additional attributes and directions which are used for examples with equal values of the preceding attributes.",
+				new ParameterTypeAttribute("additional_attribute", "An attribute which should be used for sorting examples with equal values of the preceding attributes.", getExampleSetInputPort(), false),
+				new ParameterTypeStringCategory("additional_sorting_direction", "The direction of the sorting for this attribute.", SortedExampleSet.SORTING_DIRECTIONS, SortedExampleSet.SORTING_DIRECTIONS[SortedExampleSet.INCREASING], false), true));
+		types.add(new ParameterTypeBoolean(PARAMETER_PARALLEL_EXECUTION, "Indicates if the sorting should be computed concurrently.", false));
 		return types;
 	}
 	
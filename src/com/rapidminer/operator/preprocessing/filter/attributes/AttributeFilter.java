@@ -22,6 +22,7 @@
  */
 package com.rapidminer.operator.preprocessing.filter.attributes;
 
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -29,6 +30,7 @@ import java.util.Set;
 import com.rapidminer.example.Attribute;
 import com.rapidminer.example.Attributes;
 import com.rapidminer.example.ExampleSet;
+import com.rapidminer.example.set.ConditionCreationException;
 import com.rapidminer.operator.OperatorDescription;
 import com.rapidminer.operator.OperatorException;
 import com.rapidminer.operator.annotation.ResourceConsumptionEstimator;
@@ -36,8 +38,10 @@ import com.rapidminer.operator.features.selection.AbstractFeatureSelection;
 import com.rapidminer.operator.ports.metadata.AttributeMetaData;
 import com.rapidminer.operator.ports.metadata.ExampleSetMetaData;
 import com.rapidminer.operator.ports.metadata.MetaData;
+import com.rapidminer.operator.ports.metadata.SetRelation;
 import com.rapidminer.operator.tools.AttributeSubsetSelector;
 import com.rapidminer.parameter.ParameterType;
+import com.rapidminer.parameter.UndefinedParameterError;
 import com.rapidminer.tools.OperatorResourceConsumptionHandler;
 
 
@@ -82,6 +86,33 @@ public class AttributeFilter extends AbstractFeatureSelection {
 		return metaData;
 	}
 
+	/** Returns the names of all attributes which will be kept for an input described by the given meta data.
+	 *  If this cannot be decided from the meta data alone, e.g. because the selected condition depends
+	 *  on the data values or the parameters are not set correctly, null is returned. */
+	public Set<String> getSelectedAttributeNames(ExampleSetMetaData metaData) {
+		if (metaData.getAttributeSetRelation() != SetRelation.EQUAL) {
+			return null;
+		}
+		try {
+			if (attributeSelector.isNeedingScan()) {
+				return null;
+			}
+		} catch (UndefinedParameterError e) {
+			return null;
+		} catch (ConditionCreationException e) {
+			return null;
+		}
+		ExampleSetMetaData subset = attributeSelector.getMetaDataSubset(metaData, true);
+		if (subset.getAttributeSetRelation() != SetRelation.EQUAL || subset.getAllAttributes().isEmpty()) {
+			return null;
+		}
+		Set<String> names = new HashSet<String>();
+		for (AttributeMetaData amd : subset.getAllAttributes()) {
+			names.add(amd.getName());
+		}
+		return names;
+	}
+
 	@Override
 	public ExampleSet apply(ExampleSet exampleSet) throws OperatorException {		 
 		Attributes attributes = exampleSet.getAttributes();
@@ -23,8 +23,10 @@
 package com.rapidminer.operator.preprocessing.transformation.aggregation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -33,6 +35,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -41,7 +44,6 @@ import com.rapidminer.example.Attributes;
 import com.rapidminer.example.Example;
 import com.rapidminer.example.ExampleSet;
 import com.rapidminer.example.table.AttributeFactory;
-import com.rapidminer.example.table.DataRowFactory;
 import com.rapidminer.example.table.DoubleArrayDataRow;
 import com.rapidminer.example.table.MemoryExampleTable;
 import com.rapidminer.operator.OperatorCreationException;
@@ -71,6 +73,7 @@ import com.rapidminer.parameter.ParameterTypeList;
 import com.rapidminer.parameter.ParameterTypeStringCategory;
 import com.rapidminer.parameter.UndefinedParameterError;
 import com.rapidminer.parameter.conditions.BooleanParameterCondition;
+import com.rapidminer.tools.ConcurrencyTools;
 import com.rapidminer.tools.Ontology;
 import com.rapidminer.tools.OperatorResourceConsumptionHandler;
 import com.rapidminer.tools.OperatorService;
@@ -90,6 +93,11 @@ import com.rapidminer.tools.OperatorService;
  */
 public class AggregationOperator extends AbstractDataProcessing {
 
+    /**
+     * @deprecated The groups are kept in a hash table and no longer in a tree of these nodes.
+     * This class will be removed in the next release.
+     */
+    @Deprecated
     public static class AggregationTreeNode {
         private TreeMap<Object, AggregationTreeNode> childrenMap = null;
         private TreeMap<Object, LeafAggregationTreeNode> leafMap = null;
@@ -155,6 +163,11 @@ public class AggregationOperator extends AbstractDataProcessing {
         }
     }
 
+    /**
+     * @deprecated The groups are kept in a hash table and no longer in a tree of these nodes.
+     * This class will be removed in the next release.
+     */
+    @Deprecated
     public static class LeafAggregationTreeNode {
         private List<Aggregator> aggregators;
 
@@ -207,6 +220,7 @@ public class AggregationOperator extends AbstractDataProcessing {
     public static final String PARAMETER_ONLY_DISTINCT = "only_distinct";
     public static final String PARAMETER_IGNORE_MISSINGS = "ignore_missings";
     public static final String PARAMETER_ALL_COMBINATIONS = "count_all_combinations";
+    public static final String PARAMETER_PARALLEL_EXECUTION = "parallel_execution";
 
     /* These two only remain for compatibility */
     public static final String GENERIC_GROUP_NAME = "group";
@@ -300,43 +314,9 @@ public class AggregationOperator extends AbstractDataProcessing {
 
         // getting attributes that define groups and weights
         Attribute[] groupAttributes = getMatchingAttributes(exampleSet.getAttributes(), getParameterAsString(PARAMETER_GROUP_BY_ATTRIBUTES));
-        Attribute weightAttribute = exampleSet.getAttributes().getWeight();
-        boolean useWeights = weightAttribute != null;
 
         // running over exampleSet and aggregate data of each example
-        AggregationTreeNode rootNode = new AggregationTreeNode();
-        LeafAggregationTreeNode leafNode = null;
-        if (groupAttributes.length == 0) {
-            // if no grouping, we will directly insert into leaf node
-            leafNode = new LeafAggregationTreeNode(aggregationFunctions);
-        }
-        for (Example example : exampleSet) {
-            if (groupAttributes.length > 0) {
-                AggregationTreeNode currentNode = rootNode;
-                // now traversing aggregation tree for m-1 group attributes
-                for (int i = 0; i < groupAttributes.length - 1; i++) {
-                    Attribute currentAttribute = groupAttributes[i];
-                    if (currentAttribute.isNominal()) {
-                        currentNode = currentNode.getOrCreateChild(example.getValueAsString(currentAttribute));
-                    } else {
-                        currentNode = currentNode.getOrCreateChild(example.getValue(currentAttribute));
-                    }
-                }
-
-                // now we have to get the leaf node containing the aggregators
-                Attribute currentAttribute = groupAttributes[groupAttributes.length - 1];
-                if (currentAttribute.isNominal()) {
-                    leafNode = currentNode.getOrCreateLeaf(example.getValueAsString(currentAttribute), aggregationFunctions);
-                } else {
-                    leafNode = currentNode.getOrCreateLeaf(example.getValue(currentAttribute), aggregationFunctions);
-                }
-            }
-            // now count current example
-            if (!useWeights)
-                leafNode.count(example);
-            else
-                leafNode.count(example, example.getValue(weightAttribute));
-        }
+        HashAggregationTable groups = aggregate(exampleSet, groupAttributes, aggregationFunctions);
 
         // now derive new example set from aggregated values
         boolean isCountingAllCombinations = getParameterAsBoolean(PARAMETER_ALL_COMBINATIONS);
@@ -355,7 +335,6 @@ public class AggregationOperator extends AbstractDataProcessing {
         // creating example table
         MemoryExampleTable table = new MemoryExampleTable(newAttributes);
         ;
-        DataRowFactory factory = new DataRowFactory(DataRowFactory.TYPE_DOUBLE_ARRAY, '.');
         double[] dataOfUpperLevels = new double[groupAttributes.length];
 
         // prepare empty lists
@@ -368,11 +347,21 @@ public class AggregationOperator extends AbstractDataProcessing {
 
         
         if (groupAttributes.length > 0) {
-            // going through all possible groups recursively
-            parseTree(rootNode, groupAttributes, dataOfUpperLevels, 0, allGroupCombinations, allAggregators, factory, newAttributes, isCountingAllCombinations, aggregationFunctions);
+            // going through all groups in the order of their values
+            int[] order = getSortedGroups(groups, groupAttributes, isCountingAllCombinations);
+            if (isCountingAllCombinations) {
+                parseGroups(groups, order, 0, order.length, groupAttributes, dataOfUpperLevels, 0, allGroupCombinations, allAggregators, newAttributes);
+            } else {
+                for (int group : order) {
+                    for (int level = 0; level < groupAttributes.length; level++) {
+                        dataOfUpperLevels[level] = getGroupValue(groups, group, level, groupAttributes, newAttributes);
+                    }
+                    parseLeaf(groups, group, dataOfUpperLevels, allGroupCombinations, allAggregators);
+                }
+            }
         } else {
-            // just enter values from single leaf node
-            parseLeaf(leafNode, dataOfUpperLevels, allGroupCombinations, allAggregators, factory, newAttributes, aggregationFunctions);
+            // just enter values from single group
+            parseLeaf(groups, 0, dataOfUpperLevels, allGroupCombinations, allAggregators);
         }
         
         
@@ -447,69 +436,272 @@ public class AggregationOperator extends AbstractDataProcessing {
         return resultSet;
     }
 
-    private void parseLeaf(LeafAggregationTreeNode node, double[] dataOfUpperLevels, List<double[]> allGroupCombinations, List<List<Aggregator>> allAggregators, DataRowFactory factory, Attribute[] newAttributes, List<AggregationFunction> aggregationFunctions) {
-    	// first copying data from groups
-        double[] newGroupCombination = new double[dataOfUpperLevels.length];
-        System.arraycopy(dataOfUpperLevels, 0, newGroupCombination, 0, dataOfUpperLevels.length);
-        allGroupCombinations.add(newGroupCombination);
+    /**
+     * Counts all examples in the groups of their values of the given attributes. If parallel execution is enabled,
+     * the hash codes of the groups of all examples are computed once and the groups are divided into partitions by their
+     * hash codes, which are aggregated concurrently and merged afterwards.
+     * The examples of every group are counted in the order of the example set in both cases.
+     */
+    private HashAggregationTable aggregate(final ExampleSet exampleSet, final Attribute[] groupAttributes, final List<AggregationFunction> aggregationFunctions) throws OperatorException {
+        // checking value types of group attributes
+        final long[] missingKeys = new long[groupAttributes.length];
+        for (int i = 0; i < groupAttributes.length; i++) {
+            Attribute groupAttribute = groupAttributes[i];
+            if (groupAttribute.isNominal()) {
+                // missing values are grouped together with the value "?" as it is their string representation
+                missingKeys[i] = groupAttribute.getMapping().getIndex(Attribute.MISSING_NOMINAL_VALUE);
+            } else if (!groupAttribute.isNumerical() && !Ontology.ATTRIBUTE_VALUE_TYPE.isA(groupAttribute.getValueType(), Ontology.DATE_TIME)) {
+                throw new UserError(this, "aggregation_operator.unsupported_value_type", groupAttribute.getName(), Ontology.ATTRIBUTE_VALUE_TYPE.getNames()[groupAttribute.getValueType()]);
+            }
+        }
 
-//        DoubleArrayDataRow row = new DoubleArrayDataRow(newData);
+        int threads = 1;
+        if (getParameterAsBoolean(PARAMETER_PARALLEL_EXECUTION) && !ConcurrencyTools.isWorkerThread()) {
+            threads = ConcurrencyTools.getNumberOfThreads();
+        }
+        if (threads <= 1 || groupAttributes.length == 0) {
+            HashAggregationTable groups = new HashAggregationTable(aggregationFunctions, groupAttributes.length);
+            if (groupAttributes.length == 0) {
+                // if no grouping, the single group exists even without examples
+                long[] emptyKey = new long[0];
+                groups.getOrCreateGroup(emptyKey, HashAggregationTable.hash(emptyKey));
+            }
+            aggregate(exampleSet, groupAttributes, missingKeys, null, groups, 0, 1);
+            return groups;
+        } else {
+            // the groups are hashed once, each partition only looks up and counts the examples of its own groups
+            final int[] hashes = hashGroups(exampleSet, groupAttributes, missingKeys);
+            List<Callable<HashAggregationTable>> tasks = new ArrayList<Callable<HashAggregationTable>>(threads);
+            for (int partition = 0; partition < threads; partition++) {
+                final int currentPartition = partition;
+                final int numberOfPartitions = threads;
+                tasks.add(new Callable<HashAggregationTable>() {
+
+                    @Override
+                    public HashAggregationTable call() {
+                        HashAggregationTable groups = new HashAggregationTable(aggregationFunctions, groupAttributes.length);
+                        aggregate(exampleSet, groupAttributes, missingKeys, hashes, groups, currentPartition, numberOfPartitions);
+                        return groups;
+                    }
+                });
+            }
+            HashAggregationTable mergedGroups = null;
+            for (HashAggregationTable groups : ConcurrencyTools.invokeAll(tasks, threads, getName())) {
+                if (mergedGroups == null) {
+                    mergedGroups = groups;
+                } else {
+                    mergedGroups.addAll(groups);
+                }
+            }
+            return mergedGroups;
+        }
+    }
 
-        // check whether leaf exists
-        if (node != null) {
-//            int i = dataOfUpperLevels.length;	// number of group attributes
-        	int i = 0;
-            for (Aggregator aggregator : node.getAggregators()) {
-            	allAggregators.get(i).add(aggregator);
-//                aggregator.set(newAttributes[i], row);
-                i++;
+    /**
+     * Returns the hash codes of the groups of all examples in the order of the example set.
+     */
+    private static int[] hashGroups(ExampleSet exampleSet, Attribute[] groupAttributes, long[] missingKeys) {
+        boolean[] isNominal = isNominal(groupAttributes);
+        long[] key = new long[groupAttributes.length];
+        int[] hashes = new int[exampleSet.size()];
+        int row = 0;
+        for (Example example : exampleSet) {
+            getKey(example, groupAttributes, isNominal, missingKeys, key);
+            hashes[row++] = HashAggregationTable.hash(key);
+        }
+        return hashes;
+    }
+
+    /**
+     * Counts the examples whose groups belong to the given partition. If the examples are partitioned, the hash codes
+     * of the groups of all examples must be given, otherwise hashes may be null.
+     */
+    private static void aggregate(ExampleSet exampleSet, Attribute[] groupAttributes, long[] missingKeys, int[] hashes, HashAggregationTable groups, int partition, int numberOfPartitions) {
+        Attribute weightAttribute = exampleSet.getAttributes().getWeight();
+        boolean[] isNominal = isNominal(groupAttributes);
+        long[] key = new long[groupAttributes.length];
+        int row = 0;
+        for (Example example : exampleSet) {
+            int hash;
+            if (numberOfPartitions == 1) {
+                getKey(example, groupAttributes, isNominal, missingKeys, key);
+                hash = HashAggregationTable.hash(key);
+            } else {
+                hash = hashes[row++];
+                if (HashAggregationTable.getPartition(hash, numberOfPartitions) != partition) {
+                    continue;
+                }
+                getKey(example, groupAttributes, isNominal, missingKeys, key);
             }
+            int group = groups.getOrCreateGroup(key, hash);
+            // now count current example
+            if (weightAttribute == null)
+                groups.count(group, example);
+            else
+                groups.count(group, example, example.getValue(weightAttribute));
+        }
+    }
+
+    private static boolean[] isNominal(Attribute[] groupAttributes) {
+        boolean[] isNominal = new boolean[groupAttributes.length];
+        for (int i = 0; i < groupAttributes.length; i++) {
+            isNominal[i] = groupAttributes[i].isNominal();
+        }
+        return isNominal;
+    }
+
+    /**
+     * Writes the key of the group of the given example into key. Nominal values are represented by their index,
+     * numerical values by their bits.
+     */
+    private static void getKey(Example example, Attribute[] groupAttributes, boolean[] isNominal, long[] missingKeys, long[] key) {
+        for (int i = 0; i < groupAttributes.length; i++) {
+            double value = example.getValue(groupAttributes[i]);
+            if (isNominal[i]) {
+                key[i] = Double.isNaN(value) ? missingKeys[i] : (long) value;
+            } else {
+                key[i] = Double.doubleToLongBits(value);
+            }
+        }
+    }
+
+    /**
+     * Returns the groups sorted by their values of the group attributes. Numerical values are sorted ascending. Nominal
+     * values are sorted alphabetically or, if all combinations are counted, in the order of their mapping.
+     */
+    private int[] getSortedGroups(final HashAggregationTable groups, final Attribute[] groupAttributes, boolean isCountingAllCombinations) {
+        // determining rank of every nominal value, where position 0 is used for missing values
+        final int[][] ranks = new int[groupAttributes.length][];
+        for (int level = 0; level < groupAttributes.length; level++) {
+            if (groupAttributes[level].isNominal()) {
+                List<String> values = groupAttributes[level].getMapping().getValues();
+                final String[] strings = new String[values.size() + 1];
+                strings[0] = Attribute.MISSING_NOMINAL_VALUE;
+                for (int i = 0; i < values.size(); i++) {
+                    strings[i + 1] = values.get(i);
+                }
+                Integer[] sortedIndices = new Integer[strings.length];
+                for (int i = 0; i < strings.length; i++) {
+                    sortedIndices[i] = i;
+                }
+                if (!isCountingAllCombinations) {
+                    Arrays.sort(sortedIndices, new Comparator<Integer>() {
+
+                        @Override
+                        public int compare(Integer index1, Integer index2) {
+                            return strings[index1].compareTo(strings[index2]);
+                        }
+                    });
+                }
+                ranks[level] = new int[strings.length];
+                for (int rank = 0; rank < sortedIndices.length; rank++) {
+                    ranks[level][sortedIndices[rank]] = rank;
+                }
+            }
+        }
+
+        Integer[] order = new Integer[groups.size()];
+        for (int group = 0; group < order.length; group++) {
+            order[group] = group;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer group1, Integer group2) {
+                for (int level = 0; level < ranks.length; level++) {
+                    long key1 = groups.getKey(group1, level);
+                    long key2 = groups.getKey(group2, level);
+                    int result;
+                    if (ranks[level] != null) {
+                        result = ranks[level][(int) key1 + 1] - ranks[level][(int) key2 + 1];
+                    } else {
+                        result = Double.compare(Double.longBitsToDouble(key1), Double.longBitsToDouble(key2));
+                    }
+                    if (result != 0) {
+                        return result;
+                    }
+                }
+                return 0;
+            }
+        });
+        int[] sortedGroups = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedGroups[i] = order[i];
+        }
+        return sortedGroups;
+    }
+
+    /**
+     * Returns the value of the given group for the new attribute of the given group level.
+     */
+    private double getGroupValue(HashAggregationTable groups, int group, int groupLevel, Attribute[] groupAttributes, Attribute[] newAttributes) {
+        long key = groups.getKey(group, groupLevel);
+        if (groupAttributes[groupLevel].isNominal()) {
+            String nominalValue = key < 0 ? Attribute.MISSING_NOMINAL_VALUE : groupAttributes[groupLevel].getMapping().mapIndex((int) key);
+            return newAttributes[groupLevel].getMapping().mapString(nominalValue);
         } else {
-            // fill in defaults for all aggregation functions
-//            int i = dataOfUpperLevels.length;	// number of group attributes
-//            for (AggregationFunction function : aggregationFunctions) {
-//                function.setDefault(newAttributes[i], row);
-//                i++;
-        	for ( List<Aggregator> current : allAggregators) {
-        		current.add(null);
-        	}
+            return Double.longBitsToDouble(key);
         }
+    }
+
+    private void parseLeaf(HashAggregationTable groups, int group, double[] dataOfUpperLevels, List<double[]> allGroupCombinations, List<List<Aggregator>> allAggregators) {
+        // first copying data from groups
+        double[] newGroupCombination = new double[dataOfUpperLevels.length];
+        System.arraycopy(dataOfUpperLevels, 0, newGroupCombination, 0, dataOfUpperLevels.length);
+        allGroupCombinations.add(newGroupCombination);
 
-//        table.addDataRow(row);
+        // check whether group exists, otherwise defaults are filled in for all aggregation functions
+        int i = 0;
+        for (List<Aggregator> current : allAggregators) {
+            current.add(group >= 0 ? groups.getAggregator(i, group) : null);
+            i++;
+        }
     }
-    
-    private void parseTree(AggregationTreeNode node, Attribute[] groupAttributes, double[] dataOfUpperLevels, int groupLevel, List<double[]> allGroupCombinations, List<List<Aggregator>> allAggregators, DataRowFactory factory, Attribute[] newAttributes, boolean isCountingAllCombinations, List<AggregationFunction> aggregationFunctions) throws UserError {
+
+    /**
+     * Adds all combinations of the values of the group attributes, beginning with the given group level, for the given
+     * range of the sorted groups. While all nominal values are used, only the occurring numerical values are used.
+     */
+    private void parseGroups(HashAggregationTable groups, int[] order, int from, int to, Attribute[] groupAttributes, double[] dataOfUpperLevels, int groupLevel, List<double[]> allGroupCombinations, List<List<Aggregator>> allAggregators, Attribute[] newAttributes) {
         Attribute currentAttribute = groupAttributes[groupLevel];
+        int start = from;
         if (currentAttribute.isNominal()) {
-            Collection<? extends Object> nominalValues = null;
-            if (isCountingAllCombinations) {
-                nominalValues = currentAttribute.getMapping().getValues();
-            } else {
-                nominalValues = node.getValues();
-            }
-            for (Object nominalValue : nominalValues) {
-                dataOfUpperLevels[groupLevel] = newAttributes[groupLevel].getMapping().mapString(nominalValue.toString());
+            List<String> nominalValues = currentAttribute.getMapping().getValues();
+            for (int index = 0; index < nominalValues.size(); index++) {
+                // skipping groups of missing values
+                while (start < to && groups.getKey(order[start], groupLevel) < index) {
+                    start++;
+                }
+                int end = start;
+                while (end < to && groups.getKey(order[end], groupLevel) == index) {
+                    end++;
+                }
+                dataOfUpperLevels[groupLevel] = newAttributes[groupLevel].getMapping().mapString(nominalValues.get(index));
                 // check if we have more group defining attributes
                 if (groupLevel + 1 < groupAttributes.length) {
-                    parseTree(node.getOrCreateChild(nominalValue), groupAttributes, dataOfUpperLevels, groupLevel + 1, allGroupCombinations, allAggregators, factory, newAttributes, isCountingAllCombinations, aggregationFunctions);
+                    parseGroups(groups, order, start, end, groupAttributes, dataOfUpperLevels, groupLevel + 1, allGroupCombinations, allAggregators, newAttributes);
                 } else {
                     // if not, insert values from aggregation functions
-                    parseLeaf(node.getLeaf(nominalValue), dataOfUpperLevels, allGroupCombinations, allAggregators, factory, newAttributes, aggregationFunctions);
+                    parseLeaf(groups, start < end ? order[start] : -1, dataOfUpperLevels, allGroupCombinations, allAggregators);
                 }
-
+                start = end;
             }
-        } else if (currentAttribute.isNumerical() || Ontology.ATTRIBUTE_VALUE_TYPE.isA(currentAttribute.getValueType(), Ontology.DATE_TIME)) {
-            for (Object numericalValue : node.getValues()) {
-                dataOfUpperLevels[groupLevel] = (Double) numericalValue;
+        } else {
+            while (start < to) {
+                long key = groups.getKey(order[start], groupLevel);
+                int end = start;
+                while (end < to && groups.getKey(order[end], groupLevel) == key) {
+                    end++;
+                }
+                dataOfUpperLevels[groupLevel] = Double.longBitsToDouble(key);
                 if (groupLevel + 1 < groupAttributes.length) {
-                    parseTree(node.getOrCreateChild(numericalValue), groupAttributes, dataOfUpperLevels, groupLevel + 1, allGroupCombinations, allAggregators, factory, newAttributes, isCountingAllCombinations, aggregationFunctions);
+                    parseGroups(groups, order, start, end, groupAttributes, dataOfUpperLevels, groupLevel + 1, allGroupCombinations, allAggregators, newAttributes);
                 } else {
                     // if not, insert values from aggregation functions
-                    parseLeaf(node.getLeaf(numericalValue), dataOfUpperLevels, allGroupCombinations, allAggregators, factory, newAttributes, aggregationFunctions);
+                    parseLeaf(groups, order[start], dataOfUpperLevels, allGroupCombinations, allAggregators);
                 }
+                start = end;
             }
-        } else {
-        	throw new UserError(this, "aggregation_operator.unsupported_value_type", currentAttribute.getName(), Ontology.ATTRIBUTE_VALUE_TYPE.getNames()[currentAttribute.getValueType()]);
         }
     }
 
@@ -608,6 +800,7 @@ public class AggregationOperator extends AbstractDataProcessing {
         type.registerDependencyCondition(new BooleanParameterCondition(this, PARAMETER_ALL_COMBINATIONS, false, false));
         types.add(type);
         types.add(new ParameterTypeBoolean(PARAMETER_IGNORE_MISSINGS, "Indicates if missings should be ignored and aggregation should be based only on existing values or not. In the latter case the aggregated value will be missing in the presence of missing values.", true));
+        types.add(new ParameterTypeBoolean(PARAMETER_PARALLEL_EXECUTION, "Indicates if the groups should be divided into partitions which are aggregated concurrently.", false));
         return types;
     }
 
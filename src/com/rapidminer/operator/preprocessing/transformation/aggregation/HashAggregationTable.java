@@ -0,0 +1,205 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.operator.preprocessing.transformation.aggregation;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.rapidminer.example.Example;
+
+/**
+ * An open addressing hash table assigning examples to their groups for the
+ * {@link AggregationOperator}. The key of a group consists of one long per group by
+ * attribute, which is the index of the nominal value or the bits of the numerical
+ * value. Groups are numbered in the order of their creation. The keys and the
+ * {@link Aggregator}s are stored in arrays indexed by the group, one array of
+ * aggregators per {@link AggregationFunction}.
+ */
+class HashAggregationTable {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final AggregationFunction[] aggregationFunctions;
+
+	private final int keyLength;
+
+	private int size = 0;
+
+	private long[] keys;
+
+	private int[] hashes;
+
+	private Aggregator[][] aggregators;
+
+	/** The slots of the hash table containing the group plus one, 0 for empty slots. */
+	private int[] slots;
+
+	public HashAggregationTable(List<AggregationFunction> aggregationFunctions, int keyLength) {
+		this.aggregationFunctions = aggregationFunctions.toArray(new AggregationFunction[aggregationFunctions.size()]);
+		this.keyLength = keyLength;
+		this.keys = new long[INITIAL_CAPACITY * keyLength];
+		this.hashes = new int[INITIAL_CAPACITY];
+		this.aggregators = new Aggregator[this.aggregationFunctions.length][INITIAL_CAPACITY];
+		this.slots = new int[2 * INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Returns the hash code of the given key.
+	 */
+	public static int hash(long[] key) {
+		long hash = 0;
+		for (long value : key) {
+			hash = (hash + value) * 0x9E3779B97F4A7C15L;
+			hash ^= hash >>> 32;
+		}
+		return (int) hash;
+	}
+
+	/**
+	 * Returns the partition between 0 and numberOfPartitions - 1 of a key with the given
+	 * hash code. The partition depends on other bits of the hash code than the slot of the
+	 * key in the hash table.
+	 */
+	public static int getPartition(int hash, int numberOfPartitions) {
+		return (int) (((hash & 0xFFFFFFFFL) * numberOfPartitions) >>> 32);
+	}
+
+	/**
+	 * Returns the group of the given key with the given hash code. If the group does not
+	 * exist yet, it is created together with its aggregators.
+	 */
+	public int getOrCreateGroup(long[] key, int hash) {
+		int mask = slots.length - 1;
+		int index = hash & mask;
+		while (slots[index] != 0) {
+			int group = slots[index] - 1;
+			if (hashes[group] == hash && hasKey(group, key)) {
+				return group;
+			}
+			index = (index + 1) & mask;
+		}
+		int group = createGroup(key, 0, hash);
+		for (int i = 0; i < aggregationFunctions.length; i++) {
+			aggregators[i][group] = aggregationFunctions[i].createAggregator();
+		}
+		slots[index] = group + 1;
+		if (2 * size > slots.length) {
+			rehash();
+		}
+		return group;
+	}
+
+	/**
+	 * Adds all groups of the given table together with their aggregators. The groups must
+	 * not be contained in this table.
+	 */
+	public void addAll(HashAggregationTable other) {
+		for (int otherGroup = 0; otherGroup < other.size; otherGroup++) {
+			int hash = other.hashes[otherGroup];
+			int mask = slots.length - 1;
+			int index = hash & mask;
+			while (slots[index] != 0) {
+				index = (index + 1) & mask;
+			}
+			int group = createGroup(other.keys, otherGroup * keyLength, hash);
+			for (int i = 0; i < aggregationFunctions.length; i++) {
+				aggregators[i][group] = other.aggregators[i][otherGroup];
+			}
+			slots[index] = group + 1;
+			if (2 * size > slots.length) {
+				rehash();
+			}
+		}
+	}
+
+	/**
+	 * Counts the given example for all aggregators of the given group.
+	 */
+	public void count(int group, Example example) {
+		for (Aggregator[] functionAggregators : aggregators) {
+			functionAggregators[group].count(example);
+		}
+	}
+
+	/**
+	 * Counts the given example with the given weight for all aggregators of the given group.
+	 */
+	public void count(int group, Example example, double weight) {
+		for (Aggregator[] functionAggregators : aggregators) {
+			functionAggregators[group].count(example, weight);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the key value of the given group for the group by attribute with the given
+	 * index.
+	 */
+	public long getKey(int group, int index) {
+		return keys[group * keyLength + index];
+	}
+
+	public Aggregator getAggregator(int function, int group) {
+		return aggregators[function][group];
+	}
+
+	private boolean hasKey(int group, long[] key) {
+		int offset = group * keyLength;
+		for (int i = 0; i < keyLength; i++) {
+			if (keys[offset + i] != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int createGroup(long[] key, int keyOffset, int hash) {
+		if (size == hashes.length) {
+			int capacity = 2 * size;
+			keys = Arrays.copyOf(keys, capacity * keyLength);
+			hashes = Arrays.copyOf(hashes, capacity);
+			for (int i = 0; i < aggregators.length; i++) {
+				aggregators[i] = Arrays.copyOf(aggregators[i], capacity);
+			}
+		}
+		int group = size++;
+		System.arraycopy(key, keyOffset, keys, group * keyLength, keyLength);
+		hashes[group] = hash;
+		return group;
+	}
+
+	private void rehash() {
+		slots = new int[2 * slots.length];
+		int mask = slots.length - 1;
+		for (int group = 0; group < size; group++) {
+			int index = hashes[group] & mask;
+			while (slots[index] != 0) {
+				index = (index + 1) & mask;
+			}
+			slots[index] = group + 1;
+		}
+	}
+}
@@ -25,8 +25,10 @@ package com.rapidminer.operator.similarity;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import com.rapidminer.example.Attribute;
 import com.rapidminer.example.Attributes;
@@ -37,10 +39,12 @@ import com.rapidminer.example.set.SortedExampleSet;
 import com.rapidminer.example.table.AttributeFactory;
 import com.rapidminer.example.table.DataRow;
 import com.rapidminer.example.table.DataRowFactory;
+import com.rapidminer.example.table.MappedExampleTable;
 import com.rapidminer.example.table.MemoryExampleTable;
 import com.rapidminer.operator.Operator;
 import com.rapidminer.operator.OperatorDescription;
 import com.rapidminer.operator.OperatorException;
+import com.rapidminer.operator.ProcessStoppedException;
 import com.rapidminer.operator.ports.InputPort;
 import com.rapidminer.operator.ports.OutputPort;
 import com.rapidminer.operator.ports.metadata.AttributeMetaData;
@@ -52,9 +56,12 @@ import com.rapidminer.parameter.ParameterTypeBoolean;
 import com.rapidminer.parameter.ParameterTypeCategory;
 import com.rapidminer.parameter.ParameterTypeInt;
 import com.rapidminer.parameter.conditions.BooleanParameterCondition;
+import com.rapidminer.tools.ConcurrencyTools;
 import com.rapidminer.tools.Ontology;
 import com.rapidminer.tools.container.Tupel;
 import com.rapidminer.tools.math.container.BoundedPriorityQueue;
+import com.rapidminer.tools.math.container.GeometricDataCollection;
+import com.rapidminer.tools.math.container.GeometricDataCollections;
 import com.rapidminer.tools.math.similarity.DistanceMeasure;
 import com.rapidminer.tools.math.similarity.DistanceMeasures;
 
@@ -64,6 +71,12 @@ import com.rapidminer.tools.math.similarity.DistanceMeasures;
  * 
  * This operator needs ID attributes in both example sets in order to work. If not present, new ones are created.
  * 
+ * The values of both example sets are copied into memory once if they fit into the heap. The requests are then
+ * compared with blocks of documents at a time and the distances are kept in primitive arrays. Blocks of requests
+ * might be processed concurrently. If only the k nearest distances are searched, an index structure might be used
+ * for the documents. In contrast to the linear search, it resolves ties between equal distances by the order
+ * of the documents.
+ * 
  * @author Sebastian Land
  */
 public class CrossDistancesOperator extends Operator {
@@ -72,11 +85,102 @@ public class CrossDistancesOperator extends Operator {
     public static final String PARAMETER_USE_K = "only_top_k";
     public static final String PARAMETER_SEARCH_MODE = "search_for";
     public static final String PARAMETER_COMPUTE_SIMILARITIES = "compute_similarities";
+    public static final String PARAMETER_PARALLEL_EXECUTION = "parallel_execution";
 
     private static final String[] SEARCH_MODE = new String[] {"nearest", "farthest"};
     private static final int MODE_NEAREST = 0;
     private static final int MODE_FARTHEST = 1;
 
+    /** The number of requests handled by one task if only the top k documents are kept. */
+    private static final int REQUESTS_PER_BLOCK = 16;
+
+    /** The number of documents compared with all requests of a block before proceeding with the next documents. */
+    private static final int DOCUMENTS_PER_BLOCK = 256;
+
+    /** The number of blocks of requests computed per thread before their results are written into the table. */
+    private static final int BLOCKS_PER_THREAD = 4;
+
+    /**
+     * The distances of one request to the documents, stored in primitive arrays. If bounded, only
+     * the smallest values are kept in a heap whose root is the greatest value. The heap behaves exactly
+     * like the {@link BoundedPriorityQueue} of {@link Tupel}s, so ties between equal values are resolved
+     * in the same way and the documents are stored in the same order.
+     */
+    private static final class Neighbours {
+
+        private final double[] values;
+
+        private final int[] documents;
+
+        private final boolean bounded;
+
+        private int size = 0;
+
+        private Neighbours(int capacity, boolean bounded) {
+            this.values = new double[capacity];
+            this.documents = new int[capacity];
+            this.bounded = bounded;
+        }
+
+        private void add(double value, int document) {
+            if (!bounded) {
+                values[size] = value;
+                documents[size] = document;
+                size++;
+            } else if (size < values.length) {
+                siftUp(size, value, document);
+                size++;
+            } else if (Double.compare(value, values[0]) < 0) {
+                // removing the greatest value and adding the new one
+                size--;
+                siftDown(values[size], documents[size]);
+                siftUp(size, value, document);
+                size++;
+            }
+        }
+
+        private void siftUp(int position, double value, int document) {
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (Double.compare(value, values[parent]) <= 0)
+                    break;
+                values[position] = values[parent];
+                documents[position] = documents[parent];
+                position = parent;
+            }
+            values[position] = value;
+            documents[position] = document;
+        }
+
+        private void siftDown(double value, int document) {
+            int position = 0;
+            int half = size >>> 1;
+            while (position < half) {
+                int child = (position << 1) + 1;
+                int right = child + 1;
+                if (right < size && Double.compare(values[right], values[child]) > 0)
+                    child = right;
+                if (Double.compare(values[child], value) <= 0)
+                    break;
+                values[position] = values[child];
+                documents[position] = documents[child];
+                position = child;
+            }
+            values[position] = value;
+            documents[position] = document;
+        }
+    }
+
+    /** Searches the neighbours of the requests from firstRequest (inclusive) to lastRequest (exclusive). */
+    private interface NeighbourSearch {
+        public Neighbours[] search(int firstRequest, int lastRequest) throws ProcessStoppedException;
+    }
+
+    /** Compares the request and the document with the given indices. */
+    private interface Comparison {
+        public double compare(int request, int document);
+    }
+
 
     private InputPort requestSetInput = getInputPorts().createPort("request set", ExampleSet.class);
     private InputPort referenceSetInput = getInputPorts().createPort("reference set", ExampleSet.class);
@@ -137,38 +241,46 @@ public class CrossDistancesOperator extends Operator {
 
         double searchModeFactor = getParameterAsInt(PARAMETER_SEARCH_MODE) == MODE_FARTHEST ? -1d : 1d;
         boolean computeSimilarity = getParameterAsBoolean(PARAMETER_COMPUTE_SIMILARITIES);
+        int k = getParameterAsBoolean(PARAMETER_USE_K) ? getParameterAsInt(PARAMETER_K) : 0;
 
-        for (Example request: requestSet) {
-            Collection<Tupel<Double, Double>> distances;
-            if (getParameterAsBoolean(PARAMETER_USE_K))
-                distances = new BoundedPriorityQueue<Tupel<Double,Double>>(getParameterAsInt(PARAMETER_K));
-            else
-                distances = new ArrayList<Tupel<Double,Double>>();
-
-            // calculating distance
-            for (Example document: documentSet) {
-                if (computeSimilarity)
-                    distances.add(new Tupel<Double, Double>(measure.calculateSimilarity(request, document) * searchModeFactor, document.getValue(oldDocumentId)));
-                else
-                    distances.add(new Tupel<Double, Double>(measure.calculateDistance(request, document) * searchModeFactor, document.getValue(oldDocumentId)));
-                checkForStop();
-            }
+        double[] documentIdValues = new double[documentSet.size()];
+        int d = 0;
+        for (Example document: documentSet) {
+            documentIdValues[d++] = document.getValue(oldDocumentId);
+        }
+
+        NeighbourSearch search = createNeighbourSearch(requestSet, documentSet, measure, k, searchModeFactor, computeSimilarity);
+        int threads = 1;
+        if (getParameterAsBoolean(PARAMETER_PARALLEL_EXECUTION) && !ConcurrencyTools.isWorkerThread()) {
+            threads = ConcurrencyTools.getNumberOfThreads();
+        }
+        // all distances of a request are kept if k is not set, so only few requests are handled at once
+        int requestsPerBlock = k > 0 ? REQUESTS_PER_BLOCK : 1;
+        int requestsPerRound = requestsPerBlock * threads * BLOCKS_PER_THREAD;
+
+        DataRowFactory factory = new DataRowFactory(DataRowFactory.TYPE_DOUBLE_ARRAY, '.');
+        Iterator<Example> requests = requestSet.iterator();
+        for (int firstRequest = 0; firstRequest < requestSet.size(); firstRequest += requestsPerRound) {
+            int lastRequest = Math.min(requestSet.size(), firstRequest + requestsPerRound);
+            Neighbours[] neighbours = searchNeighbours(search, firstRequest, lastRequest, requestsPerBlock, threads);
 
             // writing into table
-            DataRowFactory factory = new DataRowFactory(DataRowFactory.TYPE_DOUBLE_ARRAY, '.');
-            double requestIdValue = request.getValue(oldRequestId);
-            if (oldRequestId.isNominal())
-                requestIdValue = requestId.getMapping().mapString(request.getValueAsString(oldRequestId));
-
-            for (Tupel<Double, Double> tupel: distances) {
-                double documentIdValue = tupel.getSecond();
-                if (oldDocumentId.isNominal())
-                    documentIdValue = documentId.getMapping().mapString(oldDocumentId.getMapping().mapIndex((int) documentIdValue));
-                DataRow row = factory.create(3);
-                row.set(distance, tupel.getFirst() *  searchModeFactor);
-                row.set(requestId, requestIdValue);
-                row.set(documentId, documentIdValue);
-                table.addDataRow(row);
+            for (Neighbours requestNeighbours: neighbours) {
+                Example request = requests.next();
+                double requestIdValue = request.getValue(oldRequestId);
+                if (oldRequestId.isNominal())
+                    requestIdValue = requestId.getMapping().mapString(request.getValueAsString(oldRequestId));
+
+                for (int i = 0; i < requestNeighbours.size; i++) {
+                    double documentIdValue = documentIdValues[requestNeighbours.documents[i]];
+                    if (oldDocumentId.isNominal())
+                        documentIdValue = documentId.getMapping().mapString(oldDocumentId.getMapping().mapIndex((int) documentIdValue));
+                    DataRow row = factory.create(3);
+                    row.set(distance, requestNeighbours.values[i] * searchModeFactor);
+                    row.set(requestId, requestIdValue);
+                    row.set(documentId, documentIdValue);
+                    table.addDataRow(row);
+                }
                 checkForStop();
             }
         }
@@ -181,6 +293,153 @@ public class CrossDistancesOperator extends Operator {
         resultSetOutput.deliver(result);
     }
 
+    /** Searches the neighbours of the given requests. The requests are split into blocks, which are searched
+     *  concurrently if more than one thread is given. */
+    private Neighbours[] searchNeighbours(final NeighbourSearch search, int firstRequest, int lastRequest, int requestsPerBlock, int threads) throws OperatorException {
+        if (threads <= 1) {
+            return search.search(firstRequest, lastRequest);
+        }
+        List<Callable<Neighbours[]>> tasks = new ArrayList<Callable<Neighbours[]>>();
+        for (int first = firstRequest; first < lastRequest; first += requestsPerBlock) {
+            final int blockStart = first;
+            final int blockEnd = Math.min(lastRequest, first + requestsPerBlock);
+            tasks.add(new Callable<Neighbours[]>() {
+                @Override
+                public Neighbours[] call() throws ProcessStoppedException {
+                    return search.search(blockStart, blockEnd);
+                }
+            });
+        }
+        Neighbours[] neighbours = new Neighbours[lastRequest - firstRequest];
+        int position = 0;
+        for (Neighbours[] blockNeighbours: ConcurrencyTools.invokeAll(tasks, threads, getName())) {
+            System.arraycopy(blockNeighbours, 0, neighbours, position, blockNeighbours.length);
+            position += blockNeighbours.length;
+        }
+        return neighbours;
+    }
+
+    /** Creates the search for the neighbours. The values of both example sets are copied into memory if they fit into 
+     *  the heap. If only the k nearest distances are searched, the selected index structure is used for the documents. 
+     *  Otherwise all documents are compared with each request. */
+    private NeighbourSearch createNeighbourSearch(final ExampleSet requestSet, final ExampleSet documentSet, final DistanceMeasure measure, final int k, final double searchModeFactor, final boolean computeSimilarity) throws OperatorException {
+        final int numberOfDocuments = documentSet.size();
+        Attribute[] requestAttributes = requestSet.getAttributes().createRegularAttributeArray();
+        Attribute[] documentAttributes = getMatchingAttributes(requestAttributes, documentSet.getAttributes());
+        if (documentAttributes == null || MappedExampleTable.exceedsHeap((long) requestSet.size() + numberOfDocuments, requestAttributes.length)) {
+            // the measure itself handles not matching attributes
+            return createLinearSearch(new Comparison() {
+                @Override
+                public double compare(int request, int document) {
+                    if (computeSimilarity)
+                        return measure.calculateSimilarity(requestSet.getExample(request), documentSet.getExample(document));
+                    else
+                        return measure.calculateDistance(requestSet.getExample(request), documentSet.getExample(document));
+                }
+            }, numberOfDocuments, k, searchModeFactor);
+        }
+
+        final double[][] requestValues = getValues(requestSet, requestAttributes);
+        final double[][] documentValues = getValues(documentSet, documentAttributes);
+        int indexStructure = GeometricDataCollections.getSelectedIndexStructure(this);
+        if (indexStructure != GeometricDataCollections.INDEX_STRUCTURE_LINEAR_SEARCH) {
+            if (k == 0 || searchModeFactor == -1d || computeSimilarity) {
+                getLogger().fine("Index structures are only used for searching the k nearest distances, using linear search.");
+                indexStructure = GeometricDataCollections.INDEX_STRUCTURE_LINEAR_SEARCH;
+            } else if (!GeometricDataCollections.supportsDistanceMeasure(indexStructure, measure)) {
+                logWarning("The " + GeometricDataCollections.INDEX_STRUCTURES[indexStructure] + " cannot be used with the " + measure + ", using linear search.");
+                indexStructure = GeometricDataCollections.INDEX_STRUCTURE_LINEAR_SEARCH;
+            }
+            indexStructure = GeometricDataCollections.resolveIndexStructure(indexStructure, measure, requestAttributes.length);
+        }
+        if (indexStructure == GeometricDataCollections.INDEX_STRUCTURE_LINEAR_SEARCH) {
+            return createLinearSearch(new Comparison() {
+                @Override
+                public double compare(int request, int document) {
+                    if (computeSimilarity)
+                        return measure.calculateSimilarity(requestValues[request], documentValues[document]);
+                    else
+                        return measure.calculateDistance(requestValues[request], documentValues[document]);
+                }
+            }, numberOfDocuments, k, searchModeFactor);
+        }
+
+        getLogger().fine("Searching nearest documents in a " + GeometricDataCollections.INDEX_STRUCTURES[indexStructure] + ".");
+        final GeometricDataCollection<Integer> documents = GeometricDataCollections.<Integer>createCollection(indexStructure, measure, requestAttributes.length);
+        for (int i = 0; i < numberOfDocuments; i++) {
+            documents.add(documentValues[i], i);
+        }
+        return new NeighbourSearch() {
+            @Override
+            public Neighbours[] search(int firstRequest, int lastRequest) throws ProcessStoppedException {
+                Neighbours[] neighbours = new Neighbours[lastRequest - firstRequest];
+                for (int request = firstRequest; request < lastRequest; request++) {
+                    checkForStop();
+                    Collection<Tupel<Double, Integer>> nearest = documents.getNearestValueDistances(k, requestValues[request]);
+                    Neighbours requestNeighbours = new Neighbours(nearest.size(), false);
+                    for (Tupel<Double, Integer> tupel: nearest) {
+                        requestNeighbours.add(tupel.getFirst(), tupel.getSecond());
+                    }
+                    neighbours[request - firstRequest] = requestNeighbours;
+                }
+                return neighbours;
+            }
+        };
+    }
+
+    /** Creates a search comparing all documents with each request. All requests of a block are compared with
+     *  a block of documents before proceeding with the next documents. If k is greater than zero, only the
+     *  k smallest values multiplied with the searchModeFactor are kept. */
+    private NeighbourSearch createLinearSearch(final Comparison comparison, final int numberOfDocuments, final int k, final double searchModeFactor) {
+        return new NeighbourSearch() {
+            @Override
+            public Neighbours[] search(int firstRequest, int lastRequest) throws ProcessStoppedException {
+                Neighbours[] neighbours = new Neighbours[lastRequest - firstRequest];
+                for (int i = 0; i < neighbours.length; i++) {
+                    neighbours[i] = k > 0 ? new Neighbours(Math.min(k, numberOfDocuments), true) : new Neighbours(numberOfDocuments, false);
+                }
+                for (int firstDocument = 0; firstDocument < numberOfDocuments; firstDocument += DOCUMENTS_PER_BLOCK) {
+                    checkForStop();
+                    int lastDocument = Math.min(numberOfDocuments, firstDocument + DOCUMENTS_PER_BLOCK);
+                    for (int i = 0; i < neighbours.length; i++) {
+                        Neighbours requestNeighbours = neighbours[i];
+                        for (int document = firstDocument; document < lastDocument; document++) {
+                            requestNeighbours.add(comparison.compare(firstRequest + i, document) * searchModeFactor, document);
+                        }
+                    }
+                }
+                return neighbours;
+            }
+        };
+    }
+
+    /** Returns the attributes of the document set in the order of the given request attributes or null if 
+     *  the attributes do not match. */
+    private Attribute[] getMatchingAttributes(Attribute[] requestAttributes, Attributes documentAttributes) {
+        if (requestAttributes.length != documentAttributes.size())
+            return null;
+        Attribute[] matchingAttributes = new Attribute[requestAttributes.length];
+        for (int i = 0; i < requestAttributes.length; i++) {
+            matchingAttributes[i] = documentAttributes.get(requestAttributes[i].getName());
+            if (matchingAttributes[i] == null)
+                return null;
+        }
+        return matchingAttributes;
+    }
+
+    private double[][] getValues(ExampleSet exampleSet, Attribute[] attributes) {
+        double[][] values = new double[exampleSet.size()][];
+        int i = 0;
+        for (Example example: exampleSet) {
+            double[] exampleValues = new double[attributes.length];
+            for (int j = 0; j < attributes.length; j++) {
+                exampleValues[j] = example.getValue(attributes[j]);
+            }
+            values[i++] = exampleValues;
+        }
+        return values;
+    }
+
     @Override
     public List<ParameterType> getParameterTypes() {
         List<ParameterType> types = super.getParameterTypes();
@@ -199,7 +458,12 @@ public class CrossDistancesOperator extends Operator {
         type.registerDependencyCondition(new BooleanParameterCondition(this, PARAMETER_USE_K, true, true));
         types.add(type);
 
+        type = GeometricDataCollections.getParameterType(GeometricDataCollections.INDEX_STRUCTURE_LINEAR_SEARCH);
+        type.registerDependencyCondition(new BooleanParameterCondition(this, PARAMETER_USE_K, true, true));
+        types.add(type);
+
         types.add(new ParameterTypeBoolean(PARAMETER_COMPUTE_SIMILARITIES, "If checked the similarities are computed instead of the distances. All measures will still be usable, but measures that are not originally distance or respectively similarity measures are transformed to match optimization direction. This will most likely transform the scale in a non linear way.", false, true));
+        types.add(new ParameterTypeBoolean(PARAMETER_PARALLEL_EXECUTION, "Indicates if blocks of request examples should be processed concurrently.", false));
         return types;
     }
 }
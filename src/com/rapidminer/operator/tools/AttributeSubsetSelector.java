@@ -202,6 +202,14 @@ public class AttributeSubsetSelector {
 		}
 	}
 
+	/**
+	 * Returns true if the selected condition depends on the values of the examples, i.e. if the attribute
+	 * subset cannot be derived from the attribute names and types alone.
+	 */
+	public boolean isNeedingScan() throws UndefinedParameterError, ConditionCreationException {
+		return createCondition(CONDITION_NAMES[operator.getParameterAsInt(PARAMETER_FILTER_TYPE)], operator).isNeedingScan();
+	}
+
 	private boolean isOfAllowedType(int attributeValueType) {
 		boolean keep = false;
 		for (int type: valueTypes) {
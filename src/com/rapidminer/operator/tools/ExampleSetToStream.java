@@ -22,15 +22,24 @@
  */
 package com.rapidminer.operator.tools;
 
+import java.io.BufferedInputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -43,9 +52,14 @@ import com.rapidminer.example.AttributeRole;
 import com.rapidminer.example.Example;
 import com.rapidminer.example.ExampleSet;
 import com.rapidminer.example.Tools;
+import com.rapidminer.example.set.MappedExampleSet;
 import com.rapidminer.example.table.AttributeFactory;
+import com.rapidminer.example.table.ColumnarExampleTable;
+import com.rapidminer.example.table.DataRowFactory;
 import com.rapidminer.example.table.DoubleArrayDataRow;
 import com.rapidminer.example.table.DoubleSparseArrayDataRow;
+import com.rapidminer.example.table.ExampleTable;
+import com.rapidminer.example.table.MappedExampleTable;
 import com.rapidminer.example.table.MemoryExampleTable;
 import com.rapidminer.example.table.NominalMapping;
 import com.rapidminer.example.table.PolynominalMapping;
@@ -73,14 +87,41 @@ public class ExampleSetToStream {
 	 *  Used since revision 7430. */
 	public static final int VERSION_3 = 3;
 	
+	/** Stores dense example sets column-wise in blocks of rows. Nominal columns are compressed
+	 *  by run length encoding or bit packing, a footer indexes the chunks of all blocks, see {@link #writeColumnarData(ExampleSet, CountingOutputStream, DataOutputStream, List)}. 
+	 *  Allows reading single columns and row ranges by {@link #read(File, Collection, int, int)}. 
+	 *  Only written to local repository files, streams and remote repositories still use {@link #VERSION_3}. */
+	public static final int VERSION_4 = 4;
+	
 	/** Current version of the stream protocol. To add a new version:
 	 *  - Add a constant here, and redirect the constant CURRENT_VERSION to the new constant. 
 	 *  - Add SVN revision to the comment of the new version
 	 *  - In {@link SerializationType} add a new enum constant for the new version and make it the default 
 	 *  */
-	public static final int CURRENT_VERSION = VERSION_3;
+	public static final int CURRENT_VERSION = VERSION_4;
 
 	private static final Charset STRING_CHARSET = Charset.forName("UTF-8");
+
+	/** Block encoding storing each value as double. */
+	private static final byte ENCODING_DOUBLE = 0;
+
+	/** Block encoding storing each value as integer. Integer.MIN_VALUE encodes missing values. */
+	private static final byte ENCODING_INTEGER = 1;
+
+	/** Block encoding storing runs of nominal indices as pairs of (index + 1, length). 0 encodes missing values. */
+	private static final byte ENCODING_RUN_LENGTH = 2;
+
+	/** Block encoding storing nominal indices + 1 with the minimal number of bits. 0 encodes missing values. */
+	private static final byte ENCODING_BIT_PACKED = 3;
+
+	/** The number of values which are buffered while writing a block of rows in {@link #VERSION_4}. */
+	private static final int BLOCK_BUFFER_SIZE = 1 << 20;
+
+	/** The maximal number of rows of a block in {@link #VERSION_4}. */
+	private static final int MAX_BLOCK_SIZE = 1 << 16;
+
+	/** The minimal number of rows of a block in {@link #VERSION_4}. */
+	private static final int MIN_BLOCK_SIZE = 1 << 10;
 	
 	public enum ColumnType {
 		NOMINAL_BYTE,
@@ -116,7 +157,8 @@ public class ExampleSetToStream {
 	
 	public ExampleSetToStream(int version) {
 		this.version = version;
-		if (version != CURRENT_VERSION) {
+		// the row-wise format of version 3 can still be written for older versions of RapidMiner
+		if (version < VERSION_3) {
 			//LogService.getRoot().warning("Using deprecated example set stream version "+version);
 			LogService.getRoot().log(Level.WARNING, "com.rapidminer.operator.tools.ExampleSetToStream.using_deprecated_version", version);
 		}
@@ -124,7 +166,8 @@ public class ExampleSetToStream {
 	
 	/** Writes header and data of the example set to the stream. */
 	public void write(ExampleSet exampleSet, OutputStream outputStream) throws IOException {
-		DataOutputStream out = new DataOutputStream(outputStream);
+		CountingOutputStream counter = new CountingOutputStream(outputStream);
+		DataOutputStream out = new DataOutputStream(counter);
 		List<AttributeRole> allRoles = new LinkedList<AttributeRole>();
 		Iterator<AttributeRole> i = exampleSet.getAttributes().allAttributeRoles();
 		while (i.hasNext()) {
@@ -136,7 +179,11 @@ public class ExampleSetToStream {
 			sparse = true;
 		}
 		writeHeader(exampleSet.getAnnotations(), allRoles, out, sparse);
-		writeData(exampleSet, out, allRoles, sparse);
+		if (version >= VERSION_4 && !sparse) {
+			writeColumnarData(exampleSet, counter, out, allRoles);
+		} else {
+			writeData(exampleSet, out, allRoles, sparse);
+		}
 		out.flush();		
 	}
 		
@@ -171,6 +218,182 @@ public class ExampleSetToStream {
 		}
 	}
 
+	/** Writes the data column-wise as used by {@link #VERSION_4}:
+	 *  - the number of examples
+	 *  - the number of rows per block
+	 *  - For each block of rows and for each attribute one chunk holding the values of this block, 
+	 *      consisting of a byte specifying the encoding and the encoded values, see {@link #writeChunk(double[], int, ColumnType, DataOutput)}
+	 *  - The footer: the number of attributes, the number of blocks and for each block and attribute
+	 *      the offset of the chunk relative to the beginning of the stream and its length in bytes
+	 *  - The offset of the footer relative to the beginning of the stream
+	 */
+	private void writeColumnarData(ExampleSet exampleSet, CountingOutputStream counter, DataOutputStream out, List<AttributeRole> allRoles) throws IOException {
+		int size = exampleSet.size();
+		int numberOfColumns = allRoles.size();
+		int blockSize = Math.max(MIN_BLOCK_SIZE, Math.min(MAX_BLOCK_SIZE, BLOCK_BUFFER_SIZE / Math.max(1, numberOfColumns)));
+		int numberOfBlocks = (size + blockSize - 1) / blockSize;
+		out.writeInt(size);
+		out.writeInt(blockSize);
+
+		ColumnType[] columnTypes = convertToColumnTypes(allRoles);
+		Attribute[] attributes = new Attribute[numberOfColumns];
+		int attributeIndex = 0;
+		for (AttributeRole role : allRoles) {
+			attributes[attributeIndex++] = role.getAttribute();
+		}
+		long[] offsets = new long[numberOfBlocks * numberOfColumns];
+		int[] lengths = new int[numberOfBlocks * numberOfColumns];
+		double[][] buffer = new double[numberOfColumns][Math.min(blockSize, size)];
+		Iterator<Example> reader = exampleSet.iterator();
+		for (int block = 0; block < numberOfBlocks; block++) {
+			int rows = Math.min(blockSize, size - block * blockSize);
+			for (int row = 0; row < rows; row++) {
+				Example example = reader.next();
+				for (int column = 0; column < numberOfColumns; column++) {
+					buffer[column][row] = example.getValue(attributes[column]);
+				}
+			}
+			for (int column = 0; column < numberOfColumns; column++) {
+				int chunk = block * numberOfColumns + column;
+				offsets[chunk] = counter.getCount();
+				writeChunk(buffer[column], rows, columnTypes[column], out);
+				lengths[chunk] = (int) (counter.getCount() - offsets[chunk]);
+			}
+		}
+
+		// footer
+		long footerOffset = counter.getCount();
+		out.writeInt(numberOfColumns);
+		out.writeInt(numberOfBlocks);
+		for (int chunk = 0; chunk < offsets.length; chunk++) {
+			out.writeLong(offsets[chunk]);
+			out.writeInt(lengths[chunk]);
+		}
+		out.writeLong(footerOffset);
+	}
+
+	/** Writes the first rows values of a single column. Nominal columns are written run length encoded or 
+	 *  bit packed, depending on which is smaller, integer columns as integers if all values fit, all other 
+	 *  columns as doubles. */
+	private void writeChunk(double[] values, int rows, ColumnType columnType, DataOutput out) throws IOException {
+		double max = Double.NEGATIVE_INFINITY;
+		boolean fitsInteger = true;
+		int runs = 0;
+		for (int row = 0; row < rows; row++) {
+			double value = values[row];
+			if (!Double.isNaN(value)) {
+				if (value > max)
+					max = value;
+				if (value != (int) value || (int) value == Integer.MIN_VALUE)
+					fitsInteger = false;
+			}
+			if (row == 0 || Double.doubleToLongBits(value) != Double.doubleToLongBits(values[row - 1]))
+				runs++;
+		}
+		switch (columnType) {
+		case NOMINAL_BYTE:
+		case NOMINAL_SHORT:
+		case NOMINAL_INTEGER:
+			int maxCode = max < 0 ? 0 : (int) max + 1;
+			int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(maxCode));
+			long[] words = new long[(int) (((long) rows * bits + 63) >>> 6)];
+			if (4 + 8L * runs < 1 + 8L * words.length) {
+				out.writeByte(ENCODING_RUN_LENGTH);
+				out.writeInt(runs);
+				int start = 0;
+				for (int row = 1; row <= rows; row++) {
+					if (row == rows || Double.doubleToLongBits(values[row]) != Double.doubleToLongBits(values[start])) {
+						out.writeInt(Double.isNaN(values[start]) ? 0 : (int) values[start] + 1);
+						out.writeInt(row - start);
+						start = row;
+					}
+				}
+			} else {
+				out.writeByte(ENCODING_BIT_PACKED);
+				out.writeByte(bits);
+				for (int row = 0; row < rows; row++) {
+					long code = Double.isNaN(values[row]) ? 0 : (int) values[row] + 1;
+					long position = (long) row * bits;
+					int word = (int) (position >>> 6);
+					int shift = (int) (position & 63);
+					words[word] |= code << shift;
+					if (shift + bits > 64) {
+						words[word + 1] |= code >>> (64 - shift);
+					}
+				}
+				for (long word : words) {
+					out.writeLong(word);
+				}
+			}
+			break;
+		case INTEGER:
+			if (fitsInteger) {
+				out.writeByte(ENCODING_INTEGER);
+				for (int row = 0; row < rows; row++) {
+					out.writeInt(Double.isNaN(values[row]) ? Integer.MIN_VALUE : (int) values[row]);
+				}
+				break;
+			}
+			// otherwise fall through and store as double
+		default:
+			out.writeByte(ENCODING_DOUBLE);
+			for (int row = 0; row < rows; row++) {
+				out.writeDouble(values[row]);
+			}
+		}
+	}
+
+	/** Reads a chunk written by {@link #writeChunk(double[], int, ColumnType, DataOutput)} into the first rows
+	 *  entries of the given array. */
+	private static void readChunk(DataInput in, double[] values, int rows) throws IOException {
+		byte encoding = in.readByte();
+		switch (encoding) {
+		case ENCODING_DOUBLE:
+			for (int row = 0; row < rows; row++) {
+				values[row] = in.readDouble();
+			}
+			break;
+		case ENCODING_INTEGER:
+			for (int row = 0; row < rows; row++) {
+				int value = in.readInt();
+				values[row] = value == Integer.MIN_VALUE ? Double.NaN : value;
+			}
+			break;
+		case ENCODING_RUN_LENGTH:
+			int runs = in.readInt();
+			int row = 0;
+			for (int run = 0; run < runs; run++) {
+				int code = in.readInt();
+				int length = in.readInt();
+				double value = code == 0 ? Double.NaN : code - 1;
+				Arrays.fill(values, row, row + length, value);
+				row += length;
+			}
+			break;
+		case ENCODING_BIT_PACKED:
+			int bits = in.readByte();
+			long mask = (1L << bits) - 1;
+			long[] words = new long[(int) (((long) rows * bits + 63) >>> 6)];
+			for (int i = 0; i < words.length; i++) {
+				words[i] = in.readLong();
+			}
+			for (row = 0; row < rows; row++) {
+				long position = (long) row * bits;
+				int word = (int) (position >>> 6);
+				int shift = (int) (position & 63);
+				long code = words[word] >>> shift;
+				if (shift + bits > 64) {
+					code |= words[word + 1] << (64 - shift);
+				}
+				code &= mask;
+				values[row] = code == 0 ? Double.NaN : code - 1;
+			}
+			break;
+		default:
+			throw new IOException("Unknown block encoding: " + encoding);
+		}
+	}
+
 	/** Writes the annotations, meta data, including nominal mappings, to the stream, in the following order:
 	 *  - annotations {@link #writeAnnotations(DataOutput, Annotations)}
 	 *  - number of attributes to come
@@ -224,6 +447,11 @@ public class ExampleSetToStream {
 		
 		// Extract Header information
 		Header header =  readHeader(in);		
+		return readData(in, header);
+	}
+
+	/** Reads the data following the given header. */
+	private ExampleSet readData(DataInputStream in, Header header) throws IOException {
 		List<AttributeRole> allAttributeRoles = header.getAllRoles();
 		List<Attribute> allAttributes = new ArrayList<Attribute>();
 		for (AttributeRole role : allAttributeRoles) {
@@ -233,8 +461,34 @@ public class ExampleSetToStream {
 		boolean sparse = header.isSparse();
 		
 		// Create example table
-		MemoryExampleTable exampleTable = new MemoryExampleTable(allAttributes);
 		int size = in.readInt();
+		if (version >= VERSION_4 && !sparse) {
+			int blockSize = in.readInt();
+			ColumnarExampleTable table = createColumnarTable(allAttributes, size);
+			double[] values = new double[Math.min(blockSize, size)];
+			for (int firstRow = 0; firstRow < size; firstRow += blockSize) {
+				int rows = Math.min(blockSize, size - firstRow);
+				for (int column = 0; column < allAttributes.size(); column++) {
+					readChunk(in, values, rows);
+					for (int row = 0; row < rows; row++) {
+						table.setValue(firstRow + row, column, values[row]);
+					}
+				}
+			}
+			return createExampleSet(table, header);
+		}
+		if (!sparse && MappedExampleTable.exceedsHeap(size, allAttributes.size())) {
+			// data set does not fit into the heap, so spill it into memory mapped files
+			LogService.getRoot().log(Level.INFO, "com.rapidminer.operator.tools.ExampleSetToStream.using_memory_mapped_table", size);
+			MappedExampleTable mappedTable = new MappedExampleTable(allAttributes, DataRowFactory.TYPE_DOUBLE_ARRAY, size);
+			double[] data = new double[allAttributeRoles.size()];
+			for (int row = 0; row < size; row++) {
+				readRow(in, data, columnTypes, sparse, null);
+				mappedTable.addRow(data);
+			}
+			return createExampleSet(mappedTable, header);
+		}
+		MemoryExampleTable exampleTable = new MemoryExampleTable(allAttributes);
 		
 		// Read data
 		for (int row = 0; row < size; row++) {
@@ -257,10 +511,14 @@ public class ExampleSetToStream {
 			}
 		}
 		
-		// Create example set
+		return createExampleSet(exampleTable, header);
+	}
+
+	/** Creates an example set on the given table assigning the roles and annotations of the header. */
+	private static ExampleSet createExampleSet(ExampleTable exampleTable, Header header) {
 		ExampleSet exampleSet = exampleTable.createExampleSet();
 		// finally, set special attributes
-		for (AttributeRole role : allAttributeRoles) {
+		for (AttributeRole role : header.getAllRoles()) {
 			if (role.isSpecial()) {
 				Attribute att = exampleSet.getAttributes().get(role.getAttribute().getName());
 				exampleSet.getAttributes().getRole(att).setSpecial(role.getSpecialName());
@@ -270,6 +528,161 @@ public class ExampleSetToStream {
 		return exampleSet;
 	}
 	
+	/** Creates a columnar table of the given size. If the table does not fit into the free heap, 
+	 *  a {@link MappedExampleTable} is created. */
+	private static ColumnarExampleTable createColumnarTable(List<Attribute> attributes, int size) {
+		ColumnarExampleTable table;
+		if (MappedExampleTable.exceedsHeap(size, attributes.size())) {
+			LogService.getRoot().log(Level.INFO, "com.rapidminer.operator.tools.ExampleSetToStream.using_memory_mapped_table", size);
+			table = new MappedExampleTable(attributes, DataRowFactory.TYPE_DOUBLE_ARRAY, size);
+		} else {
+			table = new ColumnarExampleTable(attributes, DataRowFactory.TYPE_DOUBLE_ARRAY, size);
+		}
+		table.setSize(size);
+		return table;
+	}
+
+	/** Reads all rows of the given attributes from a file written by {@link IOObjectSerializer}.
+	 *  @see #read(File, Collection, int, int) */
+	public static ExampleSet read(File file, Collection<String> attributeNames) throws IOException {
+		return read(file, attributeNames, 0, Integer.MAX_VALUE);
+	}
+
+	/** Reads the attributes with the given names and the rows from firstRow (inclusive) to lastRow (exclusive)
+	 *  from a file containing an example set written by {@link IOObjectSerializer}. If attributeNames is null, all
+	 *  attributes are read. For files written with {@link #VERSION_4} only the needed blocks are read from the
+	 *  file, older versions and example sets written by other serialization types are read
+	 *  completely and projected afterwards. */
+	public static ExampleSet read(File file, Collection<String> attributeNames, int firstRow, int lastRow) throws IOException {
+		FileInputStream fileIn = new FileInputStream(file);
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(fileIn));
+			SerializationType type = IOObjectSerializer.getInstance().deserializeHeader(in);
+			if (!(type.getBodySerializer() instanceof StreamedExampleSetBodySerializer)) {
+				Object object = type.getBodySerializer().deserialize(in);
+				if (object instanceof ExampleSet) {
+					return project((ExampleSet) object, attributeNames, firstRow, lastRow);
+				}
+				throw new IOException("File '" + file + "' does not contain an example set but " + (object == null ? null : object.getClass().getName()) + ".");
+			}
+			ExampleSetToStream streamer = new ExampleSetToStream(((StreamedExampleSetBodySerializer) type.getBodySerializer()).getVersion());
+			Header header = streamer.readHeader(in);
+			if (streamer.getVersion() < VERSION_4 || header.isSparse()) {
+				return project(streamer.readData(in, header), attributeNames, firstRow, lastRow);
+			}
+			int size = in.readInt();
+			int blockSize = in.readInt();
+			firstRow = Math.max(0, firstRow);
+			lastRow = Math.min(size, lastRow);
+			int rows = Math.max(0, lastRow - firstRow);
+
+			// selecting columns
+			List<AttributeRole> allRoles = header.getAllRoles();
+			List<AttributeRole> selectedRoles = new LinkedList<AttributeRole>();
+			List<Attribute> selectedAttributes = new ArrayList<Attribute>();
+			int[] selectedColumns = new int[allRoles.size()];
+			int column = 0;
+			for (AttributeRole role : allRoles) {
+				if (attributeNames == null || attributeNames.contains(role.getAttribute().getName())) {
+					selectedColumns[selectedAttributes.size()] = column;
+					selectedAttributes.add(role.getAttribute());
+					selectedRoles.add(role);
+				}
+				column++;
+			}
+
+			// reading footer
+			long streamStart = IOObjectSerializer.MAGIC_NUMBER.length + 4;
+			FileChannel channel = fileIn.getChannel();
+			long footerPosition = streamStart + readBuffer(channel, channel.size() - 8, 8).getLong();
+			ByteBuffer footer = readBuffer(channel, footerPosition, channel.size() - 8 - footerPosition);
+			int numberOfColumns = footer.getInt();
+			int numberOfBlocks = footer.getInt();
+			if (numberOfColumns != allRoles.size()) {
+				throw new IOException("Corrupt footer in '" + file + "': expected " + allRoles.size() + " columns, found " + numberOfColumns + ".");
+			}
+			int chunkEntrySize = 8 + 4;
+
+			// reading needed chunks
+			ColumnarExampleTable table = createColumnarTable(selectedAttributes, rows);
+			double[] values = new double[Math.min(blockSize, size)];
+			for (int block = firstRow / blockSize; block < numberOfBlocks && block * blockSize < lastRow && rows > 0; block++) {
+				long start = Long.MAX_VALUE;
+				long end = 0;
+				for (int i = 0; i < selectedAttributes.size(); i++) {
+					footer.position(8 + (block * numberOfColumns + selectedColumns[i]) * chunkEntrySize);
+					long offset = footer.getLong();
+					start = Math.min(start, offset);
+					end = Math.max(end, offset + footer.getInt());
+				}
+				if (start >= end) {
+					continue;
+				}
+				ByteBuffer blockBuffer = readBuffer(channel, streamStart + start, end - start);
+				int blockStart = block * blockSize;
+				int blockRows = Math.min(blockSize, size - blockStart);
+				int from = Math.max(firstRow, blockStart);
+				int to = Math.min(lastRow, blockStart + blockRows);
+				for (int i = 0; i < selectedAttributes.size(); i++) {
+					footer.position(8 + (block * numberOfColumns + selectedColumns[i]) * chunkEntrySize);
+					blockBuffer.position((int) (footer.getLong() - start));
+					readChunk(new DataInputStream(new ByteBufferInputStream(blockBuffer)), values, blockRows);
+					for (int row = from; row < to; row++) {
+						table.setValue(row - firstRow, i, values[row - blockStart]);
+					}
+				}
+			}
+			return createExampleSet(table, new Header(header.getAnnotations(), selectedRoles, false));
+		} finally {
+			fileIn.close();
+		}
+	}
+
+	/** Reads length bytes starting at the given position of the channel into a heap buffer. The
+	 *  file is not mapped into memory, since mappings cannot be released explicitly and would lock
+	 *  the file on some platforms until they are garbage collected. */
+	private static ByteBuffer readBuffer(FileChannel channel, long position, long length) throws IOException {
+		if (length < 0 || length > Integer.MAX_VALUE) {
+			throw new IOException("Illegal block length: " + length);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate((int) length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Unexpected end of file at position " + (position + buffer.position()) + ".");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/** Removes all attributes not contained in attributeNames (unless it is null) and restricts the
+	 *  example set to the given rows. */
+	private static ExampleSet project(ExampleSet exampleSet, Collection<String> attributeNames, int firstRow, int lastRow) {
+		if (attributeNames != null) {
+			List<Attribute> unused = new LinkedList<Attribute>();
+			Iterator<Attribute> i = exampleSet.getAttributes().allAttributes();
+			while (i.hasNext()) {
+				Attribute attribute = i.next();
+				if (!attributeNames.contains(attribute.getName())) {
+					unused.add(attribute);
+				}
+			}
+			for (Attribute attribute : unused) {
+				exampleSet.getAttributes().remove(attribute);
+			}
+		}
+		firstRow = Math.max(0, firstRow);
+		lastRow = Math.min(exampleSet.size(), lastRow);
+		if (firstRow > 0 || lastRow < exampleSet.size()) {
+			int[] mapping = new int[Math.max(0, lastRow - firstRow)];
+			for (int row = 0; row < mapping.length; row++) {
+				mapping[row] = firstRow + row;
+			}
+			exampleSet = new MappedExampleSet(exampleSet, mapping);
+		}
+		return exampleSet;
+	}
+	
 	/** Reads meta data information as written by {@link #writeHeader(List, DataOutputStream)}. 
 	 *  TODO: This must return an ExampleSetHeader including the roles and the sparse flag. */
 	public Header readHeader(DataInputStream in) throws IOException {
@@ -490,6 +903,7 @@ public class ExampleSetToStream {
 			break;
 		case VERSION_2:
 		case VERSION_3:
+		case VERSION_4:
 			byte[] bytes = value.getBytes(STRING_CHARSET);
 			out.writeInt(bytes.length);
 			out.write(bytes);
@@ -505,6 +919,7 @@ public class ExampleSetToStream {
 			return in.readUTF();
 		case VERSION_2:
 		case VERSION_3:
+		case VERSION_4:
 			int length = in.readInt();
 			byte[] bytes = new byte[length];
 			in.readFully(bytes);
@@ -552,5 +967,56 @@ public class ExampleSetToStream {
 			return result;
 		}
 	}
-		
+
+	/** Counts the bytes written to the underlying stream in order to index the blocks. */
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		private long count = 0;
+
+		private CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		private long getCount() {
+			return count;
+		}
+	}
+
+	/** Reads from a (memory mapped) byte buffer. */
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		private ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!buffer.hasRemaining())
+				return -1;
+			return buffer.get() & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (!buffer.hasRemaining())
+				return -1;
+			len = Math.min(len, buffer.remaining());
+			buffer.get(b, off, len);
+			return len;
+		}
+	}
 }
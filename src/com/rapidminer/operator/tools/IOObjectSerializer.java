@@ -31,7 +31,9 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
 
+import com.rapidminer.RapidMiner;
 import com.rapidminer.example.ExampleSet;
+import com.rapidminer.tools.ParameterService;
 
 
 /**
@@ -50,15 +52,29 @@ public class IOObjectSerializer {
 	}
 	
 
-	/** Serializes the object with a default type appropriate for the given object. */
+	/** Serializes the object with a default type appropriate for the given object. Example sets
+	 *  are written in the format of {@link SerializationType#STREAMED_EXAMPLE_SET_DENSE_CURRENT_VERSION},
+	 *  which can be read by older versions, e.g. by remote repositories. */
 	public void serialize(OutputStream out, Object object) throws IOException {
-		SerializationType type;
 		if (object instanceof ExampleSet) {
-			type = SerializationType.STREAMED_EXAMPLE_SET_DENSE_CURRENT_VERSION;
+			serialize(out, object, SerializationType.STREAMED_EXAMPLE_SET_DENSE_CURRENT_VERSION);
 		} else {
-			type = SerializationType.JAVA_BINARY;
+			serialize(out, object, SerializationType.JAVA_BINARY);
+		}
+	}
+
+	/** Serializes the object like {@link #serialize(OutputStream, Object)} but writes example sets
+	 *  column-wise in the format of {@link ExampleSetToStream#VERSION_4}, so that single columns can be read
+	 *  by {@link ExampleSetToStream#read(java.io.File, java.util.Collection)}. Must only be used for files
+	 *  which are read by this version, i.e. the files of the local repository. Example sets are written in
+	 *  the format of {@link ExampleSetToStream#VERSION_3} if
+	 *  {@link RapidMiner#PROPERTY_RAPIDMINER_SYSTEM_LEGACY_EXAMPLE_SET_FORMAT} is set. */
+	public void serializeToLocalFile(OutputStream out, Object object) throws IOException {
+		if (object instanceof ExampleSet && !Boolean.parseBoolean(ParameterService.getParameterValue(RapidMiner.PROPERTY_RAPIDMINER_SYSTEM_LEGACY_EXAMPLE_SET_FORMAT))) {
+			serialize(out, object, SerializationType.STREAMED_EXAMPLE_SET_DENSE_4);
+		} else {
+			serialize(out, object);
 		}
-		serialize(out, object, type);
 	}
 	
 
@@ -107,8 +107,13 @@ public enum SerializationType {
 	
 	STREAMED_EXAMPLE_SET_DENSE_2(new StreamedExampleSetBodySerializer(ExampleSetToStream.VERSION_2)),
 	
-	STREAMED_EXAMPLE_SET_DENSE_3(new StreamedExampleSetBodySerializer(ExampleSetToStream.VERSION_3));
+	STREAMED_EXAMPLE_SET_DENSE_3(new StreamedExampleSetBodySerializer(ExampleSetToStream.VERSION_3)),
 	
+	/** Column-wise format which cannot be read by older versions. Only used for files of the local
+	 *  repository, see {@link IOObjectSerializer#serializeToLocalFile(java.io.OutputStream, Object)}. */
+	STREAMED_EXAMPLE_SET_DENSE_4(new StreamedExampleSetBodySerializer(ExampleSetToStream.VERSION_4));
+	
+	/** The format used for streams and remote repositories, which must stay readable by older versions. */
 	public static SerializationType STREAMED_EXAMPLE_SET_DENSE_CURRENT_VERSION = STREAMED_EXAMPLE_SET_DENSE_3; 
 	
 	private BodySerializer bodySerializer;
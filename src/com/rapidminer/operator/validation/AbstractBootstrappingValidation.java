@@ -22,6 +22,7 @@
  */
 package com.rapidminer.operator.validation;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
@@ -81,6 +82,27 @@ public abstract class AbstractBootstrappingValidation extends ValidationChain {
 
 		// start bootstrapping loop
 		RandomGenerator random = RandomGenerator.getRandomGenerator(this);
+		final ExampleSet parallelSet = prepareParallelExecution(inputSet, number);
+		if (parallelSet != null) {
+			// mappings are created in advance in order to draw the same random numbers as a sequential execution
+			final List<int[]> mappings = new ArrayList<int[]>(number);
+			for (int i = 0; i < number; i++) {
+				mappings.add(createMapping(parallelSet, (int)Math.round(parallelSet.size() * getParameterAsDouble(PARAMETER_SAMPLE_RATIO)), random));
+			}
+			performIterations(number, new IterationProvider() {
+				@Override
+				public ExampleSet getTrainingSet(int iteration) {
+					return new MappedExampleSet((ExampleSet)parallelSet.clone(), mappings.get(iteration), true);
+				}
+
+				@Override
+				public ExampleSet getTestSet(int iteration) {
+					return new MappedExampleSet((ExampleSet)parallelSet.clone(), mappings.get(iteration), false);
+				}
+			});
+			iteration = number;
+			return;
+		}
 		for (iteration = 0; iteration < number; iteration++) {
 			int[] mapping = createMapping(inputSet, (int)Math.round(inputSet.size() * getParameterAsDouble(PARAMETER_SAMPLE_RATIO)), random);
 			MappedExampleSet trainingSet = new MappedExampleSet((ExampleSet)inputSet.clone(), mapping, true);
@@ -93,6 +115,11 @@ public abstract class AbstractBootstrappingValidation extends ValidationChain {
 		// end loop
 	}
 
+	@Override
+	protected boolean supportsParallelExecution() {
+		return true;
+	}
+
 	@Override
 	protected MDInteger getTestSetSize(MDInteger originalSize) throws UndefinedParameterError {
 		return originalSize.multiply(1d - getParameterAsDouble(PARAMETER_SAMPLE_RATIO));
@@ -110,6 +110,28 @@ public class BatchXValidation extends ValidationChain {
         }
         SplittedExampleSet splittedES = SplittedExampleSet.splitByAttribute(inputSet, batchAttribute);
 
+        ExampleSet parallelSet = prepareParallelExecution(inputSet, splittedES.getNumberOfSubsets());
+        if (parallelSet != null) {
+            final SplittedExampleSet parallelES = (parallelSet == inputSet) ? splittedES : SplittedExampleSet.splitByAttribute(parallelSet, parallelSet.getAttributes().getSpecial(Attributes.BATCH_NAME));
+            performIterations(parallelES.getNumberOfSubsets(), new IterationProvider() {
+                @Override
+                public ExampleSet getTrainingSet(int iteration) {
+                    SplittedExampleSet trainingSet = new SplittedExampleSet(parallelES);
+                    trainingSet.selectAllSubsetsBut(iteration);
+                    return trainingSet;
+                }
+
+                @Override
+                public ExampleSet getTestSet(int iteration) {
+                    SplittedExampleSet testSet = new SplittedExampleSet(parallelES);
+                    testSet.selectSingleSubset(iteration);
+                    return testSet;
+                }
+            });
+            iteration = parallelES.getNumberOfSubsets();
+            return;
+        }
+
         // start crossvalidation        
         for (iteration = 0; iteration < splittedES.getNumberOfSubsets(); iteration++) {
 
@@ -141,6 +163,11 @@ public class BatchXValidation extends ValidationChain {
         return types;
     }
     
+    @Override
+    protected boolean supportsParallelExecution() {
+        return true;
+    }
+
     @Override
     public boolean supportsCapability(OperatorCapability capability) {
     	return true;
@@ -22,6 +22,7 @@
  */
 package com.rapidminer.operator.validation;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.rapidminer.example.ExampleSet;
@@ -97,6 +98,31 @@ public class BootstrappingValidation extends ValidationChain {
 
 		// start bootstrapping loop
 		RandomGenerator random = RandomGenerator.getRandomGenerator(this);
+		final ExampleSet parallelSet = prepareParallelExecution(inputSet, number);
+		if (parallelSet != null) {
+			// mappings are created in advance in order to draw the same random numbers as a sequential execution
+			final List<int[]> mappings = new ArrayList<int[]>(number);
+			for (int i = 0; i < number; i++) {
+				if (getParameterAsBoolean(PARAMETER_USE_WEIGHTS) && inputSet.getAttributes().getWeight() != null) {
+					mappings.add(MappedExampleSet.createWeightedBootstrappingMapping(parallelSet, size, random));
+				} else {
+					mappings.add(MappedExampleSet.createBootstrappingMapping(parallelSet, size, random));
+				}
+			}
+			performIterations(number, new IterationProvider() {
+				@Override
+				public ExampleSet getTrainingSet(int iteration) {
+					return new MappedExampleSet((ExampleSet)parallelSet.clone(), mappings.get(iteration), true);
+				}
+
+				@Override
+				public ExampleSet getTestSet(int iteration) {
+					return new MappedExampleSet((ExampleSet)parallelSet.clone(), mappings.get(iteration), false);
+				}
+			});
+			iteration = number;
+			return;
+		}
 		for (iteration = 0; iteration < number; iteration++) {
 			
 			int[] mapping = null;
@@ -115,6 +141,11 @@ public class BootstrappingValidation extends ValidationChain {
 		// end loop
 	}
 
+	@Override
+	protected boolean supportsParallelExecution() {
+		return true;
+	}
+
 	@Override
 	protected MDInteger getTestSetSize(MDInteger originalSize) throws UndefinedParameterError {
 		return originalSize.multiply(1d - getParameterAsDouble(PARAMETER_SAMPLE_RATIO));
@@ -22,10 +22,18 @@
  */
 package com.rapidminer.operator.validation;
 
+import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 
 import com.rapidminer.example.Attribute;
 import com.rapidminer.example.ExampleSet;
+import com.rapidminer.example.table.ColumnarExampleTable;
+import com.rapidminer.example.table.DataRowFactory;
+import com.rapidminer.example.table.MappedExampleTable;
 import com.rapidminer.operator.IOObject;
 import com.rapidminer.operator.Model;
 import com.rapidminer.operator.OperatorChain;
@@ -49,9 +57,11 @@ import com.rapidminer.operator.ports.metadata.Precondition;
 import com.rapidminer.operator.ports.metadata.SetRelation;
 import com.rapidminer.operator.ports.metadata.SimplePrecondition;
 import com.rapidminer.operator.ports.metadata.SubprocessTransformRule;
+import com.rapidminer.operator.preprocessing.MaterializeDataInMemory;
 import com.rapidminer.parameter.ParameterType;
 import com.rapidminer.parameter.ParameterTypeBoolean;
 import com.rapidminer.parameter.UndefinedParameterError;
+import com.rapidminer.tools.ConcurrencyTools;
 import com.rapidminer.tools.math.AverageVector;
 
 
@@ -70,6 +80,21 @@ public abstract class ValidationChain extends OperatorChain implements Capabilit
     /** The parameter name for &quot;Indicates if a model of the complete data set should be additionally build after estimation.&quot; */
     public static final String PARAMETER_CREATE_COMPLETE_MODEL = "create_complete_model";
 
+    /** The parameter name for &quot;Indicates if the iterations of the validation should be executed concurrently.&quot; */
+    public static final String PARAMETER_PARALLEL_EXECUTION = "parallel_execution";
+
+    /**
+     * Provides the training and test sets of the iterations executed by
+     * {@link ValidationChain#performIterations(int, IterationProvider)}. The methods are 
+     * invoked concurrently for different iterations and hence must not modify shared state.
+     */
+    protected interface IterationProvider {
+
+        public ExampleSet getTrainingSet(int iteration) throws OperatorException;
+
+        public ExampleSet getTestSet(int iteration) throws OperatorException;
+    }
+
     // input
     protected final InputPort trainingSetInput = getInputPorts().createPort("training", ExampleSet.class);
 
@@ -315,6 +340,12 @@ public abstract class ValidationChain extends OperatorChain implements Capabilit
      * learning.
      */
     protected final void evaluate(ExampleSet testSet) throws OperatorException {
+        buildAverages(applyEvaluator(testSet));
+    }
+
+    /** Applies the second subprocess as described in {@link #evaluate(ExampleSet)} and returns
+     *  the averagable results of this iteration without averaging them. */
+    private List<AverageVector> applyEvaluator(ExampleSet testSet) throws OperatorException {
         Attribute predictedBefore = testSet.getAttributes().getPredictedLabel();
 
         applyProcessExampleSetOutput.deliver(testSet);
@@ -323,7 +354,10 @@ public abstract class ValidationChain extends OperatorChain implements Capabilit
 
         executeEvaluator();
 
-        Tools.buildAverages(applyProcessPerformancePortExtender);
+        List<AverageVector> results = new LinkedList<AverageVector>();
+        for (PortPairExtender.PortPair pair : applyProcessPerformancePortExtender.getManagedPairs()) {
+            results.add(pair.getInputPort().getDataOrNull(AverageVector.class));
+        }
 
         Attribute predictedAfter = testSet.getAttributes().getPredictedLabel();
         // remove predicted label and confidence attributes if there is a new prediction which is not equal to an old one
@@ -331,6 +365,89 @@ public abstract class ValidationChain extends OperatorChain implements Capabilit
                 (predictedBefore.getTableIndex() != predictedAfter.getTableIndex()))) {
             PredictionModel.removePredictedLabel(testSet);
         }
+        return results;
+    }
+
+    /** Averages the results of a single iteration into the output ports. */
+    private void buildAverages(List<AverageVector> results) throws OperatorException {
+        int i = 0;
+        for (PortPairExtender.PortPair pair : applyProcessPerformancePortExtender.getManagedPairs()) {
+            if (i >= results.size()) {
+                break;
+            }
+            Tools.buildAverages(results.get(i++), pair.getOutputPort());
+        }
+    }
+
+    /**
+     * Returns true if the iterations of this validation can be executed by 
+     * {@link #performIterations(int, IterationProvider)}. In this case, the parameter
+     * {@link #PARAMETER_PARALLEL_EXECUTION} is offered. The default implementation returns false.
+     */
+    protected boolean supportsParallelExecution() {
+        return false;
+    }
+
+    /**
+     * Checks if the given number of iterations should be executed concurrently, i.e. if the
+     * parameter {@link #PARAMETER_PARALLEL_EXECUTION} is set, more than one thread may be used
+     * and this operator is not already executed by a worker thread of another parallel execution.
+     * In this case, an example set is returned which can be shared by concurrent iterations.
+     * Since iterations add and remove attributes like the predicted label, its data is copied 
+     * into a {@link ColumnarExampleTable} if necessary. If the iterations should be executed 
+     * sequentially, null is returned.
+     */
+    protected ExampleSet prepareParallelExecution(ExampleSet exampleSet, int numberOfIterations) throws OperatorException {
+        if (!supportsParallelExecution() || numberOfIterations < 2 || !getParameterAsBoolean(PARAMETER_PARALLEL_EXECUTION) || 
+                ConcurrencyTools.getNumberOfThreads() < 2 || ConcurrencyTools.isWorkerThread()) {
+            return null;
+        }
+        if (exampleSet.getExampleTable() instanceof ColumnarExampleTable) {
+            return exampleSet;
+        }
+        if (MappedExampleTable.exceedsHeap(exampleSet.size(), exampleSet.getAttributes().allSize())) {
+            getLogger().warning("Not enough memory to copy the data for parallel execution. Iterations are executed sequentially.");
+            return null;
+        }
+        getLogger().fine("Copying data into a columnar table for parallel execution.");
+        return MaterializeDataInMemory.materializeExampleSet(exampleSet, DataRowFactory.TYPE_DOUBLE_ARRAY, true);
+    }
+
+    /**
+     * Executes the given number of iterations concurrently. Each iteration is executed by one of
+     * several clones of this operator and its subprocesses. The averagable results are averaged 
+     * in the order of the iterations, so they are the same as for a sequential execution if the
+     * inner operators do not depend on the global random generator.
+     */
+    protected final void performIterations(int numberOfIterations, final IterationProvider provider) throws OperatorException {
+        int threads = Math.min(numberOfIterations, ConcurrencyTools.getNumberOfThreads());
+        getLogger().fine("Executing " + numberOfIterations + " iterations in " + threads + " threads.");
+        final BlockingQueue<ValidationChain> clones = new ArrayBlockingQueue<ValidationChain>(threads);
+        for (int i = 0; i < threads; i++) {
+            ValidationChain clone = (ValidationChain) cloneOperator(getName(), true);
+            clone.setEnclosingProcess(getExecutionUnit());
+            clones.add(clone);
+        }
+        List<Callable<List<AverageVector>>> tasks = new ArrayList<Callable<List<AverageVector>>>(numberOfIterations);
+        for (int i = 0; i < numberOfIterations; i++) {
+            final int iteration = i;
+            tasks.add(new Callable<List<AverageVector>>() {
+                @Override
+                public List<AverageVector> call() throws Exception {
+                    ValidationChain clone = clones.take();
+                    try {
+                        clone.learn(provider.getTrainingSet(iteration));
+                        return clone.applyEvaluator(provider.getTestSet(iteration));
+                    } finally {
+                        clones.add(clone);
+                    }
+                }
+            });
+        }
+        for (List<AverageVector> results : ConcurrencyTools.invokeAll(tasks, threads, getName())) {
+            buildAverages(results);
+            inApplyLoop();
+        }
     }
 
     @Override
@@ -340,6 +457,9 @@ public abstract class ValidationChain extends OperatorChain implements Capabilit
         type.setDeprecated();
         type.setExpert(false);
         types.add(type);
+        if (supportsParallelExecution()) {
+            types.add(new ParameterTypeBoolean(PARAMETER_PARALLEL_EXECUTION, "Indicates if the iterations of the validation should be executed concurrently. Inner operators must not depend on each other's side effects, e.g. macros.", false));
+        }
         return types;
     }
 }
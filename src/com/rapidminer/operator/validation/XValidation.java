@@ -144,6 +144,27 @@ public class XValidation extends ValidationChain {
 
         // Split training / test set
         int samplingType = getParameterAsInt(PARAMETER_SAMPLING_TYPE);
+        ExampleSet parallelSet = prepareParallelExecution(inputSet, number);
+        if (parallelSet != null) {
+            final SplittedExampleSet splittedES = new SplittedExampleSet(parallelSet, number, samplingType, getParameterAsBoolean(RandomGenerator.PARAMETER_USE_LOCAL_RANDOM_SEED), getParameterAsInt(RandomGenerator.PARAMETER_LOCAL_RANDOM_SEED), getCompatibilityLevel().isAtMost(SplittedExampleSet.VERSION_SAMPLING_CHANGED));
+            performIterations(number, new IterationProvider() {
+                @Override
+                public ExampleSet getTrainingSet(int iteration) {
+                    SplittedExampleSet trainingSet = new SplittedExampleSet(splittedES);
+                    trainingSet.selectAllSubsetsBut(iteration);
+                    return trainingSet;
+                }
+
+                @Override
+                public ExampleSet getTestSet(int iteration) {
+                    SplittedExampleSet testSet = new SplittedExampleSet(splittedES);
+                    testSet.selectSingleSubset(iteration);
+                    return testSet;
+                }
+            });
+            iteration = number;
+            return;
+        }
         SplittedExampleSet splittedES = new SplittedExampleSet(inputSet, number, samplingType, getParameterAsBoolean(RandomGenerator.PARAMETER_USE_LOCAL_RANDOM_SEED), getParameterAsInt(RandomGenerator.PARAMETER_LOCAL_RANDOM_SEED), getCompatibilityLevel().isAtMost(SplittedExampleSet.VERSION_SAMPLING_CHANGED));
 
         // start crossvalidation
@@ -206,6 +227,11 @@ public class XValidation extends ValidationChain {
         return types;
     }
 
+    @Override
+    protected boolean supportsParallelExecution() {
+        return true;
+    }
+
     @Override
     public OperatorVersion[] getIncompatibleVersionChanges() {
         return new OperatorVersion[] { SplittedExampleSet.VERSION_SAMPLING_CHANGED };
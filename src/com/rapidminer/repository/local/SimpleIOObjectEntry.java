@@ -33,7 +33,9 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.lang.ref.SoftReference;
+import java.util.Collection;
 
+import com.rapidminer.example.ExampleSet;
 import com.rapidminer.operator.IOObject;
 import com.rapidminer.operator.Operator;
 import com.rapidminer.operator.ports.metadata.AttributeMetaData;
@@ -103,6 +105,35 @@ public class SimpleIOObjectEntry extends SimpleDataEntry implements IOObjectEntr
 		}
 	}
 
+	/** Retrieves only the attributes with the given names if the stored object is an {@link ExampleSet}.
+	 *  For example sets stored with the current streaming format, only the columns of these attributes
+	 *  are read from disk. If attributeNames is null or the entry does not contain an example set,
+	 *  the complete object is retrieved by {@link #retrieveData(ProgressListener)}. */
+	public IOObject retrieveData(Collection<String> attributeNames, ProgressListener l) throws RepositoryException {
+		Class<? extends IOObject> objectClass = getObjectClass();
+		if (attributeNames == null || objectClass == null || !ExampleSet.class.isAssignableFrom(objectClass)) {
+			return retrieveData(l);
+		}
+		if (l != null) {
+			l.setTotal(100);
+			l.setCompleted(10);
+		}
+		File dataFile = getDataFile();
+		if (dataFile.exists()) {
+			try {
+				return ExampleSetToStream.read(dataFile, attributeNames);
+			} catch (Exception e) {
+				throw new RepositoryException("Cannot load data from '" + dataFile + "': " + e, e);
+			} finally {
+				if (l != null) {
+					l.complete();
+				}
+			}
+		} else {
+			throw new RepositoryException("File '" + dataFile + " does not exist'.");
+		}
+	}
+
 	@Override
 	public MetaData retrieveMetaData() throws RepositoryException {
 		if (metaData != null) {
@@ -153,7 +184,7 @@ public class SimpleIOObjectEntry extends SimpleDataEntry implements IOObjectEntr
 		OutputStream out = null;
 		try {
 			out = new BufferedOutputStream(new FileOutputStream(getDataFile()));
-			IOObjectSerializer.getInstance().serialize(out, data);
+			IOObjectSerializer.getInstance().serializeToLocalFile(out, data);
 			if (l != null) {
 				l.setCompleted(75);
 			}
@@ -0,0 +1,179 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.rapidminer.RapidMiner;
+import com.rapidminer.operator.OperatorException;
+
+/**
+ * Some helper methods for operators and execution strategies which distribute their work
+ * over several threads. The number of threads is limited by the property
+ * {@link RapidMiner#PROPERTY_RAPIDMINER_GENERAL_NUMBER_OF_THREADS}.
+ */
+public class ConcurrencyTools {
+
+	private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+	/** Threads created by the pools of this class. Used to detect nested parallel executions. */
+	private static class WorkerThread extends Thread {
+		private WorkerThread(Runnable runnable, String name) {
+			super(runnable, name);
+			setDaemon(true);
+		}
+	}
+
+	private ConcurrencyTools() {}
+
+	/** Returns the maximum number of threads a process may use as specified by the property
+	 *  {@link RapidMiner#PROPERTY_RAPIDMINER_GENERAL_NUMBER_OF_THREADS}. If this property is 0 or not set,
+	 *  the number of available processors is returned. */
+	public static int getNumberOfThreads() {
+		String value = ParameterService.getParameterValue(RapidMiner.PROPERTY_RAPIDMINER_GENERAL_NUMBER_OF_THREADS);
+		int threads = 0;
+		if (value != null) {
+			try {
+				threads = Integer.parseInt(value.trim());
+			} catch (NumberFormatException e) {
+				threads = 0;
+			}
+		}
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		return Math.max(1, threads);
+	}
+
+	/** Returns true if the current thread is a worker thread of a pool created by 
+	 *  {@link #createExecutorService(int, String)}. Nested parallel executions should
+	 *  then run sequentially in order to not multiply the number of threads. */
+	public static boolean isWorkerThread() {
+		return Thread.currentThread() instanceof WorkerThread;
+	}
+
+	/** Creates a pool of at most the given number of daemon threads. Idle threads terminate after a few seconds,
+	 *  nevertheless the pool should be shut down by the caller when it is no longer needed. */
+	public static ExecutorService createExecutorService(int threads, String name) {
+		final String prefix = name + "-" + POOL_COUNTER.incrementAndGet() + "-";
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			private final AtomicInteger threadCounter = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable runnable) {
+				return new WorkerThread(runnable, prefix + threadCounter.incrementAndGet());
+			}
+		});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/** Executes the given tasks on a pool of at most the given number of threads and returns their results
+	 *  in the order of the tasks. If a task fails, all tasks which have not been started yet are cancelled,
+	 *  running tasks are waited for and the exception of the first failed task (in the order of the tasks)
+	 *  is rethrown. */
+	public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks, int threads, String name) throws OperatorException {
+		ExecutorService executorService = createExecutorService(Math.max(1, Math.min(threads, tasks.size())), name);
+		try {
+			return invokeAll(tasks, executorService, name);
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	/** Does the same as {@link #invokeAll(List, int, String)} but executes the tasks on the given pool, which
+	 *  is not shut down afterwards. This allows reusing one pool for many small groups of tasks. If a task
+	 *  fails, the tasks which have not been started yet are skipped. */
+	public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks, ExecutorService executorService, String name) throws OperatorException {
+		final AtomicBoolean failed = new AtomicBoolean();
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		for (final Callable<T> task : tasks) {
+			futures.add(executorService.submit(new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					if (failed.get()) {
+						return null;
+					}
+					boolean success = false;
+					try {
+						T result = task.call();
+						success = true;
+						return result;
+					} finally {
+						if (!success) {
+							failed.set(true);
+						}
+					}
+				}
+			}));
+		}
+		try {
+			List<T> results = new ArrayList<T>(tasks.size());
+			for (Future<T> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					// waiting for running tasks
+					for (Future<T> other : futures) {
+						try {
+							other.get();
+						} catch (ExecutionException otherException) {
+							// only the first exception is rethrown
+						}
+					}
+					throwCause(e.getCause());
+				}
+			}
+			return results;
+		} catch (InterruptedException e) {
+			for (Future<T> future : futures) {
+				future.cancel(true);
+			}
+			throw new OperatorException("Interrupted while waiting for " + name + ".", e);
+		}
+	}
+
+	/** Rethrows the cause of a failed task. Checked exceptions other than {@link OperatorException}s
+	 *  are wrapped into an {@link OperatorException}. */
+	public static void throwCause(Throwable cause) throws OperatorException {
+		if (cause instanceof OperatorException) {
+			throw (OperatorException) cause;
+		} else if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		} else if (cause instanceof Error) {
+			throw (Error) cause;
+		} else {
+			throw new OperatorException(String.valueOf(cause), cause);
+		}
+	}
+}
@@ -178,10 +178,16 @@ public class DatabaseHandler {
 	 *  after {@link #disconnect()} was invoked. */
 	private Connection connection;
 
+	/** The number of rows fetched at once by forward only statements. If 0, the default of the driver is used. */
+	private int fetchSize = 0;
+
 	public static final String PARAMETER_PARAMETERS = "parameters";
 
 	public static final String PARAMETER_PREPARE_STATEMENT = "prepare_statement";
 
+	/** The parameter name for &quot;The number of rows fetched from the database at once.&quot; */
+	public static final String PARAMETER_FETCH_SIZE = "fetch_size";
+
 	private static final String[] SQL_TYPES = { "VARCHAR", "INTEGER", "REAL", "LONG" };
 
 	//	private static class DHIdentifier {
@@ -358,10 +364,24 @@ public class DatabaseHandler {
 		return connection;
 	}
 
+	/** Sets the number of rows which are fetched from the database at once by result sets
+	 *  of forward only statements. Many drivers otherwise use small default fetch sizes or
+	 *  buffer the complete result on the client. If 0, the default of the driver is used. */
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
 	/** Create a statement where result sets will have the properties
 	 *  TYPE_SCROLL_SENSITIVE and CONCUR_UPDATABLE. This means that the
 	 *  ResultSet is scrollable and also updatable. It will also directly show
 	 *  all changes to the database made by others after this ResultSet was obtained.
+	 *  Otherwise, the result sets are forward only and read only and use the fetch size
+	 *  of this handler. Since many drivers buffer scrollable result sets completely, they
+	 *  should only be requested if really necessary.
 	 *  Will throw an {@link SQLException} if the handler is not connected. */
 	public Statement createStatement(boolean scrollableAndUpdatable) throws SQLException {
 		if (connection == null) {
@@ -369,10 +389,14 @@ public class DatabaseHandler {
 		}
 		Statement statement = null;
 
-		if (scrollableAndUpdatable)
+		if (scrollableAndUpdatable) {
 			statement = connection.createStatement(ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_UPDATABLE);
-		else
+		} else {
 			statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			if (fetchSize > 0) {
+				statement.setFetchSize(fetchSize);
+			}
+		}
 		return statement;
 	}
 
@@ -380,15 +404,40 @@ public class DatabaseHandler {
 	 *  TYPE_SCROLL_SENSITIVE and CONCUR_UPDATABLE. This means that the
 	 *  ResultSet is scrollable and also updatable. It will also directly show
 	 *  all changes to the database made by others after this ResultSet was obtained.
+	 *  Otherwise, the result sets are forward only and read only and use the fetch size
+	 *  of this handler.
 	 *  Will throw an {@link SQLException} if the handler is not connected. */
 	public PreparedStatement createPreparedStatement(String sqlString, boolean scrollableAndUpdatable) throws SQLException {
 		if (connection == null) {
 			throw new SQLException("Could not create a prepared statement for '" + databaseURL + "': not connected.");
 		}
-		if (scrollableAndUpdatable)
+		if (scrollableAndUpdatable) {
 			return connection.prepareStatement(sqlString, ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_UPDATABLE);
-		else
-			return connection.prepareStatement(sqlString, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		} else {
+			PreparedStatement statement = connection.prepareStatement(sqlString, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			if (fetchSize > 0) {
+				statement.setFetchSize(fetchSize);
+			}
+			return statement;
+		}
+	}
+
+	/** Returns the name of the primary key column of the given table or null if the table
+	 *  has no primary key or a primary key consisting of several columns. */
+	public String getPrimaryKeyName(TableName tableName) throws SQLException {
+		ResultSet primaryKeys = connection.getMetaData().getPrimaryKeys(tableName.getCatalog(), tableName.getSchema(), tableName.getTableName());
+		String primaryKeyName = null;
+		try {
+			if (primaryKeys.next()) {
+				primaryKeyName = primaryKeys.getString(4); // name is in the fourth column
+				if (primaryKeys.next()) {
+					primaryKeyName = null;
+				}
+			}
+		} finally {
+			primaryKeys.close();
+		}
+		return primaryKeyName;
 	}
 
 	/**
@@ -1214,7 +1263,7 @@ public class DatabaseHandler {
 		ResultSet resultSet = null;
 		Statement statement;
 		if (parameterHandler.getParameterAsBoolean(DatabaseHandler.PARAMETER_PREPARE_STATEMENT)) {
-			PreparedStatement prepared = getConnection().prepareStatement(sql);
+			PreparedStatement prepared = createPreparedStatement(sql, false);
 			String[] parameters = ParameterTypeEnumeration.transformString2Enumeration(parameterHandler.getParameterAsString(DatabaseHandler.PARAMETER_PARAMETERS));
 			for (int i = 0; i < parameters.length; i++) {
 				String[] argDescription = ParameterTypeTupel.transformString2Tupel(parameters[i]);
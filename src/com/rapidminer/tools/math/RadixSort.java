@@ -0,0 +1,236 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.tools.math;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import com.rapidminer.operator.OperatorException;
+import com.rapidminer.tools.ConcurrencyTools;
+
+/**
+ * A stable least significant digit radix sort of long keys, which are compared as unsigned
+ * values. An int array, e.g. the indices of examples, is permuted together with the keys.
+ * The methods {@link #getSortingKey(double)} and {@link #getSortingKey(long)} transform
+ * doubles and signed longs into keys with the same order. Passes over bytes which are equal
+ * for all keys are skipped, so small keys like ranks of nominal values need only one or two
+ * passes.
+ */
+public class RadixSort {
+
+	private static final int BITS_PER_PASS = 8;
+
+	private static final int NUMBER_OF_PASSES = 64 / BITS_PER_PASS;
+
+	private static final int BUCKETS = 1 << BITS_PER_PASS;
+
+	private static final int MASK = BUCKETS - 1;
+
+	/** Arrays smaller than this are always sorted by one thread. */
+	private static final int MINIMAL_CONCURRENT_SIZE = 1 << 16;
+
+	/**
+	 * Returns a key whose unsigned order is the order of {@link Double#compare(double, double)},
+	 * i.e. -0.0 is smaller than 0.0 and NaN is larger than all other values.
+	 */
+	public static long getSortingKey(double value) {
+		long bits = Double.doubleToLongBits(value);
+		return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+	}
+
+	/**
+	 * Returns a key whose unsigned order is the signed order of the given values.
+	 */
+	public static long getSortingKey(long value) {
+		return value ^ Long.MIN_VALUE;
+	}
+
+	/**
+	 * Sorts the keys ascending and applies the same permutation to the values. Equal keys
+	 * keep their order.
+	 */
+	public static void sort(long[] keys, int[] values) {
+		int[][] counts = count(keys);
+		long[] sourceKeys = keys;
+		int[] sourceValues = values;
+		long[] targetKeys = null;
+		int[] targetValues = null;
+		for (int pass = 0; pass < NUMBER_OF_PASSES; pass++) {
+			if (isTrivial(counts[pass], keys.length)) {
+				continue;
+			}
+			if (targetKeys == null) {
+				targetKeys = new long[keys.length];
+				targetValues = new int[keys.length];
+			}
+			int[] offsets = new int[BUCKETS];
+			int offset = 0;
+			for (int bucket = 0; bucket < BUCKETS; bucket++) {
+				offsets[bucket] = offset;
+				offset += counts[pass][bucket];
+			}
+			scatter(sourceKeys, sourceValues, 0, keys.length, targetKeys, targetValues, offsets, pass * BITS_PER_PASS);
+
+			long[] swapKeys = sourceKeys;
+			sourceKeys = targetKeys;
+			targetKeys = swapKeys;
+			int[] swapValues = sourceValues;
+			sourceValues = targetValues;
+			targetValues = swapValues;
+		}
+		if (sourceKeys != keys) {
+			System.arraycopy(sourceKeys, 0, keys, 0, keys.length);
+			System.arraycopy(sourceValues, 0, values, 0, values.length);
+		}
+	}
+
+	/**
+	 * Does the same as {@link #sort(long[], int[])} but divides the arrays into blocks, which
+	 * are counted and distributed by the given number of threads in every pass.
+	 */
+	public static void sort(long[] keys, int[] values, int threads) throws OperatorException {
+		if (threads <= 1 || keys.length < MINIMAL_CONCURRENT_SIZE) {
+			sort(keys, values);
+			return;
+		}
+		int[][] counts = count(keys);
+		final int[] blockStarts = new int[threads + 1];
+		for (int block = 0; block <= threads; block++) {
+			blockStarts[block] = (int) ((long) keys.length * block / threads);
+		}
+
+		long[] sourceKeys = keys;
+		int[] sourceValues = values;
+		long[] targetKeys = null;
+		int[] targetValues = null;
+		for (int pass = 0; pass < NUMBER_OF_PASSES; pass++) {
+			if (isTrivial(counts[pass], keys.length)) {
+				continue;
+			}
+			if (targetKeys == null) {
+				targetKeys = new long[keys.length];
+				targetValues = new int[keys.length];
+			}
+			final int shift = pass * BITS_PER_PASS;
+
+			// counting the buckets of every block
+			final long[] currentKeys = sourceKeys;
+			List<Callable<int[]>> countTasks = new ArrayList<Callable<int[]>>(threads);
+			for (int block = 0; block < threads; block++) {
+				final int start = blockStarts[block];
+				final int end = blockStarts[block + 1];
+				countTasks.add(new Callable<int[]>() {
+
+					@Override
+					public int[] call() {
+						int[] blockCounts = new int[BUCKETS];
+						for (int i = start; i < end; i++) {
+							blockCounts[(int) (currentKeys[i] >>> shift) & MASK]++;
+						}
+						return blockCounts;
+					}
+				});
+			}
+			List<int[]> blockCounts = ConcurrencyTools.invokeAll(countTasks, threads, "Sorting");
+
+			// the elements of a bucket are placed in the order of the blocks to keep the sorting stable
+			final int[][] blockOffsets = new int[threads][BUCKETS];
+			int offset = 0;
+			for (int bucket = 0; bucket < BUCKETS; bucket++) {
+				for (int block = 0; block < threads; block++) {
+					blockOffsets[block][bucket] = offset;
+					offset += blockCounts.get(block)[bucket];
+				}
+			}
+
+			final int[] currentValues = sourceValues;
+			final long[] currentTargetKeys = targetKeys;
+			final int[] currentTargetValues = targetValues;
+			List<Callable<Void>> scatterTasks = new ArrayList<Callable<Void>>(threads);
+			for (int block = 0; block < threads; block++) {
+				final int currentBlock = block;
+				scatterTasks.add(new Callable<Void>() {
+
+					@Override
+					public Void call() {
+						scatter(currentKeys, currentValues, blockStarts[currentBlock], blockStarts[currentBlock + 1], currentTargetKeys, currentTargetValues,
+								blockOffsets[currentBlock], shift);
+						return null;
+					}
+				});
+			}
+			ConcurrencyTools.invokeAll(scatterTasks, threads, "Sorting");
+
+			long[] swapKeys = sourceKeys;
+			sourceKeys = targetKeys;
+			targetKeys = swapKeys;
+			int[] swapValues = sourceValues;
+			sourceValues = targetValues;
+			targetValues = swapValues;
+		}
+		if (sourceKeys != keys) {
+			System.arraycopy(sourceKeys, 0, keys, 0, keys.length);
+			System.arraycopy(sourceValues, 0, values, 0, values.length);
+		}
+	}
+
+	/**
+	 * Counts the values of every byte of the keys.
+	 */
+	private static int[][] count(long[] keys) {
+		int[][] counts = new int[NUMBER_OF_PASSES][BUCKETS];
+		for (long key : keys) {
+			for (int pass = 0; pass < NUMBER_OF_PASSES; pass++) {
+				counts[pass][(int) (key >>> (pass * BITS_PER_PASS)) & MASK]++;
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns true if all keys fall into the same bucket, so that the pass would not change
+	 * the order.
+	 */
+	private static boolean isTrivial(int[] counts, int length) {
+		for (int count : counts) {
+			if (count == length) {
+				return true;
+			}
+		}
+		return length == 0;
+	}
+
+	/**
+	 * Moves the elements between start and end to the positions given by the offsets of their
+	 * buckets. The offsets are increased accordingly.
+	 */
+	private static void scatter(long[] keys, int[] values, int start, int end, long[] targetKeys, int[] targetValues, int[] offsets, int shift) {
+		for (int i = start; i < end; i++) {
+			long key = keys[i];
+			int position = offsets[(int) (key >>> shift) & MASK]++;
+			targetKeys[position] = key;
+			targetValues[position] = values[i];
+		}
+	}
+}
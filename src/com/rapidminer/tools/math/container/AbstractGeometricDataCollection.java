@@ -0,0 +1,268 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.tools.math.container;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.rapidminer.tools.container.Tupel;
+import com.rapidminer.tools.math.similarity.DistanceMeasure;
+
+/**
+ * Superclass of the {@link GeometricDataCollection}s which keep their sample points in memory.
+ * The nearest neighbours are determined by their distance and, for equal distances, by the order in which
+ * the samples were added. Hence all subclasses deliver exactly the same neighbours, no matter how they
+ * organize the search. The neighbours are returned in ascending order of their distance. The default
+ * implementation searches all samples linearly. Subclasses may override 
+ * {@link #searchNearest(double[], BoundedPriorityQueue)} and {@link #searchWithinDistance(double[], RangeBuffer)}
+ * in order to prune the search. Samples within a distance are returned in the order in which they were added.
+ * 
+ * @param <T> This is the type of value with is stored with the points and retrieved on nearest
+ * neighbour search
+ */
+public abstract class AbstractGeometricDataCollection<T extends Serializable> implements GeometricDataCollection<T> {
+
+	private static final long serialVersionUID = 4719452632520683417L;
+
+	/** A sample found during a nearest neighbour search. Candidates are ordered by their distance
+	 *  and by the index of the sample if the distances are equal. */
+	protected static final class Candidate implements Comparable<Candidate> {
+
+		private final double distance;
+
+		private final int index;
+
+		private Candidate(double distance, int index) {
+			this.distance = distance;
+			this.index = index;
+		}
+
+		public double getDistance() {
+			return distance;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		@Override
+		public int compareTo(Candidate o) {
+			int result = Double.compare(this.distance, o.distance);
+			if (result == 0) {
+				return (this.index < o.index) ? -1 : ((this.index == o.index) ? 0 : 1);
+			}
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Candidate)) {
+				return false;
+			}
+			return compareTo((Candidate) o) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return index;
+		}
+	}
+
+	/** Collects the indices and distances of the samples found by a range search. Only samples whose 
+	 *  distance does not exceed the searched distance are kept. */
+	protected static final class RangeBuffer {
+
+		private final double withinDistance;
+
+		private int[] indices = new int[16];
+
+		private double[] distances = new double[16];
+
+		private int size = 0;
+
+		private RangeBuffer(double withinDistance) {
+			this.withinDistance = withinDistance;
+		}
+
+		public double getWithinDistance() {
+			return withinDistance;
+		}
+
+		/** Adds the sample with the given index if its distance does not exceed the searched distance. */
+		public void offer(int index, double distance) {
+			if (distance <= withinDistance) {
+				if (size == indices.length) {
+					indices = Arrays.copyOf(indices, 2 * size);
+					distances = Arrays.copyOf(distances, 2 * size);
+				}
+				indices[size] = index;
+				distances[size] = distance;
+				size++;
+			}
+		}
+
+		/** Sorts the found samples by their index. */
+		private void sortByIndex() {
+			boolean sorted = true;
+			for (int i = 1; i < size && sorted; i++) {
+				sorted = indices[i - 1] < indices[i];
+			}
+			if (sorted) {
+				return;
+			}
+			long[] keys = new long[size];
+			for (int i = 0; i < size; i++) {
+				keys[i] = ((long) indices[i] << 32) | i;
+			}
+			Arrays.sort(keys);
+			int[] sortedIndices = new int[indices.length];
+			double[] sortedDistances = new double[distances.length];
+			for (int i = 0; i < size; i++) {
+				int position = (int) keys[i];
+				sortedIndices[i] = indices[position];
+				sortedDistances[i] = distances[position];
+			}
+			indices = sortedIndices;
+			distances = sortedDistances;
+		}
+	}
+
+	/** Returns the distance measure used to compare the samples. */
+	protected abstract DistanceMeasure getDistanceMeasure();
+
+	/** Returns the coordinates of the index-th sample. */
+	protected abstract double[] getSample(int index);
+
+	/** Offers the sample with the given index and distance to the queue of the currently nearest samples. */
+	protected static void offer(BoundedPriorityQueue<Candidate> queue, double distance, int index) {
+		if (queue.isFilled()) {
+			Candidate worst = queue.peek();
+			int comparison = Double.compare(distance, worst.distance);
+			if ((comparison > 0) || ((comparison == 0) && (index > worst.index))) {
+				return;
+			}
+		}
+		queue.add(new Candidate(distance, index));
+	}
+
+	/** Returns true if none of the given values is missing or infinite. */
+	protected static boolean isFinite(double[] values) {
+		for (double value : values) {
+			if (Double.isNaN(value) || Double.isInfinite(value)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Adds the nearest samples to the given query point to the queue. The default implementation 
+	 *  offers all samples. */
+	protected void searchNearest(double[] values, BoundedPriorityQueue<Candidate> queue) {
+		DistanceMeasure distance = getDistanceMeasure();
+		int size = size();
+		for (int i = 0; i < size; i++) {
+			offer(queue, distance.calculateDistance(getSample(i), values), i);
+		}
+	}
+
+	/** Offers all samples to the buffer which might lie within its distance to the given query point.
+	 *  The default implementation offers all samples. */
+	protected void searchWithinDistance(double[] values, RangeBuffer buffer) {
+		DistanceMeasure distance = getDistanceMeasure();
+		int size = size();
+		for (int i = 0; i < size; i++) {
+			buffer.offer(i, distance.calculateDistance(getSample(i), values));
+		}
+	}
+
+	private RangeBuffer getSamplesWithinDistance(double withinDistance, double[] values) {
+		RangeBuffer buffer = new RangeBuffer(withinDistance);
+		searchWithinDistance(values, buffer);
+		buffer.sortByIndex();
+		return buffer;
+	}
+
+	/** Returns the indices of all samples whose distance to the given query point is smaller than
+	 *  the given distance. The indices are returned in ascending order. */
+	public int[] getIndicesCloserThan(double distance, double[] values) {
+		RangeBuffer buffer = getSamplesWithinDistance(distance, values);
+		int[] result = new int[buffer.size];
+		int count = 0;
+		for (int i = 0; i < buffer.size; i++) {
+			if (buffer.distances[i] < distance) {
+				result[count++] = buffer.indices[i];
+			}
+		}
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	private List<Candidate> getNearestCandidates(int k, double[] values) {
+		BoundedPriorityQueue<Candidate> queue = new BoundedPriorityQueue<Candidate>(k);
+		searchNearest(values, queue);
+		List<Candidate> candidates = new ArrayList<Candidate>(queue);
+		Collections.sort(candidates);
+		return candidates;
+	}
+
+	@Override
+	public Collection<T> getNearestValues(int k, double[] values) {
+		List<Candidate> candidates = getNearestCandidates(k, values);
+		Collection<T> result = new ArrayList<T>(candidates.size());
+		for (Candidate candidate : candidates) {
+			result.add(get(candidate.index));
+		}
+		return result;
+	}
+
+	@Override
+	public Collection<Tupel<Double, T>> getNearestValueDistances(int k, double[] values) {
+		List<Candidate> candidates = getNearestCandidates(k, values);
+		Collection<Tupel<Double, T>> result = new ArrayList<Tupel<Double, T>>(candidates.size());
+		for (Candidate candidate : candidates) {
+			result.add(new Tupel<Double, T>(candidate.distance, get(candidate.index)));
+		}
+		return result;
+	}
+
+	@Override
+	public Collection<Tupel<Double, T>> getNearestValueDistances(double withinDistance, double[] values) {
+		RangeBuffer buffer = getSamplesWithinDistance(withinDistance, values);
+		ArrayList<Tupel<Double, T>> result = new ArrayList<Tupel<Double, T>>(buffer.size);
+		for (int i = 0; i < buffer.size; i++) {
+			result.add(new Tupel<Double, T>(buffer.distances[i], get(buffer.indices[i])));
+		}
+		return result;
+	}
+
+	@Override
+	public Collection<Tupel<Double, T>> getNearestValueDistances(double withinDistance, int butAtLeastK, double[] values) {
+		Collection<Tupel<Double, T>> result = getNearestValueDistances(withinDistance, values);
+		if (result.size() < butAtLeastK)
+			return getNearestValueDistances(butAtLeastK, values);
+		return result;
+	}
+}
@@ -25,259 +25,316 @@ package com.rapidminer.tools.math.container;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.ListIterator;
-import java.util.Stack;
 
-import com.rapidminer.datatable.SimpleDataTable;
-import com.rapidminer.datatable.SimpleDataTableRow;
-import com.rapidminer.tools.container.Tupel;
 import com.rapidminer.tools.math.similarity.DistanceMeasure;
+import com.rapidminer.tools.math.similarity.mixed.MixedEuclideanDistance;
+import com.rapidminer.tools.math.similarity.nominal.NominalDistance;
+import com.rapidminer.tools.math.similarity.numerical.ChebychevNumericalDistance;
+import com.rapidminer.tools.math.similarity.numerical.EuclideanDistance;
+import com.rapidminer.tools.math.similarity.numerical.ManhattanDistance;
 
 /**
  * This class is an implementation of a Ball-Tree for organizing multidimensional datapoints
  * in a fashion supporting the search for nearest neighbours. This is only working well in 
- * low to middle number of dimensions. Since the building of the tree is very expensiv,
- * in most cases a linear search strategy will outperform the ballTree in overall performance.
+ * low to middle number of dimensions. 
+ * 
+ * The tree is built top down from all samples when the first search is performed after samples
+ * have been added. Each node is a ball around one of its samples containing all samples of the node, 
+ * which are split between the children according to their distance to two far apart samples.
+ * Since the pruning relies on the triangle inequality, the tree is only used for metric distance
+ * measures (see {@link #supportsDistanceMeasure(DistanceMeasure)}) and samples without missing or 
+ * infinite values. In all other cases all samples are searched linearly, so that the result is 
+ * always identical to the one of a {@link LinearList}.
  *
  * @param <T> This is the type of value with is stored with the points and retrieved on nearest
  * neighbour search
  * 
  * @author Sebastian Land
  */
-public class BallTree<T extends Serializable> implements GeometricDataCollection<T> {
+public class BallTree<T extends Serializable> extends AbstractGeometricDataCollection<T> {
 	
 	private static final long serialVersionUID = 2954882147712365506L;
 
-	private BallTreeNode<T> root;
-	private int k;
-	private double dimensionFactor;
+	/** Nodes with at most this number of samples are searched linearly. */
+	private static final int LEAF_SIZE = 8;
+
+	/** The relative tolerance used when pruning, which compensates rounding errors of the distance calculation. */
+	private static final double PRUNING_TOLERANCE = 1e-10;
+
+	/** A ball containing the samples between start (inclusive) and end (exclusive) of the order array. */
+	private static class BallTreeNode {
+
+		private final int start;
+
+		private final int end;
+
+		private final double[] center;
+
+		private final double radius;
+
+		private BallTreeNode leftChild;
+
+		private BallTreeNode rightChild;
+
+		private BallTreeNode(int start, int end, double[] center, double radius) {
+			this.start = start;
+			this.end = end;
+			this.center = center;
+			this.radius = radius;
+		}
+	}
+
+	/** The tree built over the sample indices in order. */
+	private static class Index {
+
+		private final int[] order;
+
+		private final BallTreeNode root;
+
+		private Index(int[] order, BallTreeNode root) {
+			this.order = order;
+			this.root = root;
+		}
+	}
+
 	private DistanceMeasure distance;
-	private int size = 0;
+	private ArrayList<double[]> samples = new ArrayList<double[]>();
 	private ArrayList<T> values = new ArrayList<T>();
-	
-	
+
+	/** The tree, which is built on the first search. Remains null if the samples cannot be indexed. */
+	private transient volatile Index index;
+
+	/** Indicates whether the tree reflects all added samples. */
+	private transient volatile boolean indexValid = false;
+
 	public BallTree(DistanceMeasure distance) {
 		this.distance = distance;
 	}
-	
 
-	public void add(double[] values, T storeValue) {
-		this.size++;
+	/** Returns true if the given distance measure is a metric, so that this tree can speed up the search. */
+	public static boolean supportsDistanceMeasure(DistanceMeasure distance) {
+		Class<?> measureClass = distance.getClass();
+		return measureClass == EuclideanDistance.class || measureClass == ManhattanDistance.class || measureClass == ChebychevNumericalDistance.class
+				|| measureClass == MixedEuclideanDistance.class || measureClass == NominalDistance.class;
+	}
+
+	public synchronized void add(double[] values, T storeValue) {
+		this.samples.add(values);
 		this.values.add(storeValue);
-		if (root == null) {
-			root = new BallTreeNode<T>(values, 0, storeValue);
-			
-			// setting dimension
-			k = values.length;
-			dimensionFactor = Math.sqrt(Math.PI) / Math.pow(gammaFunction(k / 2), 1d / k);  			
-		} else {
-			double totalAncestorIncrease = 0;
-			double bestVolumeIncrease = Double.POSITIVE_INFINITY;
-			BallTreeNode<T> bestNode = null;  // this node will be made child of new node
-			int bestNodeIndex = 0;
-			int bestSide = -1; // -1 left, 1 right 
-			BallTreeNode<T> currentNode = root;
-			LinkedList<BallTreeNode<T>> ancestorList = new LinkedList<BallTreeNode<T>>();
-			while(true) {
-				// calculate ancestor increase if added to this current node
-				double deltaAncestorIncrease = getVolumeIncludingPoint(currentNode, values) - getVolume(currentNode);
-				totalAncestorIncrease += deltaAncestorIncrease;
-				
-				// calculate new Volume if added as left or right child of current
-				double leftVolume = getNewVolume(currentNode, currentNode.getLeftChild(), values);
-				double rightVolume = getNewVolume(currentNode, currentNode.getRightChild(), values);
-				// check if adding as left node is best position till now
-				double minVolume = Math.min(leftVolume, rightVolume);
-				if (minVolume + totalAncestorIncrease < bestVolumeIncrease) {
-					bestVolumeIncrease = minVolume + totalAncestorIncrease;
-					bestNode = currentNode;
-					bestSide = Double.compare(leftVolume, rightVolume);
-					bestNodeIndex = ancestorList.size();
-				}
-				
-				// adding next father
-				ancestorList.add(currentNode);
-				
-				// check for termination
-				if (currentNode.isLeaf())
-					break;
-				
-				
-				// search for better child
-				if (currentNode.hasTwoChilds()) {
-					BallTreeNode<T> leftChild = currentNode.getLeftChild();
-					double deltaVLeft = getVolumeIncludingPoint(leftChild, values) - getVolume(leftChild);
-					BallTreeNode<T> rightChild = currentNode.getRightChild();
-					double deltaVRight = getVolumeIncludingPoint(rightChild, values) - getVolume(rightChild);
-					BallTreeNode<T> betterChild = (deltaVLeft < deltaVRight)? leftChild: rightChild;
-					currentNode = betterChild;
-				} else {
-					// or use single if only one present
-					currentNode = currentNode.getChild();
-				}
-			}
-			
-			// now adding as specified child from bestFather
-			BallTreeNode<T> newNode = new BallTreeNode<T>(values, 0, storeValue);
-			if (bestSide < 0) {
-				newNode.setChild(bestNode.getLeftChild());
-				bestNode.setLeftChild(newNode);
-			} else {
-				newNode.setChild(bestNode.getRightChild());
-				bestNode.setRightChild(newNode);
-			}
-	
-			// setting radius of new node
-			if (!newNode.isLeaf())
-				newNode.setRadius(distance.calculateDistance(values, newNode.getChild().getCenter()) + newNode.getChild().getRadius());
-	
-			// correcting radius of all ancestors
-			ListIterator<BallTreeNode<T>> iterator = ancestorList.listIterator(bestNodeIndex + 1);
-			while (iterator.hasPrevious()) {
-				BallTreeNode<T> ancestor = iterator.previous();
-				if (ancestor.hasTwoChilds()) {
-					BallTreeNode<T> leftChild = ancestor.getLeftChild();
-					BallTreeNode<T> rightChild = ancestor.getRightChild();
-					ancestor.setRadius(Math.max(rightChild.getRadius() + distance.calculateDistance(rightChild.getCenter(), ancestor.getCenter()),
-							                    leftChild.getRadius() + distance.calculateDistance(leftChild.getCenter(), ancestor.getCenter())));
-				} else {
-					BallTreeNode<T> child = ancestor.getChild();
-					ancestor.setRadius(distance.calculateDistance(ancestor.getCenter(), child.getCenter()) + child.getRadius());
-				}
-			}
-		}
+		this.indexValid = false;
 	}
-	
-	/**
-	 * Returns the volume of the ball if the new node is added as child of father and new father
-	 * of child with center as center. Child might be null, then the radius is 0 
-	 */
-	private double getNewVolume(BallTreeNode<T> father, BallTreeNode<T> child, double[] center) {
-		if (child == null)
-			return 0;
-		return Math.pow((distance.calculateDistance(center, child.getCenter()) + child.getRadius()) * dimensionFactor, k);
+
+	@Override
+	protected DistanceMeasure getDistanceMeasure() {
+		return distance;
 	}
 
-	public Collection<T> getNearestValues(int k, double[] values) {
-		BoundedPriorityQueue<Tupel<Double, BallTreeNode<T>>> priorityQueue = getNearestNodes(k, values);
-		LinkedList<T> neighboursList = new LinkedList<T>();
-		for (Tupel<Double, BallTreeNode<T>> tupel: priorityQueue) {
-			neighboursList.add((tupel.getSecond()).getStoreValue());
-		}
-		return neighboursList;
+	@Override
+	protected double[] getSample(int index) {
+		return samples.get(index);
 	}
 
-	public Collection<Tupel<Double, T>> getNearestValueDistances(int k, double[] values) {
-		BoundedPriorityQueue<Tupel<Double, BallTreeNode<T>>> priorityQueue = getNearestNodes(k, values);
-		LinkedList<Tupel<Double, T>> neighboursList = new LinkedList<Tupel<Double, T>>();
-		for (Tupel<Double, BallTreeNode<T>> tupel: priorityQueue) {
-			neighboursList.add(new Tupel<Double, T>(tupel.getFirst(), tupel.getSecond().getStoreValue()));
+	@Override
+	protected void searchNearest(double[] values, BoundedPriorityQueue<Candidate> queue) {
+		Index currentIndex = getIndex();
+		if (currentIndex == null || currentIndex.root == null || !isFinite(values)) {
+			super.searchNearest(values, queue);
+		} else {
+			searchNearest(currentIndex.order, currentIndex.root, values, queue);
 		}
-		return neighboursList;
-		
 	}
-	
-	private BoundedPriorityQueue<Tupel<Double, BallTreeNode<T>>> getNearestNodes(int k, double[] values) {
-		Stack<BallTreeNode<T>> nodeStack = new Stack<BallTreeNode<T>>();
-		Stack<Integer> sideStack = new Stack<Integer>();
-		// first doing initial search for nearest Node
-		traverseTree(nodeStack, sideStack, root, values);
-		// creating data structure for finding k nearest values
-		BoundedPriorityQueue<Tupel<Double, BallTreeNode<T>>> priorityQueue = new BoundedPriorityQueue<Tupel<Double, BallTreeNode<T>>>(k);
-		
-		// now work on stack
-		while (!nodeStack.isEmpty()) {
-			// put top element into priorityQueue
-			BallTreeNode<T> currentNode = nodeStack.pop();
-			Integer currentSide = sideStack.pop();
-			Tupel<Double, BallTreeNode<T>> currentTupel = new Tupel<Double, BallTreeNode<T>>(distance.calculateDistance(currentNode.getCenter(), values), currentNode);
-			priorityQueue.add(currentTupel);
-			// now check if far children has to be regarded
-			if (currentNode.hasTwoChilds()) {
-				BallTreeNode<T> otherChild = (currentSide < 0) ? currentNode.getRightChild(): currentNode.getLeftChild();
-				if (!priorityQueue.isFilled() || 
-						priorityQueue.peek().getFirst().doubleValue() + otherChild.getRadius() > 
-						distance.calculateDistance(values, otherChild.getCenter())) {
-					// if needs to be checked, traverse tree to not visited leaf
-					traverseTree(nodeStack, sideStack, otherChild, values);
-				}
+
+	private void searchNearest(int[] order, BallTreeNode node, double[] values, BoundedPriorityQueue<Candidate> queue) {
+		if (node.leftChild == null) {
+			for (int i = node.start; i < node.end; i++) {
+				offer(queue, distance.calculateDistance(samples.get(order[i]), values), order[i]);
 			}
-			// go on, until stack is empty
+			return;
+		}
+		double leftDistance = distance.calculateDistance(node.leftChild.center, values);
+		double rightDistance = distance.calculateDistance(node.rightChild.center, values);
+		if (leftDistance <= rightDistance) {
+			searchChild(order, node.leftChild, leftDistance, values, queue);
+			searchChild(order, node.rightChild, rightDistance, values, queue);
+		} else {
+			searchChild(order, node.rightChild, rightDistance, values, queue);
+			searchChild(order, node.leftChild, leftDistance, values, queue);
 		}
-		return priorityQueue;
 	}
-	
-	private void traverseTree(Stack<BallTreeNode<T>> stack, Stack<Integer> sideStack, BallTreeNode<T> root, double[] values) {
-		BallTreeNode<T> currentNode = root;
-		stack.push(currentNode);
-		while(!currentNode.isLeaf()) {
-			if (currentNode.hasTwoChilds()) {
-				double distanceLeft = distance.calculateDistance(currentNode.getLeftChild().getCenter(), values);
-				double distanceRight = distance.calculateDistance(currentNode.getRightChild().getCenter(), values);
-				currentNode = (distanceLeft < distanceRight) ? currentNode.getLeftChild(): currentNode.getRightChild();
-				sideStack.push(Double.compare(distanceLeft, distanceRight));
-			} else {
-				currentNode = currentNode.getChild();
-				sideStack.push(0);
+
+	private void searchChild(int[] order, BallTreeNode child, double centerDistance, double[] values, BoundedPriorityQueue<Candidate> queue) {
+		// the ball can only contain nearer samples if its border is nearer than the worst neighbour
+		if (queue.isFilled()) {
+			double worst = queue.peek().getDistance();
+			if (centerDistance - child.radius > worst + PRUNING_TOLERANCE * (centerDistance + child.radius + worst)) {
+				return;
 			}
-			stack.push(currentNode);
 		}
-		sideStack.push(0);
+		searchNearest(order, child, values, queue);
 	}
-	
-	private double getVolumeIncludingPoint(BallTreeNode node, double[] point) {
-		return Math.pow(Math.max(node.getRadius(), distance.calculateDistance(point, node.getCenter())) * dimensionFactor, k);
+
+	@Override
+	protected void searchWithinDistance(double[] values, RangeBuffer buffer) {
+		Index currentIndex = getIndex();
+		if (currentIndex == null || currentIndex.root == null || !isFinite(values)) {
+			super.searchWithinDistance(values, buffer);
+		} else {
+			searchWithinDistance(currentIndex.order, currentIndex.root, values, buffer);
+		}
 	}
-	
-	private double getVolume(BallTreeNode node) {
-		return Math.pow(node.getRadius() * dimensionFactor, k);
+
+	private void searchWithinDistance(int[] order, BallTreeNode node, double[] values, RangeBuffer buffer) {
+		if (node.leftChild == null) {
+			for (int i = node.start; i < node.end; i++) {
+				buffer.offer(order[i], distance.calculateDistance(samples.get(order[i]), values));
+			}
+			return;
+		}
+		searchChildWithinDistance(order, node.leftChild, values, buffer);
+		searchChildWithinDistance(order, node.rightChild, values, buffer);
 	}
-	
-	private double gammaFunction(int n) {
-		double result = 1;
-		for (int i = 2; i < n; i++) {
-			result *= i;
+
+	private void searchChildWithinDistance(int[] order, BallTreeNode child, double[] values, RangeBuffer buffer) {
+		// the ball can only contain samples within the distance if its border is not farther away
+		double withinDistance = buffer.getWithinDistance();
+		double centerDistance = distance.calculateDistance(child.center, values);
+		if (centerDistance - child.radius <= withinDistance + PRUNING_TOLERANCE * (centerDistance + child.radius + withinDistance)) {
+			searchWithinDistance(order, child, values, buffer);
 		}
-		return result;
 	}
 
-	public SimpleDataTable getVisualization() {
-		SimpleDataTable table = new SimpleDataTable("BallTree", new String[] {"x", "y", "radius"});
-		fillTable(table, root);
-		return table;
+	private Index getIndex() {
+		if (!indexValid) {
+			synchronized (this) {
+				if (!indexValid) {
+					index = buildIndex();
+					indexValid = true;
+				}
+			}
+		}
+		return index;
 	}
 
-	private void fillTable(SimpleDataTable table, BallTreeNode<T> node) {
-		table.add(new SimpleDataTableRow(new double[] {node.getCenter()[0], node.getCenter()[1], node.getRadius()}));
-		if (node.hasLeftChild())
-			fillTable(table, node.getLeftChild());
-		if (node.hasRightChild())
-			fillTable(table, node.getRightChild());
+	private Index buildIndex() {
+		if (!supportsDistanceMeasure(distance)) {
+			return null;
+		}
+		int size = samples.size();
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			if (!isFinite(samples.get(i))) {
+				return null;
+			}
+			order[i] = i;
+		}
+		if (size == 0) {
+			return new Index(order, null);
+		}
+		double[] keys = new double[size];
+		return new Index(order, buildSubtree(order, keys, 0, size));
 	}
 
+	private BallTreeNode buildSubtree(int[] order, double[] keys, int start, int end) {
+		// the center is the sample nearest to the mean of all samples
+		int dimensions = samples.get(order[start]).length;
+		double[] mean = new double[dimensions];
+		for (int i = start; i < end; i++) {
+			double[] sample = samples.get(order[i]);
+			for (int d = 0; d < dimensions; d++) {
+				mean[d] += sample[d];
+			}
+		}
+		for (int d = 0; d < dimensions; d++) {
+			mean[d] /= end - start;
+		}
+		double[] center = null;
+		double minDistance = Double.POSITIVE_INFINITY;
+		for (int i = start; i < end; i++) {
+			double[] sample = samples.get(order[i]);
+			double currentDistance = distance.calculateDistance(sample, mean);
+			if (center == null || currentDistance < minDistance) {
+				center = sample;
+				minDistance = currentDistance;
+			}
+		}
+		// the radius is given by the sample farthest away, which is used as first pole for splitting
+		double radius = 0;
+		double[] firstPole = center;
+		for (int i = start; i < end; i++) {
+			double[] sample = samples.get(order[i]);
+			double currentDistance = distance.calculateDistance(sample, center);
+			if (currentDistance > radius) {
+				radius = currentDistance;
+				firstPole = sample;
+			}
+		}
+		BallTreeNode node = new BallTreeNode(start, end, center, radius);
+		if (end - start <= LEAF_SIZE || radius == 0) {
+			return node;
+		}
 
-	public Collection<Tupel<Double, T>> getNearestValueDistances(double withinDistance, double[] values) {
-		throw new RuntimeException("Not supported method");
+		// the second pole is the sample farthest away from the first one
+		double[] secondPole = firstPole;
+		double maxDistance = -1;
+		for (int i = start; i < end; i++) {
+			double[] sample = samples.get(order[i]);
+			double currentDistance = distance.calculateDistance(sample, firstPole);
+			if (currentDistance > maxDistance) {
+				maxDistance = currentDistance;
+				secondPole = sample;
+			}
+		}
+		// samples nearer to the first pole are assigned to the left child, the others to the right
+		for (int i = start; i < end; i++) {
+			double[] sample = samples.get(order[i]);
+			keys[order[i]] = distance.calculateDistance(sample, firstPole) - distance.calculateDistance(sample, secondPole);
+		}
+		int middle = (start + end) >>> 1;
+		select(order, keys, start, end - 1, middle);
+		node.leftChild = buildSubtree(order, keys, start, middle);
+		node.rightChild = buildSubtree(order, keys, middle, end);
+		return node;
 	}
 
-
-	public Collection<Tupel<Double, T>> getNearestValueDistances(double withinDistance, int butAtLeastK, double[] values) {
-		throw new RuntimeException("Not supported method");
+	/** Reorders the positions between left and right (inclusive) so that all samples before position n
+	 *  have keys not greater than all samples from position n on. */
+	private static void select(int[] order, double[] keys, int left, int right, int n) {
+		while (right > left) {
+			double pivot = keys[order[(left + right) >>> 1]];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (keys[order[i]] < pivot)
+					i++;
+				while (keys[order[j]] > pivot)
+					j--;
+				if (i <= j) {
+					int swap = order[i];
+					order[i] = order[j];
+					order[j] = swap;
+					i++;
+					j--;
+				}
+			}
+			if (n <= j) {
+				right = j;
+			} else if (n >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
 	}
 
 	public int size() {
-		return size;
+		return values.size();
 	}
 
-
 	public T get(int index) {
 		return values.get(index);
 	}
 
-
 	public Iterator<T> iterator() {
 		return values.iterator();
 	}
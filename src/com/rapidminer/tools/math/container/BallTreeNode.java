@@ -31,7 +31,10 @@ import java.io.Serializable;
  *
  * @param <T> This is the type of value with is stored with the points and retrieved on nearest
  * neighbour search
+ * @deprecated {@link BallTree} stores its nodes in flat arrays and no longer uses this class. It
+ * will be removed in the next release.
  */
+@Deprecated
 public class BallTreeNode<T> implements Serializable {
 	
 	private static final long serialVersionUID = 5250382342093166168L;
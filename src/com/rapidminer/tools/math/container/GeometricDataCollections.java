@@ -0,0 +1,113 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.tools.math.container;
+
+import java.io.Serializable;
+
+import com.rapidminer.parameter.ParameterHandler;
+import com.rapidminer.parameter.ParameterType;
+import com.rapidminer.parameter.ParameterTypeCategory;
+import com.rapidminer.parameter.UndefinedParameterError;
+import com.rapidminer.tools.math.similarity.DistanceMeasure;
+
+/**
+ * This is a convenient class for using the {@link GeometricDataCollection}s. It offers methods
+ * for letting the user select the index structure used for the nearest neighbour search.
+ * All structures deliver identical neighbours.
+ */
+public class GeometricDataCollections {
+
+	public static final String PARAMETER_INDEX_STRUCTURE = "index_structure";
+
+	public static final String[] INDEX_STRUCTURES = new String[] {
+		"automatic",
+		"linear search",
+		"kd-tree",
+		"ball tree"
+	};
+
+	public static final int INDEX_STRUCTURE_AUTOMATIC = 0;
+	public static final int INDEX_STRUCTURE_LINEAR_SEARCH = 1;
+	public static final int INDEX_STRUCTURE_KD_TREE = 2;
+	public static final int INDEX_STRUCTURE_BALL_TREE = 3;
+
+	/** The automatic selection uses a kd-tree up to this number of dimensions. */
+	private static final int MAX_KD_TREE_DIMENSIONS = 16;
+
+	/** The automatic selection uses a ball tree up to this number of dimensions. */
+	private static final int MAX_BALL_TREE_DIMENSIONS = 40;
+
+	/** Returns the parameter type for selecting the index structure. Linear search is the default, so that
+	 *  existing processes keep their results including the order of equally distant neighbours. */
+	public static ParameterType getParameterType() {
+		return getParameterType(INDEX_STRUCTURE_LINEAR_SEARCH);
+	}
+
+	/** Returns the parameter type for selecting the index structure with the given default structure. */
+	public static ParameterType getParameterType(int defaultIndexStructure) {
+		return new ParameterTypeCategory(PARAMETER_INDEX_STRUCTURE, "The structure used for finding the nearest neighbours. The automatic selection chooses a tree for distance measures and dimensions where it speeds up the search.", INDEX_STRUCTURES, defaultIndexStructure, true);
+	}
+
+	public static int getSelectedIndexStructure(ParameterHandler parameterHandler) throws UndefinedParameterError {
+		return parameterHandler.getParameterAsInt(PARAMETER_INDEX_STRUCTURE);
+	}
+
+	/** Returns true if the given index structure can be used for searching with the given distance measure. */
+	public static boolean supportsDistanceMeasure(int indexStructure, DistanceMeasure measure) {
+		switch (indexStructure) {
+		case INDEX_STRUCTURE_KD_TREE:
+			return KDTree.supportsDistanceMeasure(measure);
+		case INDEX_STRUCTURE_BALL_TREE:
+			return BallTree.supportsDistanceMeasure(measure);
+		default:
+			return true;
+		}
+	}
+
+	/** Resolves the automatic selection to the index structure best suited for the given measure and number of dimensions. */
+	public static int resolveIndexStructure(int indexStructure, DistanceMeasure measure, int numberOfDimensions) {
+		if (indexStructure != INDEX_STRUCTURE_AUTOMATIC) {
+			return indexStructure;
+		}
+		if (numberOfDimensions <= MAX_KD_TREE_DIMENSIONS && KDTree.supportsDistanceMeasure(measure)) {
+			return INDEX_STRUCTURE_KD_TREE;
+		} else if (numberOfDimensions <= MAX_BALL_TREE_DIMENSIONS && BallTree.supportsDistanceMeasure(measure)) {
+			return INDEX_STRUCTURE_BALL_TREE;
+		} else {
+			return INDEX_STRUCTURE_LINEAR_SEARCH;
+		}
+	}
+
+	/** Creates an empty collection of the given index structure. The automatic selection is resolved by 
+	 *  {@link #resolveIndexStructure(int, DistanceMeasure, int)}. */
+	public static <T extends Serializable> GeometricDataCollection<T> createCollection(int indexStructure, DistanceMeasure measure, int numberOfDimensions) {
+		switch (resolveIndexStructure(indexStructure, measure, numberOfDimensions)) {
+		case INDEX_STRUCTURE_KD_TREE:
+			return new KDTree<T>(numberOfDimensions, measure);
+		case INDEX_STRUCTURE_BALL_TREE:
+			return new BallTree<T>(measure);
+		default:
+			return new LinearList<T>(measure);
+		}
+	}
+}
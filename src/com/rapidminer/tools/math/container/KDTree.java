@@ -24,129 +24,269 @@ package com.rapidminer.tools.math.container;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Stack;
 
-import com.rapidminer.tools.container.Tupel;
 import com.rapidminer.tools.math.similarity.DistanceMeasure;
+import com.rapidminer.tools.math.similarity.numerical.ChebychevNumericalDistance;
+import com.rapidminer.tools.math.similarity.numerical.EuclideanDistance;
+import com.rapidminer.tools.math.similarity.numerical.ManhattanDistance;
 
 /**
  * This class is an implementation of a KD-Tree for organizing multidimensional datapoints
  * in a fashion supporting the search for nearest neighbours. This is only working well in 
  * low dimensions. 
  * 
+ * The tree is built balanced from all samples when the first search is performed after samples
+ * have been added. Each inner node splits its samples at the median of the dimension with the 
+ * largest spread. The tree can only be used for distance measures which are never smaller than the 
+ * difference in a single dimension (see {@link #supportsDistanceMeasure(DistanceMeasure)}) and for 
+ * samples without missing or infinite values. In all other cases all samples are searched linearly, 
+ * so that the result is always identical to the one of a {@link LinearList}.
+ * 
  * @author Sebastian Land
  * 
  * @param <T> This is the type of value with is stored with the points and retrieved on nearest
  * neighbour search
  */
-public class KDTree<T extends Serializable> implements GeometricDataCollection<T> {
+public class KDTree<T extends Serializable> extends AbstractGeometricDataCollection<T> {
 	
 	private static final long serialVersionUID = -8531805333989991725L;
-	private KDTreeNode<T> root;
+
+	/** Nodes with at most this number of samples are searched linearly. */
+	private static final int LEAF_SIZE = 8;
+
+	/** The relative tolerance used when pruning, which compensates rounding errors of the distance calculation. */
+	private static final double PRUNING_TOLERANCE = 1e-10;
+
+	/** The balanced tree stored in arrays: The node of a range of sample positions is located in the middle of this range. */
+	private static class Index {
+
+		/** The indices of the samples in tree order. */
+		private final int[] order;
+
+		/** The split dimension of the node at each position. */
+		private final int[] splitDimension;
+
+		private Index(int[] order, int[] splitDimension) {
+			this.order = order;
+			this.splitDimension = splitDimension;
+		}
+	}
+
 	private int k; // the number of dimensions
 	private DistanceMeasure distance;
-	private int size = 0;
+	private ArrayList<double[]> samples = new ArrayList<double[]>();
 	private ArrayList<T> values = new ArrayList<T>();
-	
+
+	/** The tree, which is built on the first search. Remains null if the samples cannot be indexed. */
+	private transient volatile Index index;
+
+	/** Indicates whether the tree reflects all added samples. */
+	private transient volatile boolean indexValid = false;
+
 	public KDTree(int numberOfDimensions, DistanceMeasure distance) {
 		this.k = numberOfDimensions;
 		this.distance = distance;
 	}
 
-	public void add(double[] values, T storeValue) {
-		this.size++;
+	/** Returns true if this tree can speed up the search for the given distance measure. */
+	public static boolean supportsDistanceMeasure(DistanceMeasure distance) {
+		Class<?> measureClass = distance.getClass();
+		return measureClass == EuclideanDistance.class || measureClass == ManhattanDistance.class || measureClass == ChebychevNumericalDistance.class;
+	}
+
+	public synchronized void add(double[] values, T storeValue) {
+		this.samples.add(values);
 		this.values.add(storeValue);
-		if (root == null) {
-			this.root = new KDTreeNode<T>(values, storeValue, 0);			
+		this.indexValid = false;
+	}
+
+	@Override
+	protected DistanceMeasure getDistanceMeasure() {
+		return distance;
+	}
+
+	@Override
+	protected double[] getSample(int index) {
+		return samples.get(index);
+	}
+
+	@Override
+	protected void searchNearest(double[] values, BoundedPriorityQueue<Candidate> queue) {
+		Index currentIndex = getIndex();
+		if (currentIndex == null || values.length != k || !isFinite(values)) {
+			super.searchNearest(values, queue);
 		} else {
-			int currentDimension = 0;
-			int depth = 0;
-			KDTreeNode<T> currentNode = root;
-			KDTreeNode<T> childNode = null;
-			// running through tree until empty leaf found: Add new node with given values
-			while (true) {
-				childNode = currentNode.getNearChild(values);
-				if (childNode == null) {
-					break;
-				} else {
-					currentNode = childNode;
-					depth++;
-					currentDimension = depth % k;
-				}
-			}
-			currentNode.setChild(new KDTreeNode<T>(values, storeValue, currentDimension));
+			searchNearest(currentIndex, 0, currentIndex.order.length, values, queue);
 		}
 	}
-	
-	public Collection<T> getNearestValues(int k, double[] values) {
-		BoundedPriorityQueue<Tupel<Double, KDTreeNode<T>>> priorityQueue = getNearestNodes(k, values);
-		LinkedList<T> neighboursList = new LinkedList<T>();
-		for (Tupel<Double, KDTreeNode<T>> tupel: priorityQueue) {
-			neighboursList.add(tupel.getSecond().getStoreValue());
+
+	private void searchNearest(Index currentIndex, int start, int end, double[] values, BoundedPriorityQueue<Candidate> queue) {
+		int[] order = currentIndex.order;
+		if (end - start <= LEAF_SIZE) {
+			for (int i = start; i < end; i++) {
+				offer(queue, distance.calculateDistance(samples.get(order[i]), values), order[i]);
+			}
+			return;
+		}
+		int middle = (start + end) >>> 1;
+		double[] node = samples.get(order[middle]);
+		int dimension = currentIndex.splitDimension[middle];
+		double difference = values[dimension] - node[dimension];
+		offer(queue, distance.calculateDistance(node, values), order[middle]);
+		if (difference < 0) {
+			searchNearest(currentIndex, start, middle, values, queue);
+		} else {
+			searchNearest(currentIndex, middle + 1, end, values, queue);
+		}
+		// the far side can only contain nearer samples if the splitting plane is nearer than the worst neighbour
+		if (queue.isFilled()) {
+			double worst = queue.peek().getDistance();
+			double planeDistance = Math.abs(difference);
+			if (planeDistance > worst + PRUNING_TOLERANCE * (Math.abs(values[dimension]) + Math.abs(node[dimension]) + worst)) {
+				return;
+			}
+		}
+		if (difference < 0) {
+			searchNearest(currentIndex, middle + 1, end, values, queue);
+		} else {
+			searchNearest(currentIndex, start, middle, values, queue);
 		}
-		return neighboursList;
 	}
-	
-	public Collection<Tupel<Double, T>> getNearestValueDistances(int k, double[] values) {
-		BoundedPriorityQueue<Tupel<Double, KDTreeNode<T>>> priorityQueue = getNearestNodes(k, values);
-		LinkedList<Tupel<Double, T>> neighboursList = new LinkedList<Tupel<Double, T>>();
-		for (Tupel<Double, KDTreeNode<T>> tupel: priorityQueue) {
-			neighboursList.add(new Tupel<Double, T>(tupel.getFirst(), tupel.getSecond().getStoreValue()));
+
+	@Override
+	protected void searchWithinDistance(double[] values, RangeBuffer buffer) {
+		Index currentIndex = getIndex();
+		if (currentIndex == null || values.length != k || !isFinite(values)) {
+			super.searchWithinDistance(values, buffer);
+		} else {
+			searchWithinDistance(currentIndex, 0, currentIndex.order.length, values, buffer);
 		}
-		return neighboursList;
 	}
-	
-	private BoundedPriorityQueue<Tupel<Double, KDTreeNode<T>>> getNearestNodes(int k, double[] values) {
-		Stack<KDTreeNode<T>> nodeStack = new Stack<KDTreeNode<T>>();
-		// first doing initial search for nearest Node
-		nodeStack = traverseTree(nodeStack, root, values);
-
-		// creating data structure for finding k nearest values
-		BoundedPriorityQueue<Tupel<Double, KDTreeNode<T>>> priorityQueue = new BoundedPriorityQueue<Tupel<Double, KDTreeNode<T>>>(k);
-		
-		// now work on stack
-		while (!nodeStack.isEmpty()) {
-			// put top element into priorityQueue
-			KDTreeNode<T> currentNode = nodeStack.pop();
-			Tupel<Double, KDTreeNode<T>> currentTupel = new Tupel<Double, KDTreeNode<T>>(distance.calculateDistance(currentNode.getValues(), values), currentNode);
-			priorityQueue.add(currentTupel);
-			// now check if far children has to be regarded
-			if (!priorityQueue.isFilled() || 
-					priorityQueue.peek().getFirst().doubleValue() > currentNode.getCompareValue() - values[currentNode.getCompareDimension()]) {
-				// if needs to be checked, traverse tree to nearest leaf
-				if (currentNode.hasFarChild(values))
-					traverseTree(nodeStack, currentNode.getFarChild(values), values);
+
+	private void searchWithinDistance(Index currentIndex, int start, int end, double[] values, RangeBuffer buffer) {
+		int[] order = currentIndex.order;
+		if (end - start <= LEAF_SIZE) {
+			for (int i = start; i < end; i++) {
+				buffer.offer(order[i], distance.calculateDistance(samples.get(order[i]), values));
 			}
-		
-			// go on, until stack is empty
+			return;
+		}
+		int middle = (start + end) >>> 1;
+		double[] node = samples.get(order[middle]);
+		int dimension = currentIndex.splitDimension[middle];
+		double difference = values[dimension] - node[dimension];
+		buffer.offer(order[middle], distance.calculateDistance(node, values));
+		if (difference < 0) {
+			searchWithinDistance(currentIndex, start, middle, values, buffer);
+		} else {
+			searchWithinDistance(currentIndex, middle + 1, end, values, buffer);
+		}
+		// the far side can only contain samples within the distance if the splitting plane is not farther away
+		double withinDistance = buffer.getWithinDistance();
+		double planeDistance = Math.abs(difference);
+		if (planeDistance > withinDistance + PRUNING_TOLERANCE * (Math.abs(values[dimension]) + Math.abs(node[dimension]) + withinDistance)) {
+			return;
+		}
+		if (difference < 0) {
+			searchWithinDistance(currentIndex, middle + 1, end, values, buffer);
+		} else {
+			searchWithinDistance(currentIndex, start, middle, values, buffer);
 		}
-		return priorityQueue;
 	}
-	
-	private Stack<KDTreeNode<T>> traverseTree(Stack<KDTreeNode<T>> stack, KDTreeNode<T> root, double[] values) {
-		KDTreeNode<T> currentNode = root;
-		stack.push(currentNode);
-		while(currentNode.hasNearChild(values)) {
-			currentNode = currentNode.getNearChild(values);
-			stack.push(currentNode);
+
+	private Index getIndex() {
+		if (!indexValid) {
+			synchronized (this) {
+				if (!indexValid) {
+					index = buildIndex();
+					indexValid = true;
+				}
+			}
 		}
-		return stack;
+		return index;
 	}
-	
-	public Collection<Tupel<Double, T>> getNearestValueDistances(double withinDistance, double[] values) {
-		throw new RuntimeException("Not supported method");
+
+	private Index buildIndex() {
+		if (!supportsDistanceMeasure(distance)) {
+			return null;
+		}
+		int size = samples.size();
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			double[] sample = samples.get(i);
+			if (sample.length != k || !isFinite(sample)) {
+				return null;
+			}
+			order[i] = i;
+		}
+		int[] splitDimension = new int[size];
+		buildSubtree(order, splitDimension, 0, size);
+		return new Index(order, splitDimension);
 	}
 
+	private void buildSubtree(int[] order, int[] splitDimension, int start, int end) {
+		if (end - start <= LEAF_SIZE) {
+			return;
+		}
+		// splitting along the dimension with the largest spread
+		int dimension = 0;
+		double maxSpread = -1;
+		for (int d = 0; d < k; d++) {
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for (int i = start; i < end; i++) {
+				double value = samples.get(order[i])[d];
+				if (value < min)
+					min = value;
+				if (value > max)
+					max = value;
+			}
+			if (max - min > maxSpread) {
+				maxSpread = max - min;
+				dimension = d;
+			}
+		}
+		int middle = (start + end) >>> 1;
+		select(order, start, end - 1, middle, dimension);
+		splitDimension[middle] = dimension;
+		buildSubtree(order, splitDimension, start, middle);
+		buildSubtree(order, splitDimension, middle + 1, end);
+	}
 
-	public Collection<Tupel<Double, T>> getNearestValueDistances(double withinDistance, int butAtLeastK, double[] values) {
-		throw new RuntimeException("Not supported method");
+	/** Reorders the positions between left and right (inclusive) so that the position n contains the sample with
+	 *  the n-th smallest value of the given dimension, all smaller values lie before and all larger values after it. */
+	private void select(int[] order, int left, int right, int n, int dimension) {
+		while (right > left) {
+			int pivotIndex = order[(left + right) >>> 1];
+			double pivot = samples.get(pivotIndex)[dimension];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (samples.get(order[i])[dimension] < pivot)
+					i++;
+				while (samples.get(order[j])[dimension] > pivot)
+					j--;
+				if (i <= j) {
+					int swap = order[i];
+					order[i] = order[j];
+					order[j] = swap;
+					i++;
+					j--;
+				}
+			}
+			if (n <= j) {
+				right = j;
+			} else if (n >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
 	}
 
 	public int size() {
-		return size;
+		return values.size();
 	}
 
 	public T get(int index) {
@@ -157,4 +297,3 @@ public class KDTree<T extends Serializable> implements GeometricDataCollection<T
 		return values.iterator();
 	}
 }
-
@@ -31,7 +31,10 @@ import java.io.Serializable;
  *
  * @param <T> This is the type of value with is stored with the points and retrieved on nearest
  * neighbour search
+ * @deprecated {@link KDTree} stores its nodes in flat arrays and no longer uses this class. It
+ * will be removed in the next release.
  */
+@Deprecated
 public class KDTreeNode<T> implements Serializable {
 	
 	private static final long serialVersionUID = -4204535347268139613L;
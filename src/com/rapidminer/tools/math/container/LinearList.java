@@ -24,11 +24,9 @@ package com.rapidminer.tools.math.container;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Iterator;
 import java.util.RandomAccess;
 
-import com.rapidminer.tools.container.Tupel;
 import com.rapidminer.tools.math.similarity.DistanceMeasure;
 
 /**
@@ -41,7 +39,7 @@ import com.rapidminer.tools.math.similarity.DistanceMeasure;
  * @param <T> This is the type of value with is stored with the points and retrieved on nearest
  * neighbour search
  */
-public class LinearList<T extends Serializable> implements GeometricDataCollection<T>, RandomAccess {
+public class LinearList<T extends Serializable> extends AbstractGeometricDataCollection<T> implements RandomAccess {
 
 	private static final long serialVersionUID = -746048910140779285L;
 
@@ -58,53 +56,14 @@ public class LinearList<T extends Serializable> implements GeometricDataCollecti
 		this.storedValues.add(storeValue);
 	}
 
-	public Collection<T> getNearestValues(int k, double[] values) {
-		BoundedPriorityQueue<Tupel<Double, T>> queue = new BoundedPriorityQueue<Tupel<Double, T>>(k);
-		int i = 0;
-		for (double[] sample: this.samples) {
-			queue.add(new Tupel<Double, T>(distance.calculateDistance(sample, values), storedValues.get(i)));
-			i++;
-		}
-		
-		Collection<T> result = new ArrayList<T>(k);
-		for (Tupel<Double, T> tupel: queue) {
-			result.add(tupel.getSecond());
-		}
-		return result;
+	@Override
+	protected DistanceMeasure getDistanceMeasure() {
+		return distance;
 	}
 
-	public Collection<Tupel<Double, T>> getNearestValueDistances(int k, double[] values) {
-		BoundedPriorityQueue<Tupel<Double, T>> queue = new BoundedPriorityQueue<Tupel<Double, T>>(k);
-		int i = 0;
-		for (double[] sample: this.samples) {
-			queue.add(new Tupel<Double, T>(distance.calculateDistance(sample, values), storedValues.get(i)));
-			i++;
-		}
-		
-		Collection<Tupel<Double, T>> result = new ArrayList<Tupel<Double, T>>(k);
-		for (Tupel<Double, T> tupel: queue) {
-			result.add(new Tupel<Double, T>(tupel.getFirst(), tupel.getSecond()));
-		}
-		return result;
-	}
-
-	public Collection<Tupel<Double, T>> getNearestValueDistances(double withinDistance, double[] values) {
-		ArrayList<Tupel<Double, T>> queue = new ArrayList<Tupel<Double, T>>();
-		int i = 0;
-		for (double[] sample: this.samples) {
-			double currentDistance = distance.calculateDistance(sample, values);
-			if (currentDistance <= withinDistance)
-				queue.add(new Tupel<Double, T>(currentDistance, storedValues.get(i)));
-			i++;
-		}
-		return queue;
-	}
-
-	public Collection<Tupel<Double, T>> getNearestValueDistances(double withinDistance, int butAtLeastK, double[] values) {
-		Collection<Tupel<Double, T>> result = getNearestValueDistances(withinDistance, values);
-		if (result.size() < butAtLeastK)
-			return getNearestValueDistances(butAtLeastK, values);
-		return result;
+	@Override
+	protected double[] getSample(int index) {
+		return samples.get(index);
 	}
 
 	public int size() {
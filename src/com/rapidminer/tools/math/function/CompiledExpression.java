@@ -0,0 +1,827 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.tools.math.function;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.Callable;
+
+import org.nfunk.jep.ASTConstant;
+import org.nfunk.jep.ASTFunNode;
+import org.nfunk.jep.ASTVarNode;
+import org.nfunk.jep.EvaluatorI;
+import org.nfunk.jep.JEP;
+import org.nfunk.jep.Node;
+import org.nfunk.jep.Operator;
+import org.nfunk.jep.OperatorSet;
+import org.nfunk.jep.ParseException;
+import org.nfunk.jep.Variable;
+import org.nfunk.jep.function.Abs;
+import org.nfunk.jep.function.Add;
+import org.nfunk.jep.function.CallbackEvaluationI;
+import org.nfunk.jep.function.Ceil;
+import org.nfunk.jep.function.Comparative;
+import org.nfunk.jep.function.Cosine;
+import org.nfunk.jep.function.Divide;
+import org.nfunk.jep.function.Exp;
+import org.nfunk.jep.function.Floor;
+import org.nfunk.jep.function.If;
+import org.nfunk.jep.function.Logical;
+import org.nfunk.jep.function.Modulus;
+import org.nfunk.jep.function.Multiply;
+import org.nfunk.jep.function.Not;
+import org.nfunk.jep.function.PostfixMathCommandI;
+import org.nfunk.jep.function.Sine;
+import org.nfunk.jep.function.Subtract;
+import org.nfunk.jep.function.Tangent;
+import org.nfunk.jep.function.UMinus;
+
+import com.rapidminer.example.Attribute;
+import com.rapidminer.example.Example;
+import com.rapidminer.example.ExampleSet;
+import com.rapidminer.example.set.RangeExampleSet;
+import com.rapidminer.example.table.ColumnarExampleTable;
+import com.rapidminer.example.table.ExampleTable;
+import com.rapidminer.example.table.MemoryExampleTable;
+import com.rapidminer.example.table.NumericalAttribute;
+import com.rapidminer.generator.GenerationException;
+import com.rapidminer.operator.OperatorException;
+import com.rapidminer.tools.ConcurrencyTools;
+import com.rapidminer.tools.Ontology;
+
+/**
+ * An expression parsed by a {@link JEP} parser which is compiled into a tree of evaluation nodes
+ * for the attributes of an example set. Instead of setting the values of all referenced attributes
+ * as variables of the parser for each example, the values are read block-wise into arrays.
+ * 
+ * <p>Subtrees which only consist of numerical constants, numerical attributes and the arithmetic,
+ * comparison and logical operators (as well as if, abs, floor, ceil, exp, sin, cos and tan) are 
+ * evaluated on primitive doubles. If the complete expression is such a subtree, it is evaluated for
+ * whole blocks of examples at once and may be evaluated for consecutive ranges of examples 
+ * concurrently. All other functions are invoked for each example in the same order as the parser
+ * does. Hence, the results (including missing values) and errors are the same as those of
+ * {@link JEP#getValueAsObject()}.</p>
+ */
+class CompiledExpression {
+
+	/** The number of examples which are read and evaluated at once. */
+	private static final int BLOCK_SIZE = 1024;
+
+	/** The minimal number of examples evaluated by one thread. */
+	private static final int MIN_EXAMPLES_PER_PARTITION = 10000;
+
+	private static final int ADD = 0;
+	private static final int SUBTRACT = 1;
+	private static final int MULTIPLY = 2;
+	private static final int DIVIDE = 3;
+	private static final int MODULUS = 4;
+	private static final int LESS = 5;
+	private static final int GREATER = 6;
+	private static final int LESS_EQUALS = 7;
+	private static final int GREATER_EQUALS = 8;
+	private static final int EQUALS = 9;
+	private static final int NOT_EQUALS = 10;
+	private static final int AND = 11;
+	private static final int OR = 12;
+
+	private static final int NEGATE = 0;
+	private static final int NOT = 1;
+	private static final int ABS = 2;
+	private static final int FLOOR = 3;
+	private static final int CEIL = 4;
+	private static final int EXP = 5;
+	private static final int SIN = 6;
+	private static final int COS = 7;
+	private static final int TAN = 8;
+
+	/** The attributes referenced by the expression. The index of an attribute is used by the variable nodes. */
+	private final List<Attribute> attributes = new ArrayList<Attribute>();
+
+	/** The compiled nodes for the nodes of the parse tree. Used for evaluating the children of callback functions. */
+	private final Map<Node, ExpressionNode> nodes = new IdentityHashMap<Node, ExpressionNode>();
+
+	/** The number of numerical nodes which need a buffer for their values when evaluated block-wise. */
+	private int numberOfBuffers = 0;
+
+	private final OperatorSet operators;
+
+	private final ExpressionNode root;
+
+	private CompiledExpression(JEP parser, Map<String, Attribute> name2attributes) throws ParseException {
+		this.operators = parser.getOperatorSet();
+		this.root = compile(parser.getTopNode(), name2attributes);
+	}
+
+	/** 
+	 * Compiles the expression which was parsed last by the given parser. The variables must have been
+	 * derived by {@link ExpressionParser#deriveVariablesFromExampleSet(JEP, ExampleSet)}. Returns null
+	 * if the expression contains nodes which can only be evaluated by the parser itself, e.g. assignments.
+	 */
+	static CompiledExpression compile(JEP parser, Map<String, Attribute> name2attributes) {
+		if (parser.getTopNode() == null) {
+			return null;
+		}
+		try {
+			return new CompiledExpression(parser, name2attributes);
+		} catch (ParseException e) {
+			return null;
+		}
+	}
+
+	/** Returns true if the expression is evaluated on primitive doubles only. */
+	boolean isNumerical() {
+		return root instanceof NumericalNode;
+	}
+
+	/**
+	 * Evaluates the expression for all examples and sets the results as values of the target attribute
+	 * as {@link ExpressionParser#setResultValue(Example, Attribute, Object)} does. Numerical expressions
+	 * are evaluated concurrently for ranges of examples if parallel is true and the data is kept in memory.
+	 * Name and function are only used for the message of the exception thrown if the evaluation fails.
+	 */
+	void evaluate(ExampleSet exampleSet, final Attribute target, final String name, final String function, boolean parallel) throws GenerationException {
+		int threads = getNumberOfThreads(exampleSet, parallel);
+		if (threads <= 1) {
+			evaluate(exampleSet, target, name, function, new Block(this));
+			return;
+		}
+		int size = exampleSet.size();
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(threads);
+		for (int i = 0; i < threads; i++) {
+			final ExampleSet partition = new RangeExampleSet(exampleSet, (int) ((long) i * size / threads), (int) ((long) (i + 1) * size / threads));
+			tasks.add(new Callable<Object>() {
+				@Override
+				public Object call() throws GenerationException {
+					evaluate(partition, target, name, function, new Block(CompiledExpression.this));
+					return null;
+				}
+			});
+		}
+		try {
+			ConcurrencyTools.invokeAll(tasks, threads, "Expression Evaluation");
+		} catch (GenerationException e) {
+			throw e;
+		} catch (OperatorException e) {
+			throw new GenerationException(e.getMessage(), e);
+		}
+	}
+
+	/** Returns the number of threads which should be used for evaluating the expression. Only numerical
+	 *  expressions are evaluated concurrently, since other functions might depend on the order of their 
+	 *  invocations (e.g. rand) or keep their number of arguments as state. */
+	private int getNumberOfThreads(ExampleSet exampleSet, boolean parallel) {
+		if (!parallel || !isNumerical() || ConcurrencyTools.isWorkerThread()) {
+			return 1;
+		}
+		// only the in memory tables allow concurrent access to different rows
+		ExampleTable table = exampleSet.getExampleTable();
+		if (!(table instanceof MemoryExampleTable) && !(table instanceof ColumnarExampleTable)) {
+			return 1;
+		}
+		return Math.max(1, Math.min(ConcurrencyTools.getNumberOfThreads(), exampleSet.size() / MIN_EXAMPLES_PER_PARTITION));
+	}
+
+	private void evaluate(ExampleSet exampleSet, Attribute target, String name, String function, Block block) throws GenerationException {
+		Iterator<Example> reader = exampleSet.iterator();
+		boolean hasNext = reader.hasNext();
+		while (hasNext) {
+			int size = 0;
+			while (hasNext && size < BLOCK_SIZE) {
+				block.examples[size++] = reader.next();
+				hasNext = reader.hasNext();
+			}
+			block.read(size);
+			if (root instanceof NumericalNode) {
+				double[] values = ((NumericalNode) root).getValues(block);
+				for (int i = 0; i < size; i++) {
+					block.examples[i].setValue(target, values[i]);
+				}
+			} else {
+				for (int i = 0; i < size; i++) {
+					Object result;
+					try {
+						block.stack.clear();
+						result = root.evaluate(block, i);
+					} catch (ParseException e) {
+						throw new GenerationException("Offending attribute: '" + name + "', Expression: '" + function + "', Error: 'Error during evaluation: " + e.getMessage() + "\n'");
+					} catch (RuntimeException e) {
+						throw new GenerationException("Offending attribute: '" + name + "', Expression: '" + function + "', Error: '" + e.getClass().getName() + ": " + e.getMessage() + "\n'");
+					}
+					ExpressionParser.setResultValue(block.examples[i], target, result);
+				}
+			}
+		}
+	}
+
+	/** Compiles the given node of the parse tree. Throws a {@link ParseException} if the node can not be compiled. */
+	private ExpressionNode compile(Node node, Map<String, Attribute> name2attributes) throws ParseException {
+		ExpressionNode compiled;
+		if (node instanceof ASTConstant) {
+			compiled = createConstant(((ASTConstant) node).getValue());
+		} else if (node instanceof ASTVarNode) {
+			Variable variable = ((ASTVarNode) node).getVar();
+			if (variable == null) {
+				throw new ParseException("Unknown variable " + ((ASTVarNode) node).getName());
+			}
+			if (variable.isConstant()) {
+				compiled = createConstant(variable.getValue());
+			} else {
+				Attribute attribute = name2attributes.get(variable.getName());
+				if (attribute == null) {
+					throw new ParseException("No such attribute: " + variable.getName());
+				}
+				int index = attributes.indexOf(attribute);
+				if (index < 0) {
+					index = attributes.size();
+					attributes.add(attribute);
+				}
+				if (attribute.isNominal() || Ontology.ATTRIBUTE_VALUE_TYPE.isA(attribute.getValueType(), Ontology.DATE_TIME)) {
+					compiled = new VariableNode(index);
+				} else {
+					compiled = new NumericalVariableNode(index);
+				}
+			}
+		} else if (node instanceof ASTFunNode) {
+			compiled = compileFunction((ASTFunNode) node, name2attributes);
+		} else {
+			throw new ParseException("Cannot compile node " + node);
+		}
+		nodes.put(node, compiled);
+		return compiled;
+	}
+
+	/** Returns true if the function implements the deprecated special evaluation of JEP. No built-in
+	 *  function does, but functions added by extensions might, and these can only be evaluated by the parser. */
+	@SuppressWarnings("deprecation")
+	private static boolean isSpecialEvaluation(PostfixMathCommandI function) {
+		// not imported, since importing the deprecated interface causes a warning which cannot be suppressed
+		return function instanceof org.nfunk.jep.function.SpecialEvaluationI;
+	}
+
+	private ExpressionNode compileFunction(ASTFunNode node, Map<String, Attribute> name2attributes) throws ParseException {
+		PostfixMathCommandI function = node.getPFMC();
+		if (function == null || isSpecialEvaluation(function)) {
+			throw new ParseException("Cannot compile function " + node.getName());
+		}
+		ExpressionNode[] arguments = new ExpressionNode[node.jjtGetNumChildren()];
+		boolean numerical = true;
+		for (int i = 0; i < arguments.length; i++) {
+			arguments[i] = compile(node.jjtGetChild(i), name2attributes);
+			numerical &= arguments[i] instanceof NumericalNode;
+		}
+		if (function instanceof CallbackEvaluationI) {
+			if (numerical && function.getClass() == If.class && (arguments.length == 3 || arguments.length == 4)) {
+				return new NumericalIfNode(numberOfBuffers++, toNumerical(arguments));
+			}
+			return new CallbackNode((CallbackEvaluationI) function, node);
+		}
+		if (numerical) {
+			int operator = arguments.length == 2 ? getBinaryOperator(node.getOperator(), function) : -1;
+			if (operator >= 0) {
+				return new BinaryOperationNode(numberOfBuffers++, operator, (NumericalNode) arguments[0], (NumericalNode) arguments[1]);
+			}
+			operator = arguments.length == 1 ? getUnaryOperator(node.getOperator(), function) : -1;
+			if (operator >= 0) {
+				return new UnaryOperationNode(numberOfBuffers++, operator, (NumericalNode) arguments[0]);
+			}
+		}
+		return new FunctionNode(function, arguments);
+	}
+
+	/** Returns the numerical binary operator corresponding to the given operator and function or -1 if
+	 *  the function is not evaluated on primitive doubles. */
+	private int getBinaryOperator(Operator operator, PostfixMathCommandI function) {
+		Class<?> functionClass = function.getClass();
+		if (functionClass == Add.class) {
+			return ADD;
+		} else if (functionClass == Subtract.class) {
+			return SUBTRACT;
+		} else if (functionClass == Multiply.class) {
+			return MULTIPLY;
+		} else if (functionClass == Divide.class) {
+			return DIVIDE;
+		} else if (functionClass == Modulus.class) {
+			return MODULUS;
+		} else if (functionClass == Comparative.class && operator != null) {
+			if (operator == operators.getLT()) {
+				return LESS;
+			} else if (operator == operators.getGT()) {
+				return GREATER;
+			} else if (operator == operators.getLE()) {
+				return LESS_EQUALS;
+			} else if (operator == operators.getGE()) {
+				return GREATER_EQUALS;
+			} else if (operator == operators.getEQ()) {
+				return EQUALS;
+			} else if (operator == operators.getNE()) {
+				return NOT_EQUALS;
+			}
+		} else if (functionClass == Logical.class && operator != null) {
+			if (operator == operators.getAnd()) {
+				return AND;
+			} else if (operator == operators.getOr()) {
+				return OR;
+			}
+		}
+		return -1;
+	}
+
+	/** Returns the numerical unary operator corresponding to the given operator and function or -1 if
+	 *  the function is not evaluated on primitive doubles. */
+	private int getUnaryOperator(Operator operator, PostfixMathCommandI function) {
+		Class<?> functionClass = function.getClass();
+		if (functionClass == UMinus.class) {
+			return NEGATE;
+		} else if (functionClass == Not.class) {
+			return NOT;
+		} else if (functionClass == Abs.class) {
+			return ABS;
+		} else if (functionClass == Floor.class) {
+			return FLOOR;
+		} else if (functionClass == Ceil.class) {
+			return CEIL;
+		} else if (functionClass == Exp.class) {
+			return EXP;
+		} else if (functionClass == Sine.class) {
+			return SIN;
+		} else if (functionClass == Cosine.class) {
+			return COS;
+		} else if (functionClass == Tangent.class) {
+			return TAN;
+		}
+		return -1;
+	}
+
+	private static ExpressionNode createConstant(Object value) {
+		if (value instanceof Double) {
+			return new NumericalConstantNode((Double) value);
+		} else {
+			return new ConstantNode(value);
+		}
+	}
+
+	private static NumericalNode[] toNumerical(ExpressionNode[] nodes) {
+		NumericalNode[] numericalNodes = new NumericalNode[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			numericalNodes[i] = (NumericalNode) nodes[i];
+		}
+		return numericalNodes;
+	}
+
+	/** 
+	 * The values of the referenced attributes for a block of examples together with the buffers
+	 * for the results of the numerical nodes. A block is used by one thread only. It also serves as
+	 * evaluator for the children of callback functions like if.
+	 */
+	private static class Block implements EvaluatorI {
+
+		private final CompiledExpression expression;
+
+		private final Example[] examples = new Example[BLOCK_SIZE];
+
+		private final double[][] columns;
+
+		private final double[][] buffers;
+
+		/** The values of the nominal and date attributes as they are passed to the functions of the parser. */
+		private final Object[] objects;
+
+		/** The row for which the corresponding entry of objects was created or -1. */
+		private final int[] objectRows;
+
+		private final Stack<Object> stack = new Stack<Object>();
+
+		/** The number of examples in the block. */
+		private int size;
+
+		/** The row which is currently evaluated by {@link ExpressionNode#evaluate(Block, int)}. */
+		private int row;
+
+		private Block(CompiledExpression expression) {
+			this.expression = expression;
+			int numberOfAttributes = expression.attributes.size();
+			this.columns = new double[numberOfAttributes][BLOCK_SIZE];
+			this.buffers = new double[expression.numberOfBuffers][];
+			this.objects = new Object[numberOfAttributes];
+			this.objectRows = new int[numberOfAttributes];
+		}
+
+		/** Reads the values of the referenced attributes for the first size examples of the block. */
+		private void read(int size) {
+			for (int a = 0; a < columns.length; a++) {
+				Attribute attribute = expression.attributes.get(a);
+				double[] column = columns[a];
+				for (int i = 0; i < size; i++) {
+					column[i] = examples[i].getValue(attribute);
+				}
+				objectRows[a] = -1;
+			}
+			this.size = size;
+		}
+
+		private double[] getBuffer(int index) {
+			if (buffers[index] == null) {
+				buffers[index] = new double[BLOCK_SIZE];
+			}
+			return buffers[index];
+		}
+
+		/** Returns the value of the attribute with the given index in the given row in the way 
+		 *  {@link ExpressionParser#assignVariableValuesFromExample(JEP, Example, Map)} passes it to the parser. */
+		private Object getObject(int index, int row) {
+			if (objectRows[index] != row) {
+				Attribute attribute = expression.attributes.get(index);
+				double value = columns[index][row];
+				if (attribute.isNominal()) {
+					if (Double.isNaN(value)) {
+						objects[index] = UnknownValue.UNKNOWN_NOMINAL;
+					} else {
+						objects[index] = attribute.getAsString(value, NumericalAttribute.UNLIMITED_NUMBER_OF_DIGITS, false);
+					}
+				} else {
+					if (Double.isNaN(value)) {
+						objects[index] = UnknownValue.UNKNOWN_DATE;
+					} else {
+						Calendar cal = Calendar.getInstance();
+						cal.setTime(new Date((long) value));
+						objects[index] = cal;
+					}
+				}
+				objectRows[index] = row;
+			}
+			return objects[index];
+		}
+
+		@Override
+		public Object eval(Node node) throws ParseException {
+			ExpressionNode compiled = expression.nodes.get(node);
+			if (compiled == null) {
+				throw new ParseException("Cannot evaluate node " + node);
+			}
+			return compiled.evaluate(this, row);
+		}
+	}
+
+	/** A node of the compiled expression. */
+	private static abstract class ExpressionNode {
+
+		/** Returns the value of this node for the given row of the block as the parser does. */
+		abstract Object evaluate(Block block, int row) throws ParseException;
+	}
+
+	/** A node evaluated on primitive doubles. The parser would deliver the value as {@link Double}. */
+	private static abstract class NumericalNode extends ExpressionNode {
+
+		/** Returns the value of this node for the given row of the block. */
+		abstract double getValue(Block block, int row);
+
+		/** Returns the values of this node for all rows of the block. The returned array must not be changed. */
+		abstract double[] getValues(Block block);
+
+		@Override
+		Object evaluate(Block block, int row) {
+			return getValue(block, row);
+		}
+	}
+
+	private static class ConstantNode extends ExpressionNode {
+
+		private final Object value;
+
+		private ConstantNode(Object value) {
+			this.value = value;
+		}
+
+		@Override
+		Object evaluate(Block block, int row) {
+			return value;
+		}
+	}
+
+	private static class NumericalConstantNode extends NumericalNode {
+
+		private final double value;
+
+		private final double[] values = new double[BLOCK_SIZE];
+
+		private NumericalConstantNode(double value) {
+			this.value = value;
+			Arrays.fill(values, value);
+		}
+
+		@Override
+		double getValue(Block block, int row) {
+			return value;
+		}
+
+		@Override
+		double[] getValues(Block block) {
+			return values;
+		}
+	}
+
+	/** A nominal or date attribute. */
+	private static class VariableNode extends ExpressionNode {
+
+		private final int index;
+
+		private VariableNode(int index) {
+			this.index = index;
+		}
+
+		@Override
+		Object evaluate(Block block, int row) {
+			return block.getObject(index, row);
+		}
+	}
+
+	private static class NumericalVariableNode extends NumericalNode {
+
+		private final int index;
+
+		private NumericalVariableNode(int index) {
+			this.index = index;
+		}
+
+		@Override
+		double getValue(Block block, int row) {
+			return block.columns[index][row];
+		}
+
+		@Override
+		double[] getValues(Block block) {
+			return block.columns[index];
+		}
+	}
+
+	/** Invokes a function of the parser with the values of its arguments like the parser does. */
+	private static class FunctionNode extends ExpressionNode {
+
+		private final PostfixMathCommandI function;
+
+		private final ExpressionNode[] arguments;
+
+		private FunctionNode(PostfixMathCommandI function, ExpressionNode[] arguments) {
+			this.function = function;
+			this.arguments = arguments;
+		}
+
+		@Override
+		Object evaluate(Block block, int row) throws ParseException {
+			for (ExpressionNode argument : arguments) {
+				block.stack.push(argument.evaluate(block, row));
+			}
+			if (function.getNumberOfParameters() == -1) {
+				function.setCurNumberOfParameters(arguments.length);
+			}
+			function.run(block.stack);
+			return block.stack.pop();
+		}
+	}
+
+	/** Invokes a function of the parser which evaluates its arguments itself, e.g. if. */
+	private static class CallbackNode extends ExpressionNode {
+
+		private final CallbackEvaluationI function;
+
+		private final Node node;
+
+		private CallbackNode(CallbackEvaluationI function, Node node) {
+			this.function = function;
+			this.node = node;
+		}
+
+		@Override
+		Object evaluate(Block block, int row) throws ParseException {
+			block.row = row;
+			return function.evaluate(node, block);
+		}
+	}
+
+	private static class BinaryOperationNode extends NumericalNode {
+
+		private final int buffer;
+
+		private final int operator;
+
+		private final NumericalNode left;
+
+		private final NumericalNode right;
+
+		private BinaryOperationNode(int buffer, int operator, NumericalNode left, NumericalNode right) {
+			this.buffer = buffer;
+			this.operator = operator;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		double getValue(Block block, int row) {
+			return apply(operator, left.getValue(block, row), right.getValue(block, row));
+		}
+
+		@Override
+		double[] getValues(Block block) {
+			double[] a = left.getValues(block);
+			double[] b = right.getValues(block);
+			double[] values = block.getBuffer(buffer);
+			int size = block.size;
+			switch (operator) {
+			case ADD:
+				for (int i = 0; i < size; i++) {
+					values[i] = a[i] + b[i];
+				}
+				break;
+			case SUBTRACT:
+				for (int i = 0; i < size; i++) {
+					values[i] = a[i] - b[i];
+				}
+				break;
+			case MULTIPLY:
+				for (int i = 0; i < size; i++) {
+					values[i] = a[i] * b[i];
+				}
+				break;
+			case DIVIDE:
+				for (int i = 0; i < size; i++) {
+					values[i] = a[i] / b[i];
+				}
+				break;
+			default:
+				for (int i = 0; i < size; i++) {
+					values[i] = apply(operator, a[i], b[i]);
+				}
+			}
+			return values;
+		}
+
+		/** Applies the operator like the corresponding function of the parser does for two {@link Double}s. */
+		private static double apply(int operator, double a, double b) {
+			switch (operator) {
+			case ADD:
+				return a + b;
+			case SUBTRACT:
+				return a - b;
+			case MULTIPLY:
+				return a * b;
+			case DIVIDE:
+				return a / b;
+			case MODULUS:
+				return a % b;
+			case LESS:
+				return a < b ? 1 : 0;
+			case GREATER:
+				return a > b ? 1 : 0;
+			case LESS_EQUALS:
+				return a <= b ? 1 : 0;
+			case GREATER_EQUALS:
+				return a >= b ? 1 : 0;
+			case EQUALS:
+				return a == b ? 1 : 0;
+			case NOT_EQUALS:
+				return a != b ? 1 : 0;
+			case AND:
+				return a != 0 && b != 0 ? 1 : 0;
+			case OR:
+				return a != 0 || b != 0 ? 1 : 0;
+			default:
+				throw new IllegalStateException("Unknown operator: " + operator);
+			}
+		}
+	}
+
+	private static class UnaryOperationNode extends NumericalNode {
+
+		private final int buffer;
+
+		private final int operator;
+
+		private final NumericalNode argument;
+
+		private UnaryOperationNode(int buffer, int operator, NumericalNode argument) {
+			this.buffer = buffer;
+			this.operator = operator;
+			this.argument = argument;
+		}
+
+		@Override
+		double getValue(Block block, int row) {
+			return apply(operator, argument.getValue(block, row));
+		}
+
+		@Override
+		double[] getValues(Block block) {
+			double[] a = argument.getValues(block);
+			double[] values = block.getBuffer(buffer);
+			int size = block.size;
+			if (operator == NEGATE) {
+				for (int i = 0; i < size; i++) {
+					values[i] = -a[i];
+				}
+			} else {
+				for (int i = 0; i < size; i++) {
+					values[i] = apply(operator, a[i]);
+				}
+			}
+			return values;
+		}
+
+		/** Applies the operator like the corresponding function of the parser does for a {@link Double}. */
+		private static double apply(int operator, double a) {
+			switch (operator) {
+			case NEGATE:
+				return -a;
+			case NOT:
+				return a == 0 ? 1 : 0;
+			case ABS:
+				return Math.abs(a);
+			case FLOOR:
+				return Math.floor(a);
+			case CEIL:
+				return Math.ceil(a);
+			case EXP:
+				return Math.exp(a);
+			case SIN:
+				return Math.sin(a);
+			case COS:
+				return Math.cos(a);
+			case TAN:
+				return Math.tan(a);
+			default:
+				throw new IllegalStateException("Unknown operator: " + operator);
+			}
+		}
+	}
+
+	/** The if function of the parser with a numerical condition and numerical results. The optional fourth
+	 *  argument is delivered if the condition is zero or not a number. */
+	private static class NumericalIfNode extends NumericalNode {
+
+		private final int buffer;
+
+		private final NumericalNode[] arguments;
+
+		private NumericalIfNode(int buffer, NumericalNode[] arguments) {
+			this.buffer = buffer;
+			this.arguments = arguments;
+		}
+
+		@Override
+		double getValue(Block block, int row) {
+			return arguments[select(arguments[0].getValue(block, row))].getValue(block, row);
+		}
+
+		@Override
+		double[] getValues(Block block) {
+			double[] condition = arguments[0].getValues(block);
+			double[][] results = new double[arguments.length][];
+			for (int j = 1; j < arguments.length; j++) {
+				results[j] = arguments[j].getValues(block);
+			}
+			double[] values = block.getBuffer(buffer);
+			int size = block.size;
+			for (int i = 0; i < size; i++) {
+				values[i] = results[select(condition[i])][i];
+			}
+			return values;
+		}
+
+		/** Returns the index of the argument delivered for the given condition. */
+		private int select(double condition) {
+			if (condition > 0) {
+				return 1;
+			} else if (arguments.length == 3 || condition < 0) {
+				return 2;
+			} else {
+				return 3;
+			}
+		}
+	}
+}
@@ -500,6 +500,8 @@ public class ExpressionParser {
 
 	private JEP parser;
 
+	private boolean parallelExecution = false;
+
 	public ExpressionParser(boolean useStandardConstants) {
 		this(useStandardConstants, null);
 	}
@@ -800,39 +802,31 @@ public class ExpressionParser {
 		exampleSet.getExampleTable().addAttribute(newAttribute);
 		exampleSet.getAttributes().addRegular(newAttribute);
 
+		// compile the expression for the referenced attributes if possible
+		CompiledExpression compiledExpression = null;
+		if (name2attributes != null) {
+			compiledExpression = CompiledExpression.compile(parser, name2attributes);
+		}
+
 		// create attribute of correct type and all values
-		for (Example example : exampleSet) {
+		if (compiledExpression != null) {
+			compiledExpression.evaluate(exampleSet, newAttribute, name, function, parallelExecution);
+		} else {
+			for (Example example : exampleSet) {
 
-			// assign values to the variables
-			assignVariableValuesFromExample(parser, example, name2attributes);
+				// assign values to the variables
+				assignVariableValuesFromExample(parser, example, name2attributes);
 
-			// calculate result
-			result = parser.getValueAsObject();
+				// calculate result
+				result = parser.getValueAsObject();
 
-			// check for errors
-			if (parser.hasError()) {
-				throw new GenerationException("Offending attribute: '" + name + "', Expression: '" + function + "', Error: '" + parser.getErrorInfo() + "'");
-			}
-
-			// store result
-			if (result instanceof Boolean) {
-				if ((Boolean) result) {
-					example.setValue(newAttribute, newAttribute.getMapping().mapString("true"));
-				} else {
-					example.setValue(newAttribute, newAttribute.getMapping().mapString("false"));
+				// check for errors
+				if (parser.hasError()) {
+					throw new GenerationException("Offending attribute: '" + name + "', Expression: '" + function + "', Error: '" + parser.getErrorInfo() + "'");
 				}
-			} else if (result instanceof Number) {
-				example.setValue(newAttribute, ((Number) result).doubleValue());
-			} else if (result instanceof Complex) {
-				example.setValue(newAttribute, ((Complex) result).doubleValue());
-			} else if (result instanceof Date) {
-				example.setValue(newAttribute, ((Date) result).getTime());
-			} else if (result instanceof Calendar) {
-				example.setValue(newAttribute, ((Calendar) result).getTimeInMillis());
-			} else if (result instanceof UnknownValue) {
-				example.setValue(newAttribute, Double.NaN);
-			} else {
-				example.setValue(newAttribute, newAttribute.getMapping().mapString(result.toString()));
+
+				// store result
+				setResultValue(example, newAttribute, result);
 			}
 		}
 
@@ -854,6 +848,33 @@ public class ExpressionParser {
 		return newAttribute;
 	}
 
+	/**
+	 * Sets the given result of the parser as value of the attribute for the given example.
+	 * Booleans are mapped to &quot;true&quot; and &quot;false&quot;, dates to their time in
+	 * milliseconds and other objects to their string representation.
+	 */
+	static void setResultValue(Example example, Attribute attribute, Object result) {
+		if (result instanceof Boolean) {
+			if ((Boolean) result) {
+				example.setValue(attribute, attribute.getMapping().mapString("true"));
+			} else {
+				example.setValue(attribute, attribute.getMapping().mapString("false"));
+			}
+		} else if (result instanceof Number) {
+			example.setValue(attribute, ((Number) result).doubleValue());
+		} else if (result instanceof Complex) {
+			example.setValue(attribute, ((Complex) result).doubleValue());
+		} else if (result instanceof Date) {
+			example.setValue(attribute, ((Date) result).getTime());
+		} else if (result instanceof Calendar) {
+			example.setValue(attribute, ((Calendar) result).getTimeInMillis());
+		} else if (result instanceof UnknownValue) {
+			example.setValue(attribute, Double.NaN);
+		} else {
+			example.setValue(attribute, attribute.getMapping().mapString(result.toString()));
+		}
+	}
+
 	/**
 	 * Make the exampleSet's attributes available to the parser as variables.
 	 * Returns a map which is used by {@link #assignVariableValuesFromExample(JEP, Example, Map)}.
@@ -942,6 +963,15 @@ public class ExpressionParser {
 		return parser;
 	}
 
+	/** 
+	 * Enables or disables the concurrent evaluation of expressions by {@link #addAttribute(ExampleSet, String, String)}.
+	 * Only expressions consisting of numerical operators and attributes are evaluated concurrently and only 
+	 * if the data is kept in memory.
+	 */
+	public void setParallelExecution(boolean parallelExecution) {
+		this.parallelExecution = parallelExecution;
+	}
+
 	/**
 	 * Parses all lines of the AttributeConstruction file and returns a list
 	 * containing all newly generated attributes.
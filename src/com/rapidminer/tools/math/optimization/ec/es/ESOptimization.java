@@ -22,6 +22,7 @@
  */
 package com.rapidminer.tools.math.optimization.ec.es;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -305,6 +306,20 @@ public abstract class ESOptimization implements Optimization {
 	 */
 	public abstract PerformanceVector evaluateIndividual(Individual individual) throws OperatorException;
 
+	/**
+	 * Calculates the fitness of the given individuals and returns them in the same order. 
+	 * The default implementation invokes {@link #evaluateIndividual(Individual)} for each
+	 * of them. Subclasses might override this method in order to evaluate several individuals
+	 * at once, e.g. concurrently.
+	 */
+	protected List<PerformanceVector> evaluateIndividuals(List<Individual> individuals) throws OperatorException {
+		List<PerformanceVector> fitness = new ArrayList<PerformanceVector>(individuals.size());
+		for (Individual individual : individuals) {
+			fitness.add(evaluateIndividual(individual));
+		}
+		return fitness;
+	}
+
 	/**
 	 * This method is invoked after each evaluation. The default implementation
 	 * does nothing but subclasses might implement this method to support online
@@ -449,17 +464,26 @@ public abstract class ESOptimization implements Optimization {
 	}
 
 	protected void evaluateAll(Population population) throws OperatorException {
+		List<Individual> unevaluated = new ArrayList<Individual>();
 		for (int i = population.getNumberOfIndividuals() - 1; i >= 0; i--) {
 			Individual current = population.get(i);
 			if (current.getFitness() == null) {
-				evaluate(current, population);
+				unevaluated.add(current);
 			}
 			totalEvalCounter.incrementAndGet();
 		}
+		List<PerformanceVector> fitness = evaluateIndividuals(unevaluated);
+		for (int i = 0; i < unevaluated.size(); i++) {
+			evaluate(unevaluated.get(i), fitness.get(i), population);
+		}
 	}
 
 	protected void evaluate(Individual current, Population population) throws OperatorException {
-		PerformanceVector fitness = evaluateIndividual(current);
+		evaluate(current, evaluateIndividual(current), population);
+	}
+
+	/** Sets the given fitness of the individual or removes it from the population if the fitness is null. */
+	protected void evaluate(Individual current, PerformanceVector fitness, Population population) {
 		if (fitness != null) {
 			current.setFitness(fitness);
 			if ((currentBest == null) || (fitness.getMainCriterion().getFitness() > currentBest.getFitness().getMainCriterion().getFitness())) {
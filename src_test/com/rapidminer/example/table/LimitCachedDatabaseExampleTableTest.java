@@ -0,0 +1,157 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.example.table;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.rapidminer.example.Attribute;
+import com.rapidminer.example.Example;
+import com.rapidminer.example.ExampleSet;
+import com.rapidminer.operator.OperatorException;
+import com.rapidminer.test.TestContext;
+import com.rapidminer.tools.jdbc.DatabaseHandler;
+
+/**
+ * Tests the key based paging of the {@link LimitCachedDatabaseExampleTable} against an embedded
+ * HSQLDB database. The examples must be delivered in the order of the primary key, also when
+ * accessed randomly across batch boundaries.
+ */
+public class LimitCachedDatabaseExampleTableTest {
+
+	private static final String URL = "jdbc:hsqldb:mem:limit_cached_test";
+
+	private static final int SIZE = 4000;
+
+	private static Connection connection;
+
+	@BeforeClass
+	public static void createTables() throws Exception {
+		TestContext.get().initRapidMiner();
+		Class.forName("org.hsqldb.jdbcDriver");
+		connection = DriverManager.getConnection(URL, "sa", "");
+		Statement statement = connection.createStatement();
+		statement.execute("CREATE TABLE KEYED (ID INTEGER PRIMARY KEY, NAME VARCHAR(20), VAL DOUBLE)");
+		statement.execute("CREATE TABLE WIDE_KEYED (ID BIGINT PRIMARY KEY, VAL DOUBLE)");
+		statement.close();
+
+		// keys are inserted out of order and with gaps
+		Random random = new Random(1);
+		List<Integer> ids = new ArrayList<Integer>();
+		for (int i = 0; i < SIZE; i++) {
+			ids.add(i * 3 + random.nextInt(3));
+		}
+		Collections.shuffle(ids, random);
+		PreparedStatement insert = connection.prepareStatement("INSERT INTO KEYED VALUES (?, ?, ?)");
+		for (int id : ids) {
+			insert.setInt(1, id);
+			insert.setString(2, "v" + random.nextInt(50));
+			insert.setDouble(3, random.nextGaussian());
+			insert.executeUpdate();
+		}
+		insert.close();
+
+		insert = connection.prepareStatement("INSERT INTO WIDE_KEYED VALUES (?, ?)");
+		long[] wideKeys = { Long.MIN_VALUE + 1, -1, 0, Long.MAX_VALUE };
+		for (int i = 0; i < wideKeys.length; i++) {
+			insert.setLong(1, wideKeys[i]);
+			insert.setDouble(2, i);
+			insert.executeUpdate();
+		}
+		insert.close();
+	}
+
+	@AfterClass
+	public static void dropTables() throws SQLException {
+		Statement statement = connection.createStatement();
+		statement.execute("SHUTDOWN");
+		statement.close();
+		connection.close();
+	}
+
+	@Test
+	public void testKeyOrderAcrossBatches() throws SQLException, OperatorException {
+		List<Integer> expected = new ArrayList<Integer>();
+		Statement statement = connection.createStatement();
+		ResultSet resultSet = statement.executeQuery("SELECT ID FROM KEYED ORDER BY ID");
+		while (resultSet.next()) {
+			expected.add(resultSet.getInt(1));
+		}
+		resultSet.close();
+		statement.close();
+
+		DatabaseHandler handler = DatabaseHandler.getConnectedDatabaseHandler(URL, "sa", "");
+		try {
+			ExampleSet exampleSet = new LimitCachedDatabaseExampleTable(handler, "KEYED", DataRowFactory.TYPE_DOUBLE_ARRAY).createExampleSet();
+			Attribute id = exampleSet.getAttributes().get("ID");
+			List<Integer> sequential = new ArrayList<Integer>();
+			for (Example example : exampleSet) {
+				sequential.add((int) example.getValue(id));
+			}
+			assertEquals(expected, sequential);
+
+			// backwards and random access must load the right batches again
+			for (int i = SIZE - 1; i >= 0; i -= 7) {
+				assertEquals(expected.get(i).intValue(), (int) exampleSet.getExample(i).getValue(id));
+			}
+			Random random = new Random(2);
+			for (int k = 0; k < 500; k++) {
+				int i = random.nextInt(SIZE);
+				assertEquals(expected.get(i).intValue(), (int) exampleSet.getExample(i).getValue(id));
+			}
+		} finally {
+			handler.disconnect();
+		}
+	}
+
+	@Test
+	public void testWideKeys() throws SQLException, OperatorException {
+		DatabaseHandler handler = DatabaseHandler.getConnectedDatabaseHandler(URL, "sa", "");
+		try {
+			ExampleSet exampleSet = new LimitCachedDatabaseExampleTable(handler, "WIDE_KEYED", DataRowFactory.TYPE_DOUBLE_ARRAY).createExampleSet();
+			Attribute val = exampleSet.getAttributes().get("VAL");
+			int count = 0;
+			for (Example example : exampleSet) {
+				assertEquals(count, example.getValue(val), 0);
+				count++;
+			}
+			assertEquals(4, count);
+		} finally {
+			handler.disconnect();
+		}
+	}
+}
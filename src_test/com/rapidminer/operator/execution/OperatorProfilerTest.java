@@ -0,0 +1,189 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.operator.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.rapidminer.Process;
+import com.rapidminer.operator.ExecutionUnit;
+import com.rapidminer.operator.Operator;
+import com.rapidminer.operator.OperatorChain;
+import com.rapidminer.operator.OperatorCreationException;
+import com.rapidminer.operator.OperatorException;
+import com.rapidminer.operator.SimpleOperatorChain;
+import com.rapidminer.operator.generator.ExampleSetGenerator;
+import com.rapidminer.operator.meta.IteratingOperatorChain;
+import com.rapidminer.operator.preprocessing.filter.ExampleFilter;
+import com.rapidminer.test.TestContext;
+import com.rapidminer.tools.OperatorService;
+
+/**
+ * Tests the {@link OperatorProfiler} with a small process containing nested subprocesses and
+ * an operator applied several times, and the escaping of operator names in the JSON and CSV output.
+ */
+public class OperatorProfilerTest {
+
+	private static final int SIZE = 100;
+
+	private static final int ITERATIONS = 3;
+
+	@BeforeClass
+	public static void init() {
+		TestContext.get().initRapidMiner();
+	}
+
+	/**
+	 * Creates a process generating an example set which is passed through a subprocess and a loop,
+	 * each containing a filter keeping all examples.
+	 */
+	private static Process createProcess() throws OperatorCreationException {
+		Process process = new Process();
+		ExecutionUnit main = process.getRootOperator().getSubprocess(0);
+
+		Operator generator = OperatorService.createOperator(ExampleSetGenerator.class);
+		generator.setParameter(ExampleSetGenerator.PARAMETER_NUMBER_EXAMPLES, String.valueOf(SIZE));
+		generator.setParameter(ExampleSetGenerator.PARAMETER_NUMBER_OF_ATTRIBUTES, "3");
+		main.addOperator(generator);
+		generator.rename("Generate");
+
+		OperatorChain subprocess = OperatorService.createOperator(SimpleOperatorChain.class);
+		main.addOperator(subprocess);
+		subprocess.rename("Subprocess");
+		Operator innerFilter = addFilter(subprocess, "Inner Filter");
+
+		OperatorChain loop = OperatorService.createOperator(IteratingOperatorChain.class);
+		loop.setParameter(IteratingOperatorChain.PARAMETER_ITERATIONS, String.valueOf(ITERATIONS));
+		main.addOperator(loop);
+		loop.rename("Loop");
+		Operator loopFilter = addFilter(loop, "Loop Filter");
+
+		generator.getOutputPorts().getPortByName("output").connectTo(subprocess.getInputPorts().getPortByName("in 1"));
+		subprocess.getSubprocess(0).getInnerSources().getPortByName("in 1").connectTo(innerFilter.getInputPorts().getPortByName("example set input"));
+		innerFilter.getOutputPorts().getPortByName("example set output").connectTo(subprocess.getSubprocess(0).getInnerSinks().getPortByName("out 1"));
+		subprocess.getOutputPorts().getPortByName("out 1").connectTo(loop.getInputPorts().getPortByName("input 1"));
+		loop.getSubprocess(0).getInnerSources().getPortByName("input 1").connectTo(loopFilter.getInputPorts().getPortByName("example set input"));
+		loopFilter.getOutputPorts().getPortByName("example set output").connectTo(loop.getSubprocess(0).getInnerSinks().getPortByName("output 1"));
+		loop.getOutputPorts().getPortByName("output 1").connectTo(main.getInnerSinks().getPortByName("result 1"));
+		return process;
+	}
+
+	private static Operator addFilter(OperatorChain chain, String name) throws OperatorCreationException {
+		Operator filter = OperatorService.createOperator(ExampleFilter.class);
+		chain.getSubprocess(0).addOperator(filter);
+		filter.rename(name);
+		return filter;
+	}
+
+	private static Map<String, OperatorProfile> getProfilesByName(OperatorProfiler profiler) {
+		Map<String, OperatorProfile> profiles = new HashMap<String, OperatorProfile>();
+		for (OperatorProfile profile : profiler.getProfiles()) {
+			profiles.put(profile.getOperatorName(), profile);
+		}
+		return profiles;
+	}
+
+	@Test
+	public void testNestedProcess() throws OperatorException, OperatorCreationException {
+		Process process = createProcess();
+		OperatorProfiler profiler = OperatorProfiler.attach(process);
+		process.run();
+
+		Map<String, OperatorProfile> profiles = getProfilesByName(profiler);
+		String rootName = process.getRootOperator().getName();
+		assertEquals(1, profiles.get(rootName).getInvocations());
+		assertEquals(1, profiles.get("Generate").getInvocations());
+		assertEquals(1, profiles.get("Subprocess").getInvocations());
+		assertEquals(1, profiles.get("Inner Filter").getInvocations());
+		assertEquals(1, profiles.get("Loop").getInvocations());
+		assertEquals(ITERATIONS, profiles.get("Loop Filter").getInvocations());
+		assertEquals(rootName + "/" + process.getRootOperator().getSubprocess(0).getName() + "/Subprocess/" + 
+				((OperatorChain) process.getOperator("Subprocess")).getSubprocess(0).getName() + "/Inner Filter", profiles.get("Inner Filter").getPath());
+
+		for (OperatorProfile profile : profiles.values()) {
+			String name = profile.getOperatorName();
+			assertTrue(name, profile.getSelfWallTime() >= 0);
+			assertTrue(name, profile.getSelfWallTime() <= profile.getWallTime());
+			assertTrue(name, profile.getMinWallTime() <= profile.getMaxWallTime());
+			if (profile.getCpuTime() >= 0) {
+				assertTrue(name, profile.getSelfCpuTime() <= profile.getCpuTime());
+			}
+		}
+		assertTrue(profiles.get("Subprocess").getWallTime() >= profiles.get("Inner Filter").getWallTime());
+		assertTrue(profiles.get("Loop").getWallTime() >= profiles.get("Loop Filter").getWallTime());
+
+		assertEquals(0, profiles.get("Generate").getInputExamples());
+		assertEquals(SIZE, profiles.get("Generate").getOutputExamples());
+		assertEquals(SIZE, profiles.get("Subprocess").getInputExamples());
+		assertEquals(SIZE, profiles.get("Subprocess").getOutputExamples());
+		assertEquals(SIZE, profiles.get("Inner Filter").getInputExamples());
+		// the filters deliver the filtered and the original example set
+		assertEquals(2 * SIZE, profiles.get("Inner Filter").getOutputExamples());
+		assertEquals(SIZE, profiles.get("Loop").getInputExamples());
+		// collections are not counted
+		assertEquals(0, profiles.get("Loop").getOutputExamples());
+		assertEquals(ITERATIONS * SIZE, profiles.get("Loop Filter").getInputExamples());
+		assertEquals(2 * ITERATIONS * SIZE, profiles.get("Loop Filter").getOutputExamples());
+
+		// profiles are accumulated over several runs
+		process.run();
+		assertEquals(2 * ITERATIONS, getProfilesByName(profiler).get("Loop Filter").getInvocations());
+		profiler.clear();
+		assertTrue(profiler.getProfiles().isEmpty());
+	}
+
+	@Test
+	public void testEscaping() throws OperatorException, OperatorCreationException, IOException {
+		String name = "Say \"hi\", then\nleave\\ \u0001";
+		Process process = createProcess();
+		process.getOperator("Generate").rename(name);
+		OperatorProfiler profiler = OperatorProfiler.attach(process);
+		process.run();
+		OperatorProfile profile = getProfilesByName(profiler).get(name);
+		assertNotNull(profile);
+
+		StringWriter json = new StringWriter();
+		profiler.writeJSON(json);
+		String escapedName = "\"Say \\\"hi\\\", then\\nleave\\\\ \\u0001\"";
+		assertTrue(json.toString(), json.toString().contains("\"name\": " + escapedName + ","));
+		assertTrue(json.toString(), json.toString().contains("\"path\": \"" + process.getRootOperator().getName() + "/"));
+		assertEquals(-1, json.toString().indexOf('\u0001'));
+
+		StringWriter csv = new StringWriter();
+		profiler.writeCSV(csv);
+		String quotedName = "\"Say \"\"hi\"\", then\nleave\\ \u0001\"";
+		assertTrue(csv.toString(), csv.toString().contains("," + quotedName + "," + profile.getOperatorClass() + "," + profile.getInvocations() + ","));
+		String[] lines = csv.toString().split("\n");
+		// header, one line per operator and two additional lines for the line breaks in the name and the path
+		assertEquals(1 + profiler.getProfiles().size() + 2, lines.length);
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.operator.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.rapidminer.RapidMiner;
+import com.rapidminer.example.Attribute;
+import com.rapidminer.example.Example;
+import com.rapidminer.example.ExampleSet;
+import com.rapidminer.operator.OperatorCreationException;
+import com.rapidminer.operator.OperatorException;
+import com.rapidminer.test.TestContext;
+import com.rapidminer.tools.OperatorService;
+import com.rapidminer.tools.ParameterService;
+import com.rapidminer.tools.jdbc.DatabaseHandler;
+
+/**
+ * Tests the parallel reading of key ranges of the {@link DatabaseDataReader} against an embedded
+ * HSQLDB database. Parallel and sequential reading must deliver the same examples, tables with
+ * a key range exceeding the long range must be read sequentially.
+ */
+public class DatabaseDataReaderTest {
+
+	private static final String URL = "jdbc:hsqldb:mem:database_reader_test";
+
+	private static final int SIZE = 5000;
+
+	private static Connection connection;
+
+	@BeforeClass
+	public static void createTables() throws Exception {
+		TestContext.get().initRapidMiner();
+		ParameterService.setParameterValue(RapidMiner.PROPERTY_RAPIDMINER_GENERAL_NUMBER_OF_THREADS, "4");
+		Class.forName("org.hsqldb.jdbcDriver");
+		connection = DriverManager.getConnection(URL, "sa", "");
+		Statement statement = connection.createStatement();
+		statement.execute("CREATE TABLE KEYED (ID INTEGER PRIMARY KEY, NAME VARCHAR(20), VAL DOUBLE)");
+		statement.execute("CREATE TABLE UNKEYED (ID INTEGER, NAME VARCHAR(20), VAL DOUBLE)");
+		statement.execute("CREATE TABLE WIDE_KEYED (ID BIGINT PRIMARY KEY, VAL DOUBLE)");
+		statement.close();
+
+		Random random = new Random(1);
+		List<Integer> ids = new ArrayList<Integer>();
+		for (int i = 0; i < SIZE; i++) {
+			ids.add(i * 3 + random.nextInt(3));
+		}
+		Collections.shuffle(ids, random);
+		PreparedStatement keyed = connection.prepareStatement("INSERT INTO KEYED VALUES (?, ?, ?)");
+		PreparedStatement unkeyed = connection.prepareStatement("INSERT INTO UNKEYED VALUES (?, ?, ?)");
+		for (int id : ids) {
+			String name = random.nextInt(10) == 0 ? null : "v" + random.nextInt(50);
+			boolean missing = random.nextInt(20) == 0;
+			double value = random.nextGaussian();
+			for (PreparedStatement insert : new PreparedStatement[] { keyed, unkeyed }) {
+				insert.setInt(1, id);
+				insert.setString(2, name);
+				if (missing) {
+					insert.setNull(3, Types.DOUBLE);
+				} else {
+					insert.setDouble(3, value);
+				}
+				insert.executeUpdate();
+			}
+		}
+		keyed.close();
+		unkeyed.close();
+
+		PreparedStatement wide = connection.prepareStatement("INSERT INTO WIDE_KEYED VALUES (?, ?)");
+		long[] wideKeys = { Long.MIN_VALUE + 1, -1, 0, Long.MAX_VALUE };
+		for (int i = 0; i < wideKeys.length; i++) {
+			wide.setLong(1, wideKeys[i]);
+			wide.setDouble(2, i);
+			wide.executeUpdate();
+		}
+		wide.close();
+	}
+
+	@AfterClass
+	public static void dropTables() throws SQLException {
+		Statement statement = connection.createStatement();
+		statement.execute("SHUTDOWN");
+		statement.close();
+		connection.close();
+	}
+
+	private static ExampleSet read(String tableName, boolean parallel) throws OperatorException, OperatorCreationException {
+		DatabaseDataReader reader = OperatorService.createOperator(DatabaseDataReader.class);
+		reader.setParameter(DatabaseHandler.PARAMETER_DEFINE_CONNECTION, "url");
+		reader.setParameter(DatabaseHandler.PARAMETER_DATABASE_SYSTEM, "HSQLDB");
+		reader.setParameter(DatabaseHandler.PARAMETER_DATABASE_URL, URL);
+		reader.setParameter(DatabaseHandler.PARAMETER_USERNAME, "sa");
+		reader.setParameter(DatabaseHandler.PARAMETER_PASSWORD, "");
+		reader.setParameter(DatabaseHandler.PARAMETER_DEFINE_QUERY, DatabaseHandler.QUERY_MODES[DatabaseHandler.QUERY_TABLE]);
+		reader.setParameter(DatabaseHandler.PARAMETER_TABLE_NAME, tableName);
+		reader.setParameter(DatabaseDataReader.PARAMETER_PARALLEL_EXECUTION, Boolean.toString(parallel));
+		return reader.read();
+	}
+
+	private static List<String> toRows(ExampleSet exampleSet) {
+		List<String> rows = new ArrayList<String>(exampleSet.size());
+		for (Example example : exampleSet) {
+			StringBuilder row = new StringBuilder();
+			for (Attribute attribute : exampleSet.getAttributes()) {
+				row.append(example.getValueAsString(attribute)).append('|');
+			}
+			rows.add(row.toString());
+		}
+		return rows;
+	}
+
+	@Test
+	public void testParallelReadingIsKeyOrdered() throws OperatorException, OperatorCreationException {
+		ExampleSet exampleSet = read("KEYED", true);
+		assertEquals(SIZE, exampleSet.size());
+		Attribute id = exampleSet.getAttributes().get("ID");
+		double last = Double.NEGATIVE_INFINITY;
+		for (Example example : exampleSet) {
+			double current = example.getValue(id);
+			assertTrue(current > last);
+			last = current;
+		}
+
+		List<String> parallel = toRows(exampleSet);
+		List<String> sequential = toRows(read("KEYED", false));
+		Collections.sort(parallel);
+		Collections.sort(sequential);
+		assertEquals(sequential, parallel);
+	}
+
+	@Test
+	public void testTableWithoutKey() throws OperatorException, OperatorCreationException {
+		List<String> parallel = toRows(read("UNKEYED", true));
+		List<String> sequential = toRows(read("UNKEYED", false));
+		assertEquals(SIZE, parallel.size());
+		Collections.sort(parallel);
+		Collections.sort(sequential);
+		assertEquals(sequential, parallel);
+	}
+
+	@Test
+	public void testWideKeyRange() throws OperatorException, OperatorCreationException {
+		ExampleSet exampleSet = read("WIDE_KEYED", true);
+		assertEquals(4, exampleSet.size());
+		List<String> sequential = toRows(read("WIDE_KEYED", false));
+		List<String> parallel = toRows(exampleSet);
+		Collections.sort(parallel);
+		Collections.sort(sequential);
+		assertEquals(sequential, parallel);
+	}
+}
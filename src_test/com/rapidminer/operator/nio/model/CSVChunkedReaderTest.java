@@ -0,0 +1,293 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.operator.nio.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.DateFormat;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.rapidminer.RapidMiner;
+import com.rapidminer.operator.OperatorException;
+import com.rapidminer.test.TestContext;
+import com.rapidminer.tools.ParameterService;
+import com.rapidminer.tools.StrictDecimalFormat;
+
+/**
+ * Compares the rows read by the {@link CSVChunkedReader} with the rows read line by line by the
+ * {@link CSVResultSet}. Every file is read with all chunk sizes up to its length, so that every
+ * line break, also the two bytes of CRLF line endings, falls on a chunk boundary once.
+ */
+public class CSVChunkedReaderTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/** The columns are an id, a name, a value and a date. */
+	private static final int[] COLUMNS = { 0, 1, 2, 3 };
+
+	private static final int[] KINDS = { CSVChunkedReader.KIND_NUMBER, CSVChunkedReader.KIND_NOMINAL, CSVChunkedReader.KIND_NUMBER, CSVChunkedReader.KIND_DATE };
+
+	private static final DateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
+
+	@BeforeClass
+	public static void init() {
+		TestContext.get().initRapidMiner();
+		ParameterService.setParameterValue(RapidMiner.PROPERTY_RAPIDMINER_GENERAL_NUMBER_OF_THREADS, "4");
+	}
+
+	@Test
+	public void testQuotesAndEscapes() throws Exception {
+		assertSameRows("1;\"a;b\";2.5;2020-01-01\n" +
+				"2;esc\\;aped;\"3\";2020-01-02\n" +
+				"3;\"say \\\"hi\\\"\";-0;\n" +
+				"4;plain;1e5;2020-01-04\n" +
+				"5;\"gämma\";\"1.5\";\"2020-01-05\"\n",
+				new StrictDecimalFormat());
+	}
+
+	@Test
+	public void testCommentsAndBlankLines() throws Exception {
+		assertSameRows("# leading comment\n" +
+				"1;a;1.5;2020-01-01\n" +
+				"\n" +
+				"   \n" +
+				"2;b;2;2020-01-02 # trailing comment\n" +
+				"#only a comment\n" +
+				"3;c;#3;2020-01-03\n" +
+				"\n",
+				new StrictDecimalFormat());
+	}
+
+	@Test
+	public void testLineEndings() throws Exception {
+		String rows = "1;a;1.5;2020-01-01\n2;\"b;c\";2;2020-01-02\n\n3;gämma;3.25;\n4;;;2020-01-04\n";
+		assertSameRows(rows.replace("\n", "\r\n"), new StrictDecimalFormat());
+		assertSameRows(rows.replace("\n", "\r"), new StrictDecimalFormat());
+		assertSameRows("1;a;1.5;2020-01-01\r\n2;b;2;2020-01-02\r3;c;3;2020-01-03\n4;d;4;2020-01-04\r\n", new StrictDecimalFormat());
+	}
+
+	@Test
+	public void testTrailingSeparators() throws Exception {
+		assertSameRows("1;a;1.5;2020-01-01;\n" +
+				"2;b;;;\n" +
+				"3;;;\n" +
+				"4;d;4;2020-01-04;;;\n" +
+				"5\n",
+				new StrictDecimalFormat());
+	}
+
+	@Test
+	public void testDecimalAndGroupingCharacters() throws Exception {
+		String rows = "1;a;1.234,5;2020-01-01\n" +
+				"2;b;-0,5;2020-01-02\n" +
+				"3;c;12.345.678,25;2020-01-03\n" +
+				"4;d;1,2,3;2020-01-04\n" +
+				"5;e;,5;2020-01-05\n" +
+				"6;f;1.5;2020-01-06\n";
+		assertSameRows(rows, new StrictDecimalFormat(','));
+		assertSameRows(rows, new StrictDecimalFormat(',', '.'));
+		assertSameRows(rows.replace(',', 'x').replace('.', ',').replace('x', '.'), new StrictDecimalFormat('.', ','));
+		assertSameRows(rows, null);
+	}
+
+	@Test
+	public void testUnparseableLines() throws Exception {
+		assertSameRows("1;a;1;2020-01-01\n" +
+				"\"unclosed;x;2;2020-01-02\n" +
+				"2;b;abc;notadate\n" +
+				"3;c;\"3\"x;2020-01-03\n" +
+				"4;d;4;2020-01-04\n" +
+				"x1;e;5a;2020-01-05x\n",
+				new StrictDecimalFormat());
+	}
+
+	@Test
+	public void testSkippedRows() throws Exception {
+		String rows = "id;name;value;date\n# comment\n\"broken\n1;a;1.5;2020-01-01\r\n2;b;2;2020-01-02\r\n";
+		File file = createFile(rows);
+		try {
+			for (boolean parallel : new boolean[] { false, true }) {
+				CSVResultSetConfiguration configuration = createConfiguration(file, parallel);
+				NumberFormat numberFormat = new StrictDecimalFormat();
+				List<String> expected = readRowWise(configuration, numberFormat);
+				expected = expected.subList(1, expected.size());
+				for (int chunkSize = 1; chunkSize <= file.length() + 1; chunkSize++) {
+					assertEquals("chunk size " + chunkSize, expected, readChunked(configuration, numberFormat, chunkSize, 1));
+				}
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/** Reads the given file content with all chunk sizes sequentially and in parallel. */
+	private void assertSameRows(String content, NumberFormat numberFormat) throws Exception {
+		File file = createFile(content);
+		try {
+			for (boolean parallel : new boolean[] { false, true }) {
+				CSVResultSetConfiguration configuration = createConfiguration(file, parallel);
+				List<String> expected = readRowWise(configuration, numberFormat);
+				for (int chunkSize = 1; chunkSize <= file.length() + 1; chunkSize++) {
+					assertEquals("parallel " + parallel + ", chunk size " + chunkSize, expected, readChunked(configuration, numberFormat, chunkSize, 0));
+				}
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static File createFile(String content) throws IOException {
+		File file = File.createTempFile("chunked", ".csv");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes(UTF_8));
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private static CSVResultSetConfiguration createConfiguration(File file, boolean parallel) {
+		CSVResultSetConfiguration configuration = new CSVResultSetConfiguration();
+		configuration.setCsvFile(file.getAbsolutePath());
+		configuration.setEncoding(UTF_8);
+		configuration.setParallelExecution(parallel);
+		return configuration;
+	}
+
+	/**
+	 * Returns the rows of the result set with the values parsed like the {@link DataResultSetTranslator}
+	 * does, followed by the lines which could not be split.
+	 */
+	private static List<String> readRowWise(CSVResultSetConfiguration configuration, NumberFormat numberFormat) throws OperatorException, com.rapidminer.operator.nio.model.ParseException {
+		List<String> rows = new ArrayList<String>();
+		CSVResultSet resultSet = new CSVResultSet(configuration, null);
+		try {
+			while (resultSet.hasNext()) {
+				resultSet.next(null);
+				StringBuilder row = new StringBuilder();
+				for (int i = 0; i < KINDS.length; i++) {
+					int column = COLUMNS[i];
+					if (resultSet.isMissing(column)) {
+						row.append('?');
+					} else {
+						String value = resultSet.getString(column);
+						try {
+							switch (KINDS[i]) {
+							case CSVChunkedReader.KIND_NUMBER:
+								if (numberFormat == null) {
+									row.append(Double.parseDouble(value));
+								} else {
+									Number number = numberFormat.parse(value);
+									row.append(number == null ? "?" : Double.toString(number.doubleValue()));
+								}
+								break;
+							case CSVChunkedReader.KIND_DATE:
+								row.append(DATE_FORMAT.parse(value).getTime());
+								break;
+							default:
+								row.append(value);
+							}
+						} catch (ParseException e) {
+							row.append('!').append(value);
+						} catch (NumberFormatException e) {
+							row.append('!').append(value);
+						}
+					}
+					row.append('|');
+				}
+				rows.add(row.toString());
+			}
+			for (ParsingError error : resultSet.getErrors()) {
+				rows.add("line " + error.getOriginalValue());
+			}
+		} finally {
+			resultSet.close();
+		}
+		return rows;
+	}
+
+	/** Returns the rows of the chunks of the given size in the same form as {@link #readRowWise}. */
+	private static List<String> readChunked(CSVResultSetConfiguration configuration, NumberFormat numberFormat, int chunkSize, int skippedRows) throws OperatorException {
+		List<String> rows = new ArrayList<String>();
+		List<String> lineErrors = new ArrayList<String>();
+		CSVChunkedReader reader = new CSVChunkedReader(configuration, null, COLUMNS, KINDS, numberFormat, DATE_FORMAT, chunkSize);
+		try {
+			reader.skipRows(skippedRows);
+			for (List<CSVChunkedReader.Chunk> chunks = reader.readChunks(); !chunks.isEmpty(); chunks = reader.readChunks()) {
+				for (CSVChunkedReader.Chunk chunk : chunks) {
+					Map<String, String> cellErrors = new HashMap<String, String>();
+					for (CSVChunkedReader.CellError error : chunk.getCellErrors()) {
+						cellErrors.put(error.row + ":" + error.attribute, error.value);
+					}
+					for (CSVChunkedReader.LineError error : chunk.getLineErrors()) {
+						lineErrors.add("line " + error.line);
+					}
+					for (int r = 0; r < chunk.getSize(); r++) {
+						StringBuilder row = new StringBuilder();
+						for (int i = 0; i < KINDS.length; i++) {
+							double value = chunk.getValue(i, r);
+							String error = cellErrors.get(r + ":" + i);
+							if (error != null) {
+								row.append('!').append(error);
+							} else if (Double.isNaN(value)) {
+								row.append('?');
+							} else {
+								switch (KINDS[i]) {
+								case CSVChunkedReader.KIND_NUMBER:
+									row.append(value);
+									break;
+								case CSVChunkedReader.KIND_DATE:
+									row.append((long) value);
+									break;
+								default:
+									row.append(chunk.getDictionary(i).get((int) value));
+								}
+							}
+							row.append('|');
+						}
+						rows.add(row.toString());
+					}
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		rows.addAll(lineErrors);
+		return rows;
+	}
+}
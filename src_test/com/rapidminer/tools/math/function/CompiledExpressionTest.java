@@ -0,0 +1,194 @@
+/*
+ *  RapidMiner
+ *
+ *  Copyright (C) 2001-2013 by Rapid-I and the contributors
+ *
+ *  Complete list of developers available at our web site:
+ *
+ *       http://rapid-i.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program.  If not, see http://www.gnu.org/licenses/.
+ */
+package com.rapidminer.tools.math.function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.nfunk.jep.JEP;
+
+import com.rapidminer.RapidMiner;
+import com.rapidminer.example.Attribute;
+import com.rapidminer.example.Example;
+import com.rapidminer.example.ExampleSet;
+import com.rapidminer.example.table.AttributeFactory;
+import com.rapidminer.example.table.DoubleArrayDataRow;
+import com.rapidminer.example.table.MemoryExampleTable;
+import com.rapidminer.generator.GenerationException;
+import com.rapidminer.test.TestContext;
+import com.rapidminer.tools.Ontology;
+import com.rapidminer.tools.ParameterService;
+
+/**
+ * Compares the values of expressions evaluated by a {@link CompiledExpression} with the values
+ * computed by the {@link JEP} parser for each example. The data contains missing values, signed
+ * zeros and infinite values, the expressions cover the operators and functions which are evaluated
+ * on primitive doubles as well as functions invoked through the parser.
+ */
+public class CompiledExpressionTest {
+
+	/** Large enough to evaluate numerical expressions concurrently. */
+	private static final int SIZE = 30000;
+
+	/**
+	 * Expressions using these functions may differ by one ulp, since the interpreted and the JIT
+	 * compiled implementations of e.g. {@link Math#pow(double, double)} may round differently.
+	 */
+	private static final Pattern INEXACT_FUNCTIONS = Pattern.compile("\\^|\\b(pow|exp|log|ln|ld|sin|cos|tan|atan2)\\(");
+
+	private static final String[] EXPRESSIONS = {
+		// arithmetic
+		"a+b", "a-b*c", "a/b", "a%c", "-a", "a^2", "pow(a,b)", "sqrt(a)", "abs(a)+floor(b)-ceil(a)", "exp(b)",
+		"sin(a)*cos(b)/tan(c)", "a+b+c+a*b*c-a/c", "mod(a, c)", "a + pi", "e*a", "NaN", "3", "-a == 0",
+		// comparisons
+		"a<b", "a>b", "a<=c", "a>=c", "a==c", "a!=c", "a != a", "a < NaN", "a == b == c", "(a>b) + (b>c)",
+		"n==\"x\"", "a == \"x\"", "n < 3", "bn == \"t\"", "d == d",
+		// logical operators
+		"a&&b", "a||c", "!a", "!(a>b)", "!!a", "a && (b || c)", "!(a && b) || c", "a > 2 && n == \"x\"",
+		"!n", "!(n==\"x\")", "a && n", "n || a", "!missing(d)", "true", "true && a",
+		// conditions
+		"if(a>0, b, c)", "if(a, b, c)", "if(a-b, 1, 2, 3)", "if(c, 1, 2, 3)", "if(a>b, \"big\", n)",
+		"if(n==\"x\", a, b)", "if(true, a, b)", "if(missing(a), 0, a)", "if(a>0, if(b>0, 1, 2), 3)",
+		"if(a>b, 1, 2)*c", "if(n, 1, 2)", "if(a>0, n, \"neg\")", "if(bn==\"t\", d, d)", "if(a>0, a*b + c/3, -a - b*b) + abs(b) * (a >= c)",
+		// other functions
+		"n", "n + \"_s\"", "concat(n, str(a))", "length(n)", "upper(n)", "cut(n, 0, 2)", "cut(n, 5, 10)", "missing(n)",
+		"missing(a)", "missing(d)", "\"const\"", "min(a,b,c)", "max(a,b)", "avg(a,b,c)", "sum(a,b)", "round(a)",
+		"round(a, 2)", "sgn(a)", "ld(a)", "ln(a)", "log(a)", "bn", "a + n", "parse(n)", "const(a)", "atan2(a,b)",
+		"binom(c, 2)", "d", "str(d)", "date_add(d, c, DATE_UNIT_DAY)", "date_diff(d, date_add(d, 1, DATE_UNIT_HOUR))",
+		"date_before(d, d)", "date_get(d, DATE_UNIT_YEAR)", "date_add(n, 1, DATE_UNIT_DAY)"
+	};
+
+	@BeforeClass
+	public static void init() {
+		TestContext.get().initRapidMiner();
+		ParameterService.setParameterValue(RapidMiner.PROPERTY_RAPIDMINER_GENERAL_NUMBER_OF_THREADS, "4");
+	}
+
+	@Test
+	public void testSequentialEvaluation() throws GenerationException {
+		for (String expression : EXPRESSIONS) {
+			assertSameAsParser(expression, false);
+		}
+	}
+
+	@Test
+	public void testParallelEvaluation() throws GenerationException {
+		for (String expression : EXPRESSIONS) {
+			assertSameAsParser(expression, true);
+		}
+	}
+
+	private static ExampleSet createExampleSet() {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		attributes.add(AttributeFactory.createAttribute("a", Ontology.REAL));
+		attributes.add(AttributeFactory.createAttribute("b", Ontology.REAL));
+		attributes.add(AttributeFactory.createAttribute("c", Ontology.INTEGER));
+		Attribute nominal = AttributeFactory.createAttribute("n", Ontology.NOMINAL);
+		attributes.add(nominal);
+		attributes.add(AttributeFactory.createAttribute("d", Ontology.DATE_TIME));
+		Attribute binominal = AttributeFactory.createAttribute("bn", Ontology.BINOMINAL);
+		attributes.add(binominal);
+		MemoryExampleTable table = new MemoryExampleTable(attributes);
+
+		Random random = new Random(1);
+		String[] words = { "x", "yy", "hello world", "zzz", "Abc" };
+		double[] specialValues = { 0, -0.0, Double.NaN, 1, -1, Double.POSITIVE_INFINITY, 2.5, 1e-9 };
+		for (int i = 0; i < SIZE; i++) {
+			double[] values = new double[6];
+			values[0] = random.nextInt(5) == 0 ? specialValues[random.nextInt(specialValues.length)] : random.nextGaussian() * 10;
+			values[1] = random.nextInt(5) == 0 ? specialValues[random.nextInt(specialValues.length)] : random.nextGaussian();
+			values[2] = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(7) - 3;
+			values[3] = random.nextInt(10) == 0 ? Double.NaN : nominal.getMapping().mapString(words[random.nextInt(words.length)]);
+			values[4] = random.nextInt(10) == 0 ? Double.NaN : 1.3e12 + random.nextInt(1000000) * 1000.0;
+			values[5] = random.nextInt(10) == 0 ? Double.NaN : binominal.getMapping().mapString(random.nextBoolean() ? "t" : "f");
+			table.addDataRow(new DoubleArrayDataRow(values));
+		}
+		return table.createExampleSet();
+	}
+
+	/**
+	 * Evaluates the expression by the parser for each example and by the compiled expression and
+	 * compares the values and nominal mappings of the results. Either both evaluations fail or none.
+	 */
+	private static void assertSameAsParser(String expression, boolean parallel) throws GenerationException {
+		ExampleSet exampleSet = createExampleSet();
+		JEP parser = new ExpressionParser(true).getParser();
+		parser.setAllowUndeclared(true);
+		parser.parseExpression(expression);
+		assertFalse(expression, parser.hasError());
+		Map<String, Attribute> name2attributes = ExpressionParser.deriveVariablesFromExampleSet(parser, exampleSet);
+
+		Attribute expected = AttributeFactory.createAttribute("expected", Ontology.NOMINAL);
+		Attribute actual = AttributeFactory.createAttribute("actual", Ontology.NOMINAL);
+		exampleSet.getExampleTable().addAttribute(expected);
+		exampleSet.getExampleTable().addAttribute(actual);
+
+		boolean parserFailed = false;
+		for (Example example : exampleSet) {
+			ExpressionParser.assignVariableValuesFromExample(parser, example, name2attributes);
+			Object result = parser.getValueAsObject();
+			if (parser.hasError()) {
+				parserFailed = true;
+				break;
+			}
+			ExpressionParser.setResultValue(example, expected, result);
+		}
+
+		CompiledExpression compiledExpression = CompiledExpression.compile(parser, name2attributes);
+		assertNotNull(expression, compiledExpression);
+		try {
+			compiledExpression.evaluate(exampleSet, actual, "actual", expression, parallel);
+			if (parserFailed) {
+				fail("Expected evaluation of " + expression + " to fail");
+			}
+		} catch (GenerationException e) {
+			if (!parserFailed) {
+				throw e;
+			}
+			return;
+		}
+
+		assertEquals(expression, expected.getMapping().getValues(), actual.getMapping().getValues());
+		long tolerance = INEXACT_FUNCTIONS.matcher(expression).find() ? 1 : 0;
+		int row = 0;
+		for (Example example : exampleSet) {
+			long expectedBits = Double.doubleToLongBits(example.getValue(expected));
+			long actualBits = Double.doubleToLongBits(example.getValue(actual));
+			// adjacent bit patterns of doubles with the same sign differ by one ulp
+			if (Math.abs(expectedBits - actualBits) > tolerance) {
+				assertEquals(expression + ", row " + row, expectedBits, actualBits);
+			}
+			row++;
+		}
+	}
+}